@@ -40,6 +40,10 @@ public enum Group
     LOG_ROTATION( "LogRotation" ),
     /** Checkpoint and store flush. */
     CHECKPOINT( "CheckPoint" ),
+    /** Forces the transaction log, when committing transactions don't wait for it. */
+    TRANSACTION_LOG_FORCE( "TransactionLogForce" ),
+    /** The log append and store apply stages of the pipelined commit process. */
+    TRANSACTION_COMMIT_PIPELINE( "TransactionCommitPipeline" ),
     /** Various little periodic tasks that need to be done on a regular basis to keep the store in good shape. */
     STORAGE_MAINTENANCE( "StorageMaintenance" ),
     /** Terminates kernel transactions that have timed out. */
@@ -50,6 +54,8 @@ public enum Group
     INDEX_SAMPLING( "IndexSampling" ),
     /** Background index update applier, for eventually consistent indexes. */
     INDEX_UPDATING( "IndexUpdating", ExecutorServiceFactory.singleThread() ), // Single-threaded to serialise updates with opening/closing/flushing of indexes.
+    /** Writes the records of recovered transactions in parallel. */
+    RECOVERY_WORKER( "RecoveryWorker" ),
     /** Thread pool for anyone who want some help doing file IO in parallel. */
     FILE_IO_HELPER( "FileIOHelper" ),
     NATIVE_SECURITY( "NativeSecurity" ),
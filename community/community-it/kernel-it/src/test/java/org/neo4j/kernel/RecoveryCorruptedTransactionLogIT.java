@@ -31,6 +31,7 @@ import org.junit.rules.RuleChain;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
@@ -44,6 +45,7 @@ import org.neo4j.graphdb.Node;
 import org.neo4j.graphdb.RelationshipType;
 import org.neo4j.graphdb.Transaction;
 import org.neo4j.graphdb.factory.GraphDatabaseSettings;
+import org.neo4j.io.ByteUnit;
 import org.neo4j.io.fs.OpenMode;
 import org.neo4j.io.fs.StoreChannel;
 import org.neo4j.kernel.configuration.Settings;
@@ -141,6 +143,34 @@ public class RecoveryCorruptedTransactionLogIT
         assertEquals( numberOfClosedTransactions, recoveryMonitor.getNumberOfRecoveredTransactions() );
     }
 
+    @Test
+    public void doNotTreatZeroFilledTailOfPreallocatedLogFileAsCorrupted() throws IOException
+    {
+        GraphDatabaseAPI database = startDbWithLogPreallocation();
+        TransactionIdStore transactionIdStore = getTransactionIdStore( database );
+        long lastClosedTransactionBeforeStart = transactionIdStore.getLastClosedTransactionId();
+        for ( int i = 0; i < 10; i++ )
+        {
+            generateTransaction( database );
+        }
+        long numberOfClosedTransactions = transactionIdStore.getLastClosedTransactionId() - lastClosedTransactionBeforeStart;
+        database.shutdown();
+        removeLastCheckpointRecordFromLastLogFile();
+        // A crash leaves the zero-filled tail of the preallocated log file in place, which a clean shutdown truncates.
+        File highestLogFile = logFiles.getHighestLogFile();
+        try ( StoreChannel storeChannel = fileSystemRule.open( highestLogFile, OpenMode.READ_WRITE ) )
+        {
+            storeChannel.writeAll( ByteBuffer.allocate( (int) ByteUnit.mebiBytes( 1 ) ), highestLogFile.length() );
+        }
+
+        database = startDbWithLogPreallocation();
+        database.shutdown();
+
+        assertTrue( recoveryMonitor.wasRecoveryRequired() );
+        assertEquals( numberOfClosedTransactions, recoveryMonitor.getNumberOfRecoveredTransactions() );
+        assertFalse( new File( storeDir, CorruptedLogsTruncator.CORRUPTED_TX_LOGS_BASE_NAME ).exists() );
+    }
+
     @Test
     public void doNotTruncateNewerTransactionLogFileWhenFailOnError() throws IOException
     {
@@ -601,6 +631,13 @@ public class RecoveryCorruptedTransactionLogIT
         }
     }
 
+    private GraphDatabaseAPI startDbWithLogPreallocation()
+    {
+        return (GraphDatabaseAPI) databaseFactory.newEmbeddedDatabaseBuilder( storeDir )
+                .setConfig( GraphDatabaseSettings.tx_log_preallocation, Settings.TRUE )
+                .newGraphDatabase();
+    }
+
     private GraphDatabaseAPI startDbNoRecoveryOfCorruptedLogs()
     {
         return (GraphDatabaseAPI) databaseFactory.newEmbeddedDatabaseBuilder( storeDir )
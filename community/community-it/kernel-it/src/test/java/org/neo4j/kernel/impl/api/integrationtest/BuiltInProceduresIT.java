@@ -275,6 +275,10 @@ public class BuiltInProceduresIT extends KernelIntegrationTest
                                 "(relationship :: RELATIONSHIP?, weight :: FLOAT?)", "Search relationship in explicit index, ending at the node 'out'.",
                         "READ" ),
                 proc( "dbms.clearQueryCaches", "() :: (value :: STRING?)", "Clears all query caches.", "DBMS" ),
+                proc( "dbms.listPageCacheFiles", "() :: (file :: STRING?, pageSize :: INTEGER?, pins :: INTEGER?, hits :: INTEGER?, " +
+                                "faults :: INTEGER?, hitRatio :: FLOAT?, bytesRead :: INTEGER?, bytesWritten :: INTEGER?, flushes :: INTEGER?, " +
+                                "evictions :: INTEGER?)",
+                        "List the page cache statistics of all files that are currently mapped by the page cache.", "DBMS" ),
                 proc( "db.createIndex", "(index :: STRING?, providerName :: STRING?) :: (index :: STRING?, providerName :: STRING?, status :: STRING?)",
                         "Create a schema index with specified index provider (for example: CALL db.createIndex(\":Person(name)\", \"lucene+native-2.0\")) - " +
                                 "YIELD index, providerName, status", "SCHEMA" ),
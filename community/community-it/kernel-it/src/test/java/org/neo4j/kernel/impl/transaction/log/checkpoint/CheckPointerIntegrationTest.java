@@ -26,12 +26,18 @@ import org.junit.Test;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Label;
 import org.neo4j.graphdb.Transaction;
 import org.neo4j.graphdb.factory.GraphDatabaseBuilder;
 import org.neo4j.graphdb.factory.GraphDatabaseSettings;
+import org.neo4j.graphdb.mockfs.EphemeralFileSystemAbstraction;
 import org.neo4j.graphdb.mockfs.UncloseableDelegatingFileSystemAbstraction;
 import org.neo4j.io.fs.FileSystemAbstraction;
 import org.neo4j.kernel.impl.transaction.log.LogEntryCursor;
@@ -53,6 +59,7 @@ import org.neo4j.test.rule.TestDirectory;
 import org.neo4j.test.rule.fs.EphemeralFileSystemRule;
 
 import static java.lang.System.currentTimeMillis;
+import static java.util.concurrent.TimeUnit.MINUTES;
 import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
@@ -133,6 +140,90 @@ public class CheckPointerIntegrationTest
                 checkPoints.toString(), checkPoints.size() >= 2 );
     }
 
+    @Test
+    public void shouldNotRecoverIndexEntriesOfLostTransactionsWhenForcingTheLogAsynchronously() throws Throwable
+    {
+        // given
+        Label label = Label.label( "Label" );
+        GraphDatabaseService db = builder
+                .setConfig( GraphDatabaseSettings.tx_log_async_force_interval, "1h" )
+                .setConfig( GraphDatabaseSettings.check_point_interval_time, "300m" )
+                .setConfig( GraphDatabaseSettings.check_point_interval_tx, "10000" )
+                .setConfig( GraphDatabaseSettings.logical_log_rotation_threshold, "1g" )
+                .newGraphDatabase();
+        try ( Transaction tx = db.beginTx() )
+        {
+            db.schema().indexFor( label ).on( "id" ).create();
+            tx.success();
+        }
+        try ( Transaction tx = db.beginTx() )
+        {
+            db.schema().awaitIndexesOnline( 1, MINUTES );
+            tx.success();
+        }
+        int checkPointedNodes = 100;
+        for ( int i = 0; i < checkPointedNodes; i++ )
+        {
+            createNode( db, label, i );
+        }
+
+        // when transactions keep committing during a check point, and some more after it, before the machine crashes
+        AtomicInteger nextId = new AtomicInteger( checkPointedNodes );
+        AtomicBoolean checkPointing = new AtomicBoolean( true );
+        Thread committer = new Thread( () ->
+        {
+            while ( checkPointing.get() )
+            {
+                createNode( db, label, nextId.getAndIncrement() );
+            }
+        } );
+        committer.start();
+        ((GraphDatabaseAPI) db).getDependencyResolver().resolveDependency( CheckPointer.class )
+                .forceCheckPoint( new SimpleTriggerInfo( "test" ) );
+        checkPointing.set( false );
+        committer.join();
+        for ( int i = 0; i < 10; i++ )
+        {
+            createNode( db, label, nextId.getAndIncrement() );
+        }
+        fsRule.crash();
+        EphemeralFileSystemAbstraction crashedFs = fsRule.snapshot();
+        db.shutdown();
+
+        // then the recovered store and index agree on the nodes that survived, including all check pointed ones
+        db = new TestGraphDatabaseFactory().setFileSystem( new UncloseableDelegatingFileSystemAbstraction( crashedFs ) )
+                .newImpermanentDatabase( testDirectory.databaseDir() );
+        try ( Transaction tx = db.beginTx() )
+        {
+            Set<Integer> storedIds = new HashSet<>();
+            db.findNodes( label ).forEachRemaining( node -> storedIds.add( (Integer) node.getProperty( "id" ) ) );
+            for ( int id = 0; id < nextId.get(); id++ )
+            {
+                assertEquals( "Index entry of node " + id, storedIds.contains( id ),
+                        db.findNode( label, "id", id ) != null );
+            }
+            for ( int id = 0; id < checkPointedNodes; id++ )
+            {
+                assertTrue( "Check pointed node " + id + " was lost", storedIds.contains( id ) );
+            }
+            tx.success();
+        }
+        finally
+        {
+            db.shutdown();
+            crashedFs.close();
+        }
+    }
+
+    private static void createNode( GraphDatabaseService db, Label label, int id )
+    {
+        try ( Transaction tx = db.beginTx() )
+        {
+            db.createNode( label ).setProperty( "id", id );
+            tx.success();
+        }
+    }
+
     private static boolean checkPointInTxLog( GraphDatabaseService db ) throws IOException
     {
         LogFiles logFiles = ((GraphDatabaseAPI)db).getDependencyResolver().resolveDependency( LogFiles.class );
@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2002-2020 "Neo4j,"
+ * Neo4j Sweden AB [http://neo4j.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.io.pagecache.impl.muninn;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how well the {@link LatchMap} lets concurrent page faults on unrelated pages proceed in parallel. Every
+ * thread takes and releases latches for random page ids, the way a file that is being faulted in by many threads at
+ * once would. A bucket size of one behaves like the plain lock striping that was used before buckets were introduced.
+ */
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+@Threads( Threads.MAX )
+public class LatchMapBenchmark
+{
+    @State( Scope.Benchmark )
+    public static class Latches
+    {
+        @Param( {"128", "1024"} )
+        int buckets;
+
+        @Param( {"1", "4"} )
+        int bucketSize;
+
+        LatchMap latchMap;
+
+        @Setup( Level.Trial )
+        public void createLatchMap()
+        {
+            latchMap = new LatchMap( buckets, bucketSize );
+        }
+    }
+
+    @Benchmark
+    public boolean takeOrAwaitLatch( Latches latches )
+    {
+        LatchMap.Latch latch = latches.latchMap.takeOrAwaitLatch( ThreadLocalRandom.current().nextLong( 1 << 20 ) );
+        if ( latch != null )
+        {
+            latch.release();
+            return true;
+        }
+        return false;
+    }
+
+    @Benchmark
+    public boolean tryTakeLatch( Latches latches )
+    {
+        LatchMap.Latch latch = latches.latchMap.tryTakeLatch( ThreadLocalRandom.current().nextLong( 1 << 20 ) );
+        if ( latch != null )
+        {
+            latch.release();
+            return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2002-2020 "Neo4j,"
+ * Neo4j Sweden AB [http://neo4j.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.io.pagecache.impl.muninn;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.neo4j.io.pagecache.PageCursor;
+
+import static org.neo4j.io.pagecache.PagedFile.PF_SHARED_READ_LOCK;
+import static org.neo4j.io.pagecache.PagedFile.PF_SHARED_WRITE_LOCK;
+
+/**
+ * Measures the cost of pinning and unpinning pages through {@link MuninnReadPageCursor} and
+ * {@link MuninnWritePageCursor}, at various hit ratios. With a hit ratio below 1.0, some of the pins will have to
+ * page fault, and in turn cause evictions.
+ * <p>
+ * Run with {@code -t <threads>} to measure the effects of concurrency.
+ */
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 5, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( 1 )
+public class MuninnPageCursorBenchmark
+{
+    @State( Scope.Benchmark )
+    public static class CacheState extends PageCacheBenchmarkState
+    {
+        @Param( {"1.0", "0.9", "0.5", "0.1"} )
+        public double hitRatio;
+
+        @Param( {"16384"} )
+        public int cachePages;
+
+        @Param( {"CLOCK", "SCAN_RESISTANT"} )
+        public EvictionPolicy evictionPolicy;
+
+        @Override
+        protected int cachePages()
+        {
+            return cachePages;
+        }
+
+        @Override
+        protected double hitRatio()
+        {
+            return hitRatio;
+        }
+
+        @Override
+        protected EvictionPolicy evictionPolicy()
+        {
+            return evictionPolicy;
+        }
+    }
+
+    @State( Scope.Thread )
+    public static class CursorState
+    {
+        SplittableRandom random;
+        PageCursor readCursor;
+        PageCursor writeCursor;
+        long filePages;
+
+        @Setup( Level.Iteration )
+        public void setUp( CacheState cache ) throws IOException
+        {
+            random = new SplittableRandom( Thread.currentThread().getId() );
+            filePages = cache.filePages;
+            readCursor = cache.pagedFile.io( 0, PF_SHARED_READ_LOCK );
+            writeCursor = cache.pagedFile.io( 0, PF_SHARED_WRITE_LOCK );
+        }
+
+        @TearDown( Level.Iteration )
+        public void tearDown()
+        {
+            readCursor.close();
+            writeCursor.close();
+        }
+
+        long nextPageId()
+        {
+            return random.nextLong( filePages );
+        }
+    }
+
+    @Benchmark
+    public long pinUnpinRead( CursorState state ) throws IOException
+    {
+        PageCursor cursor = state.readCursor;
+        long value;
+        cursor.next( state.nextPageId() );
+        do
+        {
+            value = cursor.getLong( 0 );
+        }
+        while ( cursor.shouldRetry() );
+        return value;
+    }
+
+    @Benchmark
+    public long pinUnpinWrite( CursorState state ) throws IOException
+    {
+        PageCursor cursor = state.writeCursor;
+        long pageId = state.nextPageId();
+        cursor.next( pageId );
+        cursor.putLong( 0, pageId );
+        return pageId;
+    }
+
+    @Benchmark
+    public long openPinCloseRead( CacheState cache, CursorState state ) throws IOException
+    {
+        long value = 0;
+        try ( PageCursor cursor = cache.pagedFile.io( state.nextPageId(), PF_SHARED_READ_LOCK ) )
+        {
+            if ( cursor.next() )
+            {
+                do
+                {
+                    value = cursor.getLong( 0 );
+                }
+                while ( cursor.shouldRetry() );
+            }
+        }
+        return value;
+    }
+
+    @Benchmark
+    @OutputTimeUnit( TimeUnit.SECONDS )
+    public long sequentialScan( CacheState cache ) throws IOException
+    {
+        long sum = 0;
+        try ( PageCursor cursor = cache.pagedFile.io( 0, PF_SHARED_READ_LOCK ) )
+        {
+            while ( cursor.next() )
+            {
+                long value;
+                do
+                {
+                    value = cursor.getLong( 0 );
+                }
+                while ( cursor.shouldRetry() );
+                sum += value;
+            }
+        }
+        return sum;
+    }
+}
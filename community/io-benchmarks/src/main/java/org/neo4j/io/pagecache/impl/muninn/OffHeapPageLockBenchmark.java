@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2002-2020 "Neo4j,"
+ * Neo4j Sweden AB [http://neo4j.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.io.pagecache.impl.muninn;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import org.neo4j.unsafe.impl.internal.dragons.UnsafeUtil;
+
+/**
+ * Measures the {@link OffHeapPageLock} operations that sit on the page cursor hot paths; optimistic read locks with
+ * validation for readers, and write locks for writers. The lock words are padded to their own cache lines, so the
+ * uncontended benchmarks are not disturbed by false sharing.
+ */
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class OffHeapPageLockBenchmark
+{
+    private static final long CACHE_LINE = 64;
+
+    @State( Scope.Benchmark )
+    public static class SharedLock
+    {
+        long address;
+
+        @Setup( Level.Trial )
+        public void allocate()
+        {
+            address = allocateLockWord();
+        }
+
+        @TearDown( Level.Trial )
+        public void free()
+        {
+            UnsafeUtil.free( address, CACHE_LINE );
+        }
+    }
+
+    @State( Scope.Thread )
+    public static class PrivateLock
+    {
+        long address;
+
+        @Setup( Level.Trial )
+        public void allocate()
+        {
+            address = allocateLockWord();
+        }
+
+        @TearDown( Level.Trial )
+        public void free()
+        {
+            UnsafeUtil.free( address, CACHE_LINE );
+        }
+    }
+
+    private static long allocateLockWord()
+    {
+        long address = UnsafeUtil.allocateMemory( CACHE_LINE );
+        UnsafeUtil.setMemory( address, CACHE_LINE, (byte) 0 );
+        return address;
+    }
+
+    @Benchmark
+    public boolean uncontendedOptimisticRead( PrivateLock lock )
+    {
+        long stamp = OffHeapPageLock.tryOptimisticReadLock( lock.address );
+        return OffHeapPageLock.validateReadLock( lock.address, stamp );
+    }
+
+    @Benchmark
+    public boolean uncontendedWriteLock( PrivateLock lock )
+    {
+        boolean locked = OffHeapPageLock.tryWriteLock( lock.address );
+        if ( locked )
+        {
+            OffHeapPageLock.unlockWrite( lock.address );
+        }
+        return locked;
+    }
+
+    @Benchmark
+    public boolean sharedOptimisticRead( SharedLock lock )
+    {
+        long stamp = OffHeapPageLock.tryOptimisticReadLock( lock.address );
+        return OffHeapPageLock.validateReadLock( lock.address, stamp );
+    }
+
+    @Benchmark
+    public boolean sharedWriteLock( SharedLock lock )
+    {
+        boolean locked = OffHeapPageLock.tryWriteLock( lock.address );
+        if ( locked )
+        {
+            OffHeapPageLock.unlockWrite( lock.address );
+        }
+        return locked;
+    }
+
+    @Benchmark
+    @Group( "readersAndWriter" )
+    @GroupThreads( 3 )
+    public boolean optimisticReadWithConcurrentWriter( SharedLock lock )
+    {
+        long stamp = OffHeapPageLock.tryOptimisticReadLock( lock.address );
+        return OffHeapPageLock.validateReadLock( lock.address, stamp );
+    }
+
+    @Benchmark
+    @Group( "readersAndWriter" )
+    @GroupThreads( 1 )
+    public boolean writeLockWithConcurrentReaders( SharedLock lock )
+    {
+        boolean locked = OffHeapPageLock.tryWriteLock( lock.address );
+        if ( locked )
+        {
+            OffHeapPageLock.unlockWrite( lock.address );
+        }
+        return locked;
+    }
+}
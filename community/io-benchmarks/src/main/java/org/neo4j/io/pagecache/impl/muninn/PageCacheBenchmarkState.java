@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2002-2020 "Neo4j,"
+ * Neo4j Sweden AB [http://neo4j.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.io.pagecache.impl.muninn;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+
+import org.neo4j.graphdb.config.Configuration;
+import org.neo4j.io.fs.DefaultFileSystemAbstraction;
+import org.neo4j.io.fs.FileSystemAbstraction;
+import org.neo4j.io.fs.FileUtils;
+import org.neo4j.io.mem.MemoryAllocator;
+import org.neo4j.io.pagecache.PageCache;
+import org.neo4j.io.pagecache.PageCursor;
+import org.neo4j.io.pagecache.PagedFile;
+import org.neo4j.io.pagecache.impl.SingleFilePageSwapperFactory;
+import org.neo4j.io.pagecache.tracing.PageCacheTracer;
+import org.neo4j.io.pagecache.tracing.cursor.PageCursorTracerSupplier;
+import org.neo4j.io.pagecache.tracing.cursor.context.EmptyVersionContextSupplier;
+import org.neo4j.memory.GlobalMemoryTracker;
+import org.neo4j.scheduler.ThreadPoolJobScheduler;
+
+import static org.neo4j.io.pagecache.PagedFile.PF_SHARED_WRITE_LOCK;
+
+/**
+ * Shared benchmark state that sets up a {@link MuninnPageCache} with a single mapped file on the real file system.
+ * <p>
+ * The number of pages in the mapped file is derived from the number of pages in the cache and the desired hit ratio,
+ * such that uniformly random page accesses will find the page in memory with (roughly) the given probability.
+ */
+@State( Scope.Benchmark )
+public abstract class PageCacheBenchmarkState
+{
+    static final int FILE_PAGE_SIZE = PageCache.PAGE_SIZE;
+
+    File directory;
+    FileSystemAbstraction fs;
+    ThreadPoolJobScheduler jobScheduler;
+    MuninnPageCache pageCache;
+    PagedFile pagedFile;
+    int cachePages;
+    long filePages;
+
+    /**
+     * @return the number of 8 KiB pages the page cache should have room for.
+     */
+    protected abstract int cachePages();
+
+    /**
+     * @return the ratio of page cache size to mapped file size. A ratio of 1.0 or more means that the whole file fits
+     * in memory.
+     */
+    protected abstract double hitRatio();
+
+    /**
+     * @return the eviction policy the page cache should use.
+     */
+    protected EvictionPolicy evictionPolicy()
+    {
+        return EvictionPolicy.CLOCK;
+    }
+
+    @Setup( Level.Trial )
+    public void setUpPageCache() throws IOException
+    {
+        directory = Files.createTempDirectory( getClass().getSimpleName() ).toFile();
+        fs = new DefaultFileSystemAbstraction();
+        jobScheduler = new ThreadPoolJobScheduler();
+        cachePages = cachePages();
+        filePages = Math.max( 1, (long) (cachePages / Math.min( 1.0, hitRatio() )) );
+        // Leave a little room in the file, so the eviction thread and faulting threads do not fight over the last pages.
+        if ( hitRatio() >= 1.0 )
+        {
+            filePages = cachePages - Math.min( cachePages / 10, 100 );
+        }
+        pageCache = createPageCache( fs, jobScheduler, cachePages, evictionPolicy() );
+        pagedFile = pageCache.map( new File( directory, "store" ), FILE_PAGE_SIZE, StandardOpenOption.CREATE );
+        fillFile( pagedFile, filePages );
+    }
+
+    @TearDown( Level.Trial )
+    public void tearDownPageCache() throws IOException
+    {
+        pagedFile.close();
+        pageCache.close();
+        jobScheduler.close();
+        fs.close();
+        FileUtils.deleteRecursively( directory );
+    }
+
+    static MuninnPageCache createPageCache( FileSystemAbstraction fs, ThreadPoolJobScheduler jobScheduler, int cachePages,
+            EvictionPolicy evictionPolicy )
+    {
+        SingleFilePageSwapperFactory swapperFactory = new SingleFilePageSwapperFactory();
+        swapperFactory.open( fs, Configuration.EMPTY );
+        long memory = MuninnPageCache.memoryRequiredForPages( cachePages );
+        MemoryAllocator allocator = MemoryAllocator.createAllocator( String.valueOf( memory ), GlobalMemoryTracker.INSTANCE );
+        return new MuninnPageCache( swapperFactory, allocator, PageCacheTracer.NULL, PageCursorTracerSupplier.NULL,
+                EmptyVersionContextSupplier.EMPTY, jobScheduler, evictionPolicy );
+    }
+
+    static void fillFile( PagedFile pagedFile, long filePages ) throws IOException
+    {
+        try ( PageCursor cursor = pagedFile.io( 0, PF_SHARED_WRITE_LOCK ) )
+        {
+            for ( long pageId = 0; pageId < filePages; pageId++ )
+            {
+                cursor.next( pageId );
+                for ( int offset = 0; offset < FILE_PAGE_SIZE; offset += Long.BYTES )
+                {
+                    cursor.putLong( offset, pageId );
+                }
+            }
+        }
+        pagedFile.flushAndForce();
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2002-2020 "Neo4j,"
+ * Neo4j Sweden AB [http://neo4j.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.io.pagecache.impl.muninn;
+
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the page cache benchmarks once for every power-of-two thread count, from 1 up to the number of available
+ * processors. Any arguments are passed on to JMH as regular command line options, e.g. to select a subset of the
+ * benchmarks by regular expression, or to change the number of forks or iterations.
+ */
+public final class PageCacheBenchmarks
+{
+    private PageCacheBenchmarks()
+    {
+    }
+
+    public static void main( String[] args ) throws RunnerException, CommandLineOptionException
+    {
+        CommandLineOptions commandLine = new CommandLineOptions( args );
+        int maxThreads = Runtime.getRuntime().availableProcessors();
+        for ( int threads = 1; threads <= maxThreads; threads <<= 1 )
+        {
+            OptionsBuilder builder = new OptionsBuilder();
+            if ( commandLine.getIncludes().isEmpty() )
+            {
+                builder.include( PageCacheBenchmarks.class.getPackage().getName() + ".*Benchmark" );
+            }
+            Options options = builder.parent( commandLine ).threads( threads ).build();
+            new Runner( options ).run();
+        }
+    }
+}
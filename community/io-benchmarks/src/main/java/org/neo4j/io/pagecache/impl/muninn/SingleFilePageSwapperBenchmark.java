@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2002-2020 "Neo4j,"
+ * Neo4j Sweden AB [http://neo4j.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.io.pagecache.impl.muninn;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.neo4j.io.fs.DefaultFileSystemAbstraction;
+import org.neo4j.io.fs.FileSystemAbstraction;
+import org.neo4j.io.fs.FileUtils;
+import org.neo4j.io.pagecache.PageSwapper;
+import org.neo4j.io.pagecache.impl.SingleFilePageSwapper;
+import org.neo4j.unsafe.impl.internal.dragons.UnsafeUtil;
+
+/**
+ * Measures the throughput of {@link SingleFilePageSwapper} reads. Every benchmark invocation reads the given number of
+ * consecutive pages from a random position in the file, either one page at a time, or as a single vectored read.
+ */
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 5, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( 1 )
+public class SingleFilePageSwapperBenchmark
+{
+    private static final int PAGE_SIZE = PageCacheBenchmarkState.FILE_PAGE_SIZE;
+
+    @State( Scope.Benchmark )
+    public static class SwapperState
+    {
+        @Param( {"65536"} )
+        public int filePages;
+
+        File directory;
+        FileSystemAbstraction fs;
+        PageSwapper swapper;
+
+        @Setup( Level.Trial )
+        public void setUp() throws IOException
+        {
+            directory = Files.createTempDirectory( getClass().getSimpleName() ).toFile();
+            fs = new DefaultFileSystemAbstraction();
+            File file = new File( directory, "store" );
+            fs.create( file ).close();
+            swapper = new SingleFilePageSwapper( file, fs, PAGE_SIZE, filePageId -> {}, false );
+            long buffer = UnsafeUtil.allocateMemory( PAGE_SIZE );
+            try
+            {
+                for ( long pageId = 0; pageId < filePages; pageId++ )
+                {
+                    UnsafeUtil.setMemory( buffer, PAGE_SIZE, (byte) pageId );
+                    swapper.write( pageId, buffer );
+                }
+                swapper.force();
+            }
+            finally
+            {
+                UnsafeUtil.free( buffer, PAGE_SIZE );
+            }
+        }
+
+        @TearDown( Level.Trial )
+        public void tearDown() throws IOException
+        {
+            swapper.close();
+            fs.close();
+            FileUtils.deleteRecursively( directory );
+        }
+    }
+
+    @State( Scope.Thread )
+    public static class BufferState
+    {
+        @Param( {"1", "8", "32", "128"} )
+        public int vectorLength;
+
+        SplittableRandom random;
+        long[] bufferAddresses;
+        long filePages;
+
+        @Setup( Level.Trial )
+        public void setUp( SwapperState swapperState )
+        {
+            random = new SplittableRandom( Thread.currentThread().getId() );
+            filePages = swapperState.filePages;
+            bufferAddresses = new long[vectorLength];
+            for ( int i = 0; i < vectorLength; i++ )
+            {
+                bufferAddresses[i] = UnsafeUtil.allocateMemory( PAGE_SIZE );
+            }
+        }
+
+        @TearDown( Level.Trial )
+        public void tearDown()
+        {
+            for ( long address : bufferAddresses )
+            {
+                UnsafeUtil.free( address, PAGE_SIZE );
+            }
+        }
+
+        long nextStartPageId()
+        {
+            return random.nextLong( filePages - vectorLength + 1 );
+        }
+    }
+
+    @Benchmark
+    public long singlePageReads( SwapperState swapperState, BufferState buffers ) throws IOException
+    {
+        long startPageId = buffers.nextStartPageId();
+        long bytesRead = 0;
+        for ( int i = 0; i < buffers.vectorLength; i++ )
+        {
+            bytesRead += swapperState.swapper.read( startPageId + i, buffers.bufferAddresses[i], PAGE_SIZE );
+        }
+        return bytesRead;
+    }
+
+    @Benchmark
+    public long vectoredRead( SwapperState swapperState, BufferState buffers ) throws IOException
+    {
+        long startPageId = buffers.nextStartPageId();
+        return swapperState.swapper.read( startPageId, buffers.bufferAddresses, PAGE_SIZE, 0, buffers.vectorLength );
+    }
+}
@@ -19,20 +19,19 @@
  */
 package org.neo4j.io.mem;
 
+import java.io.File;
 import java.lang.invoke.MethodHandle;
 import java.lang.invoke.MethodHandles;
 import java.lang.invoke.MethodType;
 import java.util.Objects;
 
 import org.neo4j.memory.MemoryAllocationTracker;
-import org.neo4j.unsafe.impl.internal.dragons.UnsafeUtil;
-
-import static org.neo4j.io.ByteUnit.kibiBytes;
-import static org.neo4j.util.FeatureToggles.getInteger;
 
 /**
  * This memory allocator is allocating memory in large segments, called "grabs", and the memory returned by the memory
  * manager is page aligned, and plays well with transparent huge pages and other operating system optimisations.
+ * <p>
+ * The grabs can optionally be aligned to the huge page size, or be mapped from a hugetlbfs mount, see {@link HugePages}.
  */
 public final class GrabAllocator implements MemoryAllocator
 {
@@ -52,7 +51,22 @@ public final class GrabAllocator implements MemoryAllocator
      */
     GrabAllocator( long expectedMaxMemory, MemoryAllocationTracker memoryTracker )
     {
-        this.grabs = new Grabs( expectedMaxMemory, memoryTracker );
+        this( expectedMaxMemory, memoryTracker, HugePages.OFF, null );
+    }
+
+    /**
+     * Create a new GrabAllocator that will allocate the given amount of memory, backed by huge pages as per the given
+     * huge pages mode.
+     * @param expectedMaxMemory The maximum amount of memory that this memory manager is expected to allocate.
+     * @param memoryTracker memory usage tracker
+     * @param hugePages how the memory should be backed by huge pages.
+     * @param hugePagesDirectory the hugetlbfs mount point, only used for {@link HugePages#HUGETLBFS}.
+     * @throws IllegalArgumentException if the hugetlbfs mount point cannot be used.
+     * @throws UnsupportedOperationException if huge pages cannot be used by this JVM.
+     */
+    GrabAllocator( long expectedMaxMemory, MemoryAllocationTracker memoryTracker, HugePages hugePages, File hugePagesDirectory )
+    {
+        this.grabs = new Grabs( expectedMaxMemory, memoryTracker, GrabMemory.create( hugePages, hugePagesDirectory ) );
         try
         {
             CleanerHandles handles = findCleanerHandles();
@@ -101,24 +115,27 @@ public final class GrabAllocator implements MemoryAllocator
         public final Grab next;
         private final long address;
         private final long limit;
+        private final GrabMemory memory;
         private final MemoryAllocationTracker memoryTracker;
         private long nextPointer;
 
-        Grab( Grab next, long size, MemoryAllocationTracker memoryTracker )
+        Grab( Grab next, long size, GrabMemory memory, MemoryAllocationTracker memoryTracker )
         {
             this.next = next;
-            this.address = UnsafeUtil.allocateMemory( size, memoryTracker );
+            this.address = memory.allocate( size, memoryTracker );
             this.limit = address + size;
+            this.memory = memory;
             this.memoryTracker = memoryTracker;
             nextPointer = address;
         }
 
-        Grab( Grab next, long address, long limit, long nextPointer, MemoryAllocationTracker memoryTracker )
+        Grab( Grab next, long address, long limit, long nextPointer, GrabMemory memory, MemoryAllocationTracker memoryTracker )
         {
             this.next = next;
             this.address = address;
             this.limit = limit;
             this.nextPointer = nextPointer;
+            this.memory = memory;
             this.memoryTracker = memoryTracker;
         }
 
@@ -145,7 +162,7 @@ public final class GrabAllocator implements MemoryAllocator
 
         void free()
         {
-            UnsafeUtil.free( address, limit - address, memoryTracker );
+            memory.free( address, limit - address, memoryTracker );
         }
 
         boolean canAllocate( long bytes, long alignment )
@@ -155,7 +172,7 @@ public final class GrabAllocator implements MemoryAllocator
 
         Grab setNext( Grab grab )
         {
-            return new Grab( grab, address, limit, nextPointer, memoryTracker );
+            return new Grab( grab, address, limit, nextPointer, memory, memoryTracker );
         }
 
         @Override
@@ -170,19 +187,18 @@ public final class GrabAllocator implements MemoryAllocator
 
     private static final class Grabs
     {
-        /**
-         * The amount of memory, in bytes, to grab in each Grab.
-         */
-        private static final long GRAB_SIZE = getInteger( GrabAllocator.class, "GRAB_SIZE", (int) kibiBytes( 512 ) );
-
         private final MemoryAllocationTracker memoryTracker;
+        private final GrabMemory memory;
+        private final long maxGrabSize;
         private long expectedMaxMemory;
         private Grab head;
 
-        Grabs( long expectedMaxMemory, MemoryAllocationTracker memoryTracker )
+        Grabs( long expectedMaxMemory, MemoryAllocationTracker memoryTracker, GrabMemory memory )
         {
             this.expectedMaxMemory = expectedMaxMemory;
             this.memoryTracker = memoryTracker;
+            this.memory = memory;
+            this.maxGrabSize = memory.grabSize();
         }
 
         long usedMemory()
@@ -226,18 +242,18 @@ public final class GrabAllocator implements MemoryAllocator
             {
                 throw new IllegalArgumentException( "Invalid alignment: " + alignment + ". Alignment must be positive." );
             }
-            long grabSize = Math.min( GRAB_SIZE, expectedMaxMemory );
-            if ( bytes + alignment - 1 > GRAB_SIZE )
+            long grabSize = Math.min( maxGrabSize, expectedMaxMemory );
+            if ( bytes + alignment - 1 > maxGrabSize )
             {
                 // This is a huge allocation. Put it in its own grab and keep any existing grab at the head.
                 grabSize = bytes;
                 Grab nextGrab = head == null ? null : head.next;
-                Grab allocationGrab = new Grab( nextGrab, grabSize, memoryTracker );
+                Grab allocationGrab = new Grab( nextGrab, grabSize, memory, memoryTracker );
                 if ( !allocationGrab.canAllocate( bytes, alignment ) )
                 {
                     allocationGrab.free();
                     grabSize = bytes + alignment - 1;
-                    allocationGrab = new Grab( nextGrab, grabSize, memoryTracker );
+                    allocationGrab = new Grab( nextGrab, grabSize, memory, memoryTracker );
                 }
                 long allocation = allocationGrab.allocate( bytes, alignment );
                 head = head == null ? allocationGrab : head.setNext( allocationGrab );
@@ -250,7 +266,7 @@ public final class GrabAllocator implements MemoryAllocator
                 if ( grabSize < bytes )
                 {
                     grabSize = bytes;
-                    Grab grab = new Grab( head, grabSize, memoryTracker );
+                    Grab grab = new Grab( head, grabSize, memory, memoryTracker );
                     if ( grab.canAllocate( bytes, alignment ) )
                     {
                         expectedMaxMemory -= grabSize;
@@ -260,7 +276,7 @@ public final class GrabAllocator implements MemoryAllocator
                     grab.free();
                     grabSize = bytes + alignment - 1;
                 }
-                head = new Grab( head, grabSize, memoryTracker );
+                head = new Grab( head, grabSize, memory, memoryTracker );
                 expectedMaxMemory -= grabSize;
             }
             return head.allocate( bytes, alignment );
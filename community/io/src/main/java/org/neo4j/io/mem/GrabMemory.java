@@ -0,0 +1,240 @@
+/*
+ * Copyright (c) 2002-2020 "Neo4j,"
+ * Neo4j Sweden AB [http://neo4j.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.io.mem;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.neo4j.memory.MemoryAllocationTracker;
+import org.neo4j.unsafe.impl.internal.dragons.UnsafeUtil;
+
+import static org.neo4j.io.ByteUnit.kibiBytes;
+import static org.neo4j.io.ByteUnit.mebiBytes;
+import static org.neo4j.util.FeatureToggles.getInteger;
+
+/**
+ * The source of the memory that the {@link GrabAllocator} carves its allocations out of.
+ * <p>
+ * The memory of a grab is always obtained and released through the same {@code GrabMemory} instance.
+ */
+abstract class GrabMemory
+{
+    /**
+     * The amount of memory, in bytes, to grab in each Grab, when not using huge pages.
+     */
+    private static final long GRAB_SIZE = getInteger( GrabAllocator.class, "GRAB_SIZE", (int) kibiBytes( 512 ) );
+
+    /**
+     * The amount of memory, in bytes, to grab in each Grab, when using huge pages. This is much larger than the normal
+     * grab size, so the padding needed for aligning the grabs to the huge page size is only a small fraction of it.
+     */
+    private static final long HUGE_GRAB_SIZE = getInteger( GrabAllocator.class, "HUGE_GRAB_SIZE", (int) mebiBytes( 128 ) );
+
+    /**
+     * The size of a huge page. This is 2 MiB on the platforms we care about.
+     */
+    static final long HUGE_PAGE_SIZE = mebiBytes( 2 );
+
+    static GrabMemory create( HugePages hugePages, File hugePagesDirectory )
+    {
+        switch ( hugePages )
+        {
+        case OFF:
+            return new NativeGrabMemory();
+        case TRANSPARENT:
+            return new TransparentHugePageGrabMemory();
+        case HUGETLBFS:
+            return new HugeTlbFsGrabMemory( hugePagesDirectory );
+        default:
+            throw new IllegalArgumentException( "Unknown huge pages mode: " + hugePages );
+        }
+    }
+
+    /**
+     * @return the preferred size, in bytes, of the grabs made from this memory.
+     */
+    abstract long grabSize();
+
+    /**
+     * Obtain a region of memory of the given size.
+     * @param size the size, in bytes, of the region.
+     * @param memoryTracker tracker of the memory obtained.
+     * @return the address of the region.
+     * @throws OutOfMemoryError if the memory could not be obtained.
+     */
+    abstract long allocate( long size, MemoryAllocationTracker memoryTracker );
+
+    /**
+     * Release a region of memory that was previously obtained from {@link #allocate(long, MemoryAllocationTracker)}.
+     * @param address the address of the region.
+     * @param size the size of the region, as given to {@code allocate}.
+     * @param memoryTracker tracker of the memory released.
+     */
+    abstract void free( long address, long size, MemoryAllocationTracker memoryTracker );
+
+    private static final class NativeGrabMemory extends GrabMemory
+    {
+        @Override
+        long grabSize()
+        {
+            return GRAB_SIZE;
+        }
+
+        @Override
+        long allocate( long size, MemoryAllocationTracker memoryTracker )
+        {
+            return UnsafeUtil.allocateMemory( size, memoryTracker );
+        }
+
+        @Override
+        void free( long address, long size, MemoryAllocationTracker memoryTracker )
+        {
+            UnsafeUtil.free( address, size, memoryTracker );
+        }
+    }
+
+    /**
+     * Over-allocates every grab by one huge page, so the returned address can be aligned to the huge page size.
+     * The kernel can only back memory with transparent huge pages, where whole aligned huge pages fit.
+     */
+    private static class TransparentHugePageGrabMemory extends GrabMemory
+    {
+        private final Map<Long,Long> rawAddresses = new HashMap<>();
+
+        @Override
+        long grabSize()
+        {
+            return HUGE_GRAB_SIZE;
+        }
+
+        @Override
+        synchronized long allocate( long size, MemoryAllocationTracker memoryTracker )
+        {
+            long rawAddress = UnsafeUtil.allocateMemory( size + HUGE_PAGE_SIZE, memoryTracker );
+            long address = alignToHugePage( rawAddress );
+            rawAddresses.put( address, rawAddress );
+            return address;
+        }
+
+        @Override
+        synchronized void free( long address, long size, MemoryAllocationTracker memoryTracker )
+        {
+            Long rawAddress = rawAddresses.remove( address );
+            if ( rawAddress != null )
+            {
+                UnsafeUtil.free( rawAddress, size + HUGE_PAGE_SIZE, memoryTracker );
+            }
+        }
+    }
+
+    /**
+     * Maps every grab from its own file in a hugetlbfs mount. The files are deleted as soon as they are mapped, so the
+     * huge pages are given back to the operating system when the mappings are unmapped, or when the process dies.
+     * <p>
+     * Note that memory mapped this way is not known to the native access checks of {@link UnsafeUtil}.
+     */
+    private static final class HugeTlbFsGrabMemory extends TransparentHugePageGrabMemory
+    {
+        private final File directory;
+        private final Map<Long,MappedByteBuffer> mappings = new HashMap<>();
+
+        HugeTlbFsGrabMemory( File directory )
+        {
+            if ( !UnsafeUtil.canUnmap() )
+            {
+                throw new UnsupportedOperationException( "Mapped memory cannot be unmapped on this JVM." );
+            }
+            if ( directory == null || !directory.isDirectory() || !directory.canWrite() )
+            {
+                throw new IllegalArgumentException( "The hugetlbfs mount point " + directory + " is not a writable directory." );
+            }
+            this.directory = directory;
+        }
+
+        @Override
+        synchronized long allocate( long size, MemoryAllocationTracker memoryTracker )
+        {
+            long mappingSize = alignToHugePage( size );
+            if ( mappingSize > Integer.MAX_VALUE )
+            {
+                // A single mapping cannot be larger than 2 GiB.
+                return super.allocate( size, memoryTracker );
+            }
+
+            MappedByteBuffer buffer;
+            try
+            {
+                buffer = map( mappingSize );
+            }
+            catch ( IOException | RuntimeException e )
+            {
+                OutOfMemoryError error = new OutOfMemoryError(
+                        "Failed to map " + mappingSize + " bytes of huge pages from " + directory + ". " +
+                        "Make sure that enough huge pages have been reserved through the vm.nr_hugepages kernel parameter." );
+                error.initCause( e );
+                throw error;
+            }
+            long address = UnsafeUtil.getDirectByteBufferAddress( buffer );
+            mappings.put( address, buffer );
+            memoryTracker.allocated( mappingSize );
+            return address;
+        }
+
+        private MappedByteBuffer map( long mappingSize ) throws IOException
+        {
+            File file = File.createTempFile( "pagecache", ".mem", directory );
+            try ( RandomAccessFile raf = new RandomAccessFile( file, "rw" ) )
+            {
+                raf.setLength( mappingSize );
+                return raf.getChannel().map( FileChannel.MapMode.READ_WRITE, 0, mappingSize );
+            }
+            finally
+            {
+                // The mapping outlives both the channel and the file name.
+                //noinspection ResultOfMethodCallIgnored
+                file.delete();
+            }
+        }
+
+        @Override
+        synchronized void free( long address, long size, MemoryAllocationTracker memoryTracker )
+        {
+            MappedByteBuffer buffer = mappings.remove( address );
+            if ( buffer == null )
+            {
+                super.free( address, size, memoryTracker );
+                return;
+            }
+            UnsafeUtil.unmap( buffer );
+            memoryTracker.deallocated( buffer.capacity() );
+        }
+    }
+
+    static long alignToHugePage( long address )
+    {
+        long off = address % HUGE_PAGE_SIZE;
+        return off == 0 ? address : address + (HUGE_PAGE_SIZE - off);
+    }
+}
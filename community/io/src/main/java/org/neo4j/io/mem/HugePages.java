@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2002-2020 "Neo4j,"
+ * Neo4j Sweden AB [http://neo4j.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.io.mem;
+
+/**
+ * The ways in which a {@link MemoryAllocator} can ask the operating system to back its memory with huge pages.
+ * <p>
+ * Huge pages reduce the number of TLB misses when accessing a large page cache, because each TLB entry then covers
+ * 2 MiB of memory, instead of 4 KiB.
+ */
+public enum HugePages
+{
+    /**
+     * Allocate memory from the native heap, without any regard for huge pages.
+     */
+    OFF,
+    /**
+     * Allocate memory from the native heap in large segments that are aligned to the huge page size, so the kernel
+     * can back them with transparent huge pages. This only has an effect if the kernel is configured to use
+     * transparent huge pages for all anonymous memory, that is, when
+     * {@code /sys/kernel/mm/transparent_hugepage/enabled} is set to {@code always}.
+     */
+    TRANSPARENT,
+    /**
+     * Map memory from files in a mounted {@code hugetlbfs} file system. The huge pages must have been reserved up
+     * front, through {@code vm.nr_hugepages}, and the mount point must be writable by the database process.
+     * Allocations that are too large to be mapped in one go, fall back to {@link #TRANSPARENT} memory.
+     */
+    HUGETLBFS
+}
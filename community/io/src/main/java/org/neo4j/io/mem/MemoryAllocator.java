@@ -19,6 +19,8 @@
  */
 package org.neo4j.io.mem;
 
+import java.io.File;
+
 import org.neo4j.io.ByteUnit;
 import org.neo4j.memory.MemoryAllocationTracker;
 
@@ -32,6 +34,22 @@ public interface MemoryAllocator
         return new GrabAllocator( ByteUnit.parse( expectedMemory ), memoryTracker );
     }
 
+    /**
+     * Create an allocator whose memory is backed by huge pages, as per the given mode.
+     * @param expectedMemory the amount of memory the allocator is expected to allocate.
+     * @param memoryTracker memory usage tracker
+     * @param hugePages how the memory should be backed by huge pages.
+     * @param hugePagesDirectory the hugetlbfs mount point, only used for {@link HugePages#HUGETLBFS}.
+     * @return the new memory allocator.
+     * @throws IllegalArgumentException if the hugetlbfs mount point cannot be used.
+     * @throws UnsupportedOperationException if huge pages cannot be used by this JVM.
+     */
+    static MemoryAllocator createAllocator( String expectedMemory, MemoryAllocationTracker memoryTracker, HugePages hugePages,
+            File hugePagesDirectory )
+    {
+        return new GrabAllocator( ByteUnit.parse( expectedMemory ), memoryTracker, hugePages, hugePagesDirectory );
+    }
+
     /**
      * @return The sum, in bytes, of all the memory currently allocating through this allocator.
      */
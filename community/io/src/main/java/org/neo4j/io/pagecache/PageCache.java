@@ -109,6 +109,55 @@ public interface PageCache extends AutoCloseable
      */
     void flushAndForce( IOLimiter limiter ) throws IOException;
 
+    /**
+     * Set the {@link IOLimiter} that limits the rate of IO of any flushing of dirty pages that the page cache does in
+     * the background, on its own initiative. Such flushing is unlimited until a limiter has been set.
+     *
+     * @param limiter The {@link IOLimiter} for the background flushing.
+     */
+    default void setBackgroundFlushLimiter( IOLimiter limiter )
+    {
+        // By default there is no background flushing to limit.
+    }
+
+    /**
+     * Set the {@link WriteAheadBarrier} that is consulted before any dirty page is written to its file. Pages are
+     * written without delay until a barrier has been set.
+     *
+     * @param barrier The {@link WriteAheadBarrier} to consult, or {@link WriteAheadBarrier#NONE} to remove it.
+     */
+    default void setWriteAheadBarrier( WriteAheadBarrier barrier )
+    {
+        // By default there is nothing to hold back page writes with.
+    }
+
+    /**
+     * Start a new dirty epoch. Every dirty page remembers the oldest dirty epoch in which it was written to, since it
+     * was last flushed. This makes it possible to {@link #flushAndForceDirtyUpTo(long, IOLimiter) flush} only the
+     * pages that were written to before a given point in time, and leave the pages that were only written to after it.
+     *
+     * @return the dirty epoch that was ended. All writes that completed before this call belong to this dirty epoch,
+     * or an earlier one.
+     */
+    default long beginDirtyEpoch()
+    {
+        // By default dirty epochs are not tracked, and all dirty pages are flushed.
+        return Long.MAX_VALUE;
+    }
+
+    /**
+     * Flush the dirty pages that were written to in the given {@link #beginDirtyEpoch() dirty epoch}, or an earlier
+     * one, and force all mapped files. Pages that were only written to in later dirty epochs may be left dirty.
+     *
+     * @param maxDirtyEpoch the newest dirty epoch whose dirty pages must be flushed.
+     * @param limiter The {@link IOLimiter} that determines if pauses or sleeps should be injected into the flushing
+     * process to keep the IO rate down.
+     */
+    default void flushAndForceDirtyUpTo( long maxDirtyEpoch, IOLimiter limiter ) throws IOException
+    {
+        flushAndForce( limiter );
+    }
+
     /**
      * Close the page cache to prevent any future mapping of files.
      * This also releases any internal resources, including the {@link PageSwapperFactory} through its
@@ -22,6 +22,8 @@ package org.neo4j.io.pagecache;
 import java.io.File;
 import java.io.IOException;
 
+import org.neo4j.io.pagecache.monitoring.PagedFileCounters;
+
 /**
  * The representation of a file that has been mapped into the associated page cache.
  */
@@ -59,9 +61,11 @@ public interface PagedFile extends AutoCloseable
      */
     int PF_NO_GROW = 1 << 2;
     /**
-     * Read-ahead hint for sequential forward scanning.
+     * Read-ahead hint for sequential forward scanning. While the cursor keeps moving forward through the file, page
+     * faults will also read in a growing number of the pages that follow the faulted page, if there are free pages
+     * available in the page cache.
      */
-    int PF_READ_AHEAD = 1 << 3; // TBD
+    int PF_READ_AHEAD = 1 << 3;
     /**
      * Do not load in the page if it is not loaded already. The methods {@link PageCursor#next()} and
      * {@link PageCursor#next(long)} will always return {@code true} for pages that are within the range of the file,
@@ -174,6 +178,32 @@ public interface PagedFile extends AutoCloseable
      */
     long getLastPageId() throws IOException;
 
+    /**
+     * Load the given range of file pages into the page cache, unless they are already there. Implementations are free
+     * to read the range with as few IO operations as they can. Pages beyond the end of the file are ignored.
+     *
+     * @param startPageId the file-page-id of the first page to load.
+     * @param pageCount the number of consecutive pages to load.
+     * @throws IOException if there was an error reading the pages.
+     */
+    default void prefetch( long startPageId, int pageCount ) throws IOException
+    {
+        try ( PageCursor cursor = io( startPageId, PF_SHARED_READ_LOCK ) )
+        {
+            long endPageId = startPageId + pageCount;
+            for ( long pageId = startPageId; pageId < endPageId && cursor.next( pageId ); pageId++ )
+            {
+                // Pinning the page is all it takes to fault it in.
+            }
+        }
+    }
+
+    /**
+     * Get the page cache counters for this file, such as the number of pins, hits, faults and evictions that have
+     * been observed for its pages.
+     */
+    PagedFileCounters counters();
+
     /**
      * Release a handle to a paged file.
      * <p>
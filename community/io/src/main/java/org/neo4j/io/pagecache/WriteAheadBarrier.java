@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2002-2020 "Neo4j,"
+ * Neo4j Sweden AB [http://neo4j.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.io.pagecache;
+
+import java.io.IOException;
+
+/**
+ * A write-ahead barrier is consulted by the {@link PageCache} right before it writes a dirty page to its file, be it
+ * as part of a flush or an eviction.
+ * <p/>
+ * This allows the owner of a write-ahead log to make sure that the log records describing the changes to a page are
+ * durable, before the changed page itself is. This matters when transactions are allowed to commit before their log
+ * records have been forced.
+ * <p/>
+ * The barrier is called while the page being written is locked, so implementations must not access the page cache.
+ */
+public interface WriteAheadBarrier
+{
+    /**
+     * A barrier that lets all page writes proceed right away. This is the default.
+     */
+    WriteAheadBarrier NONE = () ->
+    {
+    };
+
+    /**
+     * Invoked before a dirty page is written to its file. When this method returns, every change that is currently
+     * visible in the page must be covered by durable log records.
+     *
+     * @throws IOException if the log records could not be made durable. The page will then not be written.
+     */
+    void beforePageWrite() throws IOException;
+}
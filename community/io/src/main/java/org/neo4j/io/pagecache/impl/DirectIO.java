@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2002-2020 "Neo4j,"
+ * Neo4j Sweden AB [http://neo4j.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.io.pagecache.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileStore;
+import java.nio.file.Files;
+import java.nio.file.OpenOption;
+
+import org.neo4j.io.fs.StoreChannel;
+import org.neo4j.io.fs.StoreFileChannel;
+
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Access to the {@code com.sun.nio.file.ExtendedOpenOption.DIRECT} open option, which bypasses the operating system
+ * page cache. The option, and the {@code FileStore.getBlockSize()} method that tells us the alignment it requires,
+ * only exist on Java 10 and newer, so they are looked up reflectively.
+ */
+final class DirectIO
+{
+    private static final OpenOption DIRECT = findDirectOpenOption();
+    private static final Method GET_BLOCK_SIZE = findGetBlockSizeMethod();
+
+    private DirectIO()
+    {
+    }
+
+    static boolean isAvailable()
+    {
+        return DIRECT != null && GET_BLOCK_SIZE != null;
+    }
+
+    /**
+     * @return the block size of the file store that holds the given file, which direct IO must be aligned to.
+     */
+    static long blockSize( File file ) throws IOException
+    {
+        FileStore fileStore = Files.getFileStore( file.toPath() );
+        try
+        {
+            return (long) GET_BLOCK_SIZE.invoke( fileStore );
+        }
+        catch ( InvocationTargetException e )
+        {
+            Throwable cause = e.getCause();
+            if ( cause instanceof IOException )
+            {
+                throw (IOException) cause;
+            }
+            throw new IOException( "Unable to determine the block size of " + fileStore, cause );
+        }
+        catch ( IllegalAccessException e )
+        {
+            throw new IOException( "Unable to determine the block size of " + fileStore, e );
+        }
+    }
+
+    static StoreChannel open( File file ) throws IOException
+    {
+        return new StoreFileChannel( FileChannel.open( file.toPath(), READ, WRITE, DIRECT ) );
+    }
+
+    private static OpenOption findDirectOpenOption()
+    {
+        try
+        {
+            Class<?> extendedOpenOption = Class.forName( "com.sun.nio.file.ExtendedOpenOption" );
+            for ( Object option : extendedOpenOption.getEnumConstants() )
+            {
+                if ( "DIRECT".equals( ((Enum<?>) option).name() ) )
+                {
+                    return (OpenOption) option;
+                }
+            }
+        }
+        catch ( ClassNotFoundException ignore )
+        {
+        }
+        return null;
+    }
+
+    private static Method findGetBlockSizeMethod()
+    {
+        try
+        {
+            return FileStore.class.getMethod( "getBlockSize" );
+        }
+        catch ( NoSuchMethodException ignore )
+        {
+            return null;
+        }
+    }
+}
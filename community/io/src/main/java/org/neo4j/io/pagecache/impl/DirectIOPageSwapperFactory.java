@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2002-2020 "Neo4j,"
+ * Neo4j Sweden AB [http://neo4j.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.io.pagecache.impl;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.neo4j.io.fs.DefaultFileSystemAbstraction;
+import org.neo4j.io.fs.FileSystemAbstraction;
+import org.neo4j.io.pagecache.PageEvictionCallback;
+import org.neo4j.io.pagecache.PageSwapper;
+import org.neo4j.unsafe.impl.internal.dragons.UnsafeUtil;
+
+/**
+ * A factory for SingleFilePageSwapper instances that read and write their files with direct IO, bypassing the
+ * operating system page cache, such that the data is not cached both in the page cache and in the OS.
+ * <p>
+ * Direct IO is only used when it is available in the running JVM, when the files are on the real file system,
+ * and when the file page size is a multiple of the block size of the file store. If any of these conditions are not
+ * met, or if the file store refuses to open the file for direct IO, then the file is accessed through the OS page
+ * cache, just like with the {@link SingleFilePageSwapperFactory}, and the {@link Monitor} is told why.
+ * <p>
+ * Note that the record stores size their file pages to a whole number of records, so with most record sizes their file
+ * page size is not a multiple of the block size, and those stores are always accessed with buffered IO.
+ */
+public class DirectIOPageSwapperFactory extends SingleFilePageSwapperFactory
+{
+    /**
+     * Told about every file that is accessed with buffered IO, even though this factory was asked for direct IO.
+     */
+    public interface Monitor
+    {
+        Monitor NO_MONITOR = ( file, reason ) -> {};
+
+        /**
+         * @param file the file that is accessed with buffered IO.
+         * @param reason why direct IO could not be used for the file.
+         */
+        void bufferedIO( File file, String reason );
+    }
+
+    private volatile Monitor monitor = Monitor.NO_MONITOR;
+
+    public void setMonitor( Monitor monitor )
+    {
+        this.monitor = monitor;
+    }
+
+    @Override
+    protected PageSwapper createSwapper( FileSystemAbstraction fs, File file, int filePageSize, PageEvictionCallback onEviction,
+            boolean noChannelStriping ) throws IOException
+    {
+        String reason;
+        if ( !DirectIO.isAvailable() )
+        {
+            reason = "direct IO is not supported by this JVM";
+        }
+        else if ( fs.getClass() != DefaultFileSystemAbstraction.class )
+        {
+            reason = "the file is not on the default file system";
+        }
+        else
+        {
+            long blockSize = DirectIO.blockSize( file );
+            if ( blockSize <= 0 )
+            {
+                reason = "the block size of the file store is unknown";
+            }
+            else if ( filePageSize % blockSize != 0 )
+            {
+                reason = "the file page size " + filePageSize + " is not a multiple of the file store block size " + blockSize;
+            }
+            else if ( getRequiredBufferAlignment() % blockSize != 0 )
+            {
+                reason = "the file store block size " + blockSize + " is larger than the memory page size " + getRequiredBufferAlignment();
+            }
+            else
+            {
+                try
+                {
+                    return new SingleFilePageSwapper( file, fs, filePageSize, onEviction, noChannelStriping, blockSize );
+                }
+                catch ( UnsupportedOperationException | IOException e )
+                {
+                    // The file store does not support direct IO after all, e.g. tmpfs, so we use buffered IO instead.
+                    reason = "the file store refused to open the file with direct IO: " + e.getMessage();
+                }
+            }
+        }
+        monitor.bufferedIO( file, reason );
+        return super.createSwapper( fs, file, filePageSize, onEviction, noChannelStriping );
+    }
+
+    @Override
+    public String implementationName()
+    {
+        return "direct";
+    }
+
+    @Override
+    public long getRequiredBufferAlignment()
+    {
+        return UnsafeUtil.pageSize();
+    }
+}
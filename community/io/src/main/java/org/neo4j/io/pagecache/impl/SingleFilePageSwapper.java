@@ -142,6 +142,8 @@ public class SingleFilePageSwapper implements PageSwapper
     private final boolean hasPositionLock;
     private final int channelStripeCount;
     private final int channelStripeMask;
+    // The block size that direct IO must be aligned to, or zero if this swapper does buffered IO.
+    private final long directIOBlockSize;
 
     // Guarded by synchronized(this). See tryReopen() and close().
     private boolean closed;
@@ -151,9 +153,16 @@ public class SingleFilePageSwapper implements PageSwapper
 
     public SingleFilePageSwapper( File file, FileSystemAbstraction fs, int filePageSize, PageEvictionCallback onEviction, boolean noChannelStriping )
             throws IOException
+    {
+        this( file, fs, filePageSize, onEviction, noChannelStriping, 0 );
+    }
+
+    SingleFilePageSwapper( File file, FileSystemAbstraction fs, int filePageSize, PageEvictionCallback onEviction, boolean noChannelStriping,
+            long directIOBlockSize ) throws IOException
     {
         this.fs = fs;
         this.file = file;
+        this.directIOBlockSize = directIOBlockSize;
         if ( noChannelStriping )
         {
             this.channelStripeCount = 1;
@@ -167,7 +176,7 @@ public class SingleFilePageSwapper implements PageSwapper
         this.channels = new StoreChannel[channelStripeCount];
         for ( int i = 0; i < channelStripeCount; i++ )
         {
-            channels[i] = fs.open( file, OpenMode.READ_WRITE );
+            channels[i] = openChannel();
         }
         this.filePageSize = filePageSize;
         this.onEviction = onEviction;
@@ -233,6 +242,20 @@ public class SingleFilePageSwapper implements PageSwapper
         }
     }
 
+    private StoreChannel openChannel() throws IOException
+    {
+        return directIOBlockSize == 0 ? fs.open( file, OpenMode.READ_WRITE ) : DirectIO.open( file );
+    }
+
+    /**
+     * Direct IO can only be done at block aligned file offsets, and a short read that leaves us at an unaligned
+     * offset means that we have reached the end of the file.
+     */
+    private boolean canContinueReadingAt( long fileOffset )
+    {
+        return directIOBlockSize == 0 || fileOffset % directIOBlockSize == 0;
+    }
+
     private StoreChannel channel( long filePageId )
     {
         int stripe = stripe( filePageId );
@@ -255,7 +278,7 @@ public class SingleFilePageSwapper implements PageSwapper
             {
                 read = channel.read( bufferProxy, fileOffset + readTotal );
             }
-            while ( read != -1 && (readTotal += read) < filePageSize );
+            while ( read != -1 && (readTotal += read) < filePageSize && canContinueReadingAt( fileOffset + readTotal ) );
 
             // Zero-fill the rest.
             assert readTotal >= 0 && filePageSize <= bufferSize && readTotal <= filePageSize : format(
@@ -371,9 +394,9 @@ public class SingleFilePageSwapper implements PageSwapper
         long bytesRead = lockPositionReadVectorAndRetryIfInterrupted( startFilePageId, channel, fileOffset, srcs, MAX_INTERRUPTED_CHANNEL_REOPEN_ATTEMPTS );
         if ( bytesRead == -1 )
         {
-            for ( long address : bufferAddresses )
+            for ( int i = 0; i < length; i++ )
             {
-                UnsafeUtil.setMemory( address, filePageSize, MuninnPageCache.ZERO_BYTE );
+                UnsafeUtil.setMemory( bufferAddresses[arrayOffset + i], filePageSize, MuninnPageCache.ZERO_BYTE );
             }
             return 0;
         }
@@ -412,7 +435,7 @@ public class SingleFilePageSwapper implements PageSwapper
                 {
                     read = channel.read( srcs );
                 }
-                while ( read != -1 && (readTotal += read) < toRead );
+                while ( read != -1 && (readTotal += read) < toRead && canContinueReadingAt( fileOffset + readTotal ) );
                 return readTotal;
             }
         }
@@ -670,7 +693,7 @@ public class SingleFilePageSwapper implements PageSwapper
 
         try
         {
-            channels[stripe] = fs.open( file, OpenMode.READ_WRITE );
+            channels[stripe] = openChannel();
             if ( stripe == tokenChannelStripe )
             {
                 // The closing of a FileChannel also releases all associated file locks.
@@ -0,0 +1,353 @@
+/*
+ * Copyright (c) 2002-2020 "Neo4j,"
+ * Neo4j Sweden AB [http://neo4j.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.io.pagecache.impl.muninn;
+
+import org.eclipse.collections.api.set.primitive.IntSet;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntPredicate;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.neo4j.unsafe.impl.internal.dragons.UnsafeUtil;
+
+/**
+ * A second, compressed, tier of cached pages, that sits between the page cache and the page swappers.
+ * <p>
+ * Clean copies of pages are compressed and stored in this tier as they are evicted from the page cache, and are taken
+ * back out of it when the same file pages are faulted in again, saving the read from the file. A file page is never
+ * both in the page cache and in this tier, because every page fault removes the file page from this tier, whether it
+ * was found there or not. This is what keeps the tier from ever serving stale data: the only way for a file page to
+ * change is through the page cache, and it must be faulted in for that to happen.
+ * <p>
+ * The compressed pages are kept on the Java heap, and the tier evicts its oldest pages first, when it runs out of
+ * space. Pages that don't compress to at most 3/4 of their size are not worth keeping, and are dropped instead.
+ * <p>
+ * The pages are spread over a number of stripes, that each get an equal share of the capacity, and keep their pages in
+ * insertion order. The eviction order is therefore only oldest-first within each stripe.
+ */
+final class CompressedPageTier
+{
+    static final CompressedPageTier DISABLED = new CompressedPageTier( 0, 0 );
+
+    // Rough estimate of the heap overhead of an entry, on top of the compressed bytes themselves.
+    private static final int ENTRY_OVERHEAD_BYTES = 96;
+    private static final int SHIFT_FILE_PAGE_ID = 21;
+    private static final long MASK_SWAPPER_ID = (1L << SHIFT_FILE_PAGE_ID) - 1;
+    private static final int STRIPES = 16;
+    private static final int STRIPE_MASK = STRIPES - 1;
+
+    private static final ThreadLocal<Codec> codecs = new ThreadLocal<>();
+
+    private final long capacityBytes;
+    private final int cachePageSize;
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder stores = new LongAdder();
+
+    CompressedPageTier( long capacityBytes, int cachePageSize )
+    {
+        this.capacityBytes = capacityBytes;
+        this.cachePageSize = cachePageSize;
+        for ( int i = 0; i < STRIPES; i++ )
+        {
+            stripes[i] = new Stripe( capacityBytes / STRIPES );
+        }
+    }
+
+    boolean isEnabled()
+    {
+        return capacityBytes > 0;
+    }
+
+    /**
+     * Compress and keep a copy of the given evicted page. The page must be clean, and still be bound to the given file
+     * page, such that no one can fault it in while we are making the copy.
+     */
+    void store( int swapperId, long filePageId, long address )
+    {
+        if ( !isEnabled() )
+        {
+            return;
+        }
+        Codec codec = codec();
+        int compressedLength = codec.compress( address, cachePageSize );
+        if ( compressedLength <= 0 || compressedLength > cachePageSize - (cachePageSize >> 2) )
+        {
+            return;
+        }
+        byte[] compressed = Arrays.copyOf( codec.compressed, compressedLength );
+        long key = key( swapperId, filePageId );
+        stripe( key ).put( key, compressed );
+        stores.increment();
+    }
+
+    /**
+     * Remove the given file page from this tier, and decompress it into the given page memory if it was there.
+     *
+     * @return {@code true} if the page memory now holds the contents of the file page, otherwise {@code false}, in
+     * which case the page must be read from the file.
+     */
+    boolean take( int swapperId, long filePageId, long address )
+    {
+        if ( !isEnabled() )
+        {
+            return false;
+        }
+        long key = key( swapperId, filePageId );
+        byte[] compressed = stripe( key ).remove( key );
+        if ( compressed == null )
+        {
+            return false;
+        }
+        if ( codec().decompress( compressed, address, cachePageSize ) )
+        {
+            hits.increment();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Remove the given file page from this tier, because it is being faulted in from the file.
+     */
+    void invalidate( int swapperId, long filePageId )
+    {
+        if ( isEnabled() )
+        {
+            long key = key( swapperId, filePageId );
+            stripe( key ).remove( key );
+        }
+    }
+
+    /**
+     * Remove all pages of the given swapper from this tier, because its file is being unmapped.
+     */
+    void invalidateAll( int swapperId )
+    {
+        invalidateAll( id -> id == swapperId );
+    }
+
+    /**
+     * Remove all pages of the given swappers from this tier. This must be done before their swapper ids can be reused.
+     */
+    void invalidateAll( IntSet swapperIds )
+    {
+        invalidateAll( swapperIds::contains );
+    }
+
+    private void invalidateAll( IntPredicate swapperIds )
+    {
+        if ( !isEnabled() )
+        {
+            return;
+        }
+        for ( Stripe stripe : stripes )
+        {
+            stripe.removeAll( swapperIds );
+        }
+    }
+
+    long usedBytes()
+    {
+        long usedBytes = 0;
+        for ( Stripe stripe : stripes )
+        {
+            usedBytes += stripe.usedBytes();
+        }
+        return usedBytes;
+    }
+
+    int pageCount()
+    {
+        int pageCount = 0;
+        for ( Stripe stripe : stripes )
+        {
+            pageCount += stripe.pageCount();
+        }
+        return pageCount;
+    }
+
+    long hits()
+    {
+        return hits.sum();
+    }
+
+    long stores()
+    {
+        return stores.sum();
+    }
+
+    private Stripe stripe( long key )
+    {
+        // Consecutive pages of a file go to consecutive stripes.
+        return stripes[(int) ((key >>> SHIFT_FILE_PAGE_ID) + key) & STRIPE_MASK];
+    }
+
+    private static long key( int swapperId, long filePageId )
+    {
+        return (filePageId << SHIFT_FILE_PAGE_ID) | swapperId;
+    }
+
+    private static long entryBytes( byte[] compressed )
+    {
+        return compressed.length + ENTRY_OVERHEAD_BYTES;
+    }
+
+    private Codec codec()
+    {
+        Codec codec = codecs.get();
+        if ( codec == null || codec.page.length != cachePageSize )
+        {
+            codec = new Codec( cachePageSize );
+            codecs.set( codec );
+        }
+        return codec;
+    }
+
+    private static final class Stripe
+    {
+        private final long capacityBytes;
+        // In insertion order, so the oldest pages are evicted first.
+        private final LinkedHashMap<Long,byte[]> pages = new LinkedHashMap<>();
+        private long usedBytes;
+
+        Stripe( long capacityBytes )
+        {
+            this.capacityBytes = capacityBytes;
+        }
+
+        synchronized void put( long key, byte[] compressed )
+        {
+            // Remove any older copy first, so the page moves to the back of the eviction order.
+            remove( key );
+            pages.put( key, compressed );
+            usedBytes += entryBytes( compressed );
+            Iterator<byte[]> oldest = pages.values().iterator();
+            while ( usedBytes > capacityBytes && oldest.hasNext() )
+            {
+                usedBytes -= entryBytes( oldest.next() );
+                oldest.remove();
+            }
+        }
+
+        synchronized byte[] remove( long key )
+        {
+            byte[] compressed = pages.remove( key );
+            if ( compressed != null )
+            {
+                usedBytes -= entryBytes( compressed );
+            }
+            return compressed;
+        }
+
+        synchronized void removeAll( IntPredicate swapperIds )
+        {
+            Iterator<Map.Entry<Long,byte[]>> entries = pages.entrySet().iterator();
+            while ( entries.hasNext() )
+            {
+                Map.Entry<Long,byte[]> entry = entries.next();
+                if ( swapperIds.test( (int) (entry.getKey() & MASK_SWAPPER_ID) ) )
+                {
+                    usedBytes -= entryBytes( entry.getValue() );
+                    entries.remove();
+                }
+            }
+        }
+
+        synchronized long usedBytes()
+        {
+            return usedBytes;
+        }
+
+        synchronized int pageCount()
+        {
+            return pages.size();
+        }
+    }
+
+    private static final class Codec
+    {
+        private final Deflater deflater = new Deflater( Deflater.BEST_SPEED );
+        private final Inflater inflater = new Inflater();
+        private final byte[] page;
+        private final byte[] compressed;
+        private ByteBuffer proxy;
+
+        Codec( int cachePageSize )
+        {
+            page = new byte[cachePageSize];
+            compressed = new byte[cachePageSize];
+        }
+
+        int compress( long address, int length )
+        {
+            proxy( address, length ).get( page, 0, length );
+            deflater.reset();
+            deflater.setInput( page, 0, length );
+            deflater.finish();
+            int compressedLength = deflater.deflate( compressed );
+            return deflater.finished() ? compressedLength : -1;
+        }
+
+        boolean decompress( byte[] input, long address, int length )
+        {
+            inflater.reset();
+            inflater.setInput( input );
+            try
+            {
+                if ( inflater.inflate( page, 0, length ) != length )
+                {
+                    return false;
+                }
+            }
+            catch ( DataFormatException e )
+            {
+                return false;
+            }
+            proxy( address, length ).put( page, 0, length );
+            return true;
+        }
+
+        private ByteBuffer proxy( long address, int length )
+        {
+            if ( proxy == null )
+            {
+                try
+                {
+                    proxy = UnsafeUtil.newDirectByteBuffer( address, length );
+                    return proxy;
+                }
+                catch ( Exception e )
+                {
+                    throw new LinkageError( "Cannot create a direct byte buffer proxy", e );
+                }
+            }
+            UnsafeUtil.initDirectByteBuffer( proxy, address, length );
+            return proxy;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2002-2020 "Neo4j,"
+ * Neo4j Sweden AB [http://neo4j.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.io.pagecache.impl.muninn;
+
+/**
+ * The page replacement policies that the {@link MuninnPageCache} can use, when it needs to pick pages to evict.
+ */
+public enum EvictionPolicy
+{
+    /**
+     * The classic clock, or second-chance, algorithm. Pages get a usage counter that is incremented when they are
+     * pinned, and decremented by the sweeping eviction threads. Pages are evicted when their counter reaches zero.
+     * <p>
+     * This is cheap and works well for most workloads, but a large scan will turn the clock arm so fast that the
+     * usage counters of the hot pages are worn down, and the working set is flushed out of the cache.
+     */
+    CLOCK
+    {
+        @Override
+        PageReplacement create( PageList pages )
+        {
+            return new ClockPageReplacement( pages );
+        }
+    },
+
+    /**
+     * A CLOCK-Pro inspired variant of the clock algorithm, that separates the cached pages into a hot and a cold set.
+     * Pages enter the cache as cold, and are only promoted to hot if they are referenced again while still cached, or
+     * if they are faulted back in shortly after having been evicted, which is tracked by a list of ghost entries.
+     * Only cold pages are evicted, and hot pages are only demoted to cold once the hot set grows beyond its budget.
+     * <p>
+     * Pages that are only touched once, as is the case for large store scans and consistency checks, will therefore
+     * never push the hot working set out of the cache.
+     */
+    SCAN_RESISTANT
+    {
+        @Override
+        PageReplacement create( PageList pages )
+        {
+            return new ScanResistantPageReplacement( pages );
+        }
+    };
+
+    abstract PageReplacement create( PageList pages );
+}
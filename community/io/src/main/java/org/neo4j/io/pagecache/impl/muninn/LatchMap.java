@@ -28,6 +28,17 @@ import org.neo4j.util.concurrent.BinaryLatch;
  * threads try to fault in the same page at the same time. If there is high demand for a particular page, then the
  * LatchMap will ensure that only one thread actually does the faulting, and that any other interested threads will
  * wait for the faulting thread to complete the fault before they proceed.
+ * <p>
+ * The identifiers are hashed to buckets of a few latch slots each, so page faults on unrelated pages only wait for
+ * each other, when all of the slots in their bucket are taken. A latch is installed by CAS'ing it into a free slot in
+ * the bucket, and then checking the rest of the bucket for other latches with the same identifier. If there is one,
+ * then we lost a race with another thread, and back off. Because the installing CAS always happens before the check,
+ * at most one of two racing threads can get through without seeing the other.
+ * <p>
+ * By default the buckets have a single slot each, and the LatchMap behaves like the striped map it used to be: a
+ * page fault waits for any other fault on the same stripe. Larger buckets are enabled with the
+ * {@code faultLockBucketSize} feature toggle, and should stay off by default until they are shown to be faster on a
+ * machine with many cores. See the LatchMapBenchmark results in the io-benchmarks README.
  */
 final class LatchMap
 {
@@ -35,6 +46,7 @@ final class LatchMap
     {
         private LatchMap latchMap;
         private int index;
+        private long identifier;
 
         @Override
         public void release()
@@ -45,15 +57,34 @@ final class LatchMap
     }
 
     private static final int faultLockStriping = FeatureToggles.getInteger( LatchMap.class, "faultLockStriping", 128 );
-    private static final long faultLockMask = faultLockStriping - 1;
+    private static final int faultLockBucketSize = FeatureToggles.getInteger( LatchMap.class, "faultLockBucketSize", 1 );
     private static final int latchesArrayBase = UnsafeUtil.arrayBaseOffset( Latch[].class );
     private static final int latchesArrayScale = UnsafeUtil.arrayIndexScale( Latch[].class );
 
     private final Latch[] latches;
+    private final long bucketMask;
+    private final int bucketSize;
 
     LatchMap()
     {
-        latches = new Latch[faultLockStriping];
+        this( faultLockStriping, faultLockBucketSize );
+    }
+
+    /**
+     * @param buckets the number of buckets, which must be a power of two.
+     * @param bucketSize the number of latch slots in each bucket.
+     */
+    LatchMap( int buckets, int bucketSize )
+    {
+        if ( Integer.bitCount( buckets ) != 1 || bucketSize < 1 )
+        {
+            throw new IllegalArgumentException(
+                    "The number of buckets must be a power of two, and the bucket size must be positive, but got " + buckets +
+                    " buckets of size " + bucketSize );
+        }
+        this.latches = new Latch[buckets * bucketSize];
+        this.bucketMask = buckets - 1;
+        this.bucketSize = bucketSize;
     }
 
     private long offset( int index )
@@ -77,17 +108,78 @@ final class LatchMap
     }
 
     /**
-     * If a latch is currently installed for the given (or any colliding) identifier, then it will be waited upon and
-     * {@code null} will be returned.
+     * If a latch is currently installed for the given identifier, or all the slots it could be installed in are taken,
+     * then one of those latches will be waited upon and {@code null} will be returned.
      *
-     * Otherwise, if there is currently no latch installed for the given identifier, then one will be created and
-     * installed, and that latch will be returned. Once the page fault has been completed, the returned latch must be
-     * released. Releasing the latch will unblock all threads that are waiting upon it, and the latch will be
-     * atomically uninstalled.
+     * Otherwise, a latch will be created and installed, and that latch will be returned. Once the page fault has been
+     * completed, the returned latch must be released. Releasing the latch will unblock all threads that are waiting
+     * upon it, and the latch will be atomically uninstalled.
      */
     Latch takeOrAwaitLatch( long identifier )
     {
-        int index = index( identifier );
+        int bucket = bucket( identifier );
+        if ( bucketSize == 1 )
+        {
+            return takeOrAwaitStripe( bucket );
+        }
+        Latch existing = find( bucket, identifier, -1 );
+        if ( existing == null )
+        {
+            Latch latch = install( bucket, identifier );
+            if ( latch != null )
+            {
+                existing = find( bucket, identifier, latch.index );
+                if ( existing == null )
+                {
+                    return latch;
+                }
+                latch.release();
+            }
+            else
+            {
+                // The bucket is full. Wait for any of the page faults in it to finish.
+                existing = getLatch( bucket );
+            }
+        }
+        if ( existing != null )
+        {
+            existing.await();
+        }
+        return null;
+    }
+
+    /**
+     * Like {@link #takeOrAwaitLatch(long)}, except this method never waits. If a latch is already installed for the
+     * given identifier, or there are no free slots for it, then {@code null} is returned immediately.
+     */
+    Latch tryTakeLatch( long identifier )
+    {
+        int bucket = bucket( identifier );
+        if ( bucketSize == 1 )
+        {
+            return tryTakeStripe( bucket );
+        }
+        if ( find( bucket, identifier, -1 ) == null )
+        {
+            Latch latch = install( bucket, identifier );
+            if ( latch != null )
+            {
+                if ( find( bucket, identifier, latch.index ) == null )
+                {
+                    return latch;
+                }
+                latch.release();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The striped fast path for buckets of a single slot, where any latch in the slot is waited upon, regardless of
+     * what identifier it was installed for.
+     */
+    private Latch takeOrAwaitStripe( int index )
+    {
         Latch latch = getLatch( index );
         while ( latch == null )
         {
@@ -104,9 +196,58 @@ final class LatchMap
         return null;
     }
 
-    private int index( long identifier )
+    private Latch tryTakeStripe( int index )
+    {
+        if ( getLatch( index ) == null )
+        {
+            Latch latch = new Latch();
+            if ( compareAndSetLatch( index, null, latch ) )
+            {
+                latch.latchMap = this;
+                latch.index = index;
+                return latch;
+            }
+        }
+        return null;
+    }
+
+    private Latch install( int bucket, long identifier )
+    {
+        for ( int i = 0; i < bucketSize; i++ )
+        {
+            int index = bucket + i;
+            if ( getLatch( index ) == null )
+            {
+                Latch latch = new Latch();
+                latch.latchMap = this;
+                latch.index = index;
+                latch.identifier = identifier;
+                if ( compareAndSetLatch( index, null, latch ) )
+                {
+                    return latch;
+                }
+            }
+        }
+        return null;
+    }
+
+    private Latch find( int bucket, long identifier, int ignoredIndex )
+    {
+        for ( int i = 0; i < bucketSize; i++ )
+        {
+            int index = bucket + i;
+            Latch latch = getLatch( index );
+            if ( latch != null && index != ignoredIndex && latch.identifier == identifier )
+            {
+                return latch;
+            }
+        }
+        return null;
+    }
+
+    private int bucket( long identifier )
     {
-        return (int) (mix( identifier ) & faultLockMask);
+        return (int) (mix( identifier ) & bucketMask) * bucketSize;
     }
 
     private long mix( long identifier )
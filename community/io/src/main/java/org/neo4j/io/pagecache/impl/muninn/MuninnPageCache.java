@@ -20,6 +20,7 @@
 package org.neo4j.io.pagecache.impl.muninn;
 
 import java.io.File;
+import java.io.Flushable;
 import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.nio.channels.ClosedChannelException;
@@ -27,12 +28,14 @@ import java.nio.file.OpenOption;
 import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.LockSupport;
 
 import org.neo4j.io.mem.MemoryAllocator;
@@ -41,6 +44,8 @@ import org.neo4j.io.pagecache.PageCache;
 import org.neo4j.io.pagecache.PageCacheOpenOptions;
 import org.neo4j.io.pagecache.PageSwapperFactory;
 import org.neo4j.io.pagecache.PagedFile;
+import org.neo4j.io.pagecache.WriteAheadBarrier;
+import org.neo4j.io.pagecache.tracing.EvictionEventOpportunity;
 import org.neo4j.io.pagecache.tracing.EvictionRunEvent;
 import org.neo4j.io.pagecache.tracing.FlushEventOpportunity;
 import org.neo4j.io.pagecache.tracing.MajorFlushEvent;
@@ -122,6 +127,19 @@ public class MuninnPageCache implements PageCache
     private static final int pagesToKeepFree = getInteger(
             MuninnPageCache.class, "pagesToKeepFree", 30 );
 
+    // The most pages that a cursor opened with PF_READ_AHEAD will read ahead of itself, in a single page fault.
+    // This will be truncated to be no more than 1/64th of the number of pages in the cache.
+    private static final int readAheadMaxPages = getInteger(
+            MuninnPageCache.class, "readAheadMaxPages", 32 );
+
+    // How often the background flusher checks if there are too many dirty pages in the cache.
+    private static final int backgroundFlushIntervalMillis = getInteger(
+            MuninnPageCache.class, "backgroundFlushIntervalMillis", 100 );
+
+    // How many pages the background flusher looks at, to estimate how many of the pages in the cache are dirty.
+    private static final int backgroundFlushDirtySampleSize = getInteger(
+            MuninnPageCache.class, "backgroundFlushDirtySampleSize", 4096 );
+
     // This is how many times that, during cooperative eviction, we'll iterate through the entire set of pages looking
     // for a page to evict, before we give up and throw CacheLiveLockException. This MUST be greater than 1.
     private static final int cooperativeEvictionLiveLockThreshold = getInteger(
@@ -162,6 +180,9 @@ public class MuninnPageCache implements PageCache
     private final PageCursorTracerSupplier pageCursorTracerSupplier;
     private final VersionContextSupplier versionContextSupplier;
     final PageList pages;
+    final int maxReadAheadPages;
+    // Decides which pages to evict, as the eviction threads sweep through the page list.
+    final PageReplacement pageReplacement;
     // All PageCursors are initialised with their pointers pointing to the victim page. This way, we don't have to throw
     // exceptions on bounds checking failures; we can instead return the victim page pointer, and permit the page
     // accesses to take place without fear of segfaulting newly allocated cursors.
@@ -190,6 +211,20 @@ public class MuninnPageCache implements PageCache
     private volatile boolean evictorParked;
     private volatile IOException evictorException;
 
+    // The thread that writes out dirty pages in the background, if background flushing has been enabled.
+    private volatile Thread backgroundFlushThread;
+    // The number of dirty pages above which the background flusher starts writing out pages, or zero if disabled.
+    private volatile int backgroundFlushDirtyPagesTarget;
+    private volatile IOLimiter backgroundFlushLimiter = IOLimiter.UNLIMITED;
+    // The background flusher stays out of the way while a file, or the whole cache, is being flushed and forced.
+    final AtomicInteger flushesInProgress = new AtomicInteger();
+    // Only accessed by the background flush thread.
+    private long backgroundFlushLimiterStamp = IOLimiter.INITIAL_STAMP;
+    private long backgroundFlushPagesRemaining;
+
+    // The dirty epoch that write cursors stamp the pages they dirty with. See beginDirtyEpoch().
+    private final AtomicLong dirtyEpoch = new AtomicLong();
+
     // Flag for when page cache is closed - writes guarded by synchronized(this), reads can be unsynchronized
     private volatile boolean closed;
 
@@ -255,7 +290,32 @@ public class MuninnPageCache implements PageCache
             VersionContextSupplier versionContextSupplier,
             JobScheduler jobScheduler )
     {
-        this( swapperFactory, memoryAllocator, PAGE_SIZE, pageCacheTracer, pageCursorTracerSupplier, versionContextSupplier, jobScheduler );
+        this( swapperFactory, memoryAllocator, PAGE_SIZE, pageCacheTracer, pageCursorTracerSupplier, versionContextSupplier, jobScheduler,
+                EvictionPolicy.CLOCK );
+    }
+
+    /**
+     * Create page cache.
+     * @param swapperFactory page cache swapper factory
+     * @param memoryAllocator the source of native memory the page cache should use
+     * @param pageCacheTracer global page cache tracer
+     * @param pageCursorTracerSupplier supplier of thread local (transaction local) page cursor tracer that will provide
+     * thread local page cache statistics
+     * @param versionContextSupplier supplier of thread local (transaction local) version context that will provide
+     *        access to thread local version context
+     * @param evictionPolicy the policy used for picking the pages to evict, when the page cache needs free pages
+     */
+    public MuninnPageCache(
+            PageSwapperFactory swapperFactory,
+            MemoryAllocator memoryAllocator,
+            PageCacheTracer pageCacheTracer,
+            PageCursorTracerSupplier pageCursorTracerSupplier,
+            VersionContextSupplier versionContextSupplier,
+            JobScheduler jobScheduler,
+            EvictionPolicy evictionPolicy )
+    {
+        this( swapperFactory, memoryAllocator, PAGE_SIZE, pageCacheTracer, pageCursorTracerSupplier, versionContextSupplier, jobScheduler,
+                evictionPolicy );
     }
 
     /**
@@ -272,6 +332,26 @@ public class MuninnPageCache implements PageCache
             PageCursorTracerSupplier pageCursorTracerSupplier,
             VersionContextSupplier versionContextSupplier,
             JobScheduler jobScheduler )
+    {
+        this( swapperFactory, memoryAllocator, cachePageSize, pageCacheTracer, pageCursorTracerSupplier, versionContextSupplier,
+                jobScheduler, EvictionPolicy.CLOCK );
+    }
+
+    /**
+     * Constructor variant that allows setting a non-standard cache page size.
+     * Only ever use this for testing.
+     */
+    @SuppressWarnings( "DeprecatedIsStillUsed" )
+    @Deprecated
+    public MuninnPageCache(
+            PageSwapperFactory swapperFactory,
+            MemoryAllocator memoryAllocator,
+            int cachePageSize,
+            PageCacheTracer pageCacheTracer,
+            PageCursorTracerSupplier pageCursorTracerSupplier,
+            VersionContextSupplier versionContextSupplier,
+            JobScheduler jobScheduler,
+            EvictionPolicy evictionPolicy )
     {
         verifyHacks();
         verifyCachePageSizeIsPowerOfTwo( cachePageSize );
@@ -285,6 +365,7 @@ public class MuninnPageCache implements PageCache
         this.swapperFactory = swapperFactory;
         this.cachePageSize = cachePageSize;
         this.keepFree = Math.min( pagesToKeepFree, maxPages / 2 );
+        this.maxReadAheadPages = Math.min( readAheadMaxPages, maxPages / 64 );
         this.pageCacheTracer = pageCacheTracer;
         this.pageCursorTracerSupplier = pageCursorTracerSupplier;
         this.versionContextSupplier = versionContextSupplier;
@@ -292,6 +373,7 @@ public class MuninnPageCache implements PageCache
         long alignment = swapperFactory.getRequiredBufferAlignment();
         this.victimPage = VictimPageReference.getVictimPage( cachePageSize, memoryTracker );
         this.pages = new PageList( maxPages, cachePageSize, memoryAllocator, new SwapperSet(), victimPage, alignment );
+        this.pageReplacement = evictionPolicy.create( pages );
         this.scheduler = jobScheduler;
 
         setFreelistHead( new AtomicInteger() );
@@ -497,6 +579,10 @@ public class MuninnPageCache implements PageCache
         try
         {
             scheduler.schedule( Group.PAGE_CACHE, new EvictionTask( this ) );
+            if ( backgroundFlushDirtyPagesTarget > 0 )
+            {
+                scheduler.schedule( Group.PAGE_CACHE, new BackgroundFlushTask( this ) );
+            }
         }
         catch ( Exception e )
         {
@@ -587,6 +673,23 @@ public class MuninnPageCache implements PageCache
 
     @Override
     public void flushAndForce( IOLimiter limiter ) throws IOException
+    {
+        flushAndForceDirtyUpTo( Long.MAX_VALUE, limiter );
+    }
+
+    @Override
+    public long beginDirtyEpoch()
+    {
+        return dirtyEpoch.getAndIncrement();
+    }
+
+    long currentDirtyEpoch()
+    {
+        return dirtyEpoch.get();
+    }
+
+    @Override
+    public void flushAndForceDirtyUpTo( long maxDirtyEpoch, IOLimiter limiter ) throws IOException
     {
         if ( limiter == null )
         {
@@ -598,26 +701,27 @@ public class MuninnPageCache implements PageCache
         {
             if ( limiter.isLimited() )
             {
-                flushAllPages( files, limiter );
+                flushAllPages( files, limiter, maxDirtyEpoch );
             }
             else
             {
-                flushAllPagesParallel( files, limiter );
+                flushAllPagesParallel( files, limiter, maxDirtyEpoch );
             }
             syncDevice();
         }
         clearEvictorException();
     }
 
-    private void flushAllPages( List<PagedFile> files, IOLimiter limiter ) throws IOException
+    private void flushAllPages( List<PagedFile> files, IOLimiter limiter, long maxDirtyEpoch ) throws IOException
     {
         for ( PagedFile file : files )
         {
-            flushFile( (MuninnPagedFile) file, limiter );
+            flushFile( (MuninnPagedFile) file, limiter, maxDirtyEpoch );
         }
     }
 
-    private void flushAllPagesParallel( List<PagedFile> files, IOLimiter limiter ) throws IOException
+    private void flushAllPagesParallel( List<PagedFile> files, IOLimiter limiter, long maxDirtyEpoch )
+            throws IOException
     {
         List<JobHandle> flushes = new ArrayList<>( files.size() );
 
@@ -628,7 +732,7 @@ public class MuninnPageCache implements PageCache
             {
                 try
                 {
-                    flushFile( (MuninnPagedFile) file, limiter );
+                    flushFile( (MuninnPagedFile) file, limiter, maxDirtyEpoch );
                 }
                 catch ( IOException e )
                 {
@@ -651,12 +755,12 @@ public class MuninnPageCache implements PageCache
         }
     }
 
-    private void flushFile( MuninnPagedFile muninnPagedFile,  IOLimiter limiter ) throws IOException
+    private void flushFile( MuninnPagedFile muninnPagedFile,  IOLimiter limiter, long maxDirtyEpoch ) throws IOException
     {
         try ( MajorFlushEvent fileFlush = pageCacheTracer.beginFileFlush( muninnPagedFile.swapper ) )
         {
             FlushEventOpportunity flushOpportunity = fileFlush.flushEventOpportunity();
-            muninnPagedFile.flushAndForceInternal( flushOpportunity, false, limiter );
+            muninnPagedFile.flushAndForceInternal( flushOpportunity, false, limiter, maxDirtyEpoch );
         }
         catch ( ClosedChannelException e )
         {
@@ -707,6 +811,8 @@ public class MuninnPageCache implements PageCache
 
         interrupt( evictionThread );
         evictionThread = null;
+        interrupt( backgroundFlushThread );
+        backgroundFlushThread = null;
 
         // Close the page swapper factory last. If this fails then we will still consider ourselves closed.
         swapperFactory.close();
@@ -804,34 +910,69 @@ public class MuninnPageCache implements PageCache
                     return pageRef;
                 }
             }
-            else if ( current instanceof AtomicInteger )
+            else if ( current == shutdownSignal )
             {
-                int pageCount = pages.getPageCount();
-                AtomicInteger counter = (AtomicInteger) current;
-                int pageId = counter.get();
-                if ( pageId < pageCount && counter.compareAndSet( pageId, pageId + 1 ) )
-                {
-                    return pages.deref( pageId );
-                }
-                if ( pageId >= pageCount )
-                {
-                    compareAndSetFreelistHead( current, null );
-                }
+                throw new IllegalStateException( "The PageCache has been shut down." );
             }
-            else if ( current instanceof FreePage )
+            else
             {
-                FreePage freePage = (FreePage) current;
-                if ( freePage == shutdownSignal )
+                long pageRef = tryGrabFreelistHead( current );
+                if ( pageRef != 0 )
                 {
-                    throw new IllegalStateException( "The PageCache has been shut down." );
+                    return pageRef;
                 }
+            }
+        }
+    }
 
-                if ( compareAndSetFreelistHead( freePage, freePage.next ) )
-                {
-                    return freePage.pageRef;
-                }
+    /**
+     * Grab a free page if one is immediately available on the freelist. Unlike
+     * {@link #grabFreeAndExclusivelyLockedPage(PageFaultEvent)}, this never blocks and never evicts anything.
+     * @return An exclusively locked free page, or {@code 0} if the freelist is empty or the page cache is shut down.
+     */
+    long tryGrabFreeAndExclusivelyLockedPage()
+    {
+        Object current;
+        for (;;)
+        {
+            current = getFreelistHead();
+            if ( current == null || current == shutdownSignal )
+            {
+                return 0;
+            }
+            long pageRef = tryGrabFreelistHead( current );
+            if ( pageRef != 0 )
+            {
+                return pageRef;
+            }
+        }
+    }
+
+    private long tryGrabFreelistHead( Object current )
+    {
+        if ( current instanceof AtomicInteger )
+        {
+            int pageCount = pages.getPageCount();
+            AtomicInteger counter = (AtomicInteger) current;
+            int pageId = counter.get();
+            if ( pageId < pageCount && counter.compareAndSet( pageId, pageId + 1 ) )
+            {
+                return pages.deref( pageId );
+            }
+            if ( pageId >= pageCount )
+            {
+                compareAndSetFreelistHead( current, null );
+            }
+        }
+        else if ( current instanceof FreePage )
+        {
+            FreePage freePage = (FreePage) current;
+            if ( compareAndSetFreelistHead( freePage, freePage.next ) )
+            {
+                return freePage.pageRef;
             }
         }
+        return 0;
     }
 
     private long cooperativelyEvict( PageFaultEvent faultEvent ) throws IOException
@@ -860,9 +1001,9 @@ public class MuninnPageCache implements PageCache
             }
 
             pageRef = pages.deref( clockArm );
-            if ( pages.isLoaded( pageRef ) && pages.decrementUsage( pageRef ) )
+            if ( pages.isLoaded( pageRef ) && pageReplacement.shouldEvict( pageRef ) )
             {
-                evicted = pages.tryEvict( pageRef, faultEvent );
+                evicted = tryEvict( pageRef, faultEvent );
             }
             clockArm++;
         }
@@ -1009,12 +1150,12 @@ public class MuninnPageCache implements PageCache
             }
 
             long pageRef = pages.deref( clockArm );
-            if ( pages.isLoaded( pageRef ) && pages.decrementUsage( pageRef ) )
+            if ( pages.isLoaded( pageRef ) && pageReplacement.shouldEvict( pageRef ) )
             {
                 try
                 {
                     pageCountToEvict--;
-                    if ( pages.tryEvict( pageRef, evictionRunEvent ) )
+                    if ( tryEvict( pageRef, evictionRunEvent ) )
                     {
                         clearEvictorException();
                         addFreePageToFreelist( pageRef );
@@ -1041,6 +1182,25 @@ public class MuninnPageCache implements PageCache
         return clockArm;
     }
 
+    /**
+     * Try to evict the given page, and let the {@link PageReplacement} know if we did.
+     * If this returns {@code true}, then the page is now exclusively locked, just like with
+     * {@link PageList#tryEvict(long, EvictionEventOpportunity)}.
+     */
+    private boolean tryEvict( long pageRef, EvictionEventOpportunity evictionOpportunity ) throws IOException
+    {
+        // Read the binding before the eviction clears it. We might race with a concurrent fault and eviction of this
+        // page, but that will at worst give the replacement policy a slightly wrong hint.
+        int swapperId = pages.getSwapperId( pageRef );
+        long filePageId = pages.getFilePageId( pageRef );
+        if ( pages.tryEvict( pageRef, evictionOpportunity ) )
+        {
+            pageReplacement.evicted( pageRef, swapperId, filePageId );
+            return true;
+        }
+        return false;
+    }
+
     void addFreePageToFreelist( long pageRef )
     {
         Object current;
@@ -1057,6 +1217,170 @@ public class MuninnPageCache implements PageCache
         while ( !compareAndSetFreelistHead( current, freePage ) );
     }
 
+    /**
+     * Write out dirty pages in the background, whenever more than the given percentage of the pages in the cache are
+     * dirty. This keeps the number of pages that checkpoints have to flush small, and spreads the IO out over time.
+     * The flushing respects the {@link #setBackgroundFlushLimiter(IOLimiter) background flush IO limiter}.
+     * <p>
+     * This must be called before any files are mapped.
+     *
+     * @param dirtyPercentage the percentage of dirty pages that the background flusher tries to stay below,
+     * from 1 to 100, or 0 to keep background flushing disabled.
+     */
+    public synchronized void enableBackgroundFlushing( int dirtyPercentage )
+    {
+        if ( dirtyPercentage < 0 || dirtyPercentage > 100 )
+        {
+            throw new IllegalArgumentException( "The dirty page percentage must be between 0 and 100, but was " + dirtyPercentage );
+        }
+        if ( threadsInitialised )
+        {
+            throw new IllegalStateException( "Background flushing must be enabled before any files are mapped" );
+        }
+        backgroundFlushDirtyPagesTarget = dirtyPercentage == 0 ? 0 : Math.max( 1, (int) (pages.getPageCount() * (long) dirtyPercentage / 100) );
+    }
+
+    /**
+     * Keep compressed copies of evicted pages in memory, in a tier of the given size, so that faulting them back in does
+     * not have to read from the file. This trades CPU time for IO, and the compressed pages are kept on the Java heap.
+     * <p>
+     * This must be called before any files are mapped.
+     *
+     * @param capacityBytes the number of bytes that the compressed pages may take up, or 0 to keep the tier disabled.
+     */
+    public synchronized void enableCompressedTier( long capacityBytes )
+    {
+        if ( capacityBytes < 0 )
+        {
+            throw new IllegalArgumentException( "The compressed tier size cannot be negative, but was " + capacityBytes );
+        }
+        if ( threadsInitialised )
+        {
+            throw new IllegalStateException( "The compressed tier must be enabled before any files are mapped" );
+        }
+        pages.setCompressedTier( capacityBytes == 0 ? CompressedPageTier.DISABLED : new CompressedPageTier( capacityBytes, cachePageSize ) );
+    }
+
+    @Override
+    public void setBackgroundFlushLimiter( IOLimiter limiter )
+    {
+        if ( limiter == null )
+        {
+            throw new IllegalArgumentException( "IOLimiter cannot be null" );
+        }
+        this.backgroundFlushLimiter = limiter;
+    }
+
+    @Override
+    public void setWriteAheadBarrier( WriteAheadBarrier barrier )
+    {
+        if ( barrier == null )
+        {
+            throw new IllegalArgumentException( "WriteAheadBarrier cannot be null" );
+        }
+        pages.setWriteAheadBarrier( barrier );
+    }
+
+    /**
+     * Periodically estimate how many pages are dirty, and if there are more than the target, then write out dirty
+     * pages file by file until we are below half the target. The background flushing pauses while any file is being
+     * flushed and forced, since that flush will take care of the dirty pages anyway.
+     * <p>
+     * Pages that were dirtied before the current dirty epoch are written out first, since those are the pages that
+     * the next {@link #flushAndForceDirtyUpTo(long, IOLimiter) incremental flush} will have to write out.
+     */
+    void continuouslyFlushPages()
+    {
+        backgroundFlushThread = Thread.currentThread();
+        long parkNanos = TimeUnit.MILLISECONDS.toNanos( backgroundFlushIntervalMillis );
+        int fileIndex = 0;
+
+        while ( !closed )
+        {
+            LockSupport.parkNanos( this, parkNanos );
+            if ( Thread.interrupted() || closed )
+            {
+                break;
+            }
+
+            int dirtyPagesTarget = backgroundFlushDirtyPagesTarget;
+            long dirtyPages = estimateDirtyPages();
+            if ( dirtyPages <= dirtyPagesTarget || flushesInProgress.get() > 0 )
+            {
+                continue;
+            }
+
+            backgroundFlushPagesRemaining = dirtyPages - dirtyPagesTarget / 2;
+            List<PagedFile> files = listExistingMappingsForBackgroundFlush();
+            backgroundFlushFiles( files, fileIndex, currentDirtyEpoch() - 1 );
+            backgroundFlushFiles( files, fileIndex, Long.MAX_VALUE );
+            fileIndex++;
+        }
+    }
+
+    private void backgroundFlushFiles( List<PagedFile> files, int fileIndex, long maxDirtyEpoch )
+    {
+        for ( int i = 0; i < files.size() && backgroundFlushPagesRemaining > 0 && !closed; i++ )
+        {
+            MuninnPagedFile file = (MuninnPagedFile) files.get( (fileIndex + i) % files.size() );
+            try ( MajorFlushEvent fileFlush = pageCacheTracer.beginFileFlush( file.swapper ) )
+            {
+                file.backgroundFlush( fileFlush.flushEventOpportunity(), maxDirtyEpoch );
+            }
+            catch ( IOException ignore )
+            {
+                // The file might have been unmapped concurrently. Any other problem will be reported by the next
+                // checkpoint or eviction of the page, so there is no need for us to report it.
+            }
+        }
+    }
+
+    private List<PagedFile> listExistingMappingsForBackgroundFlush()
+    {
+        try
+        {
+            return listExistingMappings();
+        }
+        catch ( IOException | IllegalStateException e )
+        {
+            // The page cache is being closed.
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * Look at an evenly spread sample of the pages, and estimate how many of all the pages in the cache are dirty.
+     */
+    long estimateDirtyPages()
+    {
+        int pageCount = pages.getPageCount();
+        int stride = Math.max( 1, pageCount / backgroundFlushDirtySampleSize );
+        int offset = ThreadLocalRandom.current().nextInt( stride );
+        long sampled = 0;
+        long dirty = 0;
+        for ( int i = offset; i < pageCount; i += stride )
+        {
+            sampled++;
+            if ( pages.isModified( pages.deref( i ) ) )
+            {
+                dirty++;
+            }
+        }
+        return sampled == 0 ? 0 : dirty * pageCount / sampled;
+    }
+
+    /**
+     * Called by the background flusher after it has written out a vector of pages, to apply the IO limit.
+     *
+     * @return {@code true} if the background flusher should keep writing out pages.
+     */
+    boolean backgroundFlushed( int pagesFlushed, Flushable flushable )
+    {
+        backgroundFlushLimiterStamp = backgroundFlushLimiter.maybeLimitIO( backgroundFlushLimiterStamp, pagesFlushed, flushable );
+        backgroundFlushPagesRemaining -= pagesFlushed;
+        return backgroundFlushPagesRemaining > 0 && flushesInProgress.get() == 0 && !closed;
+    }
+
     void clearEvictorException()
     {
         if ( evictorException != null )
@@ -1089,7 +1413,7 @@ public class MuninnPageCache implements PageCache
                     long pageRef = pages.deref( i );
                     while ( swapperIds.contains( pages.getSwapperId( pageRef ) ) )
                     {
-                        if ( pages.tryEvict( pageRef, evictions ) )
+                        if ( tryEvict( pageRef, evictions ) )
                         {
                             addFreePageToFreelist( pageRef );
                             break;
@@ -1101,6 +1425,7 @@ public class MuninnPageCache implements PageCache
             {
                 throw new UncheckedIOException( e );
             }
+            pages.getCompressedTier().invalidateAll( swapperIds );
         } );
     }
 }
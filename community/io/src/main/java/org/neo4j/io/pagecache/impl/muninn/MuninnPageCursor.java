@@ -38,9 +38,11 @@ import org.neo4j.unsafe.impl.internal.dragons.UnsafeUtil;
 
 import static org.neo4j.io.pagecache.PagedFile.PF_EAGER_FLUSH;
 import static org.neo4j.io.pagecache.PagedFile.PF_NO_FAULT;
+import static org.neo4j.io.pagecache.PagedFile.PF_READ_AHEAD;
 import static org.neo4j.io.pagecache.PagedFile.PF_SHARED_WRITE_LOCK;
 import static org.neo4j.io.pagecache.impl.muninn.MuninnPagedFile.UNMAPPED_TTE;
 import static org.neo4j.util.FeatureToggles.flag;
+import static org.neo4j.util.FeatureToggles.getInteger;
 
 abstract class MuninnPageCursor extends PageCursor
 {
@@ -49,6 +51,10 @@ abstract class MuninnPageCursor extends PageCursor
 
     private static final boolean boundsCheck = flag( MuninnPageCursor.class, "boundsCheck", true );
 
+    // The number of pages that a PF_READ_AHEAD cursor will initially read ahead of itself. The read-ahead window
+    // doubles with every sequential page fault, up to the MuninnPageCache.maxReadAheadPages limit.
+    private static final int readAheadInitialPages = getInteger( MuninnPageCursor.class, "readAheadInitialPages", 4 );
+
     // Size of the respective primitive types in bytes.
     private static final int SIZE_OF_BYTE = Byte.BYTES;
     private static final int SIZE_OF_SHORT = Short.BYTES;
@@ -67,6 +73,20 @@ abstract class MuninnPageCursor extends PageCursor
     protected boolean eagerFlush;
     protected boolean noFault;
     protected boolean noGrow;
+    private boolean readAhead;
+    private int readAheadWindow;
+    private long lastFaultedPageId;
+    private long readAheadHorizon;
+    private long readAheadLimit;
+    private int readAheadCount;
+    private long[] readAheadPageRefs;
+    private long[] readAheadBufferAddresses;
+    private LatchMap.Latch[] readAheadLatches;
+    // Counts for the file of this cursor, that are accumulated locally and added to the file counters on close.
+    private long pins;
+    private long hits;
+    private long faults;
+    private long bytesRead;
     protected long currentPageId;
     protected long nextPageId;
     protected MuninnPageCursor linkedCursor;
@@ -102,6 +122,15 @@ abstract class MuninnPageCursor extends PageCursor
         this.eagerFlush = isFlagRaised( pf_flags, PF_EAGER_FLUSH );
         this.noFault = isFlagRaised( pf_flags, PF_NO_FAULT );
         this.noGrow = noFault | isFlagRaised( pf_flags, PagedFile.PF_NO_GROW );
+        this.readAhead = !noFault && isFlagRaised( pf_flags, PF_READ_AHEAD ) && pagedFile.pageCache.maxReadAheadPages > 0;
+        this.readAheadWindow = 0;
+        this.lastFaultedPageId = UNBOUND_PAGE_ID;
+        this.readAheadHorizon = Long.MAX_VALUE;
+        this.readAheadLimit = Long.MAX_VALUE;
+        this.pins = 0;
+        this.hits = 0;
+        this.faults = 0;
+        this.bytesRead = 0;
     }
 
     private boolean isFlagRaised( int flagSet, int flag )
@@ -180,6 +209,7 @@ abstract class MuninnPageCursor extends PageCursor
         while ( cursor != null && cursor.pagedFile != null )
         {
             cursor.unpinCurrentPage();
+            cursor.pagedFile.counters.cursorCounts( cursor.pins, cursor.hits, cursor.faults, cursor.bytesRead );
             // We null out the pagedFile field to allow it and its (potentially big) translation table to be garbage
             // collected when the file is unmapped, since the cursors can stick around in thread local caches, etc.
             cursor.pagedFile = null;
@@ -265,6 +295,7 @@ abstract class MuninnPageCursor extends PageCursor
     protected void pin( long filePageId, boolean writeLock ) throws IOException
     {
         pinEvent = tracer.beginPin( writeLock, filePageId, swapper );
+        pins++;
         int chunkId = MuninnPagedFile.computeChunkId( filePageId );
         // The chunkOffset is the addressing offset into the chunk array object for the relevant array slot. Using
         // this, we can access the array slot with Unsafe.
@@ -297,6 +328,7 @@ abstract class MuninnPageCursor extends PageCursor
                 {
                     pinCursorToPage( pageRef, filePageId, swapper );
                     pinEvent.hit();
+                    hits++;
                     return;
                 }
                 if ( locked )
@@ -364,6 +396,7 @@ abstract class MuninnPageCursor extends PageCursor
         // we must make sure to release that write lock as well.
         PageFaultEvent faultEvent = pinEvent.beginPageFault();
         long pageRef;
+        readAheadCount = 0;
         try
         {
             // The grabFreePage method might throw.
@@ -387,12 +420,27 @@ abstract class MuninnPageCursor extends PageCursor
             // here, so the unmapping would have already happened. We do this
             // check before page.fault(), because that would otherwise reopen
             // the file channel.
-            assertPagedFileStillMappedAndGetIdOfLastPage();
+            long lastPageId = assertPagedFileStillMappedAndGetIdOfLastPage();
             pagedFile.initBuffer( pageRef );
-            pagedFile.fault( pageRef, swapper, pagedFile.swapperId, filePageId, faultEvent );
+            if ( readAhead )
+            {
+                claimReadAheadPages( pageRef, filePageId, lastPageId, chunk );
+            }
+            if ( readAheadCount == 0 )
+            {
+                bytesRead += pagedFile.fault( pageRef, swapper, pagedFile.swapperId, filePageId, faultEvent );
+            }
+            else
+            {
+                bytesRead += pagedFile.fault( readAheadPageRefs, readAheadBufferAddresses, readAheadCount + 1,
+                        swapper, pagedFile.swapperId, filePageId, faultEvent );
+            }
+            faults++;
+            pagedFile.pageCache.pageReplacement.faulted( pageRef, pagedFile.swapperId, filePageId );
         }
         catch ( Throwable throwable )
         {
+            abortReadAhead();
             // Make sure to unlock the page, so the eviction thread can pick up our trash.
             pagedFile.unlockExclusive( pageRef );
             // Make sure to unstuck the page fault latch.
@@ -402,6 +450,7 @@ abstract class MuninnPageCursor extends PageCursor
         // Put the page in the translation table before we undo the exclusive lock, as we could otherwise race with
         // eviction, and the onEvict callback expects to find a MuninnPage object in the table.
         UnsafeUtil.putIntVolatile( chunk, chunkOffset, pagedFile.toId( pageRef ) );
+        publishReadAheadPages( filePageId, chunk );
         // Once we page has been published to the translation table, we can convert our exclusive lock to whatever we
         // need for the page cursor.
         convertPageFaultLock( pageRef );
@@ -410,6 +459,117 @@ abstract class MuninnPageCursor extends PageCursor
         return pageRef;
     }
 
+    /**
+     * Reserve free pages for the file pages that immediately follow the given faulted file page, so they can all be
+     * read in with a single vectored read. This gives up at the first file page that is already mapped, is being
+     * faulted by someone else, or for which there is no free page immediately available. The read-ahead never
+     * crosses the end of the file, or the translation table chunk of the faulted page.
+     * The reserved pages are counted by {@link #readAheadCount}, which is always kept up to date, so that
+     * {@link #abortReadAhead()} can give them all back if anything goes wrong.
+     */
+    private void claimReadAheadPages( long pageRef, long filePageId, long lastPageId, int[] chunk )
+    {
+        // The read-ahead window only grows as long as the page faults are moving sequentially forward through the
+        // file. Any other access pattern closes the window, until the cursor again starts to look like a scan.
+        boolean sequential = filePageId > lastFaultedPageId && filePageId <= readAheadHorizon;
+        int maxReadAheadPages = pagedFile.pageCache.maxReadAheadPages;
+        readAheadWindow = sequential ? Math.min( Math.max( readAheadWindow * 2, readAheadInitialPages ), maxReadAheadPages ) : 0;
+        lastFaultedPageId = filePageId;
+        readAheadHorizon = filePageId + readAheadWindow + 1;
+
+        int window = (int) Math.min( readAheadWindow, Math.min( lastPageId, readAheadLimit ) - filePageId );
+        if ( window <= 0 )
+        {
+            return;
+        }
+        if ( readAheadPageRefs == null || readAheadPageRefs.length <= maxReadAheadPages )
+        {
+            readAheadPageRefs = new long[maxReadAheadPages + 1];
+            readAheadBufferAddresses = new long[maxReadAheadPages + 1];
+            readAheadLatches = new LatchMap.Latch[maxReadAheadPages + 1];
+        }
+        readAheadPageRefs[0] = pageRef;
+
+        int chunkId = MuninnPagedFile.computeChunkId( filePageId );
+        for ( int i = 1; i <= window; i++ )
+        {
+            long readAheadFilePageId = filePageId + i;
+            if ( MuninnPagedFile.computeChunkId( readAheadFilePageId ) != chunkId )
+            {
+                break;
+            }
+            long chunkOffset = MuninnPagedFile.computeChunkOffset( readAheadFilePageId );
+            if ( UnsafeUtil.getIntVolatile( chunk, chunkOffset ) != UNMAPPED_TTE )
+            {
+                break;
+            }
+            // We must never wait for a latch here, since we already hold the latch for the faulted page.
+            LatchMap.Latch latch = pagedFile.pageFaultLatches.tryTakeLatch( readAheadFilePageId );
+            if ( latch == null )
+            {
+                break;
+            }
+            long readAheadPageRef;
+            if ( UnsafeUtil.getIntVolatile( chunk, chunkOffset ) != UNMAPPED_TTE ||
+                 (readAheadPageRef = pagedFile.pageCache.tryGrabFreeAndExclusivelyLockedPage()) == 0 )
+            {
+                latch.release();
+                break;
+            }
+            readAheadCount++;
+            readAheadPageRefs[readAheadCount] = readAheadPageRef;
+            readAheadLatches[readAheadCount] = latch;
+            pagedFile.initBuffer( readAheadPageRef );
+        }
+    }
+
+    /**
+     * Make this read-ahead cursor read ahead as far as it can right away, instead of slowly opening up its read-ahead
+     * window, but never read ahead beyond the given file page. This is for when the caller knows exactly what range of
+     * pages it is going to visit.
+     */
+    void readAheadUntil( long lastReadAheadPageId )
+    {
+        readAheadLimit = lastReadAheadPageId;
+        readAheadWindow = pagedFile.pageCache.maxReadAheadPages;
+    }
+
+    private void publishReadAheadPages( long filePageId, int[] chunk )
+    {
+        // The read-ahead pages are published just like the faulted page, but then fully unlocked since they are not
+        // going to be pinned by this cursor until it gets to them. They also don't get their usage counters bumped,
+        // so they'll be the first to go if the scan never gets around to them.
+        for ( int i = 1; i <= readAheadCount; i++ )
+        {
+            long pageRef = readAheadPageRefs[i];
+            long readAheadFilePageId = filePageId + i;
+            UnsafeUtil.putIntVolatile( chunk, MuninnPagedFile.computeChunkOffset( readAheadFilePageId ), pagedFile.toId( pageRef ) );
+            pagedFile.pageCache.pageReplacement.faulted( pageRef, pagedFile.swapperId, readAheadFilePageId );
+            pagedFile.unlockExclusive( pageRef );
+            readAheadLatches[i].release();
+            readAheadLatches[i] = null;
+        }
+    }
+
+    private void abortReadAhead()
+    {
+        for ( int i = 1; i <= readAheadCount; i++ )
+        {
+            long pageRef = readAheadPageRefs[i];
+            if ( pagedFile.isLoaded( pageRef ) )
+            {
+                // The page got a file page id before the read failed, so the eviction thread will pick it up.
+                pagedFile.unlockExclusive( pageRef );
+            }
+            else
+            {
+                pagedFile.pageCache.addFreePageToFreelist( pageRef );
+            }
+            readAheadLatches[i].release();
+            readAheadLatches[i] = null;
+        }
+    }
+
     private void abortPageFault( Throwable throwable, int[] chunk, long chunkOffset,
                                  LatchMap.Latch latch,
                                  PageFaultEvent faultEvent )
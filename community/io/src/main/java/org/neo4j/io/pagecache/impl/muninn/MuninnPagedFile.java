@@ -32,6 +32,8 @@ import org.neo4j.io.pagecache.PageSwapper;
 import org.neo4j.io.pagecache.PageSwapperFactory;
 import org.neo4j.io.pagecache.PagedFile;
 import org.neo4j.io.pagecache.impl.FileIsNotMappedException;
+import org.neo4j.io.pagecache.monitoring.PagedFileCounters;
+import org.neo4j.io.pagecache.tracing.DefaultPagedFileCounters;
 import org.neo4j.io.pagecache.tracing.FlushEvent;
 import org.neo4j.io.pagecache.tracing.FlushEventOpportunity;
 import org.neo4j.io.pagecache.tracing.MajorFlushEvent;
@@ -58,11 +60,13 @@ final class MuninnPagedFile extends PageList implements PagedFile, Flushable
     private static final long headerStateRefCountMask = 0x7FFF_0000_0000_0000L;
     private static final long headerStateLastPageIdMask = 0x8000_FFFF_FFFF_FFFFL;
     private static final int PF_LOCK_MASK = PF_SHARED_WRITE_LOCK | PF_SHARED_READ_LOCK;
+    private static final int backgroundFlushMaxVectorSize = 128;
 
     final MuninnPageCache pageCache;
     final int filePageSize;
     private final PageCacheTracer pageCacheTracer;
     final LatchMap pageFaultLatches;
+    final DefaultPagedFileCounters counters = new DefaultPagedFileCounters();
 
     // This is the table where we translate file-page-ids to cache-page-ids. Only one thread can perform a resize at
     // a time, and we ensure this mutual exclusion using the monitor lock on this MuninnPagedFile object.
@@ -78,6 +82,9 @@ final class MuninnPagedFile extends PageList implements PagedFile, Flushable
     // Used to trace the causes of any exceptions from getLastPageId.
     private volatile Exception closeStackTrace;
 
+    // The file page id where the next background flush of this file will start. Only accessed by the background flusher.
+    private long backgroundFlushFilePageId;
+
     // max modifier transaction id among evicted pages for this file
     private static final long evictedTransactionIdOffset = UnsafeUtil.getFieldOffset( MuninnPagedFile.class, "highestEvictedTransactionId" );
     @SuppressWarnings( "unused" ) // accessed using unsafe
@@ -162,7 +169,7 @@ final class MuninnPagedFile extends PageList implements PagedFile, Flushable
         translationTable = tt;
 
         initialiseLastPageId( lastPageId );
-        this.swapperId = getSwappers().allocate( swapper );
+        this.swapperId = getSwappers().allocate( swapper, counters );
     }
 
     @Override
@@ -250,6 +257,7 @@ final class MuninnPagedFile extends PageList implements PagedFile, Flushable
         {
             swapper.closeAndDelete();
         }
+        getCompressedTier().invalidateAll( swapperId );
         if ( getSwappers().free( swapperId ) )
         {
             // We need to do a vacuum of the cache, fully evicting all pages that have freed swapper ids.
@@ -284,7 +292,7 @@ final class MuninnPagedFile extends PageList implements PagedFile, Flushable
         }
         try ( MajorFlushEvent flushEvent = pageCacheTracer.beginFileFlush( swapper ) )
         {
-            flushAndForceInternal( flushEvent.flushEventOpportunity(), false, limiter );
+            flushAndForceInternal( flushEvent.flushEventOpportunity(), false, limiter, Long.MAX_VALUE );
             syncDevice();
         }
         pageCache.clearEvictorException();
@@ -302,7 +310,7 @@ final class MuninnPagedFile extends PageList implements PagedFile, Flushable
         }
         try ( MajorFlushEvent flushEvent = pageCacheTracer.beginFileFlush( swapper ) )
         {
-            flushAndForceInternal( flushEvent.flushEventOpportunity(), true, IOLimiter.UNLIMITED );
+            flushAndForceInternal( flushEvent.flushEventOpportunity(), true, IOLimiter.UNLIMITED, Long.MAX_VALUE );
             syncDevice();
         }
         pageCache.clearEvictorException();
@@ -344,6 +352,7 @@ final class MuninnPagedFile extends PageList implements PagedFile, Flushable
                             // The page is still bound to the expected file and file page id after we locked it,
                             // so we didn't race with eviction and faulting, and the page is dirty.
                             explicitlyMarkPageUnmodifiedUnderExclusiveLock( pageRef );
+                            clearDirtyEpochUnderExclusiveLock( pageRef );
                             unlockExclusive( pageRef );
                             continue chunkLoop;
                         }
@@ -355,22 +364,99 @@ final class MuninnPagedFile extends PageList implements PagedFile, Flushable
         }
     }
 
-    void flushAndForceInternal( FlushEventOpportunity flushes, boolean forClosing, IOLimiter limiter )
-            throws IOException
+    /**
+     * Flush and force the dirty pages of this file.
+     *
+     * @param maxDirtyEpoch only pages that were first dirtied in this dirty epoch, or an earlier one, are flushed. Use
+     * {@link Long#MAX_VALUE} to flush all dirty pages.
+     */
+    void flushAndForceInternal( FlushEventOpportunity flushes, boolean forClosing, IOLimiter limiter,
+            long maxDirtyEpoch ) throws IOException
     {
+        pageCache.flushesInProgress.incrementAndGet();
         try
         {
-            doFlushAndForceInternal( flushes, forClosing, limiter );
+            doFlushAndForceInternal( flushes, forClosing, limiter, maxDirtyEpoch );
         }
         catch ( ClosedChannelException e )
         {
             e.addSuppressed( closeStackTrace );
             throw e;
         }
+        finally
+        {
+            pageCache.flushesInProgress.decrementAndGet();
+        }
+    }
+
+    /**
+     * Write out dirty pages of this file on behalf of the background flusher, without forcing them. Unlike
+     * {@link #flushAndForceInternal(FlushEventOpportunity, boolean, IOLimiter, long)}, pages that cannot be flush
+     * locked right away are skipped, since they will be flushed by a later background flush, or by the next checkpoint.
+     * Pages that were first dirtied after the given dirty epoch are also skipped.
+     * <p>
+     * The sweep continues where the previous background flush of this file left off, and goes through the file at
+     * most once. It stops early when {@link MuninnPageCache#backgroundFlushed(int, Flushable)} says that enough pages
+     * have been flushed.
+     */
+    void backgroundFlush( FlushEventOpportunity flushes, long maxDirtyEpoch ) throws IOException
+    {
+        long lastPageId = getLastPageId();
+        long[] pages = new long[backgroundFlushMaxVectorSize];
+        long[] flushStamps = new long[backgroundFlushMaxVectorSize];
+        long[] bufferAddresses = new long[backgroundFlushMaxVectorSize];
+        long filePageId = backgroundFlushFilePageId <= lastPageId ? backgroundFlushFilePageId : 0;
+        int pagesGrabbed = 0;
+        boolean keepFlushing = true;
+        for ( long pagesVisited = 0; pagesVisited <= lastPageId && keepFlushing; pagesVisited++ )
+        {
+            boolean grabbed = false;
+            int[][] tt = this.translationTable;
+            int chunkId = computeChunkId( filePageId );
+            if ( chunkId < tt.length )
+            {
+                int pageId = UnsafeUtil.getIntVolatile( tt[chunkId], computeChunkOffset( filePageId ) );
+                if ( pageId != UNMAPPED_TTE )
+                {
+                    long pageRef = deref( pageId );
+                    long flushStamp;
+                    if ( isModified( pageRef ) && getDirtyEpoch( pageRef ) <= maxDirtyEpoch &&
+                            (flushStamp = tryFlushLock( pageRef )) != 0 )
+                    {
+                        if ( isBoundTo( pageRef, swapperId, filePageId ) && isModified( pageRef ) )
+                        {
+                            pages[pagesGrabbed] = pageRef;
+                            flushStamps[pagesGrabbed] = flushStamp;
+                            bufferAddresses[pagesGrabbed] = getAddress( pageRef );
+                            pagesGrabbed++;
+                            grabbed = true;
+                        }
+                        else
+                        {
+                            unlockFlush( pageRef, flushStamp, false );
+                        }
+                    }
+                }
+            }
+
+            filePageId++;
+            // The IO vector must cover consecutive file pages, so we write it out as soon as the run is broken.
+            if ( pagesGrabbed > 0 && (!grabbed || pagesGrabbed == pages.length || filePageId > lastPageId) )
+            {
+                vectoredFlush( pages, bufferAddresses, flushStamps, pagesGrabbed, flushes, false );
+                keepFlushing = pageCache.backgroundFlushed( pagesGrabbed, this );
+                pagesGrabbed = 0;
+            }
+            if ( filePageId > lastPageId )
+            {
+                filePageId = 0;
+            }
+        }
+        backgroundFlushFilePageId = filePageId;
     }
 
-    private void doFlushAndForceInternal( FlushEventOpportunity flushes, boolean forClosing, IOLimiter limiter )
-            throws IOException
+    private void doFlushAndForceInternal( FlushEventOpportunity flushes, boolean forClosing, IOLimiter limiter,
+            long maxDirtyEpoch ) throws IOException
     {
         // TODO it'd be awesome if, on Linux, we'd call sync_file_range(2) instead of fsync
         long[] pages = new long[translationTableChunkSize];
@@ -404,6 +490,12 @@ final class MuninnPagedFile extends PageList implements PagedFile, Flushable
                         {
                             break;
                         }
+                        if ( getDirtyEpoch( pageRef ) > maxDirtyEpoch )
+                        {
+                            // The page was first dirtied after the epoch we are flushing up to. Writers lower the dirty
+                            // epoch before they change the page, so it holds no older changes that we need to flush.
+                            break;
+                        }
 
                         long flushStamp = 0;
                         if ( !(forClosing ? tryExclusiveLock( pageRef ) : ((flushStamp = tryFlushLock( pageRef )) != 0)) )
@@ -464,12 +556,14 @@ final class MuninnPagedFile extends PageList implements PagedFile, Flushable
             long firstPageRef = pages[0];
             long startFilePageId = getFilePageId( firstPageRef );
             flush = flushOpportunity.beginFlush( startFilePageId, toId( firstPageRef ), swapper );
+            beforePageWrite();
             long bytesWritten = swapper.write( startFilePageId, bufferAddresses, 0, pagesGrabbed );
 
             // Update the flush event
             flush.addBytesWritten( bytesWritten );
             flush.addPagesFlushed( pagesGrabbed );
             flush.done();
+            counters.flushed( bytesWritten );
             successful = true;
 
             // There are now 0 'grabbed' pages
@@ -493,6 +587,7 @@ final class MuninnPagedFile extends PageList implements PagedFile, Flushable
                     if ( successful )
                     {
                         explicitlyMarkPageUnmodifiedUnderExclusiveLock( pageRef );
+                        clearDirtyEpochUnderExclusiveLock( pageRef );
                     }
                     unlockExclusive( pageRef );
                 }
@@ -502,6 +597,7 @@ final class MuninnPagedFile extends PageList implements PagedFile, Flushable
                 for ( int i = 0; i < pagesGrabbed; i++ )
                 {
                     unlockFlush( pages[i], flushStamps[i], successful );
+                    clearDirtyEpochIfClean( pages[i] );
                 }
             }
         }
@@ -516,10 +612,12 @@ final class MuninnPagedFile extends PageList implements PagedFile, Flushable
             long address = getAddress( pageRef );
             try
             {
+                beforePageWrite();
                 long bytesWritten = swapper.write( filePageId, address );
                 flush.addBytesWritten( bytesWritten );
                 flush.addPagesFlushed( 1 );
                 flush.done();
+                counters.flushed( bytesWritten );
                 success = true;
             }
             catch ( IOException e )
@@ -552,6 +650,26 @@ final class MuninnPagedFile extends PageList implements PagedFile, Flushable
         return state & headerStateLastPageIdMask;
     }
 
+    @Override
+    public void prefetch( long startPageId, int pageCount ) throws IOException
+    {
+        long endPageId = startPageId + pageCount;
+        try ( MuninnPageCursor cursor = (MuninnPageCursor) io( startPageId, PF_SHARED_READ_LOCK | PF_READ_AHEAD ) )
+        {
+            cursor.readAheadUntil( endPageId - 1 );
+            for ( long pageId = startPageId; pageId < endPageId && cursor.next( pageId ); pageId++ )
+            {
+                // The read-ahead turns the page faults into a few large vectored reads.
+            }
+        }
+    }
+
+    @Override
+    public PagedFileCounters counters()
+    {
+        return counters;
+    }
+
     private FileIsNotMappedException fileIsNotMappedException()
     {
         FileIsNotMappedException exception = new FileIsNotMappedException( file() );
@@ -67,6 +67,7 @@ final class MuninnWritePageCursor extends MuninnPageCursor
             finally
             {
                 pagedFile.unlockFlush( pinnedPageRef, flushStamp, success );
+                pagedFile.clearDirtyEpochIfClean( pinnedPageRef );
             }
         }
     }
@@ -123,6 +124,7 @@ final class MuninnWritePageCursor extends MuninnPageCursor
         assertPagedFileStillMappedAndGetIdOfLastPage();
         pagedFile.incrementUsage( pageRef );
         pagedFile.setLastModifiedTxId( pageRef, versionContextSupplier.getVersionContext().committingTransactionId() );
+        pagedFile.setDirtyEpoch( pageRef, pagedFile.pageCache.currentDirtyEpoch() );
     }
 
     @Override
@@ -20,10 +20,12 @@
 package org.neo4j.io.pagecache.impl.muninn;
 
 import java.io.IOException;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.neo4j.io.mem.MemoryAllocator;
 import org.neo4j.io.pagecache.PageCursor;
 import org.neo4j.io.pagecache.PageSwapper;
+import org.neo4j.io.pagecache.WriteAheadBarrier;
 import org.neo4j.io.pagecache.tracing.EvictionEvent;
 import org.neo4j.io.pagecache.tracing.EvictionEventOpportunity;
 import org.neo4j.io.pagecache.tracing.FlushEvent;
@@ -46,16 +48,24 @@ import static org.neo4j.util.FeatureToggles.flag;
  * <tr><td>8</td><td>Page binding. The first 40 bits (5 bytes) are the file page id.
  * The following (low order) 21 bits (2 bytes and 5 bits) are the swapper id.
  * The last (lowest order) 3 bits are the page usage counter.</td></tr>
+ * <tr><td>8</td><td>Dirty epoch. The high 44 bits are the oldest {@link MuninnPageCache#beginDirtyEpoch() dirty
+ * epoch} in which the page was written to since it was last flushed, or {@link #NO_DIRTY_EPOCH}. The low 20 bits are
+ * a stamp that every writer increments, so a flusher can tell if the page was dirtied again while it looked.</td></tr>
+ * <tr><td>24</td><td>Padding, so the meta-data of a page fills exactly one cache line.</td></tr>
  * </table>
  */
 class PageList
 {
     private static final boolean forceSlowMemoryClear = flag( PageList.class, "forceSlowMemoryClear", false );
 
-    static final int META_DATA_BYTES_PER_PAGE = 32;
+    static final int META_DATA_BYTES_PER_PAGE = 64;
     static final long MAX_PAGES = Integer.MAX_VALUE;
 
     private static final int UNBOUND_LAST_MODIFIED_TX_ID = -1;
+    private static final int SHIFT_DIRTY_EPOCH = 20;
+    private static final long MASK_DIRTY_EPOCH_STAMP = (1L << SHIFT_DIRTY_EPOCH) - 1L;
+    private static final long CLEAN_DIRTY_EPOCH_WORD = Long.MAX_VALUE;
+    static final long NO_DIRTY_EPOCH = CLEAN_DIRTY_EPOCH_WORD >>> SHIFT_DIRTY_EPOCH;
     private static final long MAX_USAGE_COUNT = 4;
     private static final int SHIFT_FILE_PAGE_ID = 24;
     private static final int SHIFT_SWAPPER_ID = 3;
@@ -76,6 +86,8 @@ class PageList
     // The 21 following lower bits are the swapper id.
     // And the last 3 low bits are the usage counter.
     private static final int OFFSET_PAGE_BINDING = 24; // 8 bytes.
+    private static final int OFFSET_DIRTY_EPOCH = 32; // 8 bytes.
+    private static final int PADDING_LONGS = 3;
 
     private final int pageCount;
     private final int cachePageSize;
@@ -84,6 +96,9 @@ class PageList
     private final long victimPageAddress;
     private final long baseAddress;
     private final long bufferAlignment;
+    private CompressedPageTier compressedTier;
+    // Shared by reference with all copies of this page list, so that a barrier set at any time is seen by all of them.
+    private final AtomicReference<WriteAheadBarrier> writeAheadBarrier;
 
     PageList( int pageCount, int cachePageSize, MemoryAllocator memoryAllocator, SwapperSet swappers,
               long victimPageAddress, long bufferAlignment )
@@ -94,8 +109,11 @@ class PageList
         this.swappers = swappers;
         this.victimPageAddress = victimPageAddress;
         long bytes = ((long) pageCount) * META_DATA_BYTES_PER_PAGE;
-        this.baseAddress = memoryAllocator.allocateAligned( bytes, Long.BYTES );
+        // The entries are exactly one cache line each, so aligning the array aligns every entry to a cache line.
+        this.baseAddress = memoryAllocator.allocateAligned( bytes, META_DATA_BYTES_PER_PAGE );
         this.bufferAlignment = bufferAlignment;
+        this.compressedTier = CompressedPageTier.DISABLED;
+        this.writeAheadBarrier = new AtomicReference<>( WriteAheadBarrier.NONE );
         clearMemory( baseAddress, pageCount );
     }
 
@@ -116,6 +134,8 @@ class PageList
         this.victimPageAddress = pageList.victimPageAddress;
         this.baseAddress = pageList.baseAddress;
         this.bufferAlignment = pageList.bufferAlignment;
+        this.compressedTier = pageList.compressedTier;
+        this.writeAheadBarrier = pageList.writeAheadBarrier;
     }
 
     private void clearMemory( long baseAddress, long pageCount )
@@ -143,6 +163,11 @@ class PageList
             UnsafeUtil.putLong( address += Long.BYTES, 0 ); // pointer
             UnsafeUtil.putLong( address += Long.BYTES, 0 ); // last tx id
             UnsafeUtil.putLong( address += Long.BYTES, UNBOUND_PAGE_BINDING );
+            UnsafeUtil.putLong( address += Long.BYTES, CLEAN_DIRTY_EPOCH_WORD );
+            for ( int j = 0; j < PADDING_LONGS; j++ )
+            {
+                UnsafeUtil.putLong( address += Long.BYTES, 0 ); // padding
+            }
         }
     }
 
@@ -176,6 +201,37 @@ class PageList
         return swappers;
     }
 
+    CompressedPageTier getCompressedTier()
+    {
+        return compressedTier;
+    }
+
+    /**
+     * Set the compressed tier that evicted pages are kept in. This must be done before the page list is copied into any
+     * {@link MuninnPagedFile}, since the copies will otherwise not see it.
+     */
+    void setCompressedTier( CompressedPageTier compressedTier )
+    {
+        this.compressedTier = compressedTier;
+    }
+
+    /**
+     * Set the barrier that must be passed before any dirty page is written to its file. Unlike the compressed tier,
+     * this can be changed at any time, and the change is seen by all copies of this page list.
+     */
+    void setWriteAheadBarrier( WriteAheadBarrier barrier )
+    {
+        writeAheadBarrier.set( barrier );
+    }
+
+    /**
+     * Must be called, with the page locked, before a dirty page is written to its file.
+     */
+    void beforePageWrite() throws IOException
+    {
+        writeAheadBarrier.get().beforePageWrite();
+    }
+
     /**
      * Turn a {@code pageId} into a {@code pageRef} that can be used for accessing and manipulating the given page
      * using the other methods in this class.
@@ -193,8 +249,8 @@ class PageList
 
     int toId( long pageRef )
     {
-        // >> 5 is equivalent to dividing by 32, META_DATA_BYTES_PER_PAGE.
-        return (int) ((pageRef - baseAddress) >> 5);
+        // >> 6 is equivalent to dividing by 64, META_DATA_BYTES_PER_PAGE.
+        return (int) ((pageRef - baseAddress) >> 6);
     }
 
     private long offLastModifiedTransactionId( long pageRef )
@@ -202,6 +258,11 @@ class PageList
         return pageRef + OFFSET_LAST_TX_ID;
     }
 
+    private long offDirtyEpoch( long pageRef )
+    {
+        return pageRef + OFFSET_DIRTY_EPOCH;
+    }
+
     private long offLock( long pageRef )
     {
         return pageRef + OFFSET_LOCK_WORD;
@@ -382,6 +443,58 @@ class PageList
         UnsafeUtil.compareAndSetMaxLong( null, offLastModifiedTransactionId( pageRef ), modifierTxId );
     }
 
+    /**
+     * @return the oldest dirty epoch in which the page was written to since it was last flushed, or
+     * {@link #NO_DIRTY_EPOCH} if the page has not been written to since then.
+     */
+    long getDirtyEpoch( long pageRef )
+    {
+        return UnsafeUtil.getLongVolatile( offDirtyEpoch( pageRef ) ) >>> SHIFT_DIRTY_EPOCH;
+    }
+
+    /**
+     * Lower the dirty epoch of the page to the given epoch, unless it is already older. This must be done by writers,
+     * while holding the write lock, before they make any changes to the page.
+     */
+    void setDirtyEpoch( long pageRef, long epoch )
+    {
+        long address = offDirtyEpoch( pageRef );
+        long s;
+        long n;
+        do
+        {
+            s = UnsafeUtil.getLongVolatile( address );
+            long dirtyEpoch = Math.min( s >>> SHIFT_DIRTY_EPOCH, epoch );
+            // Always bump the stamp, even if the epoch stays the same, so concurrent clearing can see us.
+            n = (dirtyEpoch << SHIFT_DIRTY_EPOCH) | ((s + 1) & MASK_DIRTY_EPOCH_STAMP);
+        }
+        while ( !UnsafeUtil.compareAndSwapLong( null, address, s, n ) );
+    }
+
+    /**
+     * Forget the dirty epoch of the page, if a flush has made the page clean. Writers take the write lock, which marks
+     * the page as modified, before they set the dirty epoch, so if a writer races with us then we either see that the
+     * page is modified, or our compare-and-set fails on the bumped stamp. Either way the dirty epoch is kept.
+     */
+    void clearDirtyEpochIfClean( long pageRef )
+    {
+        long address = offDirtyEpoch( pageRef );
+        long s = UnsafeUtil.getLongVolatile( address );
+        if ( s != CLEAN_DIRTY_EPOCH_WORD && !isModified( pageRef ) )
+        {
+            UnsafeUtil.compareAndSwapLong( null, address, s, CLEAN_DIRTY_EPOCH_WORD );
+        }
+    }
+
+    /**
+     * Forget the dirty epoch of the page. This may only be done while holding the exclusive lock, after the page has
+     * been flushed or marked as unmodified.
+     */
+    void clearDirtyEpochUnderExclusiveLock( long pageRef )
+    {
+        UnsafeUtil.putLongVolatile( offDirtyEpoch( pageRef ), CLEAN_DIRTY_EPOCH_WORD );
+    }
+
     int getSwapperId( long pageRef )
     {
         long v = UnsafeUtil.getLong( offPageBinding( pageRef ) ) >>> SHIFT_SWAPPER_ID;
@@ -409,7 +522,7 @@ class PageList
         return expectedBinding == actualBinding;
     }
 
-    void fault( long pageRef, PageSwapper swapper, int swapperId, long filePageId, PageFaultEvent event )
+    long fault( long pageRef, PageSwapper swapper, int swapperId, long filePageId, PageFaultEvent event )
             throws IOException
     {
         if ( swapper == null )
@@ -431,10 +544,57 @@ class PageList
         // the file page, so any subsequent thread that finds the page in their
         // translation table will re-do the page fault.
         setFilePageId( pageRef, filePageId ); // Page now considered isLoaded()
-        long bytesRead = swapper.read( filePageId, getAddress( pageRef ), cachePageSize );
+        long bytesRead = 0;
+        if ( !compressedTier.take( swapperId, filePageId, getAddress( pageRef ) ) )
+        {
+            bytesRead = swapper.read( filePageId, getAddress( pageRef ), cachePageSize );
+        }
         event.addBytesRead( bytesRead );
         event.setCachePageId( toId( pageRef ) );
         setSwapperId( pageRef, swapperId ); // Page now considered isBoundTo( swapper, filePageId )
+        return bytesRead;
+    }
+
+    /**
+     * Fault in a run of consecutive file pages with a single vectored read.
+     * The pages are bound to the file pages starting at {@code startFilePageId}, in the order they appear in the
+     * {@code pageRefs} array. All of the pages must be exclusively locked and unbound.
+     */
+    long fault( long[] pageRefs, long[] bufferAddresses, int length, PageSwapper swapper, int swapperId,
+                long startFilePageId, PageFaultEvent event ) throws IOException
+    {
+        if ( swapper == null )
+        {
+            throw swapperCannotBeNull();
+        }
+        for ( int i = 0; i < length; i++ )
+        {
+            long pageRef = pageRefs[i];
+            long filePageId = startFilePageId + i;
+            int currentSwapper = getSwapperId( pageRef );
+            long currentFilePageId = getFilePageId( pageRef );
+            if ( filePageId == PageCursor.UNBOUND_PAGE_ID || !isExclusivelyLocked( pageRef )
+                 || currentSwapper != 0 || currentFilePageId != PageCursor.UNBOUND_PAGE_ID )
+            {
+                throw cannotFaultException( pageRef, swapper, swapperId, filePageId, currentSwapper, currentFilePageId );
+            }
+        }
+        // Same as for the single page fault; the file page ids are assigned before we swap in, and the swapper id
+        // only once all of the pages have been read successfully.
+        for ( int i = 0; i < length; i++ )
+        {
+            setFilePageId( pageRefs[i], startFilePageId + i );
+            bufferAddresses[i] = getAddress( pageRefs[i] );
+            compressedTier.invalidate( swapperId, startFilePageId + i );
+        }
+        long bytesRead = swapper.read( startFilePageId, bufferAddresses, cachePageSize, 0, length );
+        event.addBytesRead( bytesRead );
+        event.setCachePageId( toId( pageRefs[0] ) );
+        for ( int i = 0; i < length; i++ )
+        {
+            setSwapperId( pageRefs[i], swapperId );
+        }
+        return bytesRead;
     }
 
     private static IllegalArgumentException swapperCannotBeNull()
@@ -490,26 +650,33 @@ class PageList
 
                 if ( isModified( pageRef ) )
                 {
-                    flushModifiedPage( pageRef, evictionEvent, filePageId, swapper );
+                    long bytesWritten = flushModifiedPage( pageRef, evictionEvent, filePageId, swapper );
+                    swapperMapping.counters.flushed( bytesWritten );
                 }
+                // The copy must be made before the translation table entry is cleared by the eviction callback, so no
+                // one can fault the file page back in, and change it, before the copy is in place.
+                compressedTier.store( swapperId, filePageId, getAddress( pageRef ) );
                 swapper.evicted( filePageId );
+                swapperMapping.counters.evicted();
             }
         }
         clearBinding( pageRef );
     }
 
-    private void flushModifiedPage( long pageRef, EvictionEvent evictionEvent, long filePageId, PageSwapper swapper )
+    private long flushModifiedPage( long pageRef, EvictionEvent evictionEvent, long filePageId, PageSwapper swapper )
             throws IOException
     {
         FlushEvent flushEvent = evictionEvent.flushEventOpportunity().beginFlush( filePageId, pageRef, swapper );
         try
         {
             long address = getAddress( pageRef );
+            beforePageWrite();
             long bytesWritten = swapper.write( filePageId, address );
             explicitlyMarkPageUnmodifiedUnderExclusiveLock( pageRef );
             flushEvent.addBytesWritten( bytesWritten );
             flushEvent.addPagesFlushed( 1 );
             flushEvent.done();
+            return bytesWritten;
         }
         catch ( IOException e )
         {
@@ -523,6 +690,7 @@ class PageList
     private void clearBinding( long pageRef )
     {
         UnsafeUtil.putLong( offPageBinding( pageRef ), UNBOUND_PAGE_BINDING );
+        clearDirtyEpochUnderExclusiveLock( pageRef );
     }
 
     void toString( long pageRef, StringBuilder sb )
@@ -532,6 +700,7 @@ class PageList
         sb.append( ", filePageId = " ).append( getFilePageId( pageRef ) );
         sb.append( ", swapperId = " ).append( getSwapperId( pageRef ) );
         sb.append( ", usageCounter = " ).append( getUsageCounter( pageRef ) );
+        sb.append( ", dirtyEpoch = " ).append( getDirtyEpoch( pageRef ) );
         sb.append( " ] " ).append( OffHeapPageLock.toString( offLock( pageRef ) ) );
     }
 }
@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2002-2020 "Neo4j,"
+ * Neo4j Sweden AB [http://neo4j.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.io.pagecache.impl.muninn;
+
+/**
+ * The internal implementation of an {@link EvictionPolicy}. It decides which of the loaded pages in the
+ * {@link PageList} should be evicted, as the eviction threads sweep through them.
+ * <p>
+ * Implementations must be thread-safe, since both the background eviction thread and page faulting threads doing
+ * cooperative eviction will be sweeping concurrently. Benign races are fine, since the page locks are what actually
+ * protect the pages; the replacement policy only gives advice.
+ */
+interface PageReplacement
+{
+    /**
+     * Called by a sweeping thread for every loaded page it passes.
+     *
+     * @param pageRef the page being considered for eviction.
+     * @return {@code true} if the sweeping thread should try to evict the page now, otherwise {@code false}.
+     */
+    boolean shouldEvict( long pageRef );
+
+    /**
+     * Called when a page has been faulted into the cache, while the page is still exclusively locked.
+     *
+     * @param pageRef the page that has been faulted in.
+     * @param swapperId the id of the swapper the page is now bound to.
+     * @param filePageId the file page id the page is now bound to.
+     */
+    void faulted( long pageRef, int swapperId, long filePageId );
+
+    /**
+     * Called when a page has been evicted from the cache. The page is still exclusively locked, but no longer bound.
+     *
+     * @param pageRef the page that has been evicted.
+     * @param swapperId the id of the swapper the page was bound to.
+     * @param filePageId the file page id the page was bound to.
+     */
+    void evicted( long pageRef, int swapperId, long filePageId );
+}
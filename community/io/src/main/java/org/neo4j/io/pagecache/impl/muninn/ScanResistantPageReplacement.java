@@ -0,0 +1,177 @@
+/*
+ * Copyright (c) 2002-2020 "Neo4j,"
+ * Neo4j Sweden AB [http://neo4j.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.io.pagecache.impl.muninn;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static org.neo4j.util.FeatureToggles.getInteger;
+
+/**
+ * The {@link EvictionPolicy#SCAN_RESISTANT} policy.
+ * <p>
+ * Every cached page is either hot or cold, which is tracked in a bit set with one bit per page in the
+ * {@link PageList}. Pages are faulted in as cold, unless they are found in the ghost table, in which case they were
+ * evicted recently and are now being referenced again, and they are faulted in as hot. The ghost table is a direct
+ * mapped table of fingerprints of the file pages that were recently evicted. Collisions simply overwrite older
+ * entries, and since the table is only used as advice, the occasional false positive is harmless.
+ * <p>
+ * When the eviction threads sweep past a page, they decrement its usage counter just like the clock policy does. If
+ * the counter showed that the page had been referenced since it was last swept, then cold pages are promoted to hot,
+ * and hot pages are kept. Unreferenced cold pages are evicted. Unreferenced hot pages are kept as long as the hot set
+ * is within its budget, and otherwise demoted to cold, which gives them one more sweep to prove themselves before
+ * they are evicted.
+ * <p>
+ * A page that is only touched once, as is typical of large scans, stays cold and is evicted the first time the
+ * eviction threads sweep past it, no matter how fast the clock arm is turning, so the hot set is left intact.
+ */
+final class ScanResistantPageReplacement implements PageReplacement
+{
+    // The percentage of the cache that the hot set may occupy, before unreferenced hot pages start getting demoted.
+    private static final int hotPagesPercentage = getInteger(
+            ScanResistantPageReplacement.class, "hotPagesPercentage", 75 );
+
+    // The upper bound on the number of entries in the ghost table. The table is sized to the number of pages in the
+    // cache, rounded up to a power of two, but no bigger than this. Each entry takes 4 bytes of heap.
+    private static final int maxGhostEntries = getInteger(
+            ScanResistantPageReplacement.class, "maxGhostEntries", 1 << 24 );
+
+    private final PageList pages;
+    private final AtomicLongArray hotPages;
+    private final AtomicInteger hotPageCount;
+    private final int maxHotPages;
+    private final int[] ghosts;
+    private final int ghostMask;
+
+    ScanResistantPageReplacement( PageList pages )
+    {
+        int pageCount = pages.getPageCount();
+        this.pages = pages;
+        this.hotPages = new AtomicLongArray( (pageCount + Long.SIZE - 1) / Long.SIZE );
+        this.hotPageCount = new AtomicInteger();
+        this.maxHotPages = (int) (pageCount * (long) Math.min( Math.max( hotPagesPercentage, 0 ), 100 ) / 100);
+        int ghostEntries = Math.min( ceilingPowerOfTwo( pageCount ), Integer.highestOneBit( maxGhostEntries ) );
+        this.ghosts = new int[ghostEntries];
+        this.ghostMask = ghostEntries - 1;
+    }
+
+    private static int ceilingPowerOfTwo( int value )
+    {
+        int highestOneBit = Integer.highestOneBit( Math.max( value, 1 ) );
+        return highestOneBit == value || highestOneBit == 1 << 30 ? highestOneBit : highestOneBit << 1;
+    }
+
+    @Override
+    public boolean shouldEvict( long pageRef )
+    {
+        // The usage counter is at 1 right after the page has been faulted in, and counts up when the page is pinned.
+        boolean referenced = !pages.decrementUsage( pageRef );
+        int pageId = pages.toId( pageRef );
+        if ( isHot( pageId ) )
+        {
+            if ( !referenced && hotPageCount.get() > maxHotPages )
+            {
+                setHot( pageId, false );
+            }
+            return false;
+        }
+        if ( referenced )
+        {
+            // Hot set overflow is fine, it just means that unreferenced hot pages will be demoted as we sweep on.
+            setHot( pageId, true );
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public void faulted( long pageRef, int swapperId, long filePageId )
+    {
+        long hash = hash( swapperId, filePageId );
+        int index = (int) (hash & ghostMask);
+        int fingerprint = fingerprint( hash );
+        boolean recentlyEvicted = ghosts[index] == fingerprint;
+        if ( recentlyEvicted )
+        {
+            ghosts[index] = 0;
+        }
+        setHot( pages.toId( pageRef ), recentlyEvicted );
+    }
+
+    @Override
+    public void evicted( long pageRef, int swapperId, long filePageId )
+    {
+        // The page could have been hot if it was evicted by other means than the sweep, e.g. a vacuum after unmapping.
+        setHot( pages.toId( pageRef ), false );
+        long hash = hash( swapperId, filePageId );
+        ghosts[(int) (hash & ghostMask)] = fingerprint( hash );
+    }
+
+    boolean isHot( int pageId )
+    {
+        return (hotPages.get( pageId >>> 6 ) & (1L << pageId)) != 0;
+    }
+
+    int hotPageCount()
+    {
+        return hotPageCount.get();
+    }
+
+    private void setHot( int pageId, boolean hot )
+    {
+        int index = pageId >>> 6;
+        long mask = 1L << pageId; // The shift distance is implicitly taken modulo 64.
+        long current;
+        long update;
+        do
+        {
+            current = hotPages.get( index );
+            update = hot ? current | mask : current & ~mask;
+            if ( current == update )
+            {
+                return;
+            }
+        }
+        while ( !hotPages.compareAndSet( index, current, update ) );
+        if ( hot )
+        {
+            hotPageCount.incrementAndGet();
+        }
+        else
+        {
+            hotPageCount.decrementAndGet();
+        }
+    }
+
+    private static long hash( int swapperId, long filePageId )
+    {
+        long h = filePageId * 0x9E3779B97F4A7C15L + swapperId;
+        h ^= h >>> 29;
+        h *= 0xBF58476D1CE4E5B9L;
+        h ^= h >>> 32;
+        return h;
+    }
+
+    private static int fingerprint( long hash )
+    {
+        // Never zero, since zero marks an empty ghost entry.
+        return (int) (hash >>> 32) | 1;
+    }
+}
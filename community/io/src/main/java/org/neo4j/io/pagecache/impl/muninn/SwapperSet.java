@@ -28,6 +28,7 @@ import java.util.Arrays;
 import java.util.function.Consumer;
 
 import org.neo4j.io.pagecache.PageSwapper;
+import org.neo4j.io.pagecache.tracing.DefaultPagedFileCounters;
 
 import static org.neo4j.helpers.Numbers.safeCastIntToShort;
 
@@ -42,10 +43,10 @@ import static org.neo4j.helpers.Numbers.safeCastIntToShort;
 final class SwapperSet
 {
     // The sentinel is used to reserve swapper id 0 as a special value.
-    private static final SwapperMapping SENTINEL = new SwapperMapping( 0, null );
+    private static final SwapperMapping SENTINEL = new SwapperMapping( 0, null, null );
     // The tombstone is used as a marker to reserve allocation entries that have been freed, but not yet vacuumed.
     // An allocation cannot be reused until it has been vacuumed.
-    private static final SwapperMapping TOMBSTONE = new SwapperMapping( 0, null );
+    private static final SwapperMapping TOMBSTONE = new SwapperMapping( 0, null, null );
     private static final int MAX_SWAPPER_ID = (1 << 21) - 1;
     private volatile SwapperMapping[] swapperMappings = new SwapperMapping[] { SENTINEL };
     private final MutableIntSet free = new IntHashSet();
@@ -53,17 +54,19 @@ final class SwapperSet
     private int freeCounter; // Used in `free`; Guarded by `this`
 
     /**
-     * The mapping entry between a {@link PageSwapper} and its swapper id.
+     * The mapping entry between a {@link PageSwapper} and its swapper id, and the counters for the mapped file.
      */
     static final class SwapperMapping
     {
         public final int id;
         public final PageSwapper swapper;
+        public final DefaultPagedFileCounters counters;
 
-        private SwapperMapping( int id, PageSwapper swapper )
+        private SwapperMapping( int id, PageSwapper swapper, DefaultPagedFileCounters counters )
         {
             this.id = id;
             this.swapper = swapper;
+            this.counters = counters;
         }
     }
 
@@ -92,7 +95,15 @@ final class SwapperSet
     /**
      * Allocate a new swapper id for the given {@link PageSwapper}.
      */
-    synchronized int allocate( PageSwapper swapper )
+    int allocate( PageSwapper swapper )
+    {
+        return allocate( swapper, new DefaultPagedFileCounters() );
+    }
+
+    /**
+     * Allocate a new swapper id for the given {@link PageSwapper}, and associate the given file counters with it.
+     */
+    synchronized int allocate( PageSwapper swapper, DefaultPagedFileCounters counters )
     {
         SwapperMapping[] swapperMappings = this.swapperMappings;
 
@@ -103,7 +114,7 @@ final class SwapperSet
             {
                 int id = free.intIterator().next();
                 free.remove( id );
-                swapperMappings[id] = new SwapperMapping( id, swapper );
+                swapperMappings[id] = new SwapperMapping( id, swapper, counters );
                 this.swapperMappings = swapperMappings; // Volatile store synchronizes-with loads in getters.
                 return id;
             }
@@ -116,7 +127,7 @@ final class SwapperSet
             throw new IllegalStateException( "All swapper ids are allocated: " + MAX_SWAPPER_ID );
         }
         swapperMappings = Arrays.copyOf( swapperMappings, id + 1 );
-        swapperMappings[id] = new SwapperMapping( id, swapper );
+        swapperMappings[id] = new SwapperMapping( id, swapper, counters );
         this.swapperMappings = swapperMappings; // Volatile store synchronizes-with loads in getters.
         return id;
     }
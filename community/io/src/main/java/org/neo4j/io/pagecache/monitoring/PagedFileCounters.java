@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2002-2020 "Neo4j,"
+ * Neo4j Sweden AB [http://neo4j.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.io.pagecache.monitoring;
+
+/**
+ * The PagedFileCounters exposes the internal page cache counters for a single mapped file.
+ * <p>
+ * Page cursors accumulate their counts locally, and only add them to the counters of their file when they are closed.
+ * Counts from cursors that are still open are therefore not yet reflected by these counters.
+ */
+public interface PagedFileCounters
+{
+    /**
+     * @return The number of page faults in this file observed thus far.
+     */
+    long faults();
+
+    /**
+     * @return The number of evictions of pages from this file observed thus far.
+     */
+    long evictions();
+
+    /**
+     * @return The number of page pins in this file observed thus far.
+     */
+    long pins();
+
+    /**
+     * @return The number of page cache hits in this file observed thus far.
+     */
+    long hits();
+
+    /**
+     * @return The number of flushes to this file observed thus far. This includes flushes done as part of page
+     * eviction.
+     */
+    long flushes();
+
+    /**
+     * @return The sum total of bytes read in from this file through page faults thus far.
+     */
+    long bytesRead();
+
+    /**
+     * @return The sum total of bytes written to this file through flushes thus far.
+     */
+    long bytesWritten();
+
+    /**
+     * @return The cache hit ratio for this file observed thus far.
+     */
+    double hitRatio();
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2002-2020 "Neo4j,"
+ * Neo4j Sweden AB [http://neo4j.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.io.pagecache.tracing;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import org.neo4j.helpers.MathUtil;
+import org.neo4j.io.pagecache.monitoring.PagedFileCounters;
+
+/**
+ * The default PagedFileCounters implementation, that just increments counters.
+ */
+public class DefaultPagedFileCounters implements PagedFileCounters
+{
+    private final LongAdder faults = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder pins = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder flushes = new LongAdder();
+    private final LongAdder bytesRead = new LongAdder();
+    private final LongAdder bytesWritten = new LongAdder();
+
+    @Override
+    public long faults()
+    {
+        return faults.sum();
+    }
+
+    @Override
+    public long evictions()
+    {
+        return evictions.sum();
+    }
+
+    @Override
+    public long pins()
+    {
+        return pins.sum();
+    }
+
+    @Override
+    public long hits()
+    {
+        return hits.sum();
+    }
+
+    @Override
+    public long flushes()
+    {
+        return flushes.sum();
+    }
+
+    @Override
+    public long bytesRead()
+    {
+        return bytesRead.sum();
+    }
+
+    @Override
+    public long bytesWritten()
+    {
+        return bytesWritten.sum();
+    }
+
+    @Override
+    public double hitRatio()
+    {
+        return MathUtil.portion( hits(), faults() );
+    }
+
+    /**
+     * Add the counts of a page cursor that has been working on this file.
+     */
+    public void cursorCounts( long pins, long hits, long faults, long bytesRead )
+    {
+        if ( pins > 0 )
+        {
+            this.pins.add( pins );
+            this.hits.add( hits );
+            this.faults.add( faults );
+            this.bytesRead.add( bytesRead );
+        }
+    }
+
+    public void evicted()
+    {
+        evictions.increment();
+    }
+
+    public void flushed( long bytesWritten )
+    {
+        this.flushes.increment();
+        this.bytesWritten.add( bytesWritten );
+    }
+}
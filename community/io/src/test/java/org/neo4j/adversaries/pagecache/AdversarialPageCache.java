@@ -103,6 +103,12 @@ public class AdversarialPageCache implements PageCache
         delegate.flushAndForce( limiter );
     }
 
+    @Override
+    public void setBackgroundFlushLimiter( IOLimiter limiter )
+    {
+        delegate.setBackgroundFlushLimiter( limiter );
+    }
+
     @Override
     public void close()
     {
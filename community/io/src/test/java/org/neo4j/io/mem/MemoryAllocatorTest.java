@@ -22,6 +22,8 @@ package org.neo4j.io.mem;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 
+import java.io.File;
+
 import org.neo4j.io.ByteUnit;
 import org.neo4j.io.pagecache.PageCache;
 import org.neo4j.memory.LocalMemoryTracker;
@@ -205,6 +207,29 @@ class MemoryAllocatorTest
         }
     }
 
+    @Test
+    void transparentHugePageAllocationsMustBeAlignedToHugePages()
+    {
+        LocalMemoryTracker memoryTracker = new LocalMemoryTracker();
+        allocator = MemoryAllocator.createAllocator( "8 MiB", memoryTracker, HugePages.TRANSPARENT, null );
+
+        long address = allocator.allocateAligned( PageCache.PAGE_SIZE, UnsafeUtil.pageSize() );
+        assertThat( address % GrabMemory.HUGE_PAGE_SIZE, is( 0L ) );
+        UnsafeUtil.putLong( address + PageCache.PAGE_SIZE - Long.BYTES, 1 );
+        assertThat( memoryTracker.usedDirectMemory(), is( greaterThanOrEqualTo( (long) PageCache.PAGE_SIZE ) ) );
+
+        closeAllocator();
+        assertEquals( 0, memoryTracker.usedDirectMemory() );
+    }
+
+    @Test
+    void hugeTlbFsAllocatorMustRefuseMissingMountPoint()
+    {
+        File directory = new File( "no-such-hugetlbfs-mount" );
+        assertThrows( IllegalArgumentException.class,
+                () -> MemoryAllocator.createAllocator( "8 MiB", new LocalMemoryTracker(), HugePages.HUGETLBFS, directory ) );
+    }
+
     private void closeAllocator()
     {
         if ( allocator != null )
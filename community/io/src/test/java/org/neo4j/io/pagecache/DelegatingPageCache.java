@@ -82,6 +82,12 @@ public class DelegatingPageCache implements PageCache
         delegate.flushAndForce( limiter );
     }
 
+    @Override
+    public void setBackgroundFlushLimiter( IOLimiter limiter )
+    {
+        delegate.setBackgroundFlushLimiter( limiter );
+    }
+
     @Override
     public void flushAndForce() throws IOException
     {
@@ -22,6 +22,8 @@ package org.neo4j.io.pagecache;
 import java.io.File;
 import java.io.IOException;
 
+import org.neo4j.io.pagecache.monitoring.PagedFileCounters;
+
 public class DelegatingPagedFile implements PagedFile
 {
     private final PagedFile delegate;
@@ -49,6 +51,18 @@ public class DelegatingPagedFile implements PagedFile
         return delegate.getLastPageId();
     }
 
+    @Override
+    public void prefetch( long startPageId, int pageCount ) throws IOException
+    {
+        delegate.prefetch( startPageId, pageCount );
+    }
+
+    @Override
+    public PagedFileCounters counters()
+    {
+        return delegate.counters();
+    }
+
     @Override
     public int pageSize()
     {
@@ -22,11 +22,15 @@ package org.neo4j.io.pagecache;
 import java.io.File;
 import java.io.IOException;
 
+import org.neo4j.io.pagecache.monitoring.PagedFileCounters;
+import org.neo4j.io.pagecache.tracing.DefaultPagedFileCounters;
+
 public class StubPagedFile implements PagedFile
 {
     private final int pageSize;
     public final int exposedPageSize;
     public long lastPageId = 1;
+    private final DefaultPagedFileCounters counters = new DefaultPagedFileCounters();
 
     public StubPagedFile( int pageSize )
     {
@@ -85,6 +89,12 @@ public class StubPagedFile implements PagedFile
         return lastPageId;
     }
 
+    @Override
+    public PagedFileCounters counters()
+    {
+        return counters;
+    }
+
     @Override
     public void close()
     {
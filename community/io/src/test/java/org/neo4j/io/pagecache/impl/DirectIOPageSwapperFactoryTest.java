@@ -0,0 +1,269 @@
+/*
+ * Copyright (c) 2002-2020 "Neo4j,"
+ * Neo4j Sweden AB [http://neo4j.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.io.pagecache.impl;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.neo4j.graphdb.config.Configuration;
+import org.neo4j.graphdb.mockfs.EphemeralFileSystemAbstraction;
+import org.neo4j.io.IOUtils;
+import org.neo4j.io.fs.DefaultFileSystemAbstraction;
+import org.neo4j.io.fs.FileSystemAbstraction;
+import org.neo4j.io.fs.StoreChannel;
+import org.neo4j.io.mem.MemoryAllocator;
+import org.neo4j.io.pagecache.PageSwapper;
+import org.neo4j.memory.LocalMemoryTracker;
+import org.neo4j.test.extension.Inject;
+import org.neo4j.test.extension.TestDirectoryExtension;
+import org.neo4j.test.rule.TestDirectory;
+import org.neo4j.unsafe.impl.internal.dragons.UnsafeUtil;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+@ExtendWith( TestDirectoryExtension.class )
+class DirectIOPageSwapperFactoryTest
+{
+    private static final int PAGE_SIZE = 8192;
+
+    @Inject
+    private TestDirectory testDir;
+
+    private final MemoryAllocator mman = MemoryAllocator.createAllocator( "1 MiB", new LocalMemoryTracker() );
+    private DefaultFileSystemAbstraction fs;
+    private EphemeralFileSystemAbstraction ephemeralFs;
+
+    @BeforeEach
+    void setUp()
+    {
+        fs = new DefaultFileSystemAbstraction();
+        ephemeralFs = new EphemeralFileSystemAbstraction();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception
+    {
+        IOUtils.closeAll( fs, ephemeralFs );
+        mman.close();
+    }
+
+    @Test
+    void implementationNameMustBeDirect()
+    {
+        assertEquals( "direct", new DirectIOPageSwapperFactory().implementationName() );
+    }
+
+    @Test
+    void mustReadBackWrittenPages() throws IOException
+    {
+        File file = testDir.file( "a" );
+        long pageA = createPage( 1 );
+        long pageB = createPage( 2 );
+        long pageC = createPage( 3 );
+        PageSwapper swapper = createSwapper( fs, file, PAGE_SIZE );
+        try
+        {
+            assertEquals( PAGE_SIZE, swapper.write( 0, pageA ) );
+            assertEquals( 2L * PAGE_SIZE, swapper.write( 1, new long[]{pageB, pageC}, 0, 2 ) );
+            swapper.force();
+        }
+        finally
+        {
+            swapper.close();
+        }
+        assertEquals( 3L * PAGE_SIZE, fs.getFileSize( file ) );
+
+        long target = createPage( 0 );
+        long[] targets = {createPage( 0 ), createPage( 0 )};
+        swapper = createSwapper( fs, file, PAGE_SIZE );
+        try
+        {
+            assertEquals( PAGE_SIZE, swapper.read( 0, target, PAGE_SIZE ) );
+            assertEquals( 2L * PAGE_SIZE, swapper.read( 1, targets, PAGE_SIZE, 0, 2 ) );
+        }
+        finally
+        {
+            swapper.close();
+        }
+        assertPageFilledWith( target, PAGE_SIZE, 1 );
+        assertPageFilledWith( targets[0], PAGE_SIZE, 2 );
+        assertPageFilledWith( targets[1], PAGE_SIZE, 3 );
+    }
+
+    @Test
+    void mustZeroFillPageBeyondEndOfFileThatIsNotBlockAligned() throws IOException
+    {
+        File file = testDir.file( "a" );
+        try ( StoreChannel channel = fs.create( file ) )
+        {
+            ByteBuffer buffer = ByteBuffer.allocate( 100 );
+            while ( buffer.hasRemaining() )
+            {
+                buffer.put( (byte) 7 );
+            }
+            buffer.flip();
+            channel.writeAll( buffer );
+        }
+
+        long page = createPage( 1 );
+        long[] pages = {createPage( 1 ), createPage( 1 )};
+        PageSwapper swapper = createSwapper( fs, file, PAGE_SIZE );
+        try
+        {
+            assertEquals( 100, swapper.read( 0, page, PAGE_SIZE ) );
+            assertEquals( 100, swapper.read( 0, pages, PAGE_SIZE, 0, 2 ) );
+        }
+        finally
+        {
+            swapper.close();
+        }
+        assertPageFilledWith( page, 100, 7 );
+        assertPageFilledWith( page + 100, PAGE_SIZE - 100, 0 );
+        assertPageFilledWith( pages[0], 100, 7 );
+        assertPageFilledWith( pages[0] + 100, PAGE_SIZE - 100, 0 );
+        assertPageFilledWith( pages[1], PAGE_SIZE, 0 );
+    }
+
+    @Test
+    void mustFallBackToBufferedIOForFilePageSizesThatAreNotBlockAligned() throws IOException
+    {
+        int filePageSize = PAGE_SIZE - 2;
+        File file = testDir.file( "a" );
+        long page = createPage( 5 );
+        PageSwapper swapper = createSwapper( fs, file, filePageSize );
+        try
+        {
+            assertEquals( filePageSize, swapper.write( 0, page ) );
+            assertEquals( filePageSize, swapper.write( 1, page ) );
+        }
+        finally
+        {
+            swapper.close();
+        }
+        assertEquals( 2L * filePageSize, fs.getFileSize( file ) );
+    }
+
+    @Test
+    void mustFallBackToBufferedIOOnOtherFileSystems() throws IOException
+    {
+        File file = testDir.file( "a" );
+        long page = createPage( 5 );
+        long target = createPage( 0 );
+        PageSwapper swapper = createSwapper( ephemeralFs, file, PAGE_SIZE );
+        try
+        {
+            assertEquals( PAGE_SIZE, swapper.write( 0, page ) );
+            assertEquals( PAGE_SIZE, swapper.read( 0, target, PAGE_SIZE ) );
+        }
+        finally
+        {
+            swapper.close();
+        }
+        assertPageFilledWith( target, PAGE_SIZE, 5 );
+    }
+
+    @Test
+    void mustReportRecordStoresThatCannotUseDirectIO() throws IOException
+    {
+        assumeTrue( DirectIO.isAvailable() );
+        // The file page sizes of record stores hold a whole number of records, like in CommonAbstractStore.
+        Map<String,Integer> recordSizes = new LinkedHashMap<>();
+        recordSizes.put( "neostore.nodestore.db", 15 );
+        recordSizes.put( "neostore.relationshipstore.db", 34 );
+        recordSizes.put( "neostore.propertystore.db", 41 );
+        recordSizes.put( "neostore.relationshipgroupstore.db", 25 );
+        recordSizes.put( "neostore.propertystore.db.strings", 128 );
+        recordSizes.put( "neostore.propertystore.db.arrays", 128 );
+
+        Map<File,String> bufferedFiles = new HashMap<>();
+        for ( Map.Entry<String,Integer> store : recordSizes.entrySet() )
+        {
+            int filePageSize = PAGE_SIZE - PAGE_SIZE % store.getValue();
+            createSwapper( fs, testDir.file( store.getKey() ), filePageSize, bufferedFiles::put ).close();
+        }
+
+        String notAligned = "is not a multiple of the file store block size";
+        assertThat( bufferedFiles.get( testDir.file( "neostore.nodestore.db" ) ), containsString( notAligned ) );
+        assertThat( bufferedFiles.get( testDir.file( "neostore.relationshipstore.db" ) ), containsString( notAligned ) );
+        assertThat( bufferedFiles.get( testDir.file( "neostore.propertystore.db" ) ), containsString( notAligned ) );
+        assertThat( bufferedFiles.get( testDir.file( "neostore.relationshipgroupstore.db" ) ), containsString( notAligned ) );
+        // The dynamic stores have block aligned pages, so they use direct IO if the file store supports it.
+        for ( String dynamicStore : new String[]{"neostore.propertystore.db.strings", "neostore.propertystore.db.arrays"} )
+        {
+            String reason = bufferedFiles.get( testDir.file( dynamicStore ) );
+            assertTrue( reason == null || reason.startsWith( "the file store refused to open the file with direct IO" ), reason );
+        }
+    }
+
+    @Test
+    void mustReportFallBackOnOtherFileSystems() throws IOException
+    {
+        Map<File,String> bufferedFiles = new HashMap<>();
+        File file = testDir.file( "a" );
+
+        createSwapper( ephemeralFs, file, PAGE_SIZE, bufferedFiles::put ).close();
+
+        assertEquals( 1, bufferedFiles.size() );
+        assertTrue( bufferedFiles.containsKey( file ) );
+    }
+
+    private PageSwapper createSwapper( FileSystemAbstraction fileSystem, File file, int filePageSize ) throws IOException
+    {
+        return createSwapper( fileSystem, file, filePageSize, DirectIOPageSwapperFactory.Monitor.NO_MONITOR );
+    }
+
+    private PageSwapper createSwapper( FileSystemAbstraction fileSystem, File file, int filePageSize,
+            DirectIOPageSwapperFactory.Monitor monitor ) throws IOException
+    {
+        fileSystem.mkdirs( file.getParentFile() );
+        DirectIOPageSwapperFactory factory = new DirectIOPageSwapperFactory();
+        factory.open( fileSystem, Configuration.EMPTY );
+        factory.setMonitor( monitor );
+        return factory.createPageSwapper( file, filePageSize, filePageId -> {}, true, false );
+    }
+
+    private long createPage( int fill )
+    {
+        long address = mman.allocateAligned( PAGE_SIZE, UnsafeUtil.pageSize() );
+        UnsafeUtil.setMemory( address, PAGE_SIZE, (byte) fill );
+        return address;
+    }
+
+    private static void assertPageFilledWith( long address, int length, int fill )
+    {
+        for ( int i = 0; i < length; i++ )
+        {
+            assertEquals( (byte) fill, UnsafeUtil.getByte( address + i ), "byte at offset " + i );
+        }
+    }
+}
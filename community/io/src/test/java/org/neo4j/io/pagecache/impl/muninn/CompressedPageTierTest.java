@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2002-2020 "Neo4j,"
+ * Neo4j Sweden AB [http://neo4j.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.io.pagecache.impl.muninn;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import org.neo4j.unsafe.impl.internal.dragons.UnsafeUtil;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CompressedPageTierTest
+{
+    private static final int PAGE_SIZE = 8192;
+
+    private final long address = UnsafeUtil.allocateMemory( PAGE_SIZE );
+
+    @AfterEach
+    void tearDown()
+    {
+        UnsafeUtil.free( address, PAGE_SIZE );
+    }
+
+    @Test
+    void takeMustReturnTheStoredPage()
+    {
+        CompressedPageTier tier = new CompressedPageTier( 1 << 20, PAGE_SIZE );
+        writePage( 42 );
+        tier.store( 1, 7, address );
+        writePage( 0 );
+
+        assertTrue( tier.take( 1, 7, address ) );
+        assertEquals( 42, UnsafeUtil.getLong( address ) );
+        assertFalse( tier.take( 1, 7, address ) );
+        assertEquals( 0, tier.pageCount() );
+        assertEquals( 0, tier.usedBytes() );
+    }
+
+    @Test
+    void pagesCyclingThroughTheTierMustNotAccumulate()
+    {
+        CompressedPageTier tier = new CompressedPageTier( 1 << 20, PAGE_SIZE );
+        for ( int i = 0; i < 10_000; i++ )
+        {
+            writePage( i );
+            tier.store( 1, i % 3, address );
+            if ( i % 2 == 0 )
+            {
+                tier.take( 1, i % 3, address );
+            }
+            else
+            {
+                tier.invalidate( 1, (i + 1) % 3 );
+            }
+        }
+
+        assertThat( tier.pageCount(), lessThanOrEqualTo( 3 ) );
+    }
+
+    @Test
+    void storingAPageAgainMustReplaceTheOlderCopy()
+    {
+        CompressedPageTier tier = new CompressedPageTier( 1 << 20, PAGE_SIZE );
+        writePage( 1 );
+        tier.store( 1, 7, address );
+        long usedBytes = tier.usedBytes();
+        writePage( 2 );
+        tier.store( 1, 7, address );
+
+        assertEquals( 1, tier.pageCount() );
+        assertEquals( usedBytes, tier.usedBytes() );
+        assertTrue( tier.take( 1, 7, address ) );
+        assertEquals( 2, UnsafeUtil.getLong( address ) );
+    }
+
+    @Test
+    void mustEvictTheOldestPagesWhenOverCapacity()
+    {
+        long capacity = 16 * 1024;
+        CompressedPageTier tier = new CompressedPageTier( capacity, PAGE_SIZE );
+        writePage( 1 );
+        for ( int filePageId = 0; filePageId < 1000; filePageId++ )
+        {
+            tier.store( 1, filePageId, address );
+        }
+
+        assertThat( tier.usedBytes(), lessThanOrEqualTo( capacity ) );
+        assertFalse( tier.take( 1, 0, address ) );
+        assertTrue( tier.take( 1, 999, address ) );
+    }
+
+    @Test
+    void invalidateAllMustRemoveAllPagesOfTheSwapper()
+    {
+        CompressedPageTier tier = new CompressedPageTier( 1 << 20, PAGE_SIZE );
+        writePage( 1 );
+        for ( int filePageId = 0; filePageId < 10; filePageId++ )
+        {
+            tier.store( 1, filePageId, address );
+            tier.store( 2, filePageId, address );
+        }
+
+        tier.invalidateAll( 1 );
+
+        assertEquals( 10, tier.pageCount() );
+        assertFalse( tier.take( 1, 5, address ) );
+        assertTrue( tier.take( 2, 5, address ) );
+    }
+
+    private void writePage( long value )
+    {
+        UnsafeUtil.setMemory( address, PAGE_SIZE, (byte) 0 );
+        UnsafeUtil.putLong( address, value );
+    }
+}
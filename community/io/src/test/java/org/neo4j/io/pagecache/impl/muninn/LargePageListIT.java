@@ -38,13 +38,13 @@ class LargePageListIT
     @Test
     void veryLargePageListsMustBeFullyAccessible()
     {
-        // We need roughly 2 GiBs of memory for the meta-data here, which is why this is an IT and not a Test.
+        // We need roughly 4 GiBs of memory for the meta-data here, which is why this is an IT and not a Test.
         // We add one extra page worth of data to the size here, to avoid ending up on a "convenient" boundary.
         int pageSize = (int) ByteUnit.kibiBytes( 8 );
         long pageCacheSize = ByteUnit.gibiBytes( 513 ) + pageSize;
         int pages = Math.toIntExact( pageCacheSize / pageSize );
 
-        MemoryAllocator mman = MemoryAllocator.createAllocator( "2 GiB", GlobalMemoryTracker.INSTANCE );
+        MemoryAllocator mman = MemoryAllocator.createAllocator( "4 GiB", GlobalMemoryTracker.INSTANCE );
         SwapperSet swappers = new SwapperSet();
         long victimPage = VictimPageReference.getVictimPage( pageSize, GlobalMemoryTracker.INSTANCE );
 
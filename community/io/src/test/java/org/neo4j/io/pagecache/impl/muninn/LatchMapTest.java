@@ -81,6 +81,50 @@ class LatchMapTest
         latch.release();
     }
 
+    @Test
+    void takeOrAwaitLatchMustNotMakeUnrelatedLatchesInSameBucketWaitForEachOther() throws Exception
+    {
+        LatchMap singleBucket = new LatchMap( 1, 4 );
+        BinaryLatch a = singleBucket.takeOrAwaitLatch( 1 );
+        BinaryLatch b = singleBucket.takeOrAwaitLatch( 2 );
+        BinaryLatch c = singleBucket.takeOrAwaitLatch( 3 );
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<BinaryLatch> future = executor.submit( () -> singleBucket.takeOrAwaitLatch( 4 ) );
+        BinaryLatch d = future.get( 1, TimeUnit.SECONDS );
+        assertThat( a, is( notNullValue() ) );
+        assertThat( b, is( notNullValue() ) );
+        assertThat( c, is( notNullValue() ) );
+        assertThat( d, is( notNullValue() ) );
+        assertThat( singleBucket.tryTakeLatch( 3 ), is( nullValue() ) );
+        assertThat( singleBucket.tryTakeLatch( 5 ), is( nullValue() ) );
+        a.release();
+        b.release();
+        c.release();
+        d.release();
+        executor.shutdown();
+    }
+
+    @Test
+    void latchesInSameStripeMustExcludeEachOtherWithSingleSlotBuckets()
+    {
+        LatchMap singleStripe = new LatchMap( 1, 1 );
+        BinaryLatch latch = singleStripe.tryTakeLatch( 1 );
+        assertThat( latch, is( notNullValue() ) );
+        assertThat( singleStripe.tryTakeLatch( 2 ), is( nullValue() ) );
+        latch.release();
+        singleStripe.tryTakeLatch( 2 ).release();
+    }
+
+    @Test
+    void tryTakeLatchMustReturnNullIfLatchIsTaken()
+    {
+        BinaryLatch latch = latches.tryTakeLatch( 42 );
+        assertThat( latch, is( notNullValue() ) );
+        assertThat( latches.tryTakeLatch( 42 ), is( nullValue() ) );
+        latch.release();
+        latches.tryTakeLatch( 42 ).release();
+    }
+
     @Test
     void latchMustBeAvailableAfterRelease()
     {
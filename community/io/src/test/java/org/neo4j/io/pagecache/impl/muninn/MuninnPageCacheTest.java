@@ -25,15 +25,18 @@ import org.junit.jupiter.api.Test;
 import java.io.File;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.IntSupplier;
 import java.util.function.LongSupplier;
 
 import org.neo4j.graphdb.mockfs.DelegatingFileSystemAbstraction;
 import org.neo4j.graphdb.mockfs.DelegatingStoreChannel;
+import org.neo4j.io.ByteUnit;
 import org.neo4j.io.IOUtils;
 import org.neo4j.io.fs.FileSystemAbstraction;
 import org.neo4j.io.fs.OpenMode;
@@ -43,6 +46,8 @@ import org.neo4j.io.pagecache.PageCacheTest;
 import org.neo4j.io.pagecache.PageCursor;
 import org.neo4j.io.pagecache.PageSwapper;
 import org.neo4j.io.pagecache.PagedFile;
+import org.neo4j.io.pagecache.WriteAheadBarrier;
+import org.neo4j.io.pagecache.monitoring.PagedFileCounters;
 import org.neo4j.io.pagecache.tracing.ConfigurablePageCursorTracerSupplier;
 import org.neo4j.io.pagecache.tracing.DefaultPageCacheTracer;
 import org.neo4j.io.pagecache.tracing.DelegatingPageCacheTracer;
@@ -59,14 +64,19 @@ import org.neo4j.io.pagecache.tracing.recording.RecordingPageCursorTracer.Fault;
 
 import static java.time.Duration.ofMillis;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTimeout;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 import static org.neo4j.io.pagecache.PagedFile.PF_NO_GROW;
+import static org.neo4j.io.pagecache.PagedFile.PF_READ_AHEAD;
 import static org.neo4j.io.pagecache.PagedFile.PF_SHARED_READ_LOCK;
 import static org.neo4j.io.pagecache.PagedFile.PF_SHARED_WRITE_LOCK;
 import static org.neo4j.io.pagecache.tracing.recording.RecordingPageCacheTracer.Evict;
@@ -711,6 +721,387 @@ public class MuninnPageCacheTest extends PageCacheTest<MuninnPageCache>
         } );
     }
 
+    @Test
+    void readAheadCursorMustFaultInSequentialPagesInBatches() throws IOException
+    {
+        RecordingPageCursorTracer cursorTracer = new RecordingPageCursorTracer();
+        ConfigurablePageCursorTracerSupplier<RecordingPageCursorTracer> cursorTracerSupplier = new ConfigurablePageCursorTracerSupplier<>( cursorTracer );
+        try ( MuninnPageCache pageCache = createPageCache( fs, 1024, PageCacheTracer.NULL, cursorTracerSupplier ) )
+        {
+            int pageCount = 200;
+            generateFileWithRecords( file( "a" ), recordsPerFilePage * pageCount, recordSize );
+            try ( PagedFile pagedFile = map( pageCache, file( "a" ), filePageSize );
+                  PageCursor cursor = pagedFile.io( 0, PF_SHARED_READ_LOCK | PF_READ_AHEAD ) )
+            {
+                int pagesRead = 0;
+                while ( cursor.next() )
+                {
+                    verifyRecordsMatchExpected( cursor );
+                    pagesRead++;
+                }
+                assertEquals( pageCount, pagesRead );
+            }
+            cursorTracer.reportEvents();
+            assertThat( cursorTracer.faults(), lessThan( pageCount / 4L ) );
+            assertEquals( pageCount, cursorTracer.pins() );
+        }
+    }
+
+    @Test
+    void readAheadCursorMustNotReadAheadWhenNotScanningForward() throws IOException
+    {
+        RecordingPageCursorTracer cursorTracer = new RecordingPageCursorTracer();
+        ConfigurablePageCursorTracerSupplier<RecordingPageCursorTracer> cursorTracerSupplier = new ConfigurablePageCursorTracerSupplier<>( cursorTracer );
+        try ( MuninnPageCache pageCache = createPageCache( fs, 1024, PageCacheTracer.NULL, cursorTracerSupplier ) )
+        {
+            int pageCount = 100;
+            generateFileWithRecords( file( "a" ), recordsPerFilePage * pageCount, recordSize );
+            try ( PagedFile pagedFile = map( pageCache, file( "a" ), filePageSize );
+                  PageCursor cursor = pagedFile.io( 0, PF_SHARED_READ_LOCK | PF_READ_AHEAD ) )
+            {
+                // Scanning backwards, so every page fault must only read in the page that was asked for.
+                for ( long pageId = pageCount - 1; pageId >= 0; pageId-- )
+                {
+                    assertTrue( cursor.next( pageId ) );
+                    verifyRecordsMatchExpected( cursor );
+                }
+            }
+            cursorTracer.reportEvents();
+            assertEquals( pageCount, cursorTracer.faults() );
+        }
+    }
+
+    @Test
+    void prefetchMustReadExactlyTheGivenRangeOfPagesInBatches() throws IOException
+    {
+        try ( MuninnPageCache pageCache = createPageCache( fs, 1024, PageCacheTracer.NULL, DefaultPageCursorTracerSupplier.INSTANCE ) )
+        {
+            int pageCount = 100;
+            generateFileWithRecords( file( "a" ), recordsPerFilePage * pageCount, recordSize );
+            try ( PagedFile pagedFile = map( pageCache, file( "a" ), filePageSize ) )
+            {
+                pagedFile.prefetch( 10, 50 );
+                PagedFileCounters counters = pagedFile.counters();
+                assertThat( counters.faults(), lessThan( 50L ) );
+                assertEquals( 50L * filePageSize, counters.bytesRead() );
+
+                try ( PageCursor cursor = pagedFile.io( 10, PF_SHARED_READ_LOCK ) )
+                {
+                    for ( int i = 0; i < 50; i++ )
+                    {
+                        assertTrue( cursor.next() );
+                        verifyRecordsMatchExpected( cursor );
+                    }
+                }
+                assertEquals( 50L * filePageSize, counters.bytesRead() );
+            }
+        }
+    }
+
+    @Test
+    void compressedTierMustServePageFaultsOfEvictedPages() throws IOException
+    {
+        try ( MuninnPageCache pageCache = createPageCache( fs, 20, PageCacheTracer.NULL, DefaultPageCursorTracerSupplier.INSTANCE ) )
+        {
+            pageCache.enableCompressedTier( ByteUnit.mebiBytes( 1 ) );
+            int pageCount = 100;
+            generateFileWithRecords( file( "a" ), recordsPerFilePage * pageCount, recordSize );
+            try ( PagedFile pagedFile = map( pageCache, file( "a" ), filePageSize ) )
+            {
+                for ( int i = 0; i < 2; i++ )
+                {
+                    try ( PageCursor cursor = pagedFile.io( 0, PF_SHARED_READ_LOCK ) )
+                    {
+                        while ( cursor.next() )
+                        {
+                            verifyRecordsMatchExpected( cursor );
+                        }
+                    }
+                }
+                CompressedPageTier compressedTier = pageCache.pages.getCompressedTier();
+                assertThat( compressedTier.hits(), greaterThan( 0L ) );
+                assertThat( pagedFile.counters().bytesRead(), lessThan( 2L * pageCount * filePageSize ) );
+            }
+            assertEquals( 0, pageCache.pages.getCompressedTier().usedBytes() );
+        }
+    }
+
+    @Test
+    void compressedTierMustNotServeStaleCopiesOfPagesThatHaveBeenWrittenTo() throws IOException
+    {
+        try ( MuninnPageCache pageCache = createPageCache( fs, 20, PageCacheTracer.NULL, PageCursorTracerSupplier.NULL ) )
+        {
+            pageCache.enableCompressedTier( ByteUnit.mebiBytes( 1 ) );
+            try ( PagedFile pagedFile = map( pageCache, file( "a" ), filePageSize, StandardOpenOption.CREATE ) )
+            {
+                for ( long value = 1; value <= 3; value++ )
+                {
+                    try ( PageCursor cursor = pagedFile.io( 0, PF_SHARED_WRITE_LOCK ) )
+                    {
+                        assertTrue( cursor.next() );
+                        assertEquals( value - 1, cursor.getLong() );
+                        cursor.setOffset( 0 );
+                        cursor.putLong( value );
+                        // Push page 0 out of the cache, and into the compressed tier.
+                        for ( int pageId = 1; pageId < 100; pageId++ )
+                        {
+                            assertTrue( cursor.next( pageId ) );
+                        }
+                    }
+                }
+                try ( PageCursor cursor = pagedFile.io( 0, PF_SHARED_READ_LOCK ) )
+                {
+                    assertTrue( cursor.next() );
+                    long value;
+                    do
+                    {
+                        value = cursor.getLong( 0 );
+                    }
+                    while ( cursor.shouldRetry() );
+                    assertEquals( 3L, value );
+                }
+            }
+        }
+    }
+
+    @Test
+    void backgroundFlusherMustWriteOutDirtyPagesWhenAboveTheDirtyPercentage()
+    {
+        assertTimeout( ofMillis( SEMI_LONG_TIMEOUT_MILLIS ), () ->
+        {
+            try ( MuninnPageCache pageCache = createPageCache( fs, 100, PageCacheTracer.NULL, PageCursorTracerSupplier.NULL ) )
+            {
+                pageCache.enableBackgroundFlushing( 10 );
+                try ( PagedFile pagedFile = map( pageCache, file( "a" ), filePageSize, StandardOpenOption.CREATE ) )
+                {
+                    try ( PageCursor cursor = pagedFile.io( 0, PF_SHARED_WRITE_LOCK ) )
+                    {
+                        for ( int i = 0; i < 50; i++ )
+                        {
+                            assertTrue( cursor.next() );
+                            cursor.putLong( i );
+                        }
+                    }
+
+                    // The cache is big enough that nothing is evicted, so only the background flusher writes pages.
+                    while ( pageCache.estimateDirtyPages() > 10 )
+                    {
+                        Thread.sleep( 10 );
+                    }
+                    assertThat( pagedFile.counters().bytesWritten(), greaterThanOrEqualTo( 40L * filePageSize ) );
+                }
+            }
+        } );
+    }
+
+    @Test
+    void backgroundFlusherMustNotWriteOutDirtyPagesUnlessEnabled() throws Exception
+    {
+        try ( MuninnPageCache pageCache = createPageCache( fs, 100, PageCacheTracer.NULL, PageCursorTracerSupplier.NULL );
+              PagedFile pagedFile = map( pageCache, file( "a" ), filePageSize, StandardOpenOption.CREATE ) )
+        {
+            try ( PageCursor cursor = pagedFile.io( 0, PF_SHARED_WRITE_LOCK ) )
+            {
+                for ( int i = 0; i < 50; i++ )
+                {
+                    assertTrue( cursor.next() );
+                    cursor.putLong( i );
+                }
+            }
+
+            // Give a background flusher, if there were one, a few rounds to run.
+            Thread.sleep( 500 );
+            assertEquals( 0L, pagedFile.counters().bytesWritten() );
+        }
+    }
+
+    @Test
+    void backgroundFlushingCannotBeEnabledAfterFilesHaveBeenMapped() throws IOException
+    {
+        try ( MuninnPageCache pageCache = createPageCache( fs, 100, PageCacheTracer.NULL, PageCursorTracerSupplier.NULL );
+              PagedFile ignore = map( pageCache, file( "a" ), filePageSize, StandardOpenOption.CREATE ) )
+        {
+            assertThrows( IllegalStateException.class, () -> pageCache.enableBackgroundFlushing( 10 ) );
+        }
+    }
+
+    @Test
+    void flushAndForceDirtyUpToMustOnlyFlushPagesDirtiedInEarlierEpochs() throws IOException
+    {
+        try ( MuninnPageCache pageCache = createPageCache( fs, 100, PageCacheTracer.NULL, PageCursorTracerSupplier.NULL );
+              PagedFile pagedFile = map( pageCache, file( "a" ), filePageSize, StandardOpenOption.CREATE ) )
+        {
+            try ( PageCursor cursor = pagedFile.io( 0, PF_SHARED_WRITE_LOCK ) )
+            {
+                for ( int i = 0; i < 10; i++ )
+                {
+                    assertTrue( cursor.next() );
+                    cursor.putLong( i );
+                }
+            }
+            long firstEpoch = pageCache.beginDirtyEpoch();
+            try ( PageCursor cursor = pagedFile.io( 10, PF_SHARED_WRITE_LOCK ) )
+            {
+                for ( int i = 10; i < 15; i++ )
+                {
+                    assertTrue( cursor.next() );
+                    cursor.putLong( i );
+                }
+            }
+
+            pageCache.flushAndForceDirtyUpTo( firstEpoch, IOLimiter.UNLIMITED );
+            assertEquals( 10L * filePageSize, pagedFile.counters().bytesWritten() );
+
+            // Pages from the first epoch are now clean, so only the later pages are left to flush.
+            pageCache.flushAndForceDirtyUpTo( pageCache.beginDirtyEpoch(), IOLimiter.UNLIMITED );
+            assertEquals( 15L * filePageSize, pagedFile.counters().bytesWritten() );
+        }
+    }
+
+    @Test
+    void pageDirtiedAgainInLaterEpochMustKeepItsOldestDirtyEpoch() throws IOException
+    {
+        try ( MuninnPageCache pageCache = createPageCache( fs, 100, PageCacheTracer.NULL, PageCursorTracerSupplier.NULL );
+              PagedFile pagedFile = map( pageCache, file( "a" ), filePageSize, StandardOpenOption.CREATE ) )
+        {
+            try ( PageCursor cursor = pagedFile.io( 0, PF_SHARED_WRITE_LOCK ) )
+            {
+                assertTrue( cursor.next() );
+                cursor.putLong( 1 );
+            }
+            long firstEpoch = pageCache.beginDirtyEpoch();
+            try ( PageCursor cursor = pagedFile.io( 0, PF_SHARED_WRITE_LOCK ) )
+            {
+                assertTrue( cursor.next() );
+                cursor.putLong( 2 );
+            }
+
+            pageCache.flushAndForceDirtyUpTo( firstEpoch, IOLimiter.UNLIMITED );
+            assertEquals( filePageSize, pagedFile.counters().bytesWritten() );
+            pageCache.flushAndForceDirtyUpTo( pageCache.beginDirtyEpoch(), IOLimiter.UNLIMITED );
+            assertEquals( filePageSize, pagedFile.counters().bytesWritten() );
+        }
+    }
+
+    @Test
+    void writeAheadBarrierMustBePassedBeforeDirtyPagesAreFlushedOrEvicted() throws IOException
+    {
+        AtomicInteger barrierPasses = new AtomicInteger();
+        try ( MuninnPageCache pageCache = createPageCache( fs, 2, PageCacheTracer.NULL, PageCursorTracerSupplier.NULL );
+              PagedFile pagedFile = map( pageCache, file( "a" ), filePageSize, StandardOpenOption.CREATE ) )
+        {
+            pageCache.setWriteAheadBarrier( barrierPasses::incrementAndGet );
+            try ( PageCursor cursor = pagedFile.io( 0, PF_SHARED_WRITE_LOCK ) )
+            {
+                assertTrue( cursor.next() );
+                cursor.putLong( 1 );
+            }
+            pagedFile.flushAndForce();
+            assertEquals( 1, barrierPasses.get() );
+
+            try ( PageCursor cursor = pagedFile.io( 0, PF_SHARED_WRITE_LOCK ) )
+            {
+                assertTrue( cursor.next() );
+                cursor.putLong( 2 );
+            }
+            pageCache.evictPages( 2, 0, EvictionRunEvent.NULL );
+            assertEquals( 2, barrierPasses.get() );
+        }
+    }
+
+    @Test
+    void failingWriteAheadBarrierMustKeepDirtyPagesFromBeingWritten() throws IOException
+    {
+        try ( MuninnPageCache pageCache = createPageCache( fs, 100, PageCacheTracer.NULL, PageCursorTracerSupplier.NULL );
+              PagedFile pagedFile = map( pageCache, file( "a" ), filePageSize, StandardOpenOption.CREATE ) )
+        {
+            pageCache.setWriteAheadBarrier( () ->
+            {
+                throw new IOException( "Log could not be forced" );
+            } );
+            try ( PageCursor cursor = pagedFile.io( 0, PF_SHARED_WRITE_LOCK ) )
+            {
+                assertTrue( cursor.next() );
+                cursor.putLong( 1 );
+            }
+            assertThrows( IOException.class, pagedFile::flushAndForce );
+            assertEquals( 0, pagedFile.counters().bytesWritten() );
+
+            // The page is still dirty, so it gets written once the barrier lets it through.
+            pageCache.setWriteAheadBarrier( WriteAheadBarrier.NONE );
+            pagedFile.flushAndForce();
+            assertEquals( filePageSize, pagedFile.counters().bytesWritten() );
+        }
+    }
+
+    @Test
+    void pagedFileCountersMustOnlyCountAccessesToThatFile() throws IOException
+    {
+        try ( MuninnPageCache pageCache = createPageCache( fs, 1024, PageCacheTracer.NULL, DefaultPageCursorTracerSupplier.INSTANCE ) )
+        {
+            int pageCount = 20;
+            generateFileWithRecords( file( "a" ), recordsPerFilePage * pageCount, recordSize );
+            try ( PagedFile pagedFileA = map( pageCache, file( "a" ), filePageSize );
+                  PagedFile pagedFileB = map( pageCache, file( "b" ), filePageSize, StandardOpenOption.CREATE ) )
+            {
+                for ( int i = 0; i < 2; i++ )
+                {
+                    try ( PageCursor cursor = pagedFileA.io( 0, PF_SHARED_READ_LOCK ) )
+                    {
+                        while ( cursor.next() )
+                        {
+                            verifyRecordsMatchExpected( cursor );
+                        }
+                    }
+                }
+                try ( PageCursor cursor = pagedFileB.io( 0, PF_SHARED_WRITE_LOCK ) )
+                {
+                    assertTrue( cursor.next() );
+                    cursor.putLong( 1 );
+                }
+                pagedFileB.flushAndForce();
+
+                PagedFileCounters countersA = pagedFileA.counters();
+                assertEquals( 2 * pageCount, countersA.pins() );
+                assertEquals( pageCount, countersA.faults() );
+                assertEquals( pageCount, countersA.hits() );
+                assertEquals( 0.5, countersA.hitRatio(), 0.0 );
+                assertEquals( (long) pageCount * filePageSize, countersA.bytesRead() );
+                assertEquals( 0, countersA.flushes() );
+                assertEquals( 0, countersA.bytesWritten() );
+
+                PagedFileCounters countersB = pagedFileB.counters();
+                assertEquals( 1, countersB.pins() );
+                assertEquals( 1, countersB.faults() );
+                assertEquals( 0, countersB.hits() );
+                assertEquals( 1, countersB.flushes() );
+                assertEquals( filePageSize, countersB.bytesWritten() );
+            }
+        }
+    }
+
+    @Test
+    void cursorsWithoutReadAheadMustFaultInOnePageAtATime() throws IOException
+    {
+        RecordingPageCursorTracer cursorTracer = new RecordingPageCursorTracer();
+        ConfigurablePageCursorTracerSupplier<RecordingPageCursorTracer> cursorTracerSupplier = new ConfigurablePageCursorTracerSupplier<>( cursorTracer );
+        try ( MuninnPageCache pageCache = createPageCache( fs, 1024, PageCacheTracer.NULL, cursorTracerSupplier ) )
+        {
+            int pageCount = 100;
+            generateFileWithRecords( file( "a" ), recordsPerFilePage * pageCount, recordSize );
+            try ( PagedFile pagedFile = map( pageCache, file( "a" ), filePageSize );
+                  PageCursor cursor = pagedFile.io( 0, PF_SHARED_READ_LOCK ) )
+            {
+                while ( cursor.next() )
+                {
+                    verifyRecordsMatchExpected( cursor );
+                }
+            }
+            cursorTracer.reportEvents();
+            assertEquals( pageCount, cursorTracer.faults() );
+        }
+    }
+
     private static class FlushRendezvousTracer extends DefaultPageCacheTracer
     {
         private final CountDownLatch latch;
@@ -148,6 +148,12 @@ public class PageListTest
                 is( pageCount ) );
     }
 
+    @Test
+    public void pageMetaDataMustBeCacheLineAligned()
+    {
+        assertThat( pageRef % PageList.META_DATA_BYTES_PER_PAGE, is( 0L ) );
+    }
+
     @Test
     public void mustBeAbleToReversePageRedToPageId()
     {
@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2002-2020 "Neo4j,"
+ * Neo4j Sweden AB [http://neo4j.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.io.pagecache.impl.muninn;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import org.neo4j.io.mem.MemoryAllocator;
+import org.neo4j.memory.LocalMemoryTracker;
+import org.neo4j.unsafe.impl.internal.dragons.UnsafeUtil;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ScanResistantPageReplacementTest
+{
+    private static final int PAGE_COUNT = 20;
+    private static final int SWAPPER_ID = 1;
+
+    private MemoryAllocator allocator;
+    private PageList pages;
+    private ScanResistantPageReplacement replacement;
+
+    @BeforeEach
+    void setUp()
+    {
+        LocalMemoryTracker memoryTracker = new LocalMemoryTracker();
+        allocator = MemoryAllocator.createAllocator( "1 MiB", memoryTracker );
+        long victimPage = VictimPageReference.getVictimPage( UnsafeUtil.pageSize(), memoryTracker );
+        pages = new PageList( PAGE_COUNT, UnsafeUtil.pageSize(), allocator, new SwapperSet(), victimPage, 8 );
+        replacement = new ScanResistantPageReplacement( pages );
+    }
+
+    @AfterEach
+    void tearDown()
+    {
+        allocator.close();
+    }
+
+    @Test
+    void pagesAreFaultedInAsCold()
+    {
+        long pageRef = fault( 0, 42 );
+        assertFalse( replacement.isHot( 0 ) );
+        assertTrue( replacement.shouldEvict( pageRef ) );
+    }
+
+    @Test
+    void referencedColdPagesArePromotedInsteadOfEvicted()
+    {
+        long pageRef = fault( 0, 42 );
+        pages.incrementUsage( pageRef );
+
+        assertFalse( replacement.shouldEvict( pageRef ) );
+        assertTrue( replacement.isHot( 0 ) );
+        assertEquals( 1, replacement.hotPageCount() );
+    }
+
+    @Test
+    void recentlyEvictedPagesAreFaultedInAsHot()
+    {
+        long pageRef = fault( 0, 42 );
+        replacement.evicted( pageRef, SWAPPER_ID, 42 );
+
+        long otherPageRef = pages.deref( 1 );
+        replacement.faulted( otherPageRef, SWAPPER_ID, 42 );
+        assertTrue( replacement.isHot( 1 ) );
+
+        // The ghost entry is consumed by the fault.
+        replacement.faulted( pages.deref( 2 ), SWAPPER_ID, 42 );
+        assertFalse( replacement.isHot( 2 ) );
+    }
+
+    @Test
+    void hotPagesMustSurviveScans()
+    {
+        long hotPageRef = fault( 0, 0 );
+        pages.incrementUsage( hotPageRef );
+        assertFalse( replacement.shouldEvict( hotPageRef ) );
+
+        // Scan through many more file pages than fit in the cache, using the remaining cache pages, and sweep past
+        // every page once per scanned page, as a worst case for how fast the clock arm can turn.
+        for ( long filePageId = 1; filePageId < PAGE_COUNT * 100; filePageId++ )
+        {
+            int pageId = 1 + (int) (filePageId % (PAGE_COUNT - 1));
+            long pageRef = fault( pageId, filePageId );
+            assertFalse( replacement.shouldEvict( hotPageRef ) );
+            assertTrue( replacement.shouldEvict( pageRef ) );
+            replacement.evicted( pageRef, SWAPPER_ID, filePageId );
+        }
+        assertTrue( replacement.isHot( 0 ) );
+    }
+
+    @Test
+    void unreferencedHotPagesAreDemotedWhenTheHotSetIsOverBudget()
+    {
+        for ( int pageId = 0; pageId < PAGE_COUNT; pageId++ )
+        {
+            long pageRef = fault( pageId, pageId );
+            pages.incrementUsage( pageRef );
+            assertFalse( replacement.shouldEvict( pageRef ) );
+        }
+        assertEquals( PAGE_COUNT, replacement.hotPageCount() );
+
+        // None of the pages have been referenced since the last sweep, so the sweep demotes pages until the hot set
+        // is back within its budget, and evicts the demoted pages on the next sweep.
+        int evicted = 0;
+        for ( int sweep = 0; sweep < 2; sweep++ )
+        {
+            for ( int pageId = 0; pageId < PAGE_COUNT; pageId++ )
+            {
+                if ( replacement.shouldEvict( pages.deref( pageId ) ) )
+                {
+                    evicted++;
+                }
+            }
+        }
+        assertTrue( replacement.hotPageCount() < PAGE_COUNT );
+        assertEquals( PAGE_COUNT - replacement.hotPageCount(), evicted );
+    }
+
+    private long fault( int pageId, long filePageId )
+    {
+        // The page cursors increment the usage counter of the page, when they pin the page they faulted in.
+        long pageRef = pages.deref( pageId );
+        replacement.faulted( pageRef, SWAPPER_ID, filePageId );
+        pages.incrementUsage( pageRef );
+        return pageRef;
+    }
+}
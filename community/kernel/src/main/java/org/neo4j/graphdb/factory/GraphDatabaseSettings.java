@@ -35,6 +35,8 @@ import org.neo4j.graphdb.config.Setting;
 import org.neo4j.helpers.AdvertisedSocketAddress;
 import org.neo4j.helpers.ListenSocketAddress;
 import org.neo4j.io.ByteUnit;
+import org.neo4j.io.mem.HugePages;
+import org.neo4j.io.pagecache.impl.muninn.EvictionPolicy;
 import org.neo4j.kernel.configuration.BoltConnectorValidator;
 import org.neo4j.kernel.configuration.ConfigurationMigrator;
 import org.neo4j.kernel.configuration.GraphDatabaseConfigurationMigrator;
@@ -146,6 +148,23 @@ public class GraphDatabaseSettings implements LoadableConfig
     @Internal
     public static final Setting<String> lock_manager = setting( "unsupported.dbms.lock_manager", STRING, "" );
 
+    @Internal
+    @Description( "Acquire the node and relationship locks needed to link created relationships into, and unlink " +
+            "deleted relationships from, the relationship chains in one batch sorted by id when a transaction " +
+            "commits, rather than one at a time as the records are changed. This avoids deadlocks between " +
+            "transactions that concurrently change relationships around the same nodes. Combine it with deferred " +
+            "locks to also take the node locks of the transaction statements in sorted order at commit." )
+    public static final Setting<Boolean> sorted_relationship_chain_locks =
+            setting( "unsupported.dbms.locks.sorted_relationship_chain_locks", BOOLEAN, FALSE );
+
+    @Internal
+    @Description( "The number of resources that the lock manager keeps wait statistics for, in order to report the " +
+            "most contended resources. Zero disables the tracking of individual resources, and leaves only the " +
+            "lock wait time histograms per resource type." )
+    public static final Setting<Integer> lock_contention_tracked_resources =
+            buildSetting( "unsupported.dbms.locks.contention_tracked_resources", INTEGER, "256" )
+                    .constraint( min( 0 ) ).build();
+
     @Internal
     public static final Setting<String> tracer = setting( "unsupported.dbms.tracer", STRING, NO_DEFAULT );
 
@@ -576,6 +595,16 @@ public class GraphDatabaseSettings implements LoadableConfig
                   "Removing the setting, or commenting it out, will set the default value of 300." )
     public static final Setting<Integer> check_point_iops_limit = setting( "dbms.checkpoint.iops.limit", INTEGER, "300" );
 
+    @Description( "Only flush the store pages that were dirtied before the transaction being check-pointed, rather " +
+                  "than all dirty pages in the page cache. Pages that are written to by later transactions are left " +
+                  "for the background flusher, and the next check-point. This makes each check-point cheaper, and " +
+                  "together with background flushing of the page cache it spreads the checkpoint IO out over time. " +
+                  "Tracking when pages were dirtied doubles the page cache meta-data from 32 to 64 bytes per page, " +
+                  "whether or not this setting is enabled." )
+    @Internal
+    public static final Setting<Boolean> check_point_incremental =
+            setting( "unsupported.dbms.checkpoint.incremental", BOOLEAN, FALSE );
+
     // Auto Indexing
     @Description( "Controls the auto indexing feature for nodes. Setting it to `false` shuts it down, " +
             "while `true` enables it by default for properties listed in the dbms.auto_index.nodes.keys setting." )
@@ -735,6 +764,67 @@ public class GraphDatabaseSettings implements LoadableConfig
     @Internal
     public static final Setting<Boolean> fail_on_corrupted_log_files = setting("unsupported.dbms.tx_log.fail_on_corrupted_log_files", BOOLEAN, TRUE );
 
+    @Description( "Commit transactions through a pipeline, where one thread appends groups of concurrently committing " +
+            "transactions to the transaction log, while another thread applies the previously appended group to the " +
+            "store. This lets the log append and force of one group overlap with the store application of the next." )
+    @Internal
+    public static final Setting<Boolean> pipelined_commit = setting( "unsupported.dbms.tx_log.pipelined_commit", BOOLEAN, FALSE );
+
+    @Description( "The maximum number of concurrently committing transactions that the pipelined commit process will " +
+            "append and apply as one group." )
+    @Internal
+    public static final Setting<Integer> pipelined_commit_max_group_size =
+            buildSetting( "unsupported.dbms.tx_log.pipelined_commit_max_group_size", INTEGER, "256" ).constraint( min( 1 ) ).build();
+
+    @Description( "The maximum number of microseconds that a committing transaction will wait for other transactions " +
+            "to commit, so that their transaction log appends can be forced to disk together. The actual delay adapts " +
+            "to the observed time it takes to force the transaction log, and is only applied when there are other " +
+            "transactions committing concurrently. A value of zero disables waiting." )
+    @Internal
+    public static final Setting<Integer> group_commit_max_delay_micros =
+            buildSetting( "unsupported.dbms.tx_log.group_commit_max_delay_micros", INTEGER, "0" ).constraint( min( 0 ) ).build();
+
+    @Description( "The number of transactions waiting for the transaction log to be forced, at which a committing " +
+            "transaction stops waiting for more transactions to join the force." )
+    @Internal
+    public static final Setting<Integer> group_commit_max_batch_size =
+            buildSetting( "unsupported.dbms.tx_log.group_commit_max_batch_size", INTEGER, "64" ).constraint( min( 1 ) ).build();
+
+    @Description( "Let committing transactions return as soon as they have been appended to the transaction log, and " +
+            "force the transaction log to disk in the background at this interval instead. Transactions that committed " +
+            "within the last interval before the machine crashes may be lost, but the store is kept consistent with " +
+            "the transaction log. A value of zero makes every commit wait for the transaction log to be forced." )
+    @Internal
+    public static final Setting<Duration> tx_log_async_force_interval =
+            setting( "unsupported.dbms.tx_log.async_force_interval", DURATION, "0ms" );
+
+    @Description( "Write the commands of large transactions to the transaction log in compressed form. Logs written " +
+            "with compression enabled can not be read by versions of Neo4j that do not support it." )
+    @Internal
+    public static final Setting<Boolean> tx_log_compression =
+            setting( "unsupported.dbms.tx_log.compression_enabled", BOOLEAN, FALSE );
+
+    @Description( "Prepare a zero-filled transaction log file of the rotation size ahead of time, so that log " +
+            "rotation can switch to a file whose blocks are already allocated, rather than growing a new file by " +
+            "appending. Pruned log files are recycled into such spare files, instead of being deleted." )
+    @Internal
+    public static final Setting<Boolean> tx_log_preallocation =
+            setting( "unsupported.dbms.tx_log.preallocate", BOOLEAN, FALSE );
+
+    @Description( "Keep a sparse index from transaction id to log offset for every transaction log file, so that " +
+            "reading transactions from an old log file, for instance when catching up a lagging instance, can seek " +
+            "close to the requested transaction instead of scanning the log file from its start." )
+    @Internal
+    public static final Setting<Boolean> tx_log_offset_index =
+            setting( "unsupported.dbms.tx_log.offset_index", BOOLEAN, FALSE );
+
+    @Description( "The number of threads that write the records of recovered transactions to the store. With more than " +
+            "one thread, recovered transactions are applied in batches, and the node, relationship, property and " +
+            "relationship group records of transactions that touch disjoint records and entities are written concurrently." )
+    @Internal
+    public static final Setting<Integer> recovery_parallelism =
+            buildSetting( "unsupported.dbms.recovery.parallelism", INTEGER, "1" ).constraint( min( 1 ) ).build();
+
     @Description( "Use a quick approach for rebuilding the ID generators. This give quicker recovery time, " +
             "but will limit the ability to reuse the space of deleted entities." )
     @Internal
@@ -766,15 +856,61 @@ public class GraphDatabaseSettings implements LoadableConfig
                   "then it is generally recommended to leave about 2-4 gigabytes for the operating system, give the " +
                   "JVM enough heap to hold all your transaction state and query context, and then leave the rest for " +
                   "the page cache. If no page cache memory is configured, then a heuristic setting is computed based " +
-                  "on available system resources." )
+                  "on available system resources. Each 8 KiB page in the cache also uses 64 bytes of this memory " +
+                  "for its meta-data, or about 0.8% of the total." )
     public static final Setting<String> pagecache_memory =
             buildSetting( "dbms.memory.pagecache.size", STRING, null ).build();
 
-    @Description( "Specify which page swapper to use for doing paged IO. " +
-                  "This is only used when integrating with proprietary storage technology." )
+    @Description( "Specify which page swapper to use for doing paged IO. Set to `direct` to read and write store files " +
+                  "with direct IO, bypassing the operating system page cache. Direct IO is only used for files on file systems that " +
+                  "support it, and whose page size is a multiple of the file system block size. This excludes the node, relationship " +
+                  "and property stores, whose pages hold a whole number of records, so those are still read and written through the " +
+                  "operating system page cache. Every file that does not use direct IO is logged with the reason. " +
+                  "Other values are only used when integrating with proprietary storage technology." )
     public static final Setting<String> pagecache_swapper =
             setting( "dbms.memory.pagecache.swapper", STRING, null );
 
+    @Internal
+    @Description( "Specify which page replacement policy the page cache uses to pick the pages to evict. The 'CLOCK' policy " +
+                  "is cheap and works well for most workloads. The 'SCAN_RESISTANT' policy protects the frequently used " +
+                  "pages from being flushed out of the cache by large scans, such as full store scans and consistency " +
+                  "checks, at the cost of a little more bookkeeping during eviction." )
+    public static final Setting<EvictionPolicy> pagecache_eviction_policy = setting(
+            "unsupported.dbms.memory.pagecache.eviction_policy", optionsIgnoreCase( EvictionPolicy.class ), EvictionPolicy.CLOCK.name() );
+
+    @Internal
+    @Description( "The percentage of the page cache pages that are allowed to be dirty, before a background thread starts " +
+                  "writing them out. This keeps the amount of work left for checkpoints small, and spreads the IO out over " +
+                  "time. The background flushing shares the IO limit of the checkpoints, `dbms.checkpoint.iops.limit`. " +
+                  "Background flushing is experimental, and is disabled by default, or when this is set to 0." )
+    public static final Setting<Integer> pagecache_background_flush_dirty_percentage =
+            buildSetting( "unsupported.dbms.memory.pagecache.background_flush.dirty_percentage", INTEGER, "0" )
+                    .constraint( range( 0, 100 ) ).build();
+
+    @Internal
+    @Description( "The amount of heap memory to use for keeping compressed copies of pages that are evicted from the page " +
+                  "cache, so they can be faulted back in without reading from the store files. This helps read-heavy " +
+                  "workloads on stores that are larger than the page cache, at the cost of the CPU time spent compressing " +
+                  "and decompressing the pages. Set to 0 to disable the compressed page tier." )
+    public static final Setting<Long> pagecache_compressed_tier_size =
+            buildSetting( "unsupported.dbms.memory.pagecache.compressed_tier_size", BYTES, "0" ).constraint( range( 0L, Long.MAX_VALUE ) ).build();
+
+    @Internal
+    @Description( "Back the page cache memory with huge pages, to reduce the TLB misses of random access to a large page " +
+                  "cache. 'OFF' allocates ordinary memory. 'TRANSPARENT' aligns the page cache memory so the kernel can use " +
+                  "transparent huge pages, which requires transparent huge pages to be enabled for all memory. 'HUGETLBFS' " +
+                  "maps the memory from the hugetlbfs mount given by `unsupported.dbms.memory.pagecache.huge_pages.directory`, " +
+                  "which requires enough huge pages to have been reserved for the page cache. On multi-socket machines, " +
+                  "start the database with `numactl --interleave=all` to spread the page cache memory evenly across NUMA nodes." )
+    public static final Setting<HugePages> pagecache_huge_pages = setting(
+            "unsupported.dbms.memory.pagecache.huge_pages", optionsIgnoreCase( HugePages.class ), HugePages.OFF.name() );
+
+    @Internal
+    @Description( "The hugetlbfs mount point to map page cache memory from, when `unsupported.dbms.memory.pagecache.huge_pages` " +
+                  "is set to 'HUGETLBFS'." )
+    public static final Setting<File> pagecache_huge_pages_directory =
+            setting( "unsupported.dbms.memory.pagecache.huge_pages.directory", PATH, "/dev/hugepages" );
+
     @Internal
     @Description( "The profiling frequency for the page cache. Accurate profiles allow the page cache to do active " +
                   "warmup after a restart, reducing the mean time to performance. " +
@@ -1098,7 +1234,9 @@ public class GraphDatabaseSettings implements LoadableConfig
         OFF_HEAP
     }
 
-    @Description( "Defines whether memory for transaction state should be allocated on- or off-heap." )
+    @Description( "Defines whether memory for transaction state should be allocated on- or off-heap. Off-heap allocation covers the " +
+            "changes of nodes, relationships and index updates, and the property values in them. Only the state of entities with many " +
+            "changes, and sorted views of index updates that queries ask for, are kept on-heap." )
     public static final Setting<TransactionStateMemoryAllocation> tx_state_memory_allocation = buildSetting(
             "dbms.tx_state.memory_allocation",
             optionsIgnoreCase( TransactionStateMemoryAllocation.class ),
@@ -1111,6 +1249,20 @@ public class GraphDatabaseSettings implements LoadableConfig
             .constraint( min( 0L ) )
             .build();
 
+    @Description( "The maximum amount of off-heap memory that a single transaction can use to store its transaction state. A transaction " +
+            "that needs more spills the rest of its off-heap transaction state to a temporary file in the data directory instead of failing. " +
+            "Zero means 'unlimited'. Used when dbms.tx_state.memory_allocation is set to 'OFF_HEAP'." )
+    public static final Setting<Long> tx_state_max_off_heap_memory_per_transaction = buildSetting(
+            "dbms.tx_state.max_off_heap_memory_per_transaction", BYTES, "0" )
+            .constraint( min( 0L ) )
+            .build();
+
+    @Internal
+    @Description( "Directory for the temporary files that transaction state is spilled to when a transaction uses more than " +
+            "dbms.tx_state.max_off_heap_memory_per_transaction." )
+    public static final Setting<File> tx_state_spill_directory = derivedSetting( "unsupported.dbms.directories.tx_state_spill",
+            data_directory, data -> new File( data, "tx-state" ), PATH );
+
     @Description( "Defines the maximum size of an off-heap memory block that can be cached to speed up allocations for transaction state data. " +
             "The value must be a power of 2." )
     public static final Setting<Long> tx_state_off_heap_max_cacheable_block_size = buildSetting(
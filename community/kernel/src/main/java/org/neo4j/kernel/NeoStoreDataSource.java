@@ -97,7 +97,9 @@ import org.neo4j.kernel.impl.storemigration.monitoring.VisibleMigrationProgressM
 import org.neo4j.kernel.impl.storemigration.participant.StoreMigrator;
 import org.neo4j.kernel.impl.transaction.TransactionHeaderInformationFactory;
 import org.neo4j.kernel.impl.transaction.TransactionMonitor;
+import org.neo4j.kernel.impl.transaction.log.AsyncLogForcer;
 import org.neo4j.kernel.impl.transaction.log.BatchingTransactionAppender;
+import org.neo4j.kernel.impl.transaction.log.GroupCommitPolicy;
 import org.neo4j.kernel.impl.transaction.log.LogVersionRepository;
 import org.neo4j.kernel.impl.transaction.log.LogVersionUpgradeChecker;
 import org.neo4j.kernel.impl.transaction.log.LoggingLogFileMonitor;
@@ -544,9 +546,19 @@ public class NeoStoreDataSource extends LifecycleAdapter
         final LogRotation logRotation =
                 new LogRotationImpl( monitors.newMonitor( LogRotation.Monitor.class ), logFiles, databaseHealth );
 
-        final TransactionAppender appender = life.add( new BatchingTransactionAppender(
+        GroupCommitPolicy groupCommitPolicy = new GroupCommitPolicy(
+                TimeUnit.MICROSECONDS.toNanos( config.get( GraphDatabaseSettings.group_commit_max_delay_micros ) ),
+                config.get( GraphDatabaseSettings.group_commit_max_batch_size ) );
+        long asyncForceIntervalMillis = config.get( GraphDatabaseSettings.tx_log_async_force_interval ).toMillis();
+        final BatchingTransactionAppender appender = life.add( new BatchingTransactionAppender(
                 logFiles, logRotation, transactionMetadataCache, transactionIdStore, explicitIndexTransactionOrdering,
-                databaseHealth ) );
+                databaseHealth, groupCommitPolicy, asyncForceIntervalMillis > 0,
+                config.get( GraphDatabaseSettings.tx_log_compression ), logFiles.getTransactionOffsetIndex(),
+                monitors.newMonitor( BatchingTransactionAppender.Monitor.class ) ) );
+        if ( asyncForceIntervalMillis > 0 )
+        {
+            life.add( new AsyncLogForcer( appender, pageCache, scheduler, asyncForceIntervalMillis ) );
+        }
         final LogicalTransactionStore logicalTransactionStore =
                 new PhysicalLogicalTransactionStore( logFiles, transactionMetadataCache, logEntryReader, monitors,
                         failOnCorruptedLogFiles );
@@ -560,6 +572,8 @@ public class NeoStoreDataSource extends LifecycleAdapter
         long recurringPeriod = threshold.checkFrequencyMillis();
         CheckPointScheduler checkPointScheduler = new CheckPointScheduler( checkPointer, ioLimiter, scheduler,
                 recurringPeriod, databaseHealth );
+        // Background flushing of dirty pages shares the IO budget of the check pointer.
+        pageCache.setBackgroundFlushLimiter( ioLimiter );
 
         life.add( checkPointer );
         life.add( checkPointScheduler );
@@ -579,8 +593,11 @@ public class NeoStoreDataSource extends LifecycleAdapter
             LogicalTransactionStore logicalTransactionStore,
             LogVersionRepository logVersionRepository )
     {
+        // Parallel recovery needs more than one transaction at a time to work on
+        int recoveryBatchSize = config.get( GraphDatabaseSettings.recovery_parallelism ) > 1
+                                ? DefaultRecoveryService.PARALLEL_RECOVERY_BATCH_SIZE : 1;
         RecoveryService recoveryService = new DefaultRecoveryService( storageEngine, tailScanner, transactionIdStore,
-                logicalTransactionStore, logVersionRepository, positionMonitor );
+                logicalTransactionStore, logVersionRepository, positionMonitor, recoveryBatchSize );
         CorruptedLogsTruncator logsTruncator = new CorruptedLogsTruncator( databaseLayout.databaseDirectory(), logFiles, fileSystemAbstraction );
         ProgressReporter progressReporter = new LogProgressReporter( logService.getInternalLog( Recovery.class ) );
         Lifecycle schemaLife = storageEngine.schemaAndTokensLifecycle();
@@ -598,6 +615,10 @@ public class NeoStoreDataSource extends LifecycleAdapter
 
         TransactionCommitProcess transactionCommitProcess = commitProcessFactory.create( appender, storageEngine,
                 config );
+        if ( transactionCommitProcess instanceof Lifecycle )
+        {
+            life.add( (Lifecycle) transactionCommitProcess );
+        }
 
         /*
          * This is used by explicit indexes and constraint indexes whenever a transaction is to be spawned
@@ -145,6 +145,11 @@ public interface KernelTransactionHandle
      */
     Stream<? extends ActiveLock> activeLocks();
 
+    /**
+     * @return the lock requests this transaction is waiting for, because other transactions hold the locks.
+     */
+    Stream<? extends ActiveLock> waitingLocks();
+
     /**
      * Provide underlying transaction execution statistics. For example: elapsed time, allocated bytes etc
      * @return transaction statistics projection
@@ -19,6 +19,7 @@
  */
 package org.neo4j.kernel.builtinprocs;
 
+import java.io.IOException;
 import java.util.Comparator;
 import java.util.HashSet;
 import java.util.Set;
@@ -28,6 +29,7 @@ import java.util.stream.Stream;
 import org.neo4j.internal.kernel.api.procs.ProcedureSignature;
 import org.neo4j.internal.kernel.api.procs.UserFunctionSignature;
 import org.neo4j.internal.kernel.api.security.SecurityContext;
+import org.neo4j.io.pagecache.PageCache;
 import org.neo4j.kernel.configuration.Config;
 import org.neo4j.kernel.impl.proc.Procedures;
 import org.neo4j.kernel.impl.query.QueryExecutionEngine;
@@ -123,6 +125,17 @@ public class BuiltInDbmsProcedures
         return Stream.of( new StringResult( result ) );
     }
 
+    @Admin
+    @Description( "List the page cache statistics of all files that are currently mapped by the page cache." )
+    @Procedure( name = "dbms.listPageCacheFiles", mode = DBMS )
+    public Stream<PagedFileResult> listPageCacheFiles() throws IOException
+    {
+        PageCache pageCache = graph.getDependencyResolver().resolveDependency( PageCache.class );
+        return pageCache.listExistingMappings().stream()
+                .map( PagedFileResult::new )
+                .sorted( Comparator.comparing( r -> r.file ) );
+    }
+
     public static class FunctionResult
     {
         public final String name;
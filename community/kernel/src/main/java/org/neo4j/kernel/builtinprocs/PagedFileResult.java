@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2002-2020 "Neo4j,"
+ * Neo4j Sweden AB [http://neo4j.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.builtinprocs;
+
+import org.neo4j.io.pagecache.PagedFile;
+import org.neo4j.io.pagecache.monitoring.PagedFileCounters;
+
+public class PagedFileResult
+{
+    public final String file;
+    public final long pageSize;
+    public final long pins;
+    public final long hits;
+    public final long faults;
+    public final double hitRatio;
+    public final long bytesRead;
+    public final long bytesWritten;
+    public final long flushes;
+    public final long evictions;
+
+    PagedFileResult( PagedFile pagedFile )
+    {
+        PagedFileCounters counters = pagedFile.counters();
+        this.file = pagedFile.file().getAbsolutePath();
+        this.pageSize = pagedFile.pageSize();
+        this.pins = counters.pins();
+        this.hits = counters.hits();
+        this.faults = counters.faults();
+        this.hitRatio = counters.hitRatio();
+        this.bytesRead = counters.bytesRead();
+        this.bytesWritten = counters.bytesWritten();
+        this.flushes = counters.flushes();
+        this.evictions = counters.evictions();
+    }
+}
@@ -0,0 +1,233 @@
+/*
+ * Copyright (c) 2002-2020 "Neo4j,"
+ * Neo4j Sweden AB [http://neo4j.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.api;
+
+import org.neo4j.kernel.impl.transaction.tracing.CommitEvent;
+import org.neo4j.kernel.impl.transaction.tracing.CreateCommandsEvent;
+import org.neo4j.kernel.impl.transaction.tracing.LockAcquisitionEvent;
+import org.neo4j.kernel.impl.transaction.tracing.LogAppendEvent;
+import org.neo4j.kernel.impl.transaction.tracing.LogForceEvent;
+import org.neo4j.kernel.impl.transaction.tracing.LogForceWaitEvent;
+import org.neo4j.kernel.impl.transaction.tracing.LogRotateEvent;
+import org.neo4j.kernel.impl.transaction.tracing.SerializeTransactionEvent;
+import org.neo4j.kernel.impl.transaction.tracing.StoreApplyEvent;
+import org.neo4j.kernel.impl.transaction.tracing.TransactionEvent;
+import org.neo4j.scheduler.JobScheduler;
+import org.neo4j.time.SystemNanoClock;
+
+/**
+ * A {@link DefaultTransactionTracer} that also times every phase of committing a transaction, and reports the time
+ * spent in each phase to its {@link Monitor}.
+ * <p>
+ * The phases nest as the corresponding trace events do, so that for instance the time spent in
+ * {@link CommitPhase#SERIALIZATION} and {@link CommitPhase#LOG_FORCE_WAIT} is part of the time spent in
+ * {@link CommitPhase#LOG_APPEND}, and all phases are part of {@link CommitPhase#COMMIT}. Transactions that commit
+ * without creating any commands, like read-only transactions, are not reported.
+ */
+public class CommitLatencyTracer extends DefaultTransactionTracer
+{
+    public enum CommitPhase
+    {
+        /** The whole commit, from the start of the commit until the transaction has been applied. */
+        COMMIT,
+        /** Acquiring the locks that were deferred until commit. */
+        LOCK_ACQUISITION,
+        /** Converting the transaction state into commands. */
+        CREATE_COMMANDS,
+        /** Appending the transaction to the transaction log, including waiting for it to be forced. */
+        LOG_APPEND,
+        /** Serializing the commands of the transaction, for writing to the transaction log. */
+        SERIALIZATION,
+        /** Waiting for the transaction log to be forced. */
+        LOG_FORCE_WAIT,
+        /** Applying the transaction to the stores and indexes. */
+        STORE_APPLY,
+        /** Applying the index updates of a batch of transactions to the schema indexes. */
+        INDEX_APPLY
+    }
+
+    public interface Monitor
+    {
+        Monitor NO_MONITOR = ( phase, elapsedNanos ) ->
+        {
+        };
+
+        /**
+         * Called when a phase of committing a transaction has completed.
+         *
+         * @param phase the completed phase.
+         * @param elapsedNanos the time spent in the phase.
+         */
+        void commitPhaseCompleted( CommitPhase phase, long elapsedNanos );
+    }
+
+    private final SystemNanoClock clock;
+    private final Monitor commitMonitor;
+
+    private final TransactionEvent transactionEvent = new TransactionEvent()
+    {
+        @Override
+        public void setSuccess( boolean success )
+        {
+        }
+
+        @Override
+        public void setFailure( boolean failure )
+        {
+        }
+
+        @Override
+        public CommitEvent beginCommitEvent()
+        {
+            return new LatencyCommitEvent();
+        }
+
+        @Override
+        public void close()
+        {
+        }
+
+        @Override
+        public void setTransactionWriteState( String transactionWriteState )
+        {
+        }
+
+        @Override
+        public void setReadOnly( boolean wasReadOnly )
+        {
+        }
+    };
+
+    public CommitLatencyTracer( SystemNanoClock clock, DefaultTransactionTracer.Monitor monitor,
+            JobScheduler jobScheduler, Monitor commitMonitor )
+    {
+        super( clock, monitor, jobScheduler );
+        this.clock = clock;
+        this.commitMonitor = commitMonitor;
+    }
+
+    @Override
+    public TransactionEvent beginTransaction()
+    {
+        return transactionEvent;
+    }
+
+    private class PhaseEvent implements LockAcquisitionEvent, CreateCommandsEvent, SerializeTransactionEvent,
+            LogForceWaitEvent, StoreApplyEvent
+    {
+        private final CommitPhase phase;
+        private final long startNanos;
+
+        PhaseEvent( CommitPhase phase )
+        {
+            this.phase = phase;
+            this.startNanos = clock.nanos();
+        }
+
+        @Override
+        public void close()
+        {
+            commitMonitor.commitPhaseCompleted( phase, clock.nanos() - startNanos );
+        }
+    }
+
+    private class LatencyCommitEvent extends PhaseEvent implements CommitEvent
+    {
+        // The log append and store apply events may be opened by other threads than the committing one, as the
+        // pipelined commit process does, so whether this commit is reported must not depend on them.
+        private boolean hasCommands;
+
+        LatencyCommitEvent()
+        {
+            super( CommitPhase.COMMIT );
+        }
+
+        @Override
+        public void close()
+        {
+            if ( hasCommands )
+            {
+                super.close();
+            }
+        }
+
+        @Override
+        public LockAcquisitionEvent beginLockAcquisition()
+        {
+            return new PhaseEvent( CommitPhase.LOCK_ACQUISITION );
+        }
+
+        @Override
+        public CreateCommandsEvent beginCreateCommands()
+        {
+            hasCommands = true;
+            return new PhaseEvent( CommitPhase.CREATE_COMMANDS );
+        }
+
+        @Override
+        public LogAppendEvent beginLogAppend()
+        {
+            return new LatencyLogAppendEvent();
+        }
+
+        @Override
+        public StoreApplyEvent beginStoreApply()
+        {
+            return new PhaseEvent( CommitPhase.STORE_APPLY );
+        }
+    }
+
+    private class LatencyLogAppendEvent extends PhaseEvent implements LogAppendEvent
+    {
+        LatencyLogAppendEvent()
+        {
+            super( CommitPhase.LOG_APPEND );
+        }
+
+        @Override
+        public void setLogRotated( boolean logRotated )
+        {
+        }
+
+        @Override
+        public LogRotateEvent beginLogRotate()
+        {
+            return startLogRotation();
+        }
+
+        @Override
+        public SerializeTransactionEvent beginSerializeTransaction()
+        {
+            return new PhaseEvent( CommitPhase.SERIALIZATION );
+        }
+
+        @Override
+        public LogForceWaitEvent beginLogForceWait()
+        {
+            return new PhaseEvent( CommitPhase.LOG_FORCE_WAIT );
+        }
+
+        @Override
+        public LogForceEvent beginLogForce()
+        {
+            return LogForceEvent.NULL;
+        }
+    }
+}
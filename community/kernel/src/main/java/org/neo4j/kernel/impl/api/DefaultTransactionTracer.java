@@ -23,6 +23,8 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.neo4j.kernel.impl.transaction.tracing.CommitEvent;
+import org.neo4j.kernel.impl.transaction.tracing.CreateCommandsEvent;
+import org.neo4j.kernel.impl.transaction.tracing.LockAcquisitionEvent;
 import org.neo4j.kernel.impl.transaction.tracing.LogAppendEvent;
 import org.neo4j.kernel.impl.transaction.tracing.LogForceEvent;
 import org.neo4j.kernel.impl.transaction.tracing.LogForceWaitEvent;
@@ -70,8 +72,7 @@ public class DefaultTransactionTracer implements TransactionTracer, LogRotationM
         @Override
         public LogRotateEvent beginLogRotate()
         {
-            startTimeNanos = clock.nanos();
-            return logRotateEvent;
+            return startLogRotation();
         }
 
         @Override
@@ -100,6 +101,18 @@ public class DefaultTransactionTracer implements TransactionTracer, LogRotationM
         {
         }
 
+        @Override
+        public LockAcquisitionEvent beginLockAcquisition()
+        {
+            return LockAcquisitionEvent.NULL;
+        }
+
+        @Override
+        public CreateCommandsEvent beginCreateCommands()
+        {
+            return CreateCommandsEvent.NULL;
+        }
+
         @Override
         public LogAppendEvent beginLogAppend()
         {
@@ -178,6 +191,15 @@ public class DefaultTransactionTracer implements TransactionTracer, LogRotationM
         return TimeUnit.NANOSECONDS.toMillis( accumulatedTotalTimeNanos.get() );
     }
 
+    /**
+     * Begin a log rotation, which is counted and timed as a {@link LogRotationMonitor log rotation event}.
+     */
+    protected LogRotateEvent startLogRotation()
+    {
+        startTimeNanos = clock.nanos();
+        return logRotateEvent;
+    }
+
     private void updateCountersAndNotifyListeners()
     {
         counter.incrementAndGet();
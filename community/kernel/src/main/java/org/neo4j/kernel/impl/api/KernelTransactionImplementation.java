@@ -92,6 +92,8 @@ import org.neo4j.kernel.impl.transaction.TransactionHeaderInformationFactory;
 import org.neo4j.kernel.impl.transaction.TransactionMonitor;
 import org.neo4j.kernel.impl.transaction.log.PhysicalTransactionRepresentation;
 import org.neo4j.kernel.impl.transaction.tracing.CommitEvent;
+import org.neo4j.kernel.impl.transaction.tracing.CreateCommandsEvent;
+import org.neo4j.kernel.impl.transaction.tracing.LockAcquisitionEvent;
 import org.neo4j.kernel.impl.transaction.tracing.TransactionEvent;
 import org.neo4j.kernel.impl.transaction.tracing.TransactionTracer;
 import org.neo4j.kernel.impl.util.Dependencies;
@@ -678,21 +680,27 @@ public class KernelTransactionImplementation implements KernelTransaction, TxSta
             if ( hasChanges() )
             {
                 // grab all optimistic locks now, locks can't be deferred any further
-                statementLocks.prepareForCommit( currentStatement.lockTracer() );
+                try ( LockAcquisitionEvent lockAcquisitionEvent = commitEvent.beginLockAcquisition() )
+                {
+                    statementLocks.prepareForCommit( currentStatement.lockTracer() );
+                }
                 // use pessimistic locks for the rest of the commit process, locks can't be deferred any further
                 Locks.Client commitLocks = statementLocks.pessimistic();
 
                 // Gather up commands from the various sources
                 Collection<StorageCommand> extractedCommands = new ArrayList<>();
-                storageEngine.createCommands(
-                        extractedCommands,
-                        txState, storageReader,
-                        commitLocks,
-                        lastTransactionIdWhenStarted,
-                        this::enforceConstraints );
-                if ( hasAuxTxStateChanges() )
+                try ( CreateCommandsEvent createCommandsEvent = commitEvent.beginCreateCommands() )
                 {
-                    auxTxStateHolder.extractCommands( extractedCommands );
+                    storageEngine.createCommands(
+                            extractedCommands,
+                            txState, storageReader,
+                            commitLocks,
+                            lastTransactionIdWhenStarted,
+                            this::enforceConstraints );
+                    if ( hasAuxTxStateChanges() )
+                    {
+                        auxTxStateHolder.extractCommands( extractedCommands );
+                    }
                 }
 
                 /* Here's the deal: we track a quick-to-access hasChanges in transaction state which is true
@@ -1094,6 +1102,18 @@ public class KernelTransactionImplementation implements KernelTransaction, TxSta
         return locks == null ? Stream.empty() : locks.activeLocks();
     }
 
+    /**
+     * This method will be invoked by concurrent threads for inspecting the locks this transaction is waiting for,
+     * in the same way as {@link #activeLocks()}.
+     *
+     * @return the locks this transaction is waiting for.
+     */
+    public Stream<? extends ActiveLock> waitingLocks()
+    {
+        StatementLocks locks = this.statementLocks;
+        return locks == null ? Stream.empty() : locks.waitingLocks();
+    }
+
     long userTransactionId()
     {
         return userTransactionId;
@@ -162,6 +162,12 @@ class KernelTransactionImplementationHandle implements KernelTransactionHandle
         return tx.activeLocks();
     }
 
+    @Override
+    public Stream<? extends ActiveLock> waitingLocks()
+    {
+        return tx.waitingLocks();
+    }
+
     @Override
     public TransactionExecutionStatistic transactionStatistic()
     {
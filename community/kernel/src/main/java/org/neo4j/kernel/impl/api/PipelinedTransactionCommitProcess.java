@@ -0,0 +1,338 @@
+/*
+ * Copyright (c) 2002-2020 "Neo4j,"
+ * Neo4j Sweden AB [http://neo4j.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.api;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import org.neo4j.internal.kernel.api.exceptions.TransactionFailureException;
+import org.neo4j.kernel.impl.transaction.log.TransactionAppender;
+import org.neo4j.kernel.impl.transaction.tracing.CommitEvent;
+import org.neo4j.kernel.impl.transaction.tracing.LogAppendEvent;
+import org.neo4j.kernel.impl.transaction.tracing.StoreApplyEvent;
+import org.neo4j.kernel.lifecycle.LifecycleAdapter;
+import org.neo4j.scheduler.Group;
+import org.neo4j.scheduler.JobHandle;
+import org.neo4j.scheduler.JobScheduler;
+import org.neo4j.storageengine.api.StorageEngine;
+import org.neo4j.storageengine.api.TransactionApplicationMode;
+import org.neo4j.util.concurrent.BinaryLatch;
+
+import static org.neo4j.kernel.api.exceptions.Status.Transaction.TransactionCommitFailed;
+import static org.neo4j.kernel.api.exceptions.Status.Transaction.TransactionLogError;
+
+/**
+ * Commits transactions in a pipeline of two stages, each running as its own job in the
+ * {@link Group#TRANSACTION_COMMIT_PIPELINE transaction commit pipeline} group of the {@link JobScheduler}. Every
+ * committing thread first {@link TransactionAppender#serialize(TransactionToApply, LogAppendEvent) serializes} its
+ * own transactions, so that the append stage only has to write them. The append stage collects the serialized
+ * transactions of all concurrently committing threads into a group, and appends and forces the whole group to the
+ * transaction log in one go. The group is then handed over to the apply stage, which applies it to the store, while
+ * the append stage goes on to write the next group. Committing threads wait for their group to come out of the apply
+ * stage, just like they would have waited for their own append and apply with the
+ * {@link TransactionRepresentationCommitProcess}.
+ * <p>
+ * The log append and store apply of a group are traced through the {@link CommitEvent} of every commit in the group,
+ * while log forces and rotations are only traced through that of the first commit in the group. Only {@link TransactionApplicationMode#INTERNAL internal} commits go through the pipeline; any other
+ * commits, and commits that happen while the pipeline is not running, are committed directly by the calling thread.
+ */
+public class PipelinedTransactionCommitProcess extends LifecycleAdapter implements TransactionCommitProcess
+{
+    private static final Commit STOP = new Commit( null, null, null );
+    private static final List<Commit> STOP_GROUP = Collections.singletonList( STOP );
+
+    private final TransactionAppender appender;
+    private final StorageEngine storageEngine;
+    private final JobScheduler scheduler;
+    private final TransactionCommitProcess directCommitProcess;
+    private final int maxGroupSize;
+    private final BlockingQueue<Commit> appendQueue = new LinkedBlockingQueue<>();
+    // Bounded, so that the append stage can only get a single group ahead of the apply stage.
+    private final BlockingQueue<List<Commit>> applyQueue = new ArrayBlockingQueue<>( 1 );
+    private final AtomicInteger activeCommitters = new AtomicInteger();
+
+    private volatile boolean running;
+    private JobHandle appendJob;
+    private JobHandle applyJob;
+
+    public PipelinedTransactionCommitProcess( TransactionAppender appender, StorageEngine storageEngine, JobScheduler scheduler,
+            int maxGroupSize )
+    {
+        if ( maxGroupSize < 1 )
+        {
+            throw new IllegalArgumentException( "The maximum group size must be positive, but was " + maxGroupSize );
+        }
+        this.appender = appender;
+        this.storageEngine = storageEngine;
+        this.scheduler = scheduler;
+        this.directCommitProcess = new TransactionRepresentationCommitProcess( appender, storageEngine );
+        this.maxGroupSize = maxGroupSize;
+    }
+
+    @Override
+    public void start()
+    {
+        appendJob = scheduler.schedule( Group.TRANSACTION_COMMIT_PIPELINE, this::appendGroups );
+        applyJob = scheduler.schedule( Group.TRANSACTION_COMMIT_PIPELINE, this::applyGroups );
+        running = true;
+    }
+
+    @Override
+    public void stop() throws InterruptedException, ExecutionException
+    {
+        running = false;
+        // Let the commits that are already in the pipeline finish, before we shut it down.
+        while ( activeCommitters.get() > 0 )
+        {
+            LockSupport.parkNanos( TimeUnit.MILLISECONDS.toNanos( 1 ) );
+        }
+        appendQueue.add( STOP );
+        appendJob.waitTermination();
+        applyJob.waitTermination();
+    }
+
+    @Override
+    public long commit( TransactionToApply batch, CommitEvent commitEvent, TransactionApplicationMode mode )
+            throws TransactionFailureException
+    {
+        if ( mode != TransactionApplicationMode.INTERNAL )
+        {
+            return directCommitProcess.commit( batch, commitEvent, mode );
+        }
+
+        activeCommitters.incrementAndGet();
+        try
+        {
+            if ( !running )
+            {
+                return directCommitProcess.commit( batch, commitEvent, mode );
+            }
+            LogAppendEvent logAppendEvent = commitEvent.beginLogAppend();
+            try
+            {
+                appender.serialize( batch, logAppendEvent );
+            }
+            catch ( Throwable cause )
+            {
+                logAppendEvent.close();
+                throw new TransactionFailureException( TransactionLogError, cause,
+                        "Could not append transaction representation to log" );
+            }
+            Commit commit = new Commit( batch, commitEvent, logAppendEvent );
+            appendQueue.add( commit );
+            commit.done.await();
+            if ( commit.failure != null )
+            {
+                throw commit.failure;
+            }
+            return commit.last.transactionId();
+        }
+        finally
+        {
+            activeCommitters.decrementAndGet();
+        }
+    }
+
+    private void appendGroups()
+    {
+        boolean stopped = false;
+        while ( !stopped )
+        {
+            List<Commit> group = new ArrayList<>();
+            group.add( take( appendQueue ) );
+            appendQueue.drainTo( group, maxGroupSize - 1 );
+            // The stop marker is always the last thing to be queued, so it can only be at the end of the group.
+            if ( group.get( group.size() - 1 ) == STOP )
+            {
+                group.remove( group.size() - 1 );
+                stopped = true;
+            }
+            if ( !group.isEmpty() )
+            {
+                appendGroup( group );
+            }
+        }
+        put( applyQueue, STOP_GROUP );
+    }
+
+    private void appendGroup( List<Commit> group )
+    {
+        link( group );
+        Commit lead = group.get( 0 );
+        try
+        {
+            appender.append( lead.first, lead.logAppendEvent );
+        }
+        catch ( Throwable cause )
+        {
+            unlink( group );
+            complete( group, new TransactionFailureException( TransactionLogError, cause,
+                    "Could not append transaction representation to log" ) );
+            return;
+        }
+        finally
+        {
+            for ( Commit commit : group )
+            {
+                commit.logAppendEvent.close();
+            }
+        }
+        put( applyQueue, group );
+    }
+
+    private void applyGroups()
+    {
+        List<Commit> group;
+        while ( (group = take( applyQueue )) != STOP_GROUP )
+        {
+            applyGroup( group );
+        }
+    }
+
+    private void applyGroup( List<Commit> group )
+    {
+        Commit lead = group.get( 0 );
+        StoreApplyEvent[] storeApplyEvents = new StoreApplyEvent[group.size()];
+        for ( int i = 0; i < storeApplyEvents.length; i++ )
+        {
+            storeApplyEvents[i] = group.get( i ).commitEvent.beginStoreApply();
+        }
+        TransactionFailureException failure = null;
+        try
+        {
+            storageEngine.apply( lead.first, TransactionApplicationMode.INTERNAL );
+        }
+        catch ( Throwable cause )
+        {
+            failure = new TransactionFailureException( TransactionCommitFailed, cause,
+                    "Could not apply the transaction to the store after written to log" );
+        }
+        finally
+        {
+            for ( StoreApplyEvent storeApplyEvent : storeApplyEvents )
+            {
+                storeApplyEvent.close();
+            }
+            close( lead.first );
+            unlink( group );
+        }
+        complete( group, failure );
+    }
+
+    private static void link( List<Commit> group )
+    {
+        for ( int i = 1; i < group.size(); i++ )
+        {
+            group.get( i - 1 ).last.next( group.get( i ).first );
+        }
+    }
+
+    private static void unlink( List<Commit> group )
+    {
+        for ( Commit commit : group )
+        {
+            commit.last.next( null );
+        }
+    }
+
+    private static void complete( List<Commit> group, TransactionFailureException failure )
+    {
+        for ( Commit commit : group )
+        {
+            commit.failure = failure;
+            commit.done.release();
+        }
+    }
+
+    private static void close( TransactionToApply batch )
+    {
+        while ( batch != null )
+        {
+            if ( batch.commitment().markedAsCommitted() )
+            {
+                batch.commitment().publishAsClosed();
+            }
+            batch.close();
+            batch = batch.next();
+        }
+    }
+
+    private static <T> T take( BlockingQueue<T> queue )
+    {
+        while ( true )
+        {
+            try
+            {
+                return queue.take();
+            }
+            catch ( InterruptedException e )
+            {
+                // The pipeline is only shut down by the stop marker, so we keep going.
+            }
+        }
+    }
+
+    private static <T> void put( BlockingQueue<T> queue, T element )
+    {
+        while ( true )
+        {
+            try
+            {
+                queue.put( element );
+                return;
+            }
+            catch ( InterruptedException e )
+            {
+                // The pipeline is only shut down by the stop marker, so we keep going.
+            }
+        }
+    }
+
+    private static final class Commit
+    {
+        private final TransactionToApply first;
+        private final TransactionToApply last;
+        private final CommitEvent commitEvent;
+        private final LogAppendEvent logAppendEvent;
+        private final BinaryLatch done = new BinaryLatch();
+        private volatile TransactionFailureException failure;
+
+        Commit( TransactionToApply batch, CommitEvent commitEvent, LogAppendEvent logAppendEvent )
+        {
+            TransactionToApply last = batch;
+            while ( last != null && last.next() != null )
+            {
+                last = last.next();
+            }
+            this.first = batch;
+            this.last = last;
+            this.commitEvent = commitEvent;
+            this.logAppendEvent = logAppendEvent;
+        }
+    }
+}
@@ -29,6 +29,7 @@ import org.neo4j.io.pagecache.tracing.cursor.context.VersionContext;
 import org.neo4j.kernel.impl.transaction.TransactionRepresentation;
 import org.neo4j.kernel.impl.transaction.log.Commitment;
 import org.neo4j.kernel.impl.transaction.log.LogPosition;
+import org.neo4j.kernel.impl.transaction.log.SerializedTransactions;
 import org.neo4j.kernel.impl.transaction.tracing.CommitEvent;
 import org.neo4j.kernel.impl.util.HexPrinter;
 import org.neo4j.storageengine.api.CommandsToApply;
@@ -76,6 +77,7 @@ public class TransactionToApply implements CommandsToApply, AutoCloseable
     private Commitment commitment;
     private LongConsumer closedCallback;
     private LogPosition logPosition;
+    private SerializedTransactions serializedTransactions;
 
     /**
      * Used when committing a transaction that hasn't already gotten a transaction id assigned.
@@ -153,6 +155,20 @@ public class TransactionToApply implements CommandsToApply, AutoCloseable
         this.logPosition = position;
     }
 
+    /**
+     * @param serializedTransactions the log entries of this transaction and the ones after it in the batch, as the
+     * transaction appender serialized them ahead of appending them, or {@code null} once they have been appended.
+     */
+    public void serializedTransactions( SerializedTransactions serializedTransactions )
+    {
+        this.serializedTransactions = serializedTransactions;
+    }
+
+    public SerializedTransactions serializedTransactions()
+    {
+        return serializedTransactions;
+    }
+
     @Override
     public TransactionToApply next()
     {
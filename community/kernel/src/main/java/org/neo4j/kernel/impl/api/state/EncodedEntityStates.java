@@ -0,0 +1,660 @@
+/*
+ * Copyright (c) 2002-2020 "Neo4j,"
+ * Neo4j Sweden AB [http://neo4j.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.api.state;
+
+import org.eclipse.collections.api.IntIterable;
+import org.eclipse.collections.api.map.primitive.MutableLongLongMap;
+import org.eclipse.collections.api.map.primitive.MutableLongObjectMap;
+import org.eclipse.collections.impl.list.mutable.primitive.IntArrayList;
+import org.eclipse.collections.impl.map.mutable.primitive.LongObjectHashMap;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.LongFunction;
+
+import org.neo4j.helpers.collection.Iterables;
+import org.neo4j.kernel.api.properties.PropertyKeyValue;
+import org.neo4j.kernel.impl.util.collection.CollectionsFactory;
+import org.neo4j.kernel.impl.util.collection.LongArena;
+import org.neo4j.storageengine.api.StorageProperty;
+import org.neo4j.storageengine.api.txstate.PropertyContainerState;
+import org.neo4j.values.storable.Value;
+import org.neo4j.values.storable.Values;
+
+import static java.util.Collections.emptyIterator;
+import static org.neo4j.kernel.impl.util.collection.LongArena.NO_ARRAY;
+
+/**
+ * Keeps the changes of entities in a {@link LongArena} instead of in one state object per entity. Most entities in
+ * a large transaction only see a few changes, and each of those takes two longs in the block of its entity:
+ * <pre>
+ * header: [flags:32][capacity:16][count:16]
+ * fields: entity specific, see {@link #fields}
+ * entry:  [kind:8][aux:8][unused:16][key:32]
+ *         [payload:64]
+ * </pre>
+ * Property values are kept in one values map for all entities, and the payload of a property entry refers to one of
+ * them. An entity that gets more than {@link #MAX_ENTRIES} changes is moved into a state object, which copes better
+ * with many changes. The state of an entity is read through a view, which looks its entity up on every call and so
+ * always sees the current changes.
+ */
+abstract class EncodedEntityStates<S extends PropertyContainerStateImpl>
+{
+    static final int MAX_ENTRIES = 32;
+
+    static final int PROPERTY_ADDED = 1;
+    static final int PROPERTY_CHANGED = 2;
+    static final int PROPERTY_REMOVED = 3;
+    static final int LABEL_ADDED = 4;
+    static final int LABEL_REMOVED = 5;
+    static final int RELATIONSHIP_ADDED = 6;
+    static final int RELATIONSHIP_REMOVED = 7;
+
+    private static final int HEADER = 0;
+    private static final int ENTRY_SIZE = 2;
+    private static final long COUNT_MASK = 0xFFFF;
+    private static final int CAPACITY_SHIFT = 16;
+    private static final long CAPACITY_MASK = 0xFFFF_0000L;
+    // like the lazily created maps of PropertyContainerStateImpl, these stay set once a kind of property change
+    // was made
+    private static final long ADDED_PROPERTIES = 1L << 32;
+    private static final long CHANGED_PROPERTIES = 1L << 33;
+    private static final long REMOVED_PROPERTIES = 1L << 34;
+
+    final LongArena arena;
+    final CollectionsFactory collectionsFactory;
+    private final int fields;
+    private final MutableLongLongMap blocks;
+    private final MutableLongObjectMap<Value> values;
+    private final MutableLongObjectMap<S> promoted = new LongObjectHashMap<>();
+    private long nextValueId;
+
+    /**
+     * @param fields number of longs that every block of this kind of entity keeps in front of its entries
+     */
+    EncodedEntityStates( LongArena arena, CollectionsFactory collectionsFactory, int fields )
+    {
+        this.arena = arena;
+        this.collectionsFactory = collectionsFactory;
+        this.fields = fields;
+        this.blocks = collectionsFactory.newLongLongMap();
+        this.values = collectionsFactory.newValuesMap();
+    }
+
+    /**
+     * @return a new state object to move an entity with many changes into
+     */
+    abstract S newState( long id );
+
+    /**
+     * Writes the initial values of the fields of a new block.
+     */
+    abstract void initFields( long block );
+
+    /**
+     * Copies the fields, and an entry that is not a property change, of a block into the state object of its entity.
+     */
+    abstract void restore( long block, S state );
+
+    abstract void restore( S state, int kind, int aux, int key, long payload );
+
+    /**
+     * Makes sure that the entity has state, which makes it show up in {@link #states(LongFunction)}.
+     *
+     * @return the block of the entity, or {@link LongArena#NO_ARRAY} if the entity has been moved into a state
+     * object
+     */
+    final long getOrCreate( long id )
+    {
+        final long block = block( id );
+        if ( block == NO_ARRAY && !promoted.containsKey( id ) )
+        {
+            return newBlock( id );
+        }
+        return block;
+    }
+
+    void remove( long id )
+    {
+        final long block = block( id );
+        if ( block != NO_ARRAY )
+        {
+            final int count = count( block );
+            for ( int i = 0; i < count; i++ )
+            {
+                removeValue( block, i );
+            }
+            arena.free( block, blockLength( capacity( block ) ) );
+            blocks.remove( id );
+            return;
+        }
+        final S state = promoted.remove( id );
+        if ( state != null )
+        {
+            state.clear();
+        }
+    }
+
+    /**
+     * @param views creates the view of an entity that is kept in a block
+     * @return the state of every entity with changes, in no particular order
+     */
+    final <T> Iterable<T> states( LongFunction<? extends T> views )
+    {
+        return Iterables.concat( Iterables.<T,S>cast( promoted.values() ),
+                Iterables.map( pair -> views.apply( pair.getOne() ), blocks.keyValuesView() ) );
+    }
+
+    final long block( long id )
+    {
+        return blocks.getIfAbsent( id, NO_ARRAY );
+    }
+
+    final S promoted( long id )
+    {
+        return promoted.get( id );
+    }
+
+    /**
+     * @return the block of the entity, with room for one more entry, or {@link LongArena#NO_ARRAY} if the entity
+     * has been moved into a state object, see {@link #promoted(long)}
+     */
+    final long blockForUpdate( long id )
+    {
+        long block = block( id );
+        if ( block == NO_ARRAY )
+        {
+            if ( promoted.containsKey( id ) )
+            {
+                return NO_ARRAY;
+            }
+            block = newBlock( id );
+        }
+        final int capacity = capacity( block );
+        if ( count( block ) < capacity )
+        {
+            return block;
+        }
+        if ( capacity == MAX_ENTRIES )
+        {
+            promote( id, block );
+            return NO_ARRAY;
+        }
+        final int newCapacity = capacity == 0 ? 1 : capacity * 2;
+        final long newBlock = arena.allocate( blockLength( newCapacity ) );
+        arena.copy( block, newBlock, blockLength( capacity ) );
+        final long header = arena.get( block, HEADER ) & ~CAPACITY_MASK;
+        arena.set( newBlock, HEADER, header | ((long) newCapacity << CAPACITY_SHIFT) );
+        arena.free( block, blockLength( capacity ) );
+        blocks.put( id, newBlock );
+        return newBlock;
+    }
+
+    final long field( long block, int field )
+    {
+        return arena.get( block, 1 + field );
+    }
+
+    final void setField( long block, int field, long value )
+    {
+        arena.set( block, 1 + field, value );
+    }
+
+    final int count( long block )
+    {
+        return (int) (arena.get( block, HEADER ) & COUNT_MASK);
+    }
+
+    final long word( long block, int entry )
+    {
+        return arena.get( block, entryOffset( entry ) );
+    }
+
+    final long payload( long block, int entry )
+    {
+        return arena.get( block, entryOffset( entry ) + 1 );
+    }
+
+    static long word( int kind, int aux, int key )
+    {
+        return ((long) kind << 56) | ((long) aux << 48) | (key & 0xFFFF_FFFFL);
+    }
+
+    static int kind( long word )
+    {
+        return (int) (word >>> 56);
+    }
+
+    static int aux( long word )
+    {
+        return (int) ((word >>> 48) & 0xFF);
+    }
+
+    static int key( long word )
+    {
+        return (int) word;
+    }
+
+    /**
+     * @return index of the entry with the given word, or -1 if there is none
+     */
+    final int find( long block, long word )
+    {
+        final int count = count( block );
+        for ( int i = 0; i < count; i++ )
+        {
+            if ( word( block, i ) == word )
+            {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return index of the entry with the given word and payload, or -1 if there is none
+     */
+    final int find( long block, long word, long payload )
+    {
+        final int count = count( block );
+        for ( int i = 0; i < count; i++ )
+        {
+            if ( word( block, i ) == word && payload( block, i ) == payload )
+            {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Only to be called on a block returned by {@link #blockForUpdate(long)}, and only once per update.
+     */
+    final void append( long block, long word, long payload )
+    {
+        final int count = count( block );
+        final int offset = entryOffset( count );
+        arena.set( block, offset, word );
+        arena.set( block, offset + 1, payload );
+        arena.set( block, HEADER, arena.get( block, HEADER ) + 1 );
+    }
+
+    /**
+     * Removes an entry by moving the last entry into its place.
+     */
+    final void removeEntry( long block, int entry )
+    {
+        removeValue( block, entry );
+        final int last = count( block ) - 1;
+        if ( entry != last )
+        {
+            arena.set( block, entryOffset( entry ), word( block, last ) );
+            arena.set( block, entryOffset( entry ) + 1, payload( block, last ) );
+        }
+        arena.set( block, HEADER, arena.get( block, HEADER ) - 1 );
+    }
+
+    final int count( long block, long word )
+    {
+        final int count = count( block );
+        int matches = 0;
+        for ( int i = 0; i < count; i++ )
+        {
+            if ( word( block, i ) == word )
+            {
+                matches++;
+            }
+        }
+        return matches;
+    }
+
+    // The property changes below mirror the ones of PropertyContainerStateImpl
+
+    final void addProperty( long id, int propertyKeyId, Value value )
+    {
+        final long block = blockForUpdate( id );
+        if ( block == NO_ARRAY )
+        {
+            promoted( id ).addProperty( propertyKeyId, value );
+            return;
+        }
+        final int removed = find( block, word( PROPERTY_REMOVED, 0, propertyKeyId ) );
+        if ( removed != -1 )
+        {
+            // This indicates the user did remove+add as two discrete steps, which should be translated to
+            // a single change operation.
+            removeEntry( block, removed );
+            changeBlockProperty( block, propertyKeyId, value );
+            return;
+        }
+        setFlag( block, ADDED_PROPERTIES );
+        putProperty( block, PROPERTY_ADDED, propertyKeyId, value );
+    }
+
+    final void changeProperty( long id, int propertyKeyId, Value value )
+    {
+        final long block = blockForUpdate( id );
+        if ( block == NO_ARRAY )
+        {
+            promoted( id ).changeProperty( propertyKeyId, value );
+            return;
+        }
+        changeBlockProperty( block, propertyKeyId, value );
+    }
+
+    final void removeProperty( long id, int propertyKeyId )
+    {
+        final long block = blockForUpdate( id );
+        if ( block == NO_ARRAY )
+        {
+            promoted( id ).removeProperty( propertyKeyId );
+            return;
+        }
+        final int added = find( block, word( PROPERTY_ADDED, 0, propertyKeyId ) );
+        if ( added != -1 )
+        {
+            removeEntry( block, added );
+            return;
+        }
+        setFlag( block, REMOVED_PROPERTIES );
+        if ( find( block, word( PROPERTY_REMOVED, 0, propertyKeyId ) ) == -1 )
+        {
+            append( block, word( PROPERTY_REMOVED, 0, propertyKeyId ), 0 );
+        }
+        final int changed = find( block, word( PROPERTY_CHANGED, 0, propertyKeyId ) );
+        if ( changed != -1 )
+        {
+            removeEntry( block, changed );
+        }
+    }
+
+    private void changeBlockProperty( long block, int propertyKeyId, Value value )
+    {
+        final int added = find( block, word( PROPERTY_ADDED, 0, propertyKeyId ) );
+        if ( added != -1 )
+        {
+            values.put( payload( block, added ), value );
+            return;
+        }
+        setFlag( block, CHANGED_PROPERTIES );
+        putProperty( block, PROPERTY_CHANGED, propertyKeyId, value );
+        final int removed = find( block, word( PROPERTY_REMOVED, 0, propertyKeyId ) );
+        if ( removed != -1 )
+        {
+            removeEntry( block, removed );
+        }
+    }
+
+    private void putProperty( long block, int kind, int propertyKeyId, Value value )
+    {
+        final int existing = find( block, word( kind, 0, propertyKeyId ) );
+        if ( existing != -1 )
+        {
+            values.put( payload( block, existing ), value );
+            return;
+        }
+        final long valueId = nextValueId++;
+        values.put( valueId, value );
+        append( block, word( kind, 0, propertyKeyId ), valueId );
+    }
+
+    private long newBlock( long id )
+    {
+        final long block = arena.allocate( blockLength( 0 ) );
+        arena.set( block, HEADER, 0 );
+        initFields( block );
+        blocks.put( id, block );
+        return block;
+    }
+
+    private void promote( long id, long block )
+    {
+        final S state = newState( id );
+        restore( block, state );
+        // removals first, as a change or addition of the same element could have come after them
+        final int count = count( block );
+        for ( int pass = 0; pass < 3; pass++ )
+        {
+            for ( int i = 0; i < count; i++ )
+            {
+                final long word = word( block, i );
+                final int kind = kind( word );
+                if ( replayPass( kind ) != pass )
+                {
+                    continue;
+                }
+                switch ( kind )
+                {
+                case PROPERTY_ADDED:
+                    state.addProperty( key( word ), values.remove( payload( block, i ) ) );
+                    break;
+                case PROPERTY_CHANGED:
+                    state.changeProperty( key( word ), values.remove( payload( block, i ) ) );
+                    break;
+                case PROPERTY_REMOVED:
+                    state.removeProperty( key( word ) );
+                    break;
+                default:
+                    restore( state, kind, aux( word ), key( word ), payload( block, i ) );
+                }
+            }
+        }
+        arena.free( block, blockLength( capacity( block ) ) );
+        blocks.remove( id );
+        promoted.put( id, state );
+    }
+
+    private static int replayPass( int kind )
+    {
+        switch ( kind )
+        {
+        case PROPERTY_REMOVED:
+        case LABEL_REMOVED:
+        case RELATIONSHIP_REMOVED:
+            return 0;
+        case PROPERTY_CHANGED:
+            return 1;
+        default:
+            return 2;
+        }
+    }
+
+    private void removeValue( long block, int entry )
+    {
+        final int kind = kind( word( block, entry ) );
+        if ( kind == PROPERTY_ADDED || kind == PROPERTY_CHANGED )
+        {
+            values.remove( payload( block, entry ) );
+        }
+    }
+
+    private void setFlag( long block, long flag )
+    {
+        arena.set( block, HEADER, arena.get( block, HEADER ) | flag );
+    }
+
+    private boolean hasFlag( long block, long flag )
+    {
+        return (arena.get( block, HEADER ) & flag) != 0;
+    }
+
+    private int capacity( long block )
+    {
+        return (int) ((arena.get( block, HEADER ) & CAPACITY_MASK) >>> CAPACITY_SHIFT);
+    }
+
+    private int blockLength( int capacity )
+    {
+        return 1 + fields + capacity * ENTRY_SIZE;
+    }
+
+    private int entryOffset( int entry )
+    {
+        return 1 + fields + entry * ENTRY_SIZE;
+    }
+
+    /**
+     * The changes of one entity. Reads the block of the entity on every call, so it keeps seeing the changes that are
+     * made after it was created.
+     */
+    abstract class EntityView implements MutablePropertyContainerState
+    {
+        final long id;
+
+        EntityView( long id )
+        {
+            this.id = id;
+        }
+
+        /**
+         * @return the state object of an entity that has no block, either because it was moved into one or because
+         * it has no changes
+         */
+        abstract PropertyContainerState delegate();
+
+        public long getId()
+        {
+            return id;
+        }
+
+        @Override
+        public void addProperty( int propertyKeyId, Value value )
+        {
+            EncodedEntityStates.this.addProperty( id, propertyKeyId, value );
+        }
+
+        @Override
+        public void changeProperty( int propertyKeyId, Value value )
+        {
+            EncodedEntityStates.this.changeProperty( id, propertyKeyId, value );
+        }
+
+        @Override
+        public void removeProperty( int propertyKeyId )
+        {
+            EncodedEntityStates.this.removeProperty( id, propertyKeyId );
+        }
+
+        @Override
+        public Iterator<StorageProperty> addedProperties()
+        {
+            final long block = block( id );
+            return block == NO_ARRAY ? delegate().addedProperties()
+                                     : properties( block, PROPERTY_ADDED, PROPERTY_ADDED );
+        }
+
+        @Override
+        public Iterator<StorageProperty> changedProperties()
+        {
+            final long block = block( id );
+            return block == NO_ARRAY ? delegate().changedProperties()
+                                     : properties( block, PROPERTY_CHANGED, PROPERTY_CHANGED );
+        }
+
+        @Override
+        public Iterator<StorageProperty> addedAndChangedProperties()
+        {
+            final long block = block( id );
+            return block == NO_ARRAY ? delegate().addedAndChangedProperties()
+                                     : properties( block, PROPERTY_ADDED, PROPERTY_CHANGED );
+        }
+
+        @Override
+        public IntIterable removedProperties()
+        {
+            final long block = block( id );
+            if ( block == NO_ARRAY )
+            {
+                return delegate().removedProperties();
+            }
+            final IntArrayList removed = new IntArrayList();
+            final int count = count( block );
+            for ( int i = 0; i < count; i++ )
+            {
+                final long word = word( block, i );
+                if ( kind( word ) == PROPERTY_REMOVED )
+                {
+                    removed.add( key( word ) );
+                }
+            }
+            return removed;
+        }
+
+        @Override
+        public boolean hasPropertyChanges()
+        {
+            final long block = block( id );
+            return block == NO_ARRAY ? delegate().hasPropertyChanges()
+                                     : hasFlag( block, ADDED_PROPERTIES | CHANGED_PROPERTIES | REMOVED_PROPERTIES );
+        }
+
+        @Override
+        public boolean isPropertyChangedOrRemoved( int propertyKey )
+        {
+            final long block = block( id );
+            if ( block == NO_ARRAY )
+            {
+                return delegate().isPropertyChangedOrRemoved( propertyKey );
+            }
+            return find( block, word( PROPERTY_REMOVED, 0, propertyKey ) ) != -1 ||
+                   find( block, word( PROPERTY_CHANGED, 0, propertyKey ) ) != -1;
+        }
+
+        @Override
+        public Value propertyValue( int propertyKey )
+        {
+            final long block = block( id );
+            if ( block == NO_ARRAY )
+            {
+                return delegate().propertyValue( propertyKey );
+            }
+            if ( find( block, word( PROPERTY_REMOVED, 0, propertyKey ) ) != -1 )
+            {
+                return Values.NO_VALUE;
+            }
+            int entry = find( block, word( PROPERTY_ADDED, 0, propertyKey ) );
+            if ( entry == -1 )
+            {
+                entry = find( block, word( PROPERTY_CHANGED, 0, propertyKey ) );
+            }
+            return entry == -1 ? null : values.get( payload( block, entry ) );
+        }
+
+        private Iterator<StorageProperty> properties( long block, int kind, int otherKind )
+        {
+            final int count = count( block );
+            List<StorageProperty> properties = null;
+            for ( int i = 0; i < count; i++ )
+            {
+                final long word = word( block, i );
+                if ( kind( word ) == kind || kind( word ) == otherKind )
+                {
+                    if ( properties == null )
+                    {
+                        properties = new ArrayList<>();
+                    }
+                    properties.add( new PropertyKeyValue( key( word ), values.get( payload( block, i ) ) ) );
+                }
+            }
+            return properties == null ? emptyIterator() : properties.iterator();
+        }
+    }
+}
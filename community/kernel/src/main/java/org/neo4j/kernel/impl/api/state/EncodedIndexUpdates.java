@@ -0,0 +1,487 @@
+/*
+ * Copyright (c) 2002-2020 "Neo4j,"
+ * Neo4j Sweden AB [http://neo4j.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.api.state;
+
+import org.eclipse.collections.api.iterator.LongIterator;
+import org.eclipse.collections.api.map.primitive.MutableLongLongMap;
+import org.eclipse.collections.api.map.primitive.MutableLongObjectMap;
+import org.eclipse.collections.api.set.primitive.LongSet;
+import org.eclipse.collections.api.set.primitive.MutableLongSet;
+import org.eclipse.collections.impl.UnmodifiableMap;
+import org.eclipse.collections.impl.factory.primitive.LongSets;
+import org.eclipse.collections.impl.map.mutable.primitive.LongObjectHashMap;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.neo4j.collection.PrimitiveLongResourceIterator;
+import org.neo4j.internal.kernel.api.schema.SchemaDescriptor;
+import org.neo4j.kernel.impl.util.collection.CollectionsFactory;
+import org.neo4j.kernel.impl.util.collection.LongArena;
+import org.neo4j.kernel.impl.util.diffsets.MutableLongDiffSetsImpl;
+import org.neo4j.storageengine.api.txstate.LongDiffSets;
+import org.neo4j.values.storable.Value;
+import org.neo4j.values.storable.ValueTuple;
+
+import static org.neo4j.kernel.impl.util.collection.LongArena.NO_ARRAY;
+
+/**
+ * Index updates of a transaction, kept in a {@link LongArena} instead of in a map of {@link ValueTuple} to diff sets.
+ * Every value tuple of a schema is a record:
+ * <pre>
+ * [next with same hash][next of same schema][added][removed][value count][value ids...]
+ * </pre>
+ * The values are kept in a values map, and records are found by schema and hash of the values. The added and removed
+ * nodes of a tuple are mostly a single node, which is kept in the record. Only a tuple with more nodes than that gets a
+ * set for them. Every node also has a list of the tuples it is added to or removed from, so that deleting the node can
+ * undo its index updates.
+ */
+class EncodedIndexUpdates
+{
+    private static final int HASH_NEXT = 0;
+    private static final int SCHEMA_NEXT = 1;
+    private static final int ADDED = 2;
+    private static final int REMOVED = 3;
+    private static final int VALUE_COUNT = 4;
+    private static final int VALUES = 5;
+
+    private static final long NO_NODES = -1;
+    private static final long MANY_NODES = -2;
+
+    private static final int NEXT = 0;
+    private static final int TUPLE = 1;
+    private static final int NODE_TUPLE_LENGTH = 2;
+
+    private final LongArena arena;
+    private final CollectionsFactory collectionsFactory;
+    private final Map<SchemaDescriptor, SchemaUpdates> schemas = new HashMap<>();
+    private final MutableLongLongMap tuplesByHash;
+    private final MutableLongLongMap tuplesByNode;
+    private final MutableLongObjectMap<Value> values;
+    // keyed by the reference of the added or removed field of a tuple
+    private final MutableLongObjectMap<MutableLongSet> manyNodes = new LongObjectHashMap<>();
+    private long nextValueId;
+
+    EncodedIndexUpdates( LongArena arena, CollectionsFactory collectionsFactory )
+    {
+        this.arena = arena;
+        this.collectionsFactory = collectionsFactory;
+        this.tuplesByHash = collectionsFactory.newLongLongMap();
+        this.tuplesByNode = collectionsFactory.newLongLongMap();
+        this.values = collectionsFactory.newValuesMap();
+    }
+
+    void update( SchemaDescriptor schema, long nodeId, ValueTuple propertiesBefore, ValueTuple propertiesAfter )
+    {
+        final SchemaUpdates updates = schemas.computeIfAbsent( schema, s -> new SchemaUpdates( schemas.size() ) );
+        if ( propertiesBefore != null )
+        {
+            final long tuple = getOrCreateTuple( updates, propertiesBefore );
+            if ( !remove( tuple, ADDED, nodeId ) )
+            {
+                add( tuple, REMOVED, nodeId );
+            }
+            track( nodeId, tuple );
+        }
+        if ( propertiesAfter != null )
+        {
+            final long tuple = getOrCreateTuple( updates, propertiesAfter );
+            if ( !remove( tuple, REMOVED, nodeId ) )
+            {
+                add( tuple, ADDED, nodeId );
+            }
+            track( nodeId, tuple );
+        }
+    }
+
+    /**
+     * Undoes the index updates of a node that is deleted.
+     */
+    void removeNode( long nodeId )
+    {
+        long element = tuplesByNode.getIfAbsent( nodeId, NO_ARRAY );
+        if ( element == NO_ARRAY )
+        {
+            return;
+        }
+        tuplesByNode.remove( nodeId );
+        while ( element != NO_ARRAY )
+        {
+            final long tuple = arena.get( element, TUPLE );
+            if ( !remove( tuple, ADDED, nodeId ) )
+            {
+                remove( tuple, REMOVED, nodeId );
+            }
+            final long next = arena.get( element, NEXT );
+            arena.free( element, NODE_TUPLE_LENGTH );
+            element = next;
+        }
+    }
+
+    UnmodifiableMap<ValueTuple, ? extends LongDiffSets> getIndexUpdates( SchemaDescriptor schema )
+    {
+        final SchemaUpdates updates = schemas.get( schema );
+        return updates == null ? null : new UnmodifiableMap<>( new TupleMap( updates ) );
+    }
+
+    /**
+     * The sorted updates are kept until a new value tuple is added to the schema.
+     */
+    NavigableMap<ValueTuple, ? extends LongDiffSets> getSortedIndexUpdates( SchemaDescriptor schema )
+    {
+        final SchemaUpdates updates = schemas.get( schema );
+        if ( updates == null )
+        {
+            return null;
+        }
+        if ( updates.sorted == null )
+        {
+            final TreeMap<ValueTuple, LongDiffSets> sorted = new TreeMap<>( ValueTuple.COMPARATOR );
+            for ( long tuple = updates.firstTuple; tuple != NO_ARRAY; tuple = arena.get( tuple, SCHEMA_NEXT ) )
+            {
+                sorted.put( valueTuple( tuple ), new TupleDiffSets( tuple ) );
+            }
+            updates.sorted = Collections.unmodifiableNavigableMap( sorted );
+        }
+        return updates.sorted;
+    }
+
+    private long getOrCreateTuple( SchemaUpdates updates, ValueTuple valueTuple )
+    {
+        final long hashKey = ((long) updates.slot << 32) | (valueTuple.hashCode() & 0xFFFF_FFFFL);
+        final long first = tuplesByHash.getIfAbsent( hashKey, NO_ARRAY );
+        for ( long tuple = first; tuple != NO_ARRAY; tuple = arena.get( tuple, HASH_NEXT ) )
+        {
+            if ( matches( tuple, valueTuple ) )
+            {
+                return tuple;
+            }
+        }
+
+        final int size = valueTuple.size();
+        final long tuple = arena.allocate( VALUES + size );
+        arena.set( tuple, HASH_NEXT, first );
+        arena.set( tuple, SCHEMA_NEXT, updates.firstTuple );
+        arena.set( tuple, ADDED, NO_NODES );
+        arena.set( tuple, REMOVED, NO_NODES );
+        arena.set( tuple, VALUE_COUNT, size );
+        for ( int i = 0; i < size; i++ )
+        {
+            final long valueId = nextValueId++;
+            values.put( valueId, valueTuple.valueAt( i ) );
+            arena.set( tuple, VALUES + i, valueId );
+        }
+        tuplesByHash.put( hashKey, tuple );
+        updates.firstTuple = tuple;
+        updates.size++;
+        updates.sorted = null;
+        return tuple;
+    }
+
+    private long find( SchemaUpdates updates, ValueTuple valueTuple )
+    {
+        final long hashKey = ((long) updates.slot << 32) | (valueTuple.hashCode() & 0xFFFF_FFFFL);
+        long tuple = tuplesByHash.getIfAbsent( hashKey, NO_ARRAY );
+        while ( tuple != NO_ARRAY && !matches( tuple, valueTuple ) )
+        {
+            tuple = arena.get( tuple, HASH_NEXT );
+        }
+        return tuple;
+    }
+
+    private boolean matches( long tuple, ValueTuple valueTuple )
+    {
+        final int size = (int) arena.get( tuple, VALUE_COUNT );
+        if ( size != valueTuple.size() )
+        {
+            return false;
+        }
+        for ( int i = 0; i < size; i++ )
+        {
+            if ( !values.get( arena.get( tuple, VALUES + i ) ).equals( valueTuple.valueAt( i ) ) )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private ValueTuple valueTuple( long tuple )
+    {
+        final Value[] tupleValues = new Value[(int) arena.get( tuple, VALUE_COUNT )];
+        for ( int i = 0; i < tupleValues.length; i++ )
+        {
+            tupleValues[i] = values.get( arena.get( tuple, VALUES + i ) );
+        }
+        return ValueTuple.of( tupleValues );
+    }
+
+    private boolean contains( long tuple, int field, long nodeId )
+    {
+        final long nodes = arena.get( tuple, field );
+        return nodes == nodeId || (nodes == MANY_NODES && manyNodes.get( tuple + field ).contains( nodeId ));
+    }
+
+    private void add( long tuple, int field, long nodeId )
+    {
+        final long nodes = arena.get( tuple, field );
+        if ( nodes == NO_NODES )
+        {
+            arena.set( tuple, field, nodeId );
+        }
+        else if ( nodes == MANY_NODES )
+        {
+            manyNodes.get( tuple + field ).add( nodeId );
+        }
+        else if ( nodes != nodeId )
+        {
+            final MutableLongSet set = collectionsFactory.newLongSet();
+            set.add( nodes );
+            set.add( nodeId );
+            manyNodes.put( tuple + field, set );
+            arena.set( tuple, field, MANY_NODES );
+        }
+    }
+
+    private boolean remove( long tuple, int field, long nodeId )
+    {
+        final long nodes = arena.get( tuple, field );
+        if ( nodes == nodeId )
+        {
+            arena.set( tuple, field, NO_NODES );
+            return true;
+        }
+        return nodes == MANY_NODES && manyNodes.get( tuple + field ).remove( nodeId );
+    }
+
+    private MutableLongSet nodes( long tuple, int field )
+    {
+        final long nodes = arena.get( tuple, field );
+        if ( nodes == NO_NODES )
+        {
+            return LongSets.mutable.empty();
+        }
+        return nodes == MANY_NODES ? manyNodes.get( tuple + field ) : LongSets.mutable.of( nodes );
+    }
+
+    /**
+     * Keeps the list of tuples of a node to the ones it is added to or removed from.
+     */
+    private void track( long nodeId, long tuple )
+    {
+        final boolean member = contains( tuple, ADDED, nodeId ) || contains( tuple, REMOVED, nodeId );
+        final long first = tuplesByNode.getIfAbsent( nodeId, NO_ARRAY );
+        long previous = NO_ARRAY;
+        long element = first;
+        while ( element != NO_ARRAY && arena.get( element, TUPLE ) != tuple )
+        {
+            previous = element;
+            element = arena.get( element, NEXT );
+        }
+        if ( member && element == NO_ARRAY )
+        {
+            final long newElement = arena.allocate( NODE_TUPLE_LENGTH );
+            arena.set( newElement, NEXT, first );
+            arena.set( newElement, TUPLE, tuple );
+            tuplesByNode.put( nodeId, newElement );
+        }
+        else if ( !member && element != NO_ARRAY )
+        {
+            final long next = arena.get( element, NEXT );
+            if ( previous != NO_ARRAY )
+            {
+                arena.set( previous, NEXT, next );
+            }
+            else if ( next != NO_ARRAY )
+            {
+                tuplesByNode.put( nodeId, next );
+            }
+            else
+            {
+                tuplesByNode.remove( nodeId );
+            }
+            arena.free( element, NODE_TUPLE_LENGTH );
+        }
+    }
+
+    private static class SchemaUpdates
+    {
+        private final int slot;
+        private long firstTuple = NO_ARRAY;
+        private int size;
+        private NavigableMap<ValueTuple, LongDiffSets> sorted;
+
+        SchemaUpdates( int slot )
+        {
+            this.slot = slot;
+        }
+    }
+
+    /**
+     * The updates of one schema, which decodes its value tuples as they are read.
+     */
+    private class TupleMap extends AbstractMap<ValueTuple, LongDiffSets>
+    {
+        private final SchemaUpdates updates;
+
+        TupleMap( SchemaUpdates updates )
+        {
+            this.updates = updates;
+        }
+
+        @Override
+        public LongDiffSets get( Object key )
+        {
+            if ( !(key instanceof ValueTuple) )
+            {
+                return null;
+            }
+            final long tuple = find( updates, (ValueTuple) key );
+            return tuple == NO_ARRAY ? null : new TupleDiffSets( tuple );
+        }
+
+        @Override
+        public boolean containsKey( Object key )
+        {
+            return key instanceof ValueTuple && find( updates, (ValueTuple) key ) != NO_ARRAY;
+        }
+
+        @Override
+        public int size()
+        {
+            return updates.size;
+        }
+
+        @Override
+        public Set<Entry<ValueTuple, LongDiffSets>> entrySet()
+        {
+            return new AbstractSet<Entry<ValueTuple, LongDiffSets>>()
+            {
+                @Override
+                public Iterator<Entry<ValueTuple, LongDiffSets>> iterator()
+                {
+                    return new Iterator<Entry<ValueTuple, LongDiffSets>>()
+                    {
+                        private long tuple = updates.firstTuple;
+
+                        @Override
+                        public boolean hasNext()
+                        {
+                            return tuple != NO_ARRAY;
+                        }
+
+                        @Override
+                        public Entry<ValueTuple, LongDiffSets> next()
+                        {
+                            if ( !hasNext() )
+                            {
+                                throw new NoSuchElementException();
+                            }
+                            final Entry<ValueTuple, LongDiffSets> entry =
+                                    new SimpleImmutableEntry<>( valueTuple( tuple ), new TupleDiffSets( tuple ) );
+                            tuple = arena.get( tuple, SCHEMA_NEXT );
+                            return entry;
+                        }
+                    };
+                }
+
+                @Override
+                public int size()
+                {
+                    return updates.size;
+                }
+            };
+        }
+    }
+
+    /**
+     * The added and removed nodes of one value tuple.
+     */
+    private class TupleDiffSets implements LongDiffSets
+    {
+        private final long tuple;
+
+        TupleDiffSets( long tuple )
+        {
+            this.tuple = tuple;
+        }
+
+        @Override
+        public boolean isAdded( long element )
+        {
+            return contains( tuple, ADDED, element );
+        }
+
+        @Override
+        public boolean isRemoved( long element )
+        {
+            return contains( tuple, REMOVED, element );
+        }
+
+        @Override
+        public LongSet getAdded()
+        {
+            return nodes( tuple, ADDED );
+        }
+
+        @Override
+        public LongSet getRemoved()
+        {
+            return nodes( tuple, REMOVED );
+        }
+
+        @Override
+        public boolean isEmpty()
+        {
+            return getAdded().isEmpty() && getRemoved().isEmpty();
+        }
+
+        @Override
+        public int delta()
+        {
+            return getAdded().size() - getRemoved().size();
+        }
+
+        @Override
+        public LongIterator augment( LongIterator elements )
+        {
+            return diffSets().augment( elements );
+        }
+
+        @Override
+        public PrimitiveLongResourceIterator augment( PrimitiveLongResourceIterator elements )
+        {
+            return diffSets().augment( elements );
+        }
+
+        private MutableLongDiffSetsImpl diffSets()
+        {
+            return new MutableLongDiffSetsImpl( nodes( tuple, ADDED ), nodes( tuple, REMOVED ), collectionsFactory );
+        }
+    }
+}
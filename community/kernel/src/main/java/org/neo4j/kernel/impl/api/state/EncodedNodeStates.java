@@ -0,0 +1,318 @@
+/*
+ * Copyright (c) 2002-2020 "Neo4j,"
+ * Neo4j Sweden AB [http://neo4j.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.api.state;
+
+import org.eclipse.collections.api.iterator.LongIterator;
+import org.eclipse.collections.api.set.primitive.MutableLongSet;
+import org.eclipse.collections.impl.factory.primitive.LongSets;
+import org.eclipse.collections.impl.iterator.ImmutableEmptyLongIterator;
+import org.eclipse.collections.impl.list.mutable.primitive.LongArrayList;
+import org.eclipse.collections.impl.set.mutable.primitive.LongHashSet;
+
+import org.neo4j.kernel.impl.util.collection.CollectionsFactory;
+import org.neo4j.kernel.impl.util.collection.LongArena;
+import org.neo4j.kernel.impl.util.diffsets.MutableLongDiffSetsImpl;
+import org.neo4j.storageengine.api.RelationshipDirection;
+import org.neo4j.storageengine.api.txstate.LongDiffSets;
+import org.neo4j.storageengine.api.txstate.NodeState;
+
+import static org.neo4j.kernel.impl.util.collection.LongArena.NO_ARRAY;
+
+/**
+ * Changes of nodes, kept in a {@link LongArena}. Labels are entries with the label id as payload. Relationships are
+ * entries with the direction as aux, the type as key and the relationship id as payload.
+ */
+class EncodedNodeStates extends EncodedEntityStates<NodeStateImpl>
+{
+    private static final RelationshipDirection[] DIRECTIONS = RelationshipDirection.values();
+    private static final long LABEL_ADDED_WORD = word( LABEL_ADDED, 0, 0 );
+    private static final long LABEL_REMOVED_WORD = word( LABEL_REMOVED, 0, 0 );
+
+    EncodedNodeStates( LongArena arena, CollectionsFactory collectionsFactory )
+    {
+        super( arena, collectionsFactory, 0 );
+    }
+
+    MutableNodeState getOrCreateNodeState( long id )
+    {
+        getOrCreate( id );
+        return new NodeView( id );
+    }
+
+    NodeState getNodeState( long id )
+    {
+        if ( block( id ) != NO_ARRAY )
+        {
+            return new NodeView( id );
+        }
+        final NodeStateImpl state = promoted( id );
+        return state == null ? NodeStateImpl.EMPTY : state;
+    }
+
+    Iterable<NodeState> nodeStates()
+    {
+        return states( NodeView::new );
+    }
+
+    @Override
+    NodeStateImpl newState( long id )
+    {
+        return new NodeStateImpl( id, collectionsFactory );
+    }
+
+    @Override
+    void initFields( long block )
+    {
+        // nodes have no fields
+    }
+
+    @Override
+    void restore( long block, NodeStateImpl state )
+    {
+        // nodes have no fields
+    }
+
+    @Override
+    void restore( NodeStateImpl state, int kind, int aux, int key, long payload )
+    {
+        switch ( kind )
+        {
+        case LABEL_ADDED:
+            state.addLabel( payload );
+            break;
+        case LABEL_REMOVED:
+            state.removeLabel( payload );
+            break;
+        case RELATIONSHIP_ADDED:
+            state.addRelationship( payload, key, DIRECTIONS[aux] );
+            break;
+        case RELATIONSHIP_REMOVED:
+            state.removeRelationship( payload, key, DIRECTIONS[aux] );
+            break;
+        default:
+            throw new IllegalStateException( "Unknown kind of node change " + kind );
+        }
+    }
+
+    // The label and relationship changes below mirror the ones of MutableLongDiffSetsImpl and NodeStateImpl
+
+    private void addLabel( long id, long labelId )
+    {
+        final long block = blockForUpdate( id );
+        if ( block == NO_ARRAY )
+        {
+            promoted( id ).addLabel( labelId );
+            return;
+        }
+        final int removed = find( block, LABEL_REMOVED_WORD, labelId );
+        if ( removed != -1 )
+        {
+            removeEntry( block, removed );
+        }
+        else if ( find( block, LABEL_ADDED_WORD, labelId ) == -1 )
+        {
+            append( block, LABEL_ADDED_WORD, labelId );
+        }
+    }
+
+    private void removeLabel( long id, long labelId )
+    {
+        final long block = blockForUpdate( id );
+        if ( block == NO_ARRAY )
+        {
+            promoted( id ).removeLabel( labelId );
+            return;
+        }
+        final int added = find( block, LABEL_ADDED_WORD, labelId );
+        if ( added != -1 )
+        {
+            removeEntry( block, added );
+        }
+        else if ( find( block, LABEL_REMOVED_WORD, labelId ) == -1 )
+        {
+            append( block, LABEL_REMOVED_WORD, labelId );
+        }
+    }
+
+    private void addRelationship( long id, long relId, int typeId, RelationshipDirection direction )
+    {
+        final long block = blockForUpdate( id );
+        if ( block == NO_ARRAY )
+        {
+            promoted( id ).addRelationship( relId, typeId, direction );
+            return;
+        }
+        final long word = word( RELATIONSHIP_ADDED, direction.ordinal(), typeId );
+        if ( find( block, word, relId ) == -1 )
+        {
+            append( block, word, relId );
+        }
+    }
+
+    private void removeRelationship( long id, long relId, int typeId, RelationshipDirection direction )
+    {
+        final long block = blockForUpdate( id );
+        if ( block == NO_ARRAY )
+        {
+            promoted( id ).removeRelationship( relId, typeId, direction );
+            return;
+        }
+        final int added = find( block, word( RELATIONSHIP_ADDED, direction.ordinal(), typeId ), relId );
+        if ( added != -1 )
+        {
+            // This was a rel that was added in this tx, no need to add it to the remove list, instead we just
+            // remove it from added relationships.
+            removeEntry( block, added );
+            return;
+        }
+        final long word = word( RELATIONSHIP_REMOVED, direction.ordinal(), typeId );
+        if ( find( block, word, relId ) == -1 )
+        {
+            append( block, word, relId );
+        }
+    }
+
+    private class NodeView extends EntityView implements MutableNodeState
+    {
+        NodeView( long id )
+        {
+            super( id );
+        }
+
+        @Override
+        NodeState delegate()
+        {
+            final NodeStateImpl state = promoted( id );
+            return state == null ? NodeStateImpl.EMPTY : state;
+        }
+
+        @Override
+        public void addLabel( long labelId )
+        {
+            EncodedNodeStates.this.addLabel( id, labelId );
+        }
+
+        @Override
+        public void removeLabel( long labelId )
+        {
+            EncodedNodeStates.this.removeLabel( id, labelId );
+        }
+
+        @Override
+        public void addRelationship( long relId, int typeId, RelationshipDirection direction )
+        {
+            EncodedNodeStates.this.addRelationship( id, relId, typeId, direction );
+        }
+
+        @Override
+        public void removeRelationship( long relId, int typeId, RelationshipDirection direction )
+        {
+            EncodedNodeStates.this.removeRelationship( id, relId, typeId, direction );
+        }
+
+        @Override
+        public LongDiffSets labelDiffSets()
+        {
+            final long block = block( id );
+            if ( block == NO_ARRAY )
+            {
+                return delegate().labelDiffSets();
+            }
+            MutableLongSet added = null;
+            MutableLongSet removed = null;
+            final int count = count( block );
+            for ( int i = 0; i < count; i++ )
+            {
+                final long word = word( block, i );
+                if ( word == LABEL_ADDED_WORD )
+                {
+                    added = added == null ? new LongHashSet() : added;
+                    added.add( payload( block, i ) );
+                }
+                else if ( word == LABEL_REMOVED_WORD )
+                {
+                    removed = removed == null ? new LongHashSet() : removed;
+                    removed.add( payload( block, i ) );
+                }
+            }
+            if ( added == null && removed == null )
+            {
+                return LongDiffSets.EMPTY;
+            }
+            return new MutableLongDiffSetsImpl( added == null ? LongSets.mutable.empty() : added,
+                    removed == null ? LongSets.mutable.empty() : removed, collectionsFactory );
+        }
+
+        @Override
+        public int augmentDegree( RelationshipDirection direction, int degree, int typeId )
+        {
+            final long block = block( id );
+            if ( block == NO_ARRAY )
+            {
+                return delegate().augmentDegree( direction, degree, typeId );
+            }
+            return degree + count( block, word( RELATIONSHIP_ADDED, direction.ordinal(), typeId ) ) -
+                   count( block, word( RELATIONSHIP_REMOVED, direction.ordinal(), typeId ) );
+        }
+
+        @Override
+        public LongIterator getAddedRelationships()
+        {
+            final long block = block( id );
+            if ( block == NO_ARRAY )
+            {
+                return delegate().getAddedRelationships();
+            }
+            MutableLongSet relationships = null;
+            final int count = count( block );
+            for ( int i = 0; i < count; i++ )
+            {
+                if ( kind( word( block, i ) ) == RELATIONSHIP_ADDED )
+                {
+                    relationships = relationships == null ? new LongHashSet() : relationships;
+                    relationships.add( payload( block, i ) );
+                }
+            }
+            return relationships == null ? ImmutableEmptyLongIterator.INSTANCE : relationships.longIterator();
+        }
+
+        @Override
+        public LongIterator getAddedRelationships( RelationshipDirection direction, int relType )
+        {
+            final long block = block( id );
+            if ( block == NO_ARRAY )
+            {
+                return delegate().getAddedRelationships( direction, relType );
+            }
+            final long word = word( RELATIONSHIP_ADDED, direction.ordinal(), relType );
+            LongArrayList relationships = null;
+            final int count = count( block );
+            for ( int i = 0; i < count; i++ )
+            {
+                if ( word( block, i ) == word )
+                {
+                    relationships = relationships == null ? new LongArrayList() : relationships;
+                    relationships.add( payload( block, i ) );
+                }
+            }
+            return relationships == null ? ImmutableEmptyLongIterator.INSTANCE : relationships.longIterator();
+        }
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2002-2020 "Neo4j,"
+ * Neo4j Sweden AB [http://neo4j.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.api.state;
+
+import org.neo4j.kernel.impl.util.collection.CollectionsFactory;
+import org.neo4j.kernel.impl.util.collection.LongArena;
+import org.neo4j.storageengine.api.RelationshipVisitor;
+import org.neo4j.storageengine.api.txstate.RelationshipState;
+
+import static org.neo4j.kernel.impl.util.collection.LongArena.NO_ARRAY;
+
+/**
+ * Changes of relationships, kept in a {@link LongArena}. The start node, end node and type of a relationship are the
+ * fields of its block, where a type of -1 means that the relationship was not created in this transaction.
+ */
+class EncodedRelationshipStates extends EncodedEntityStates<RelationshipStateImpl>
+{
+    private static final int START_NODE = 0;
+    private static final int END_NODE = 1;
+    private static final int TYPE = 2;
+
+    EncodedRelationshipStates( LongArena arena, CollectionsFactory collectionsFactory )
+    {
+        super( arena, collectionsFactory, 3 );
+    }
+
+    MutableRelationshipState getOrCreateRelationshipState( long id )
+    {
+        getOrCreate( id );
+        return new RelationshipView( id );
+    }
+
+    RelationshipState getRelationshipState( long id )
+    {
+        if ( block( id ) != NO_ARRAY )
+        {
+            return new RelationshipView( id );
+        }
+        final RelationshipStateImpl state = promoted( id );
+        return state == null ? RelationshipStateImpl.EMPTY : state;
+    }
+
+    Iterable<RelationshipState> relationshipStates()
+    {
+        return states( RelationshipView::new );
+    }
+
+    @Override
+    RelationshipStateImpl newState( long id )
+    {
+        return new RelationshipStateImpl( id, collectionsFactory );
+    }
+
+    @Override
+    void initFields( long block )
+    {
+        setField( block, START_NODE, -1 );
+        setField( block, END_NODE, -1 );
+        setField( block, TYPE, -1 );
+    }
+
+    @Override
+    void restore( long block, RelationshipStateImpl state )
+    {
+        if ( field( block, TYPE ) != -1 )
+        {
+            state.setMetaData( field( block, START_NODE ), field( block, END_NODE ), (int) field( block, TYPE ) );
+        }
+    }
+
+    @Override
+    void restore( RelationshipStateImpl state, int kind, int aux, int key, long payload )
+    {
+        throw new IllegalStateException( "Unknown kind of relationship change " + kind );
+    }
+
+    private class RelationshipView extends EntityView implements MutableRelationshipState
+    {
+        RelationshipView( long id )
+        {
+            super( id );
+        }
+
+        @Override
+        RelationshipState delegate()
+        {
+            final RelationshipStateImpl state = promoted( id );
+            return state == null ? RelationshipStateImpl.EMPTY : state;
+        }
+
+        @Override
+        public void setMetaData( long startNode, long endNode, int type )
+        {
+            final long block = getOrCreate( id );
+            if ( block == NO_ARRAY )
+            {
+                promoted( id ).setMetaData( startNode, endNode, type );
+                return;
+            }
+            setField( block, START_NODE, startNode );
+            setField( block, END_NODE, endNode );
+            setField( block, TYPE, type );
+        }
+
+        @Override
+        public <EX extends Exception> boolean accept( RelationshipVisitor<EX> visitor ) throws EX
+        {
+            final long block = block( id );
+            if ( block == NO_ARRAY )
+            {
+                return delegate().accept( visitor );
+            }
+            final int type = (int) field( block, TYPE );
+            if ( type != -1 )
+            {
+                visitor.visit( id, type, field( block, START_NODE ), field( block, END_NODE ) );
+                return true;
+            }
+            return false;
+        }
+    }
+}
@@ -41,7 +41,7 @@ import org.neo4j.values.storable.Value;
 
 import static java.util.Collections.emptyIterator;
 
-class NodeStateImpl extends PropertyContainerStateImpl implements NodeState
+class NodeStateImpl extends PropertyContainerStateImpl implements MutableNodeState
 {
     static final NodeState EMPTY = new NodeState()
     {
@@ -118,6 +118,8 @@ class NodeStateImpl extends PropertyContainerStateImpl implements NodeState
         }
     };
 
+    private static final int EXPECTED_INDEX_DIFFS = 2;
+
     private MutableLongDiffSets labelDiffSets;
     private RelationshipChangesForNode relationshipsAdded;
     private RelationshipChangesForNode relationshipsRemoved;
@@ -144,15 +146,29 @@ class NodeStateImpl extends PropertyContainerStateImpl implements NodeState
         return labelDiffSets;
     }
 
+    @Override
+    public void addLabel( long labelId )
+    {
+        getOrCreateLabelDiffSets().add( labelId );
+    }
+
+    @Override
+    public void removeLabel( long labelId )
+    {
+        getOrCreateLabelDiffSets().remove( labelId );
+    }
+
+    @Override
     public void addRelationship( long relId, int typeId, RelationshipDirection direction )
     {
         if ( !hasAddedRelationships() )
         {
-            relationshipsAdded = new RelationshipChangesForNode( DiffStrategy.ADD );
+            relationshipsAdded = new RelationshipChangesForNode( DiffStrategy.ADD, collectionsFactory );
         }
         relationshipsAdded.addRelationship( relId, typeId, direction );
     }
 
+    @Override
     public void removeRelationship( long relId, int typeId, RelationshipDirection direction )
     {
         if ( hasAddedRelationships() )
@@ -166,7 +182,7 @@ class NodeStateImpl extends PropertyContainerStateImpl implements NodeState
         }
         if ( !hasRemovedRelationships() )
         {
-            relationshipsRemoved = new RelationshipChangesForNode( DiffStrategy.REMOVE );
+            relationshipsRemoved = new RelationshipChangesForNode( DiffStrategy.REMOVE, collectionsFactory );
         }
         relationshipsRemoved.addRelationship( relId, typeId, direction );
     }
@@ -221,7 +237,8 @@ class NodeStateImpl extends PropertyContainerStateImpl implements NodeState
     {
         if ( indexDiffs == null )
         {
-            indexDiffs = Collections.newSetFromMap( new IdentityHashMap<>() );
+            // a node is rarely part of more than a couple of indexes, so the default capacity would mostly be wasted
+            indexDiffs = Collections.newSetFromMap( new IdentityHashMap<>( EXPECTED_INDEX_DIFFS ) );
         }
         indexDiffs.add( diff );
     }
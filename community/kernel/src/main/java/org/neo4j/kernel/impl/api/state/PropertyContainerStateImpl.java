@@ -31,7 +31,6 @@ import org.neo4j.helpers.collection.Iterators;
 import org.neo4j.kernel.api.properties.PropertyKeyValue;
 import org.neo4j.kernel.impl.util.collection.CollectionsFactory;
 import org.neo4j.storageengine.api.StorageProperty;
-import org.neo4j.storageengine.api.txstate.PropertyContainerState;
 import org.neo4j.values.storable.Value;
 import org.neo4j.values.storable.Values;
 
@@ -39,7 +38,7 @@ import static java.lang.Math.toIntExact;
 import static java.util.Collections.emptyIterator;
 import static java.util.Objects.requireNonNull;
 
-class PropertyContainerStateImpl implements PropertyContainerState
+class PropertyContainerStateImpl implements MutablePropertyContainerState
 {
     private final long id;
     private MutableLongObjectMap<Value> addedProperties;
@@ -75,7 +74,8 @@ class PropertyContainerStateImpl implements PropertyContainerState
         }
     }
 
-    void changeProperty( int propertyKeyId, Value value )
+    @Override
+    public void changeProperty( int propertyKeyId, Value value )
     {
         if ( addedProperties != null && addedProperties.containsKey( propertyKeyId ) )
         {
@@ -95,7 +95,8 @@ class PropertyContainerStateImpl implements PropertyContainerState
         }
     }
 
-    void addProperty( int propertyKeyId, Value value )
+    @Override
+    public void addProperty( int propertyKeyId, Value value )
     {
         if ( removedProperties != null && removedProperties.remove( propertyKeyId ) )
         {
@@ -111,7 +112,8 @@ class PropertyContainerStateImpl implements PropertyContainerState
         addedProperties.put( propertyKeyId, value );
     }
 
-    void removeProperty( int propertyKeyId )
+    @Override
+    public void removeProperty( int propertyKeyId )
     {
         if ( addedProperties != null && addedProperties.remove( propertyKeyId ) != null )
         {
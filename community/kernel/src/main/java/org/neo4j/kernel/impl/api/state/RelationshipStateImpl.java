@@ -32,7 +32,7 @@ import org.neo4j.values.storable.Value;
 
 import static java.util.Collections.emptyIterator;
 
-class RelationshipStateImpl extends PropertyContainerStateImpl implements RelationshipState
+class RelationshipStateImpl extends PropertyContainerStateImpl implements MutableRelationshipState
 {
     static final RelationshipState EMPTY = new RelationshipState()
     {
@@ -100,7 +100,8 @@ class RelationshipStateImpl extends PropertyContainerStateImpl implements Relati
         super( id, collectionsFactory );
     }
 
-    void setMetaData( long startNode, long endNode, int type )
+    @Override
+    public void setMetaData( long startNode, long endNode, int type )
     {
         this.startNode = startNode;
         this.endNode = endNode;
@@ -43,6 +43,7 @@ import org.neo4j.internal.kernel.api.schema.constraints.ConstraintDescriptor;
 import org.neo4j.kernel.api.schema.constraints.IndexBackedConstraintDescriptor;
 import org.neo4j.kernel.api.txstate.TransactionState;
 import org.neo4j.kernel.impl.util.collection.CollectionsFactory;
+import org.neo4j.kernel.impl.util.collection.LongArena;
 import org.neo4j.kernel.impl.util.collection.OnHeapCollectionsFactory;
 import org.neo4j.kernel.impl.util.diffsets.MutableDiffSets;
 import org.neo4j.kernel.impl.util.diffsets.MutableDiffSetsImpl;
@@ -82,9 +83,18 @@ public class TxState implements TransactionState, RelationshipVisitor.Home
      */
     private final CollectionsFactory collectionsFactory;
 
+    /**
+     * Arena that the state of changed entities and the index updates are encoded into, when the collections factory
+     * provides one. The state objects are used otherwise.
+     */
+    private LongArena arena;
+    private boolean arenaRequested;
+
     private MutableLongObjectMap<MutableLongDiffSets> labelStatesMap;
     private MutableLongObjectMap<NodeStateImpl> nodeStatesMap;
     private MutableLongObjectMap<RelationshipStateImpl> relationshipStatesMap;
+    private EncodedNodeStates encodedNodeStates;
+    private EncodedRelationshipStates encodedRelationshipStates;
 
     private MutableLongObjectMap<String> createdLabelTokens;
     private MutableLongObjectMap<String> createdPropertyKeyTokens;
@@ -100,6 +110,7 @@ public class TxState implements TransactionState, RelationshipVisitor.Home
     private MutableObjectLongMap<IndexBackedConstraintDescriptor> createdConstraintIndexesByConstraint;
 
     private Map<SchemaDescriptor, Map<ValueTuple, MutableLongDiffSets>> indexUpdates;
+    private EncodedIndexUpdates encodedIndexUpdates;
 
     private long revision;
     private long dataRevision;
@@ -205,6 +216,10 @@ public class TxState implements TransactionState, RelationshipVisitor.Home
     @Override
     public Iterable<NodeState> modifiedNodes()
     {
+        if ( encodedNodeStates != null )
+        {
+            return encodedNodeStates.nodeStates();
+        }
         return nodeStatesMap == null ? Iterables.empty() : Iterables.cast( nodeStatesMap.values() );
     }
 
@@ -234,11 +249,6 @@ public class TxState implements TransactionState, RelationshipVisitor.Home
         return getNodeState( nodeId ).labelDiffSets();
     }
 
-    private MutableLongDiffSets getOrCreateNodeStateLabelDiffSets( long nodeId )
-    {
-        return getOrCreateNodeState( nodeId ).getOrCreateLabelDiffSets();
-    }
-
     @Override
     public boolean nodeIsAddedInThisTx( long nodeId )
     {
@@ -274,7 +284,13 @@ public class TxState implements TransactionState, RelationshipVisitor.Home
     {
         nodes().remove( nodeId );
 
-        if ( nodeStatesMap != null )
+        if ( encodedNodeStates != null )
+        {
+            encodedNodeStates.getNodeState( nodeId ).labelDiffSets().getAdded().each(
+                    label -> getOrCreateLabelStateNodeDiffSets( label ).remove( nodeId ) );
+            encodedNodeStates.remove( nodeId );
+        }
+        else if ( nodeStatesMap != null )
         {
             NodeStateImpl nodeState = nodeStatesMap.remove( nodeId );
             if ( nodeState != null )
@@ -285,6 +301,10 @@ public class TxState implements TransactionState, RelationshipVisitor.Home
                 nodeState.clear();
             }
         }
+        if ( encodedIndexUpdates != null )
+        {
+            encodedIndexUpdates.removeNode( nodeId );
+        }
         dataChanged();
     }
 
@@ -329,7 +349,11 @@ public class TxState implements TransactionState, RelationshipVisitor.Home
             getOrCreateNodeState( endNodeId ).removeRelationship( id, type, RelationshipDirection.INCOMING );
         }
 
-        if ( relationshipStatesMap != null )
+        if ( encodedRelationshipStates != null )
+        {
+            encodedRelationshipStates.remove( id );
+        }
+        else if ( relationshipStatesMap != null )
         {
             RelationshipStateImpl removed = relationshipStatesMap.remove( id );
             if ( removed != null )
@@ -356,7 +380,7 @@ public class TxState implements TransactionState, RelationshipVisitor.Home
     @Override
     public void nodeDoAddProperty( long nodeId, int newPropertyKeyId, Value value )
     {
-        NodeStateImpl nodeState = getOrCreateNodeState( nodeId );
+        MutableNodeState nodeState = getOrCreateNodeState( nodeId );
         nodeState.addProperty( newPropertyKeyId, value );
         dataChanged();
     }
@@ -422,7 +446,7 @@ public class TxState implements TransactionState, RelationshipVisitor.Home
     public void nodeDoAddLabel( long labelId, long nodeId )
     {
         getOrCreateLabelStateNodeDiffSets( labelId ).add( nodeId );
-        getOrCreateNodeStateLabelDiffSets( nodeId ).add( labelId );
+        getOrCreateNodeState( nodeId ).addLabel( labelId );
         dataChanged();
     }
 
@@ -430,7 +454,7 @@ public class TxState implements TransactionState, RelationshipVisitor.Home
     public void nodeDoRemoveLabel( long labelId, long nodeId )
     {
         getOrCreateLabelStateNodeDiffSets( labelId ).remove( nodeId );
-        getOrCreateNodeStateLabelDiffSets( nodeId ).remove( labelId );
+        getOrCreateNodeState( nodeId ).removeLabel( labelId );
         dataChanged();
     }
 
@@ -470,6 +494,10 @@ public class TxState implements TransactionState, RelationshipVisitor.Home
     @Override
     public NodeState getNodeState( long id )
     {
+        if ( encodedNodeStates != null )
+        {
+            return encodedNodeStates.getNodeState( id );
+        }
         if ( nodeStatesMap == null )
         {
             return NodeStateImpl.EMPTY;
@@ -481,6 +509,10 @@ public class TxState implements TransactionState, RelationshipVisitor.Home
     @Override
     public RelationshipState getRelationshipState( long id )
     {
+        if ( encodedRelationshipStates != null )
+        {
+            return encodedRelationshipStates.getRelationshipState( id );
+        }
         if ( relationshipStatesMap == null )
         {
             return RelationshipStateImpl.EMPTY;
@@ -603,11 +635,28 @@ public class TxState implements TransactionState, RelationshipVisitor.Home
     @Override
     public Iterable<RelationshipState> modifiedRelationships()
     {
+        if ( encodedRelationshipStates != null )
+        {
+            return encodedRelationshipStates.relationshipStates();
+        }
         return relationshipStatesMap == null ? Iterables.empty() : Iterables.cast( relationshipStatesMap.values() );
     }
 
     @VisibleForTesting
-    NodeStateImpl getOrCreateNodeState( long nodeId )
+    MutableNodeState getOrCreateNodeState( long nodeId )
+    {
+        if ( arena() != null )
+        {
+            if ( encodedNodeStates == null )
+            {
+                encodedNodeStates = new EncodedNodeStates( arena, collectionsFactory );
+            }
+            return encodedNodeStates.getOrCreateNodeState( nodeId );
+        }
+        return getOrCreateNodeStateImpl( nodeId );
+    }
+
+    private NodeStateImpl getOrCreateNodeStateImpl( long nodeId )
     {
         if ( nodeStatesMap == null )
         {
@@ -616,8 +665,16 @@ public class TxState implements TransactionState, RelationshipVisitor.Home
         return nodeStatesMap.getIfAbsentPut( nodeId, () -> new NodeStateImpl( nodeId, collectionsFactory ) );
     }
 
-    private RelationshipStateImpl getOrCreateRelationshipState( long relationshipId )
+    private MutableRelationshipState getOrCreateRelationshipState( long relationshipId )
     {
+        if ( arena() != null )
+        {
+            if ( encodedRelationshipStates == null )
+            {
+                encodedRelationshipStates = new EncodedRelationshipStates( arena, collectionsFactory );
+            }
+            return encodedRelationshipStates.getOrCreateRelationshipState( relationshipId );
+        }
         if ( relationshipStatesMap == null )
         {
             relationshipStatesMap = new LongObjectHashMap<>();
@@ -625,6 +682,16 @@ public class TxState implements TransactionState, RelationshipVisitor.Home
         return relationshipStatesMap.getIfAbsentPut( relationshipId, () -> new RelationshipStateImpl( relationshipId, collectionsFactory ) );
     }
 
+    private LongArena arena()
+    {
+        if ( !arenaRequested )
+        {
+            arena = collectionsFactory.newLongArena();
+            arenaRequested = true;
+        }
+        return arena;
+    }
+
     @VisibleForTesting
     GraphStateImpl getOrCreateGraphState()
     {
@@ -721,6 +788,10 @@ public class TxState implements TransactionState, RelationshipVisitor.Home
     @Nullable
     public UnmodifiableMap<ValueTuple, ? extends LongDiffSets> getIndexUpdates( SchemaDescriptor schema )
     {
+        if ( encodedIndexUpdates != null )
+        {
+            return encodedIndexUpdates.getIndexUpdates( schema );
+        }
         if ( indexUpdates == null )
         {
             return null;
@@ -738,6 +809,10 @@ public class TxState implements TransactionState, RelationshipVisitor.Home
     @Nullable
     public NavigableMap<ValueTuple, ? extends LongDiffSets> getSortedIndexUpdates( SchemaDescriptor descriptor )
     {
+        if ( encodedIndexUpdates != null )
+        {
+            return encodedIndexUpdates.getSortedIndexUpdates( descriptor );
+        }
         if ( indexUpdates == null )
         {
             return null;
@@ -765,7 +840,16 @@ public class TxState implements TransactionState, RelationshipVisitor.Home
     public void indexDoUpdateEntry( SchemaDescriptor descriptor, long nodeId,
             ValueTuple propertiesBefore, ValueTuple propertiesAfter )
     {
-        NodeStateImpl nodeState = getOrCreateNodeState( nodeId );
+        if ( arena() != null )
+        {
+            if ( encodedIndexUpdates == null )
+            {
+                encodedIndexUpdates = new EncodedIndexUpdates( arena, collectionsFactory );
+            }
+            encodedIndexUpdates.update( descriptor, nodeId, propertiesBefore, propertiesAfter );
+            return;
+        }
+        NodeStateImpl nodeState = getOrCreateNodeStateImpl( nodeId );
         Map<ValueTuple, MutableLongDiffSets> updates = getOrCreateIndexUpdatesByDescriptor( descriptor );
         if ( propertiesBefore != null )
         {
@@ -0,0 +1,379 @@
+/*
+ * Copyright (c) 2002-2020 "Neo4j,"
+ * Neo4j Sweden AB [http://neo4j.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.locking;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.neo4j.storageengine.api.lock.ResourceType;
+
+/**
+ * Statistics about the time lock clients spend waiting for locks that are held by other clients.
+ * <p>
+ * Only waits are recorded, so acquiring a lock that nobody else holds costs nothing extra. For every resource type
+ * there is a histogram of wait times, in power-of-two microsecond buckets. Across all resource types, the most
+ * contended resources are tracked with a variant of the space-saving algorithm: a bounded table of resources where a
+ * resource that is not in it takes over the slot, and the counts, of the least waited for resource in the
+ * neighbourhood of slots it hashes to. Truly contended resources quickly rise to the top this way, while the counts
+ * of the rarely contended resources at the bottom of the table may be over-estimated.
+ * <p>
+ * Recording a wait never blocks, so that waiters do not contend on the statistics of their waits. The counts of a
+ * tracked resource are updated atomically, and resources are installed and replaced with compare-and-set. A wait that
+ * loses a race for replacing a slot is only counted in the histograms, and so is a wait for a resource that is being
+ * replaced at the same time. The tracked counts are therefore approximate under concurrency.
+ */
+public class LockContentionStatistics
+{
+    /**
+     * The number of wait time histogram buckets. Bucket {@code i} counts the waits shorter than
+     * {@link #waitTimeBucketUpperBoundMicros(int) 2^i microseconds}, that did not fit in the previous bucket. The last
+     * bucket counts all waits that are longer than that.
+     */
+    public static final int WAIT_TIME_BUCKETS = 32;
+
+    /**
+     * Statistics that never record anything, for lock managers that do not track contention.
+     */
+    public static final LockContentionStatistics NONE = new LockContentionStatistics( 0 )
+    {
+        @Override
+        public void waited( ResourceType resourceType, long resourceId, long waitNanos )
+        {
+        }
+    };
+
+    private static final Comparator<ContendedResource> MOST_CONTENDED_FIRST =
+            Comparator.comparingLong( ContendedResource::waits ).reversed();
+
+    /** The number of slots that a resource may be tracked in, starting from the slot it hashes to. */
+    private static final int NEIGHBOURHOOD = 8;
+
+    private final ConcurrentMap<ResourceType,WaitTimes> waitTimes = new ConcurrentHashMap<>();
+    private final AtomicReferenceArray<TrackedResource> contendedResources;
+
+    /**
+     * @param trackedResources the number of resources to track the contention of. Zero disables the tracking of
+     * individual resources, and only keeps the wait time histograms.
+     */
+    public LockContentionStatistics( int trackedResources )
+    {
+        this.contendedResources = new AtomicReferenceArray<>( trackedResources );
+    }
+
+    /**
+     * Record that a lock client waited for the given resource, whether it eventually got the lock or not.
+     *
+     * @param resourceType the type of the resource that was waited for.
+     * @param resourceId the id of the resource that was waited for.
+     * @param waitNanos the time spent waiting, in nanoseconds.
+     */
+    public void waited( ResourceType resourceType, long resourceId, long waitNanos )
+    {
+        WaitTimes times = waitTimes.get( resourceType );
+        if ( times == null )
+        {
+            times = waitTimes.computeIfAbsent( resourceType, type -> new WaitTimes() );
+        }
+        times.record( waitNanos );
+        if ( contendedResources.length() > 0 )
+        {
+            trackResource( resourceType, resourceId, waitNanos );
+        }
+    }
+
+    private void trackResource( ResourceType resourceType, long resourceId, long waitNanos )
+    {
+        int slots = contendedResources.length();
+        int neighbourhood = Math.min( NEIGHBOURHOOD, slots );
+        int slot = Math.floorMod( hash( resourceType, resourceId ), slots );
+        int leastContendedSlot = -1;
+        TrackedResource leastContended = null;
+        for ( int i = 0; i < neighbourhood; i++, slot = slot + 1 == slots ? 0 : slot + 1 )
+        {
+            TrackedResource tracked = contendedResources.get( slot );
+            if ( tracked == null )
+            {
+                // Slots are never emptied, so everyone looking for this resource probes up to this same slot
+                if ( contendedResources.compareAndSet( slot, null,
+                        new TrackedResource( resourceType, resourceId, 1, waitNanos ) ) )
+                {
+                    return;
+                }
+                tracked = contendedResources.get( slot );
+            }
+            if ( tracked.is( resourceType, resourceId ) )
+            {
+                tracked.waited( waitNanos );
+                return;
+            }
+            if ( leastContended == null || tracked.waits() < leastContended.waits() )
+            {
+                leastContendedSlot = slot;
+                leastContended = tracked;
+            }
+        }
+        TrackedResource replacement = new TrackedResource( resourceType, resourceId,
+                leastContended.waits() + 1, leastContended.waitNanos() + waitNanos );
+        contendedResources.compareAndSet( leastContendedSlot, leastContended, replacement );
+    }
+
+    private static int hash( ResourceType resourceType, long resourceId )
+    {
+        int hash = 31 * resourceType.typeId() + Long.hashCode( resourceId );
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * @return the number of times lock clients have waited for resources of the given type.
+     */
+    public long waits( ResourceType resourceType )
+    {
+        WaitTimes times = waitTimes.get( resourceType );
+        return times == null ? 0 : times.waits.sum();
+    }
+
+    /**
+     * @return the total time lock clients have spent waiting for resources of the given type, in nanoseconds.
+     */
+    public long waitTimeNanos( ResourceType resourceType )
+    {
+        WaitTimes times = waitTimes.get( resourceType );
+        return times == null ? 0 : times.waitNanos.sum();
+    }
+
+    /**
+     * @return a copy of the wait time histogram of the given resource type, with {@link #WAIT_TIME_BUCKETS} buckets.
+     */
+    public long[] waitTimeHistogram( ResourceType resourceType )
+    {
+        long[] histogram = new long[WAIT_TIME_BUCKETS];
+        WaitTimes times = waitTimes.get( resourceType );
+        if ( times != null )
+        {
+            for ( int bucket = 0; bucket < WAIT_TIME_BUCKETS; bucket++ )
+            {
+                histogram[bucket] = times.buckets.get( bucket );
+            }
+        }
+        return histogram;
+    }
+
+    /**
+     * Estimate a percentile of the wait times of the given resource type, from its wait time histogram.
+     *
+     * @param resourceType the resource type to get the wait time percentile of.
+     * @param percentile the percentile, between 0 and 100.
+     * @return the upper bound of the histogram bucket that the percentile falls into, in microseconds, or zero if
+     * there have been no waits for resources of the given type.
+     */
+    public long waitTimePercentileMicros( ResourceType resourceType, double percentile )
+    {
+        long[] histogram = waitTimeHistogram( resourceType );
+        long total = 0;
+        for ( long count : histogram )
+        {
+            total += count;
+        }
+        if ( total == 0 )
+        {
+            return 0;
+        }
+        long rank = (long) Math.ceil( total * percentile / 100 );
+        long seen = 0;
+        for ( int bucket = 0; bucket < WAIT_TIME_BUCKETS - 1; bucket++ )
+        {
+            seen += histogram[bucket];
+            if ( seen >= rank )
+            {
+                return waitTimeBucketUpperBoundMicros( bucket );
+            }
+        }
+        return waitTimeBucketUpperBoundMicros( WAIT_TIME_BUCKETS - 1 );
+    }
+
+    /**
+     * @return the upper bound, exclusive, of the wait times counted by the given wait time histogram bucket, in
+     * microseconds. The last bucket has no upper bound, and reports the lower bound of the waits it counts instead.
+     */
+    public static long waitTimeBucketUpperBoundMicros( int bucket )
+    {
+        return 1L << Math.min( bucket, WAIT_TIME_BUCKETS - 2 );
+    }
+
+    /**
+     * @param limit the maximum number of resources to return.
+     * @return the resources that lock clients have waited for most often, most contended first.
+     */
+    public List<ContendedResource> mostContended( int limit )
+    {
+        // Racing replacements may rarely have put the same resource in two slots, so merge their counts
+        Map<TrackedResource,ContendedResource> resources = new HashMap<>();
+        for ( int slot = 0; slot < contendedResources.length(); slot++ )
+        {
+            TrackedResource tracked = contendedResources.get( slot );
+            if ( tracked != null )
+            {
+                resources.merge( tracked, new ContendedResource( tracked.resourceType, tracked.resourceId,
+                        tracked.waits(), tracked.waitNanos() ), ( a, b ) -> new ContendedResource( a.resourceType,
+                        a.resourceId, a.waits + b.waits, a.waitTimeNanos + b.waitTimeNanos ) );
+            }
+        }
+        List<ContendedResource> mostContended = new ArrayList<>( resources.values() );
+        mostContended.sort( MOST_CONTENDED_FIRST );
+        return mostContended.size() > limit ? new ArrayList<>( mostContended.subList( 0, limit ) ) : mostContended;
+    }
+
+    static int waitTimeBucket( long waitNanos )
+    {
+        long micros = TimeUnit.NANOSECONDS.toMicros( waitNanos );
+        return Math.min( Long.SIZE - Long.numberOfLeadingZeros( micros ), WAIT_TIME_BUCKETS - 1 );
+    }
+
+    /**
+     * A resource that lock clients have waited for, and how often and how long they have waited for it.
+     */
+    public static final class ContendedResource
+    {
+        private final ResourceType resourceType;
+        private final long resourceId;
+        private final long waits;
+        private final long waitTimeNanos;
+
+        ContendedResource( ResourceType resourceType, long resourceId, long waits, long waitTimeNanos )
+        {
+            this.resourceType = resourceType;
+            this.resourceId = resourceId;
+            this.waits = waits;
+            this.waitTimeNanos = waitTimeNanos;
+        }
+
+        public ResourceType resourceType()
+        {
+            return resourceType;
+        }
+
+        public long resourceId()
+        {
+            return resourceId;
+        }
+
+        public long waits()
+        {
+            return waits;
+        }
+
+        public long waitTimeNanos()
+        {
+            return waitTimeNanos;
+        }
+
+        @Override
+        public String toString()
+        {
+            return "ContendedResource{" + resourceType + "(" + resourceId + "), waits=" + waits +
+                    ", waitTimeNanos=" + waitTimeNanos + '}';
+        }
+    }
+
+    private static final class WaitTimes
+    {
+        private final LongAdder waits = new LongAdder();
+        private final LongAdder waitNanos = new LongAdder();
+        private final AtomicLongArray buckets = new AtomicLongArray( WAIT_TIME_BUCKETS );
+
+        void record( long waitNanos )
+        {
+            waits.increment();
+            this.waitNanos.add( waitNanos );
+            buckets.incrementAndGet( waitTimeBucket( waitNanos ) );
+        }
+    }
+
+    /**
+     * A resource in the contended resources table. Equal to any other tracked instance of the same resource.
+     */
+    private static final class TrackedResource
+    {
+        private final ResourceType resourceType;
+        private final long resourceId;
+        private final AtomicLong waits;
+        private final AtomicLong waitNanos;
+
+        TrackedResource( ResourceType resourceType, long resourceId, long waits, long waitNanos )
+        {
+            this.resourceType = resourceType;
+            this.resourceId = resourceId;
+            this.waits = new AtomicLong( waits );
+            this.waitNanos = new AtomicLong( waitNanos );
+        }
+
+        boolean is( ResourceType resourceType, long resourceId )
+        {
+            return this.resourceId == resourceId && this.resourceType.equals( resourceType );
+        }
+
+        void waited( long waitNanos )
+        {
+            waits.incrementAndGet();
+            this.waitNanos.addAndGet( waitNanos );
+        }
+
+        long waits()
+        {
+            return waits.get();
+        }
+
+        long waitNanos()
+        {
+            return waitNanos.get();
+        }
+
+        @Override
+        public boolean equals( Object o )
+        {
+            if ( this == o )
+            {
+                return true;
+            }
+            if ( o == null || getClass() != o.getClass() )
+            {
+                return false;
+            }
+            TrackedResource that = (TrackedResource) o;
+            return is( that.resourceType, that.resourceId );
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return hash( resourceType, resourceId );
+        }
+    }
+}
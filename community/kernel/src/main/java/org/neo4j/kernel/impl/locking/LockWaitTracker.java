@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2002-2020 "Neo4j,"
+ * Neo4j Sweden AB [http://neo4j.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.locking;
+
+import java.util.stream.Stream;
+
+import org.neo4j.storageengine.api.lock.ResourceType;
+
+/**
+ * Keeps track of the lock that a {@link Locks.Client} is currently waiting for, so that other threads can
+ * {@link #waitingLocks() see what it is waiting for}, and reports how long it waited to the
+ * {@link LockContentionStatistics} when the wait is over.
+ * <p>
+ * Each lock client has its own tracker, and only the thread that is using the lock client may begin and end waits.
+ */
+public final class LockWaitTracker
+{
+    private final LockContentionStatistics statistics;
+    private volatile ActiveLock waitingFor;
+    private long waitStartNanos;
+
+    public LockWaitTracker( LockContentionStatistics statistics )
+    {
+        this.statistics = statistics;
+    }
+
+    /**
+     * Note that the lock client is about to wait for the given resource. Calling this again for the same resource,
+     * for instance once per retry, does not restart the wait.
+     */
+    public void beginWait( boolean exclusive, ResourceType resourceType, long resourceId )
+    {
+        if ( waitingFor == null )
+        {
+            waitStartNanos = System.nanoTime();
+            waitingFor = exclusive ? ActiveLock.exclusiveLock( resourceType, resourceId )
+                                   : ActiveLock.sharedLock( resourceType, resourceId );
+        }
+    }
+
+    /**
+     * Note that the lock client is no longer waiting, either because it got the lock or because it gave up. Does
+     * nothing if the lock client was not waiting.
+     */
+    public void endWait()
+    {
+        ActiveLock lock = waitingFor;
+        if ( lock != null )
+        {
+            waitingFor = null;
+            statistics.waited( lock.resourceType(), lock.resourceId(), System.nanoTime() - waitStartNanos );
+        }
+    }
+
+    /**
+     * @return the lock that the lock client is waiting for, if any. May be called by any thread.
+     */
+    public Stream<ActiveLock> waitingLocks()
+    {
+        ActiveLock lock = waitingFor;
+        return lock == null ? Stream.empty() : Stream.of( lock );
+    }
+}
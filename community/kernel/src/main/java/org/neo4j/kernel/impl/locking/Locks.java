@@ -122,6 +122,18 @@ public interface Locks
         Stream<? extends ActiveLock> activeLocks();
 
         long activeLockCount();
+
+        /**
+         * List the locks that this client is currently waiting for, which are held by other clients.
+         *
+         * This method is invoked by concurrent threads in order to inspect the lock state of this client.
+         *
+         * @return the locks this client is waiting for.
+         */
+        default Stream<? extends ActiveLock> waitingLocks()
+        {
+            return Stream.empty();
+        }
     }
 
     /**
@@ -135,5 +147,14 @@ public interface Locks
     /** Visit all held locks. */
     void accept( Visitor visitor );
 
+    /**
+     * @return statistics about how long, and on which resources, the clients of this lock manager have waited for
+     * locks held by other clients.
+     */
+    default LockContentionStatistics contentionStatistics()
+    {
+        return LockContentionStatistics.NONE;
+    }
+
     void close();
 }
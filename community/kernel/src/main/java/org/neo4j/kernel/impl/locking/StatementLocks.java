@@ -82,4 +82,16 @@ public interface StatementLocks extends AutoCloseable
      * @return the number of active locks in this transaction.
      */
     long activeLockCount();
+
+    /**
+     * List the locks this transaction is currently waiting for, which are held by other transactions.
+     *
+     * This method is invoked by concurrent threads in order to inspect the lock state in this transaction.
+     *
+     * @return the locks this transaction is waiting for.
+     */
+    default Stream<? extends ActiveLock> waitingLocks()
+    {
+        return pessimistic().waitingLocks();
+    }
 }
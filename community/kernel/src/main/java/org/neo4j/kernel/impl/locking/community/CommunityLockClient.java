@@ -37,9 +37,12 @@ import java.util.stream.Stream;
 import org.neo4j.kernel.impl.locking.ActiveLock;
 import org.neo4j.kernel.impl.locking.LockClientStateHolder;
 import org.neo4j.kernel.impl.locking.LockClientStoppedException;
+import org.neo4j.kernel.impl.locking.LockContentionStatistics;
+import org.neo4j.kernel.impl.locking.LockWaitTracker;
 import org.neo4j.kernel.impl.locking.Locks;
 import org.neo4j.kernel.impl.locking.ResourceTypes;
 import org.neo4j.storageengine.api.lock.LockTracer;
+import org.neo4j.storageengine.api.lock.LockWaitEvent;
 import org.neo4j.storageengine.api.lock.ResourceType;
 
 import static java.lang.String.format;
@@ -68,9 +71,13 @@ public class CommunityLockClient implements Locks.Client
     // closed and eventually will block other clients.
     private final LockClientStateHolder stateHolder = new LockClientStateHolder();
 
-    public CommunityLockClient( LockManagerImpl manager )
+    private final LockWaitTracker waitTracker;
+    private final WaitTrackingTracer waitTrackingTracer = new WaitTrackingTracer();
+
+    public CommunityLockClient( LockManagerImpl manager, LockContentionStatistics contentionStatistics )
     {
         this.manager = manager;
+        this.waitTracker = new LockWaitTracker( contentionStatistics );
 
         readReleaser = ( key, lockResource ) -> manager.releaseReadLock( lockResource, lockTransaction );
         writeReleaser = ( key, lockResource ) -> manager.releaseWriteLock( lockResource, lockTransaction );
@@ -95,7 +102,7 @@ public class CommunityLockClient implements Locks.Client
                 else
                 {
                     resource = new LockResource( resourceType, resourceId );
-                    if ( manager.getReadLock( tracer, resource, lockTransaction ) )
+                    if ( manager.getReadLock( waitTrackingTracer.wrap( tracer ), resource, lockTransaction ) )
                     {
                         localLocks.put( resourceId, resource );
                     }
@@ -129,7 +136,7 @@ public class CommunityLockClient implements Locks.Client
                 else
                 {
                     resource = new LockResource( resourceType, resourceId );
-                    if ( manager.getWriteLock( tracer, resource, lockTransaction ) )
+                    if ( manager.getWriteLock( waitTrackingTracer.wrap( tracer ), resource, lockTransaction ) )
                     {
                         localLocks.put( resourceId, resource );
                     }
@@ -370,6 +377,12 @@ public class CommunityLockClient implements Locks.Client
         return locks.stream();
     }
 
+    @Override
+    public Stream<ActiveLock> waitingLocks()
+    {
+        return waitTracker.waitingLocks();
+    }
+
     @Override
     public long activeLockCount()
     {
@@ -379,6 +392,37 @@ public class CommunityLockClient implements Locks.Client
         return counter.locks;
     }
 
+    /**
+     * The {@link RWLock} reports each wait for a lock to the lock tracer it is given, so we wrap the tracer of the
+     * caller with this one, to find out what we are waiting for and for how long.
+     */
+    private class WaitTrackingTracer implements LockTracer, LockWaitEvent
+    {
+        private LockTracer tracer;
+        private LockWaitEvent waitEvent;
+
+        LockTracer wrap( LockTracer tracer )
+        {
+            this.tracer = tracer;
+            return this;
+        }
+
+        @Override
+        public LockWaitEvent waitForLock( boolean exclusive, ResourceType resourceType, long... resourceIds )
+        {
+            waitTracker.beginWait( exclusive, resourceType, resourceIds[0] );
+            waitEvent = tracer.waitForLock( exclusive, resourceType, resourceIds );
+            return this;
+        }
+
+        @Override
+        public void close()
+        {
+            waitTracker.endWait();
+            waitEvent.close();
+        }
+    }
+
     private static class LockCounter implements IntObjectProcedure<LongObjectMap<LockResource>>
     {
         long locks;
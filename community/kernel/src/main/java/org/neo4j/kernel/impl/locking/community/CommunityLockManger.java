@@ -21,17 +21,22 @@ package org.neo4j.kernel.impl.locking.community;
 
 import java.time.Clock;
 
+import org.neo4j.graphdb.factory.GraphDatabaseSettings;
 import org.neo4j.kernel.configuration.Config;
+import org.neo4j.kernel.impl.locking.LockContentionStatistics;
 import org.neo4j.kernel.impl.locking.Locks;
 
 public class CommunityLockManger implements Locks
 {
     private final LockManagerImpl manager;
+    private final LockContentionStatistics contentionStatistics;
     private volatile boolean closed;
 
     public CommunityLockManger( Config config, Clock clock )
     {
         manager = new LockManagerImpl( new RagManager(), config, clock );
+        contentionStatistics = new LockContentionStatistics(
+                config.get( GraphDatabaseSettings.lock_contention_tracked_resources ) );
     }
 
     @Override
@@ -44,7 +49,7 @@ public class CommunityLockManger implements Locks
         {
             throw new IllegalStateException( this + " already closed" );
         }
-        return new CommunityLockClient( manager );
+        return new CommunityLockClient( manager, contentionStatistics );
     }
 
     @Override
@@ -63,6 +68,12 @@ public class CommunityLockManger implements Locks
         } );
     }
 
+    @Override
+    public LockContentionStatistics contentionStatistics()
+    {
+        return contentionStatistics;
+    }
+
     @Override
     public void close()
     {
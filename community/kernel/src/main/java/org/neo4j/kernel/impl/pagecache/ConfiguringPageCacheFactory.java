@@ -22,10 +22,12 @@ package org.neo4j.kernel.impl.pagecache;
 import org.neo4j.helpers.Service;
 import org.neo4j.io.ByteUnit;
 import org.neo4j.io.fs.FileSystemAbstraction;
+import org.neo4j.io.mem.HugePages;
 import org.neo4j.io.mem.MemoryAllocator;
 import org.neo4j.io.os.OsBeanUtil;
 import org.neo4j.io.pagecache.PageCache;
 import org.neo4j.io.pagecache.PageSwapperFactory;
+import org.neo4j.io.pagecache.impl.DirectIOPageSwapperFactory;
 import org.neo4j.io.pagecache.impl.SingleFilePageSwapperFactory;
 import org.neo4j.io.pagecache.impl.muninn.MuninnPageCache;
 import org.neo4j.io.pagecache.tracing.PageCacheTracer;
@@ -37,6 +39,11 @@ import org.neo4j.memory.GlobalMemoryTracker;
 import org.neo4j.scheduler.JobScheduler;
 
 import static org.neo4j.graphdb.factory.GraphDatabaseSettings.mapped_memory_page_size;
+import static org.neo4j.graphdb.factory.GraphDatabaseSettings.pagecache_background_flush_dirty_percentage;
+import static org.neo4j.graphdb.factory.GraphDatabaseSettings.pagecache_compressed_tier_size;
+import static org.neo4j.graphdb.factory.GraphDatabaseSettings.pagecache_eviction_policy;
+import static org.neo4j.graphdb.factory.GraphDatabaseSettings.pagecache_huge_pages;
+import static org.neo4j.graphdb.factory.GraphDatabaseSettings.pagecache_huge_pages_directory;
 import static org.neo4j.graphdb.factory.GraphDatabaseSettings.pagecache_memory;
 import static org.neo4j.graphdb.factory.GraphDatabaseSettings.pagecache_swapper;
 import static org.neo4j.kernel.configuration.Settings.BYTES;
@@ -91,8 +98,11 @@ public class ConfiguringPageCacheFactory
     {
         checkPageSize( config );
         MemoryAllocator memoryAllocator = buildMemoryAllocator( config );
-        return new MuninnPageCache( swapperFactory, memoryAllocator, pageCacheTracer, pageCursorTracerSupplier,
-                versionContextSupplier, scheduler );
+        MuninnPageCache pageCache = new MuninnPageCache( swapperFactory, memoryAllocator, pageCacheTracer, pageCursorTracerSupplier,
+                versionContextSupplier, scheduler, config.get( pagecache_eviction_policy ) );
+        pageCache.enableBackgroundFlushing( config.get( pagecache_background_flush_dirty_percentage ) );
+        pageCache.enableCompressedTier( config.get( pagecache_compressed_tier_size ) );
+        return pageCache;
     }
 
     private MemoryAllocator buildMemoryAllocator( Config config )
@@ -108,7 +118,22 @@ public class ConfiguringPageCacheFactory
             pageCacheMemorySetting = "" + heuristic;
         }
 
-        return MemoryAllocator.createAllocator( pageCacheMemorySetting, GlobalMemoryTracker.INSTANCE );
+        HugePages hugePages = config.get( pagecache_huge_pages );
+        if ( hugePages == HugePages.HUGETLBFS )
+        {
+            try
+            {
+                return MemoryAllocator.createAllocator( pageCacheMemorySetting, GlobalMemoryTracker.INSTANCE, hugePages,
+                        config.get( pagecache_huge_pages_directory ) );
+            }
+            catch ( IllegalArgumentException | UnsupportedOperationException e )
+            {
+                log.warn( "Unable to map the page cache memory from hugetlbfs, falling back to transparent huge pages. " +
+                          e.getMessage() );
+                hugePages = HugePages.TRANSPARENT;
+            }
+        }
+        return MemoryAllocator.createAllocator( pageCacheMemorySetting, GlobalMemoryTracker.INSTANCE, hugePages, null );
     }
 
     public static long defaultHeuristicPageCacheMemory()
@@ -176,7 +201,9 @@ public class ConfiguringPageCacheFactory
         long maxVmUsageMb = ByteUnit.Byte.toMebiBytes( Runtime.getRuntime().maxMemory() );
         String msg = "Physical mem: " + totalPhysicalMemMb + " MiB," +
                      " Heap size: " + maxVmUsageMb + " MiB," +
-                     " Page cache: " + pageCacheMemory + ".";
+                     " Page cache: " + pageCacheMemory + "," +
+                     " Eviction policy: " + config.get( pagecache_eviction_policy ) + "," +
+                     " Huge pages: " + config.get( pagecache_huge_pages ) + ".";
 
         log.info( msg );
     }
@@ -198,6 +225,12 @@ public class ConfiguringPageCacheFactory
                 if ( factory.implementationName().equals( desiredImplementation ) )
                 {
                     log.info( "Configured " + pagecache_swapper.name() + ": " + desiredImplementation );
+                    if ( factory instanceof DirectIOPageSwapperFactory )
+                    {
+                        ((DirectIOPageSwapperFactory) factory).setMonitor( ( file, reason ) -> log.warn(
+                                "Not using direct IO for %s, because %s. The file is accessed through the operating system page cache instead.",
+                                file, reason ) );
+                    }
                     return factory;
                 }
             }
@@ -47,6 +47,7 @@ import org.neo4j.kernel.api.txstate.TransactionCountingStateVisitor;
 import org.neo4j.kernel.configuration.Config;
 import org.neo4j.kernel.impl.api.BatchTransactionApplier;
 import org.neo4j.kernel.impl.api.BatchTransactionApplierFacade;
+import org.neo4j.kernel.impl.api.CommitLatencyTracer;
 import org.neo4j.kernel.impl.api.CountsRecordState;
 import org.neo4j.kernel.impl.api.CountsStoreBatchTransactionApplier;
 import org.neo4j.kernel.impl.api.ExplicitBatchIndexApplier;
@@ -88,6 +89,7 @@ import org.neo4j.kernel.impl.transaction.command.IndexBatchTransactionApplier;
 import org.neo4j.kernel.impl.transaction.command.IndexUpdatesWork;
 import org.neo4j.kernel.impl.transaction.command.LabelUpdateWork;
 import org.neo4j.kernel.impl.transaction.command.NeoStoreBatchTransactionApplier;
+import org.neo4j.kernel.impl.transaction.command.PartitionedRecordApplier;
 import org.neo4j.kernel.impl.transaction.state.IntegrityValidator;
 import org.neo4j.kernel.impl.transaction.state.storeview.DynamicIndexStoreView;
 import org.neo4j.kernel.impl.transaction.state.storeview.NeoStoreIndexStoreView;
@@ -99,6 +101,7 @@ import org.neo4j.kernel.lifecycle.LifecycleAdapter;
 import org.neo4j.kernel.monitoring.Monitors;
 import org.neo4j.kernel.spi.explicitindex.IndexImplementation;
 import org.neo4j.logging.LogProvider;
+import org.neo4j.scheduler.Group;
 import org.neo4j.scheduler.JobScheduler;
 import org.neo4j.storageengine.api.CommandReaderFactory;
 import org.neo4j.storageengine.api.CommandsToApply;
@@ -145,6 +148,10 @@ public class RecordStorageEngine implements StorageEngine, Lifecycle
     private final IdController idController;
     private final int denseNodeThreshold;
     private final int recordIdBatchSize;
+    private final RelationshipChainLocking relationshipChainLocking;
+    private final PartitionedRecordApplier recoveryRecordApplier;
+    private final Monitors monitors;
+    private final CommitLatencyTracer.Monitor commitLatencyMonitor;
 
     public RecordStorageEngine(
             DatabaseLayout databaseLayout,
@@ -182,6 +189,8 @@ public class RecordStorageEngine implements StorageEngine, Lifecycle
         this.explicitIndexTransactionOrdering = explicitIndexTransactionOrdering;
 
         this.idController = idController;
+        this.monitors = monitors;
+        this.commitLatencyMonitor = monitors.newMonitor( CommitLatencyTracer.Monitor.class );
         StoreFactory factory = new StoreFactory( databaseLayout, config, idGeneratorFactory, pageCache, fs, logProvider,
                 versionContextSupplier );
         neoStores = factory.openAllNeoStores( true );
@@ -216,6 +225,11 @@ public class RecordStorageEngine implements StorageEngine, Lifecycle
 
             denseNodeThreshold = config.get( GraphDatabaseSettings.dense_node_threshold );
             recordIdBatchSize = config.get( GraphDatabaseSettings.record_id_batch_size );
+            relationshipChainLocking = config.get( GraphDatabaseSettings.sorted_relationship_chain_locks )
+                                       ? new RelationshipChainLocking( neoStores, denseNodeThreshold ) : null;
+            int recoveryParallelism = config.get( GraphDatabaseSettings.recovery_parallelism );
+            recoveryRecordApplier = recoveryParallelism > 1 ? new PartitionedRecordApplier( neoStores,
+                    scheduler.executor( Group.RECOVERY_WORKER ), recoveryParallelism ) : null;
         }
         catch ( Throwable failure )
         {
@@ -257,6 +271,10 @@ public class RecordStorageEngine implements StorageEngine, Lifecycle
             // of the storage statements that we create.
             RecordStorageCommandCreationContext creationContext =
                     ((RecordStorageReader) storageReader).getCommandCreationContext();
+            if ( relationshipChainLocking != null )
+            {
+                relationshipChainLocking.lockRelationshipChains( txState, locks );
+            }
             TransactionRecordState recordState =
                     creationContext.createTransactionRecordState( integrityValidator, lastTransactionIdWhenStarted, locks );
 
@@ -283,17 +301,25 @@ public class RecordStorageEngine implements StorageEngine, Lifecycle
     {
         // Have these command appliers as separate try-with-resource to have better control over
         // point between closing this and the locks above
+        boolean partitioned = mode == RECOVERY && recoveryRecordApplier != null;
         try ( IndexActivator indexActivator = new IndexActivator( indexingService );
               LockGroup locks = new LockGroup();
-              BatchTransactionApplier batchApplier = applier( mode, indexActivator ) )
+              BatchTransactionApplier batchApplier = partitioned ? applier( mode, indexActivator, true )
+                                                                 : applier( mode, indexActivator ) )
         {
             while ( batch != null )
             {
-                try ( TransactionApplier txApplier = batchApplier.startTx( batch, locks ) )
+                // When recovering in parallel, the records of a run of transactions are written up front, and the rest
+                // of each transaction in the run is then applied in order, like always
+                CommandsToApply endOfRun = partitioned ? recoveryRecordApplier.apply( batch ) : batch.next();
+                while ( batch != endOfRun )
                 {
-                    batch.accept( txApplier );
+                    try ( TransactionApplier txApplier = batchApplier.startTx( batch, locks ) )
+                    {
+                        batch.accept( txApplier );
+                    }
+                    batch = batch.next();
                 }
-                batch = batch.next();
             }
         }
         catch ( Throwable cause )
@@ -313,10 +339,27 @@ public class RecordStorageEngine implements StorageEngine, Lifecycle
      * After all transactions have been applied the appliers are closed.
      */
     protected BatchTransactionApplierFacade applier( TransactionApplicationMode mode, IndexActivator indexActivator )
+    {
+        return applier( mode, indexActivator, false );
+    }
+
+    /**
+     * The commit latency tracer, or metrics, may start listening for commit phase times after the storage engine has
+     * been created, so this is checked for every batch. It spares timing the index updates when nobody listens.
+     */
+    private CommitLatencyTracer.Monitor indexApplyMonitor()
+    {
+        return monitors.hasListeners( CommitLatencyTracer.Monitor.class ) ? commitLatencyMonitor
+                                                                           : CommitLatencyTracer.Monitor.NO_MONITOR;
+    }
+
+    private BatchTransactionApplierFacade applier( TransactionApplicationMode mode, IndexActivator indexActivator,
+            boolean entityRecordsApplied )
     {
         ArrayList<BatchTransactionApplier> appliers = new ArrayList<>();
         // Graph store application. The order of the decorated store appliers is irrelevant
-        appliers.add( new NeoStoreBatchTransactionApplier( mode.version(), neoStores, cacheAccess, lockService( mode ) ) );
+        appliers.add( new NeoStoreBatchTransactionApplier( mode.version(), neoStores, cacheAccess, lockService( mode ),
+                entityRecordsApplied ) );
         if ( mode.needsHighIdTracking() )
         {
             appliers.add( new HighIdBatchTransactionApplier( neoStores ) );
@@ -333,7 +376,7 @@ public class RecordStorageEngine implements StorageEngine, Lifecycle
             // Schema index application
             appliers.add( new IndexBatchTransactionApplier( indexingService, labelScanStoreSync, indexUpdatesSync,
                     neoStores.getNodeStore(), neoStores.getRelationshipStore(),
-                    neoStores.getPropertyStore(), indexActivator ) );
+                    neoStores.getPropertyStore(), indexActivator, indexApplyMonitor() ) );
 
             // Explicit index application
             appliers.add(
@@ -0,0 +1,253 @@
+/*
+ * Copyright (c) 2002-2020 "Neo4j,"
+ * Neo4j Sweden AB [http://neo4j.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.storageengine.impl.recordstorage;
+
+import org.eclipse.collections.api.map.primitive.MutableLongIntMap;
+import org.eclipse.collections.api.set.primitive.MutableLongSet;
+import org.eclipse.collections.impl.map.mutable.primitive.LongIntHashMap;
+import org.eclipse.collections.impl.set.mutable.primitive.LongHashSet;
+
+import org.neo4j.kernel.impl.locking.ResourceTypes;
+import org.neo4j.kernel.impl.store.NeoStores;
+import org.neo4j.kernel.impl.store.NodeStore;
+import org.neo4j.kernel.impl.store.RelationshipGroupStore;
+import org.neo4j.kernel.impl.store.RelationshipStore;
+import org.neo4j.kernel.impl.store.record.NodeRecord;
+import org.neo4j.kernel.impl.store.record.Record;
+import org.neo4j.kernel.impl.store.record.RecordLoad;
+import org.neo4j.kernel.impl.store.record.RelationshipGroupRecord;
+import org.neo4j.kernel.impl.store.record.RelationshipRecord;
+import org.neo4j.storageengine.api.lock.LockTracer;
+import org.neo4j.storageengine.api.lock.ResourceLocker;
+import org.neo4j.storageengine.api.txstate.LongDiffSets;
+import org.neo4j.storageengine.api.txstate.ReadableTransactionState;
+
+import static org.neo4j.kernel.impl.storageengine.impl.recordstorage.RelationshipCreator.relCount;
+
+/**
+ * Acquires the node and relationship locks that {@link RelationshipCreator} and {@link RelationshipDeleter} are going
+ * to need for the relationships that a transaction creates and deletes, in one batch sorted by resource id, before
+ * the transaction state is converted into records.
+ * <p>
+ * Without this, the relationship locks are acquired one at a time, in whatever order the records happen to be
+ * visited, while the locks acquired before are held. Two transactions that link relationships into chains that share
+ * records, which is common around dense nodes, can then end up waiting for each other and one of them is aborted with
+ * a deadlock. Acquiring all the locks up front in sorted order makes such deadlocks impossible.
+ * <p>
+ * The set of locks is worked out from the stored records. This is safe, because the transaction already holds
+ * exclusive locks on the nodes of all relationships it creates or deletes, and the relationship chains of a node are
+ * only ever changed by a transaction that holds the lock of that node. The relationship creator and deleter still
+ * acquire their locks as before, which is a cheap re-entrant acquisition for every lock taken here, and a fallback for
+ * anything this estimate missed, such as relationships of a node that is only converted to a dense node part way.
+ */
+class RelationshipChainLocking
+{
+    private static final long NO_RELATIONSHIP = Record.NO_NEXT_RELATIONSHIP.intValue();
+
+    private final NodeStore nodeStore;
+    private final RelationshipStore relationshipStore;
+    private final RelationshipGroupStore relationshipGroupStore;
+    private final int denseNodeThreshold;
+
+    RelationshipChainLocking( NeoStores neoStores, int denseNodeThreshold )
+    {
+        this.nodeStore = neoStores.getNodeStore();
+        this.relationshipStore = neoStores.getRelationshipStore();
+        this.relationshipGroupStore = neoStores.getRelationshipGroupStore();
+        this.denseNodeThreshold = denseNodeThreshold;
+    }
+
+    void lockRelationshipChains( ReadableTransactionState txState, ResourceLocker locks )
+    {
+        LongDiffSets relationships = txState.addedAndRemovedRelationships();
+        if ( relationships.isEmpty() )
+        {
+            return;
+        }
+
+        MutableLongSet nodeIds = new LongHashSet();
+        MutableLongSet relationshipIds = new LongHashSet();
+        MutableLongIntMap createdRelationshipsPerNode = new LongIntHashMap();
+        NodeRecord node = nodeStore.newRecord();
+        RelationshipRecord relationship = relationshipStore.newRecord();
+        RelationshipGroupRecord group = relationshipGroupStore.newRecord();
+
+        relationships.getAdded().each( relationshipId -> txState.relationshipVisit( relationshipId,
+                ( id, type, startNode, endNode ) ->
+                {
+                    nodeIds.add( startNode );
+                    nodeIds.add( endNode );
+                    createdRelationshipsPerNode.addToValue( startNode, 1 );
+                    if ( startNode != endNode )
+                    {
+                        createdRelationshipsPerNode.addToValue( endNode, 1 );
+                    }
+                    // The chains of dense nodes are per type and direction, so collect their first relationships here.
+                    // The chains of sparse nodes are collected below, once we know how many relationships each gets.
+                    addDenseChainHead( startNode, type, startNode, endNode, node, group, relationshipIds );
+                    if ( startNode != endNode )
+                    {
+                        addDenseChainHead( endNode, type, startNode, endNode, node, group, relationshipIds );
+                    }
+                } ) );
+
+        relationships.getRemoved().each( relationshipId ->
+        {
+            relationshipStore.getRecord( relationshipId, relationship, RecordLoad.CHECK );
+            if ( !relationship.inUse() )
+            {
+                return;
+            }
+            long startNode = relationship.getFirstNode();
+            long endNode = relationship.getSecondNode();
+            nodeIds.add( startNode );
+            nodeIds.add( endNode );
+            relationshipIds.add( relationshipId );
+
+            // The neighbours in both chains, that will be linked to each other.
+            if ( !relationship.isFirstInFirstChain() )
+            {
+                addRelationship( relationship.getFirstPrevRel(), relationshipIds );
+            }
+            addRelationship( relationship.getFirstNextRel(), relationshipIds );
+            if ( !relationship.isFirstInSecondChain() )
+            {
+                addRelationship( relationship.getSecondPrevRel(), relationshipIds );
+            }
+            addRelationship( relationship.getSecondNextRel(), relationshipIds );
+
+            // The first relationships in both chains, that keep the relationship counts.
+            int type = relationship.getType();
+            addChainHead( startNode, type, startNode, endNode, node, group, relationshipIds );
+            if ( startNode != endNode )
+            {
+                addChainHead( endNode, type, startNode, endNode, node, group, relationshipIds );
+            }
+        } );
+
+        createdRelationshipsPerNode.forEachKeyValue( ( nodeId, created ) ->
+                addSparseChain( nodeId, created, node, relationship, relationshipIds ) );
+
+        if ( !nodeIds.isEmpty() )
+        {
+            locks.acquireExclusive( LockTracer.NONE, ResourceTypes.NODE, nodeIds.toSortedArray() );
+        }
+        if ( !relationshipIds.isEmpty() )
+        {
+            locks.acquireExclusive( LockTracer.NONE, ResourceTypes.RELATIONSHIP, relationshipIds.toSortedArray() );
+        }
+    }
+
+    /**
+     * A new relationship is linked in first in the chain of a sparse node, so the current first relationship of that
+     * chain gets changed. If the new relationships make the node go over the dense node threshold, then the node is
+     * converted to a dense node, which changes every relationship in the chain.
+     */
+    private void addSparseChain( long nodeId, int createdRelationships, NodeRecord node,
+            RelationshipRecord relationship, MutableLongSet relationshipIds )
+    {
+        nodeStore.getRecord( nodeId, node, RecordLoad.CHECK );
+        if ( !node.inUse() || node.isDense() || node.getNextRel() == NO_RELATIONSHIP )
+        {
+            return;
+        }
+
+        long relationshipId = node.getNextRel();
+        relationshipIds.add( relationshipId );
+        relationshipStore.getRecord( relationshipId, relationship, RecordLoad.CHECK );
+        if ( !relationship.inUse() )
+        {
+            return;
+        }
+        int chainLength = relCount( nodeId, relationship );
+        if ( chainLength + createdRelationships < denseNodeThreshold )
+        {
+            return;
+        }
+
+        for ( int i = 1; i < chainLength; i++ )
+        {
+            relationshipId = relationship.getFirstNode() == nodeId ? relationship.getFirstNextRel()
+                                                                   : relationship.getSecondNextRel();
+            if ( relationshipId == NO_RELATIONSHIP )
+            {
+                return;
+            }
+            relationshipIds.add( relationshipId );
+            relationshipStore.getRecord( relationshipId, relationship, RecordLoad.CHECK );
+            if ( !relationship.inUse() )
+            {
+                return;
+            }
+        }
+    }
+
+    private void addChainHead( long nodeId, int type, long startNode, long endNode, NodeRecord node,
+            RelationshipGroupRecord group, MutableLongSet relationshipIds )
+    {
+        nodeStore.getRecord( nodeId, node, RecordLoad.CHECK );
+        if ( node.inUse() )
+        {
+            long chainHead = node.isDense() ? denseChainHead( node, type, startNode, endNode, group )
+                                            : node.getNextRel();
+            addRelationship( chainHead, relationshipIds );
+        }
+    }
+
+    private void addDenseChainHead( long nodeId, int type, long startNode, long endNode, NodeRecord node,
+            RelationshipGroupRecord group, MutableLongSet relationshipIds )
+    {
+        nodeStore.getRecord( nodeId, node, RecordLoad.CHECK );
+        if ( node.inUse() && node.isDense() )
+        {
+            addRelationship( denseChainHead( node, type, startNode, endNode, group ), relationshipIds );
+        }
+    }
+
+    private long denseChainHead( NodeRecord node, int type, long startNode, long endNode,
+            RelationshipGroupRecord group )
+    {
+        long groupId = node.getNextRel();
+        while ( groupId != NO_RELATIONSHIP )
+        {
+            relationshipGroupStore.getRecord( groupId, group, RecordLoad.CHECK );
+            if ( !group.inUse() || group.getType() > type )
+            {
+                // The groups are sorted by type, so there is no group for this type.
+                break;
+            }
+            if ( group.getType() == type )
+            {
+                return startNode == endNode ? group.getFirstLoop()
+                                            : node.getId() == startNode ? group.getFirstOut() : group.getFirstIn();
+            }
+            groupId = group.getNext();
+        }
+        return NO_RELATIONSHIP;
+    }
+
+    private static void addRelationship( long relationshipId, MutableLongSet relationshipIds )
+    {
+        if ( relationshipId != NO_RELATIONSHIP )
+        {
+            relationshipIds.add( relationshipId );
+        }
+    }
+}
@@ -131,6 +131,11 @@ public class MetaDataStore extends CommonAbstractStore<MetaDataRecord,NoStoreHea
     private final HighestTransactionId highestCommittedTransaction =
             new HighestTransactionId( FIELD_NOT_INITIALIZED, FIELD_NOT_INITIALIZED, FIELD_NOT_INITIALIZED );
 
+    // This is not a field in the store, but something keeping track of the highest committed transaction id whose
+    // log entries have been forced. It only lags behind the highest committed transaction when the log is forced
+    // asynchronously.
+    private final AtomicLong lastDurableTx = new AtomicLong( FIELD_NOT_INITIALIZED );
+
     // This is not a field in the store, but something keeping track of which of the committed
     // transactions have been closed. Useful in rotation and shutdown.
     private final OutOfOrderSequence lastClosedTx = new ArrayQueueOutOfOrderSequence( -1, 200, new long[2] );
@@ -207,6 +212,7 @@ public class MetaDataStore extends CommonAbstractStore<MetaDataRecord,NoStoreHea
         lastCommittingTxField.set( transactionId );
         lastClosedTx.set( transactionId, new long[]{logVersion, byteOffset} );
         highestCommittedTransaction.set( transactionId, checksum, commitTimestamp );
+        lastDurableTx.set( transactionId );
     }
     /**
      * Writes a record in a neostore file.
@@ -550,6 +556,7 @@ public class MetaDataStore extends CommonAbstractStore<MetaDataRecord,NoStoreHea
             long lastClosedTransactionLogByteOffset = getRecordValue( cursor, Position.LAST_CLOSED_TRANSACTION_LOG_BYTE_OFFSET );
             lastClosedTx.set( lastCommittedTxId,
                     new long[]{lastClosedTransactionLogVersion, lastClosedTransactionLogByteOffset} );
+            lastDurableTx.set( lastCommittedTxId );
             highestCommittedTransaction.set( lastCommittedTxId,
                     getRecordValue( cursor, Position.LAST_TRANSACTION_CHECKSUM ),
                     getRecordValue( cursor, Position.LAST_TRANSACTION_COMMIT_TIMESTAMP, UNKNOWN_TX_COMMIT_TIMESTAMP
@@ -767,6 +774,22 @@ public class MetaDataStore extends CommonAbstractStore<MetaDataRecord,NoStoreHea
         return highestCommittedTransaction.get().transactionId();
     }
 
+    @Override
+    public void transactionDurable( long transactionId )
+    {
+        assertNotClosed();
+        checkInitialized( lastCommittingTxField.get() );
+        lastDurableTx.accumulateAndGet( transactionId, Math::max );
+    }
+
+    @Override
+    public long getLastDurableTransactionId()
+    {
+        assertNotClosed();
+        checkInitialized( lastCommittingTxField.get() );
+        return lastDurableTx.get();
+    }
+
     @Override
     public TransactionId getLastCommittedTransaction()
     {
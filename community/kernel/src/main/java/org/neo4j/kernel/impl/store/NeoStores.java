@@ -250,7 +250,16 @@ public class NeoStores implements AutoCloseable
             {
                 counts.rotate( getMetaDataStore().getLastCommittedTransactionId() );
             }
-            pageCache.flushAndForce( limiter );
+            if ( config.get( GraphDatabaseSettings.check_point_incremental ) )
+            {
+                // Everything that was written before now belongs to the dirty epoch we are ending, so flushing the
+                // pages of that epoch, and earlier ones, makes all transactions closed before this call durable.
+                pageCache.flushAndForceDirtyUpTo( pageCache.beginDirtyEpoch(), limiter );
+            }
+            else
+            {
+                pageCache.flushAndForce( limiter );
+            }
         }
         catch ( IOException e )
         {
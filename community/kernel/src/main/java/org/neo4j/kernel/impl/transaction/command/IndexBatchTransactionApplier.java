@@ -28,6 +28,8 @@ import java.util.function.Supplier;
 import org.neo4j.kernel.api.labelscan.LabelScanWriter;
 import org.neo4j.kernel.api.labelscan.NodeLabelUpdate;
 import org.neo4j.kernel.impl.api.BatchTransactionApplier;
+import org.neo4j.kernel.impl.api.CommitLatencyTracer;
+import org.neo4j.kernel.impl.api.CommitLatencyTracer.CommitPhase;
 import org.neo4j.kernel.impl.api.TransactionApplier;
 import org.neo4j.kernel.impl.api.index.IndexingService;
 import org.neo4j.kernel.impl.api.index.IndexingUpdateService;
@@ -62,6 +64,7 @@ public class IndexBatchTransactionApplier extends BatchTransactionApplier.Adapte
     private final SingleTransactionApplier transactionApplier;
     private final IndexActivator indexActivator;
     private final PropertyStore propertyStore;
+    private final CommitLatencyTracer.Monitor commitMonitor;
 
     private List<NodeLabelUpdate> labelUpdates;
     private IndexUpdates indexUpdates;
@@ -70,6 +73,18 @@ public class IndexBatchTransactionApplier extends BatchTransactionApplier.Adapte
     public IndexBatchTransactionApplier( IndexingService indexingService, WorkSync<Supplier<LabelScanWriter>,LabelUpdateWork> labelScanStoreSync,
             WorkSync<IndexingUpdateService,IndexUpdatesWork> indexUpdatesSync, NodeStore nodeStore, RelationshipStore relationshipStore,
             PropertyStore propertyStore, IndexActivator indexActivator )
+    {
+        this( indexingService, labelScanStoreSync, indexUpdatesSync, nodeStore, relationshipStore, propertyStore,
+                indexActivator, CommitLatencyTracer.Monitor.NO_MONITOR );
+    }
+
+    /**
+     * @param commitMonitor receives the time spent applying the index updates of each batch. Pass
+     * {@link CommitLatencyTracer.Monitor#NO_MONITOR} when nobody listens, and the updates will not be timed at all.
+     */
+    public IndexBatchTransactionApplier( IndexingService indexingService, WorkSync<Supplier<LabelScanWriter>,LabelUpdateWork> labelScanStoreSync,
+            WorkSync<IndexingUpdateService,IndexUpdatesWork> indexUpdatesSync, NodeStore nodeStore, RelationshipStore relationshipStore,
+            PropertyStore propertyStore, IndexActivator indexActivator, CommitLatencyTracer.Monitor commitMonitor )
     {
         this.indexingService = indexingService;
         this.labelScanStoreSync = labelScanStoreSync;
@@ -77,6 +92,7 @@ public class IndexBatchTransactionApplier extends BatchTransactionApplier.Adapte
         this.propertyStore = propertyStore;
         this.transactionApplier = new SingleTransactionApplier( nodeStore, relationshipStore );
         this.indexActivator = indexActivator;
+        this.commitMonitor = commitMonitor;
     }
 
     @Override
@@ -100,7 +116,16 @@ public class IndexBatchTransactionApplier extends BatchTransactionApplier.Adapte
         {
             try
             {
-                indexUpdatesSync.apply( new IndexUpdatesWork( indexUpdates ) );
+                if ( commitMonitor == CommitLatencyTracer.Monitor.NO_MONITOR )
+                {
+                    indexUpdatesSync.apply( new IndexUpdatesWork( indexUpdates ) );
+                }
+                else
+                {
+                    long startNanos = System.nanoTime();
+                    indexUpdatesSync.apply( new IndexUpdatesWork( indexUpdates ) );
+                    commitMonitor.commitPhaseCompleted( CommitPhase.INDEX_APPLY, System.nanoTime() - startNanos );
+                }
             }
             catch ( ExecutionException e )
             {
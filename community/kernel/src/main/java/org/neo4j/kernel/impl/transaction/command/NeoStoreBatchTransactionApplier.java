@@ -41,6 +41,7 @@ public class NeoStoreBatchTransactionApplier extends BatchTransactionApplier.Ada
     // Ideally we don't want any cache access in here, but it is how it is. At least we try to minimize use of it
     private final CacheAccessBackDoor cacheAccess;
     private final LockService lockService;
+    private final boolean entityRecordsApplied;
 
     public NeoStoreBatchTransactionApplier( NeoStores store, CacheAccessBackDoor cacheAccess, LockService lockService )
     {
@@ -48,11 +49,22 @@ public class NeoStoreBatchTransactionApplier extends BatchTransactionApplier.Ada
     }
 
     public NeoStoreBatchTransactionApplier( CommandVersion version, NeoStores store, CacheAccessBackDoor cacheAccess, LockService lockService )
+    {
+        this( version, store, cacheAccess, lockService, false );
+    }
+
+    /**
+     * @param entityRecordsApplied {@code true} if the node, relationship, property and relationship group records of
+     * the transactions have already been written, by a {@link PartitionedRecordApplier}.
+     */
+    public NeoStoreBatchTransactionApplier( CommandVersion version, NeoStores store, CacheAccessBackDoor cacheAccess, LockService lockService,
+            boolean entityRecordsApplied )
     {
         this.version = version;
         this.neoStores = store;
         this.cacheAccess = cacheAccess;
         this.lockService = lockService;
+        this.entityRecordsApplied = entityRecordsApplied;
     }
 
     @Override
@@ -64,6 +76,7 @@ public class NeoStoreBatchTransactionApplier extends BatchTransactionApplier.Ada
     @Override
     public TransactionApplier startTx( CommandsToApply transaction, LockGroup lockGroup )
     {
-        return new NeoStoreTransactionApplier( version, neoStores, cacheAccess, lockService, transaction.transactionId(), lockGroup );
+        return new NeoStoreTransactionApplier( version, neoStores, cacheAccess, lockService, transaction.transactionId(), lockGroup,
+                entityRecordsApplied );
     }
 }
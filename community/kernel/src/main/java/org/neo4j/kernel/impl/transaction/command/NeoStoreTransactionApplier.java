@@ -49,9 +49,16 @@ public class NeoStoreTransactionApplier extends TransactionApplier.Adapter
     private final NeoStores neoStores;
     private final CacheAccessBackDoor cacheAccess;
     private final LockService lockService;
+    private final boolean entityRecordsApplied;
 
     public NeoStoreTransactionApplier( CommandVersion version, NeoStores neoStores, CacheAccessBackDoor cacheAccess, LockService lockService,
             long transactionId, LockGroup lockGroup )
+    {
+        this( version, neoStores, cacheAccess, lockService, transactionId, lockGroup, false );
+    }
+
+    public NeoStoreTransactionApplier( CommandVersion version, NeoStores neoStores, CacheAccessBackDoor cacheAccess, LockService lockService,
+            long transactionId, LockGroup lockGroup, boolean entityRecordsApplied )
     {
         this.version = version;
         this.lockGroup = lockGroup;
@@ -59,11 +66,16 @@ public class NeoStoreTransactionApplier extends TransactionApplier.Adapter
         this.lockService = lockService;
         this.neoStores = neoStores;
         this.cacheAccess = cacheAccess;
+        this.entityRecordsApplied = entityRecordsApplied;
     }
 
     @Override
     public boolean visitNodeCommand( Command.NodeCommand command )
     {
+        if ( entityRecordsApplied )
+        {
+            return false;
+        }
         // acquire lock
         lockGroup.add( lockService.acquireNodeLock( command.getKey(), LockService.LockType.WRITE_LOCK ) );
 
@@ -75,6 +87,10 @@ public class NeoStoreTransactionApplier extends TransactionApplier.Adapter
     @Override
     public boolean visitRelationshipCommand( Command.RelationshipCommand command )
     {
+        if ( entityRecordsApplied )
+        {
+            return false;
+        }
         lockGroup.add( lockService.acquireRelationshipLock( command.getKey(), LockService.LockType.WRITE_LOCK ) );
 
         updateStore( neoStores.getRelationshipStore(), command );
@@ -84,6 +100,10 @@ public class NeoStoreTransactionApplier extends TransactionApplier.Adapter
     @Override
     public boolean visitPropertyCommand( Command.PropertyCommand command )
     {
+        if ( entityRecordsApplied )
+        {
+            return false;
+        }
         // acquire lock
         if ( command.getNodeId() != -1 )
         {
@@ -101,6 +121,10 @@ public class NeoStoreTransactionApplier extends TransactionApplier.Adapter
     @Override
     public boolean visitRelationshipGroupCommand( Command.RelationshipGroupCommand command )
     {
+        if ( entityRecordsApplied )
+        {
+            return false;
+        }
         updateStore( neoStores.getRelationshipGroupStore(), command );
         return false;
     }
@@ -0,0 +1,365 @@
+/*
+ * Copyright (c) 2002-2020 "Neo4j,"
+ * Neo4j Sweden AB [http://neo4j.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.transaction.command;
+
+import org.eclipse.collections.api.iterator.LongIterator;
+import org.eclipse.collections.impl.list.mutable.primitive.LongArrayList;
+import org.eclipse.collections.impl.set.mutable.primitive.LongHashSet;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+import org.neo4j.kernel.impl.api.TransactionApplier;
+import org.neo4j.kernel.impl.store.NeoStores;
+import org.neo4j.kernel.impl.store.RecordStore;
+import org.neo4j.kernel.impl.store.record.AbstractBaseRecord;
+import org.neo4j.kernel.impl.store.record.DynamicRecord;
+import org.neo4j.kernel.impl.store.record.PropertyBlock;
+import org.neo4j.kernel.impl.store.record.PropertyRecord;
+import org.neo4j.kernel.impl.transaction.command.Command.BaseCommand;
+import org.neo4j.storageengine.api.CommandsToApply;
+
+/**
+ * Writes the node, relationship, property and relationship group records of recovered transactions to the stores
+ * using multiple threads. Other commands, and all the work for the auxiliary stores, are left to the ordinary
+ * appliers, which then have to be told that these records have already been written.
+ * <p>
+ * Transactions are taken in runs, where no record and no node or relationship is touched by more than one
+ * transaction of the run. The order in which the records of a run are written is then irrelevant, since the state
+ * of the stores after the run is the same as after applying its transactions one by one, and so is the state that
+ * the index updates of each of its transactions are derived from. The commands of a run are partitioned by record,
+ * and the partitions are written concurrently. Transactions that change the schema, or the graph properties, always
+ * make up a run of their own.
+ */
+public class PartitionedRecordApplier
+{
+    private static final int MAX_RUN_SIZE = 100_000;
+    private static final int MIN_COMMANDS_PER_PARTITION = 64;
+
+    // Conflict keys of records and entities are their ids, tagged with the kind of record they belong to.
+    // All dynamic records share a tag, which may produce false conflicts, but never misses a real one.
+    private static final int TAG_BITS = 3;
+    private static final long NODE = 0;
+    private static final long RELATIONSHIP = 1;
+    private static final long PROPERTY = 2;
+    private static final long RELATIONSHIP_GROUP = 3;
+    private static final long DYNAMIC = 4;
+
+    private final NeoStores neoStores;
+    private final Executor executor;
+    private final List<List<BaseCommand<?>>> partitions;
+    private final LongHashSet runKeys = new LongHashSet();
+    private final TransactionCollector transaction = new TransactionCollector();
+
+    public PartitionedRecordApplier( NeoStores neoStores, Executor executor, int partitions )
+    {
+        this.neoStores = neoStores;
+        this.executor = executor;
+        this.partitions = new ArrayList<>( partitions );
+        for ( int i = 0; i < partitions; i++ )
+        {
+            this.partitions.add( new ArrayList<>() );
+        }
+    }
+
+    /**
+     * Writes the records of the longest run of transactions that starts with the given one, and can be written in
+     * any order.
+     *
+     * @param first the first transaction of the run.
+     * @return the first transaction after the run, or {@code null} if the run ends with the last transaction.
+     * @throws IOException if the commands of a transaction could not be read.
+     */
+    public CommandsToApply apply( CommandsToApply first ) throws IOException
+    {
+        runKeys.clear();
+        int runSize = 0;
+        CommandsToApply next = first;
+        while ( next != null )
+        {
+            transaction.clear();
+            next.accept( transaction );
+            if ( next != first &&
+                    (transaction.barrier || runSize + transaction.commands.size() > MAX_RUN_SIZE || conflicts()) )
+            {
+                break;
+            }
+
+            for ( int i = 0; i < transaction.commands.size(); i++ )
+            {
+                BaseCommand<?> command = transaction.commands.get( i );
+                partitions.get( partition( transaction.commandKeys.get( i ) ) ).add( command );
+            }
+            runKeys.addAll( transaction.keys );
+            runSize += transaction.commands.size();
+            next = next.next();
+
+            if ( transaction.barrier )
+            {
+                break;
+            }
+        }
+
+        write( runSize );
+        return next;
+    }
+
+    private boolean conflicts()
+    {
+        LongIterator keys = transaction.keys.longIterator();
+        while ( keys.hasNext() )
+        {
+            if ( runKeys.contains( keys.next() ) )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int partition( long key )
+    {
+        // Spread the ids, so that consecutive records, which often are on the same page, end up in different
+        // partitions only as often as unrelated ones do
+        long hash = (key >>> TAG_BITS) * 0x9E3779B97F4A7C15L + (key & ((1 << TAG_BITS) - 1));
+        return (int) ((hash >>> 32) % partitions.size());
+    }
+
+    private void write( int runSize )
+    {
+        try
+        {
+            if ( runSize < MIN_COMMANDS_PER_PARTITION * 2 )
+            {
+                // Not worth the hand over to other threads
+                for ( List<BaseCommand<?>> partition : partitions )
+                {
+                    new PartitionWriter( partition ).run();
+                }
+                return;
+            }
+
+            List<CompletableFuture<Void>> writes = new ArrayList<>( partitions.size() );
+            for ( List<BaseCommand<?>> partition : partitions )
+            {
+                if ( !partition.isEmpty() )
+                {
+                    writes.add( CompletableFuture.runAsync( new PartitionWriter( partition ), executor ) );
+                }
+            }
+            try
+            {
+                CompletableFuture.allOf( writes.toArray( new CompletableFuture[writes.size()] ) ).join();
+            }
+            catch ( CompletionException e )
+            {
+                Throwable cause = e.getCause();
+                if ( cause instanceof RuntimeException )
+                {
+                    throw (RuntimeException) cause;
+                }
+                if ( cause instanceof Error )
+                {
+                    throw (Error) cause;
+                }
+                throw e;
+            }
+        }
+        finally
+        {
+            for ( List<BaseCommand<?>> partition : partitions )
+            {
+                partition.clear();
+            }
+        }
+    }
+
+    private static long key( long tag, long id )
+    {
+        return (id << TAG_BITS) | tag;
+    }
+
+    /**
+     * Collects the record commands and conflict keys of a single transaction.
+     */
+    private static class TransactionCollector extends TransactionApplier.Adapter
+    {
+        private final List<BaseCommand<?>> commands = new ArrayList<>();
+        private final LongArrayList commandKeys = new LongArrayList();
+        private final LongHashSet keys = new LongHashSet();
+        private boolean barrier;
+
+        void clear()
+        {
+            commands.clear();
+            commandKeys.clear();
+            keys.clear();
+            barrier = false;
+        }
+
+        @Override
+        public boolean visitNodeCommand( Command.NodeCommand command )
+        {
+            add( command, NODE );
+            for ( DynamicRecord record : command.getAfter().getDynamicLabelRecords() )
+            {
+                keys.add( key( DYNAMIC, record.getId() ) );
+            }
+            return false;
+        }
+
+        @Override
+        public boolean visitRelationshipCommand( Command.RelationshipCommand command )
+        {
+            add( command, RELATIONSHIP );
+            return false;
+        }
+
+        @Override
+        public boolean visitPropertyCommand( Command.PropertyCommand command )
+        {
+            add( command, PROPERTY );
+            PropertyRecord after = command.getAfter();
+            for ( PropertyBlock block : after )
+            {
+                if ( !block.isLight() )
+                {
+                    for ( DynamicRecord record : block.getValueRecords() )
+                    {
+                        keys.add( key( DYNAMIC, record.getId() ) );
+                    }
+                }
+            }
+            for ( DynamicRecord record : after.getDeletedRecords() )
+            {
+                keys.add( key( DYNAMIC, record.getId() ) );
+            }
+
+            // Index updates for the owner are derived from its record and all of its properties
+            if ( command.getNodeId() != -1 )
+            {
+                keys.add( key( NODE, command.getNodeId() ) );
+            }
+            else if ( command.getRelId() != -1 )
+            {
+                keys.add( key( RELATIONSHIP, command.getRelId() ) );
+            }
+            return false;
+        }
+
+        @Override
+        public boolean visitRelationshipGroupCommand( Command.RelationshipGroupCommand command )
+        {
+            add( command, RELATIONSHIP_GROUP );
+            return false;
+        }
+
+        @Override
+        public boolean visitSchemaRuleCommand( Command.SchemaRuleCommand command )
+        {
+            barrier = true;
+            return false;
+        }
+
+        @Override
+        public boolean visitNeoStoreCommand( Command.NeoStoreCommand command )
+        {
+            barrier = true;
+            return false;
+        }
+
+        private void add( BaseCommand<?> command, long tag )
+        {
+            long key = key( tag, command.getKey() );
+            commands.add( command );
+            commandKeys.add( key );
+            keys.add( key );
+            AbstractBaseRecord after = command.getAfter();
+            if ( after.hasSecondaryUnitId() )
+            {
+                keys.add( key( tag, after.getSecondaryUnitId() ) );
+            }
+        }
+    }
+
+    /**
+     * Writes the after state of the records of one partition, in the order of their commands.
+     */
+    private class PartitionWriter extends TransactionApplier.Adapter implements Runnable
+    {
+        private final List<BaseCommand<?>> commands;
+
+        PartitionWriter( List<BaseCommand<?>> commands )
+        {
+            this.commands = commands;
+        }
+
+        @Override
+        public void run()
+        {
+            try
+            {
+                for ( BaseCommand<?> command : commands )
+                {
+                    command.handle( this );
+                }
+            }
+            catch ( IOException e )
+            {
+                // Only reading commands can fail with IOException, and these have been read already
+                throw new AssertionError( e );
+            }
+        }
+
+        @Override
+        public boolean visitNodeCommand( Command.NodeCommand command )
+        {
+            return update( neoStores.getNodeStore(), command );
+        }
+
+        @Override
+        public boolean visitRelationshipCommand( Command.RelationshipCommand command )
+        {
+            return update( neoStores.getRelationshipStore(), command );
+        }
+
+        @Override
+        public boolean visitPropertyCommand( Command.PropertyCommand command )
+        {
+            return update( neoStores.getPropertyStore(), command );
+        }
+
+        @Override
+        public boolean visitRelationshipGroupCommand( Command.RelationshipGroupCommand command )
+        {
+            return update( neoStores.getRelationshipGroupStore(), command );
+        }
+
+        private <RECORD extends AbstractBaseRecord> boolean update( RecordStore<RECORD> store, BaseCommand<RECORD> command )
+        {
+            store.updateRecord( command.getAfter() );
+            return false;
+        }
+    }
+}
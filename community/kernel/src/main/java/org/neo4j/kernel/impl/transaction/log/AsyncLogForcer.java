@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2002-2020 "Neo4j,"
+ * Neo4j Sweden AB [http://neo4j.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.transaction.log;
+
+import java.io.IOException;
+
+import org.neo4j.io.pagecache.PageCache;
+import org.neo4j.io.pagecache.WriteAheadBarrier;
+import org.neo4j.kernel.lifecycle.LifecycleAdapter;
+import org.neo4j.scheduler.Group;
+import org.neo4j.scheduler.JobHandle;
+import org.neo4j.scheduler.JobScheduler;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Forces the transaction log at a fixed interval, for when committing transactions don't wait for the log to be
+ * forced. Transactions that committed within the last interval before a crash of the machine may be lost.
+ * <p>
+ * To keep the store from getting ahead of the durable part of the log, this also installs a
+ * {@link WriteAheadBarrier} in the page cache, which forces the log before any store page is written out.
+ */
+public class AsyncLogForcer extends LifecycleAdapter
+{
+    private final BatchingTransactionAppender appender;
+    private final PageCache pageCache;
+    private final JobScheduler scheduler;
+    private final long forceIntervalMillis;
+    private JobHandle handle;
+
+    public AsyncLogForcer( BatchingTransactionAppender appender, PageCache pageCache, JobScheduler scheduler,
+            long forceIntervalMillis )
+    {
+        this.appender = appender;
+        this.pageCache = pageCache;
+        this.scheduler = scheduler;
+        this.forceIntervalMillis = forceIntervalMillis;
+    }
+
+    @Override
+    public void start()
+    {
+        pageCache.setWriteAheadBarrier( appender::forceAppendedTransactions );
+        handle = scheduler.scheduleRecurring( Group.TRANSACTION_LOG_FORCE, this::forceLog, forceIntervalMillis,
+                MILLISECONDS );
+    }
+
+    @Override
+    public void stop() throws IOException
+    {
+        if ( handle != null )
+        {
+            handle.cancel( false );
+            handle = null;
+        }
+        appender.forceAppendedTransactions();
+        pageCache.setWriteAheadBarrier( WriteAheadBarrier.NONE );
+    }
+
+    private void forceLog()
+    {
+        try
+        {
+            appender.forceAppendedTransactions();
+        }
+        catch ( IOException e )
+        {
+            // The appender has already raised a database panic with this failure, which fails all further commits.
+        }
+    }
+}
@@ -23,16 +23,20 @@ import java.io.Flushable;
 import java.io.IOException;
 import java.nio.channels.ClosedChannelException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.LockSupport;
 import java.util.concurrent.locks.ReentrantLock;
 
+import org.neo4j.graphdb.Resource;
 import org.neo4j.kernel.impl.api.TransactionToApply;
 import org.neo4j.kernel.impl.transaction.TransactionRepresentation;
+import org.neo4j.kernel.impl.transaction.log.entry.CompressingLogEntryWriter;
 import org.neo4j.kernel.impl.transaction.log.entry.LogEntryWriter;
 import org.neo4j.kernel.impl.transaction.log.files.LogFile;
 import org.neo4j.kernel.impl.transaction.log.files.LogFiles;
+import org.neo4j.kernel.impl.transaction.log.files.TransactionOffsetIndex;
 import org.neo4j.kernel.impl.transaction.log.rotation.LogRotation;
 import org.neo4j.kernel.impl.transaction.tracing.LogAppendEvent;
 import org.neo4j.kernel.impl.transaction.tracing.LogCheckPointEvent;
@@ -50,9 +54,29 @@ import static org.neo4j.kernel.impl.transaction.log.entry.LogEntryStart.checksum
 /**
  * Concurrently appends transactions to the transaction log, while coordinating with the log rotation and forcing the
  * log file in batches for higher throughput in a concurrent scenario.
+ * <p>
+ * When the log is forced asynchronously, committers don't wait for the log to be forced at all. Instead the
+ * {@link AsyncLogForcer} calls {@link #forceAppendedTransactions()} at a fixed interval, and before the page cache
+ * writes out any store page that the not yet durable transactions may have changed.
  */
 public class BatchingTransactionAppender extends LifecycleAdapter implements TransactionAppender
 {
+    public interface Monitor
+    {
+        /**
+         * Called after the log has been forced.
+         *
+         * @param batchSize the number of committers whose appended transactions were made durable by the force.
+         * @param forceNanos the time it took to force the log.
+         */
+        void logForced( int batchSize, long forceNanos );
+    }
+
+    private static final Monitor NO_MONITOR = ( batchSize, forceNanos ) ->
+    {
+    };
+    private static final long GROUP_COMMIT_POLL_NANOS = TimeUnit.MICROSECONDS.toNanos( 10 );
+
     // For the graph store and schema indexes order-of-updates are managed by the high level entity locks
     // such that changes are applied to the affected records in the same order that they are written to the
     // log. For the explicit indexes there are no such locks, and hence no such ordering. This queue below
@@ -60,36 +84,73 @@ public class BatchingTransactionAppender extends LifecycleAdapter implements Tra
     private final IdOrderingQueue explicitIndexTransactionOrdering;
 
     private final AtomicReference<ThreadLink> threadLinkHead = new AtomicReference<>( ThreadLink.END );
+    private final AtomicInteger committersAwaitingForce = new AtomicInteger();
+    // Number of callers of forceEveryAppend() that still rely on every appended transaction being forced right away.
+    private final AtomicInteger forcingEveryAppend = new AtomicInteger();
     private final TransactionMetadataCache transactionMetadataCache;
+    private final TransactionOffsetIndex transactionOffsetIndex;
     private final LogFile logFile;
     private final LogRotation logRotation;
     private final TransactionIdStore transactionIdStore;
     private final LogPositionMarker positionMarker = new LogPositionMarker();
     private final DatabaseHealth databaseHealth;
     private final Lock forceLock = new ReentrantLock();
+    private final GroupCommitPolicy groupCommitPolicy;
+    private final boolean asyncLogForce;
+    private final Monitor monitor;
+    private final boolean compressCommands;
+    private final SerializedTransactionsPool serializedTransactionsPool;
 
     private FlushablePositionAwareChannel writer;
+    private LogEntryWriter logEntryWriter;
     private TransactionLogWriter transactionLogWriter;
-    private IndexCommandDetector indexCommandDetector;
+
+    // Both are only written while holding the logFile monitor, the channel first, so that anyone who sees a
+    // transaction id also sees a channel that holds that transaction, or one that has already been forced by rotation.
+    private volatile Flushable appendedChannel;
+    private volatile long lastAppendedTransactionId;
 
     public BatchingTransactionAppender( LogFiles logFiles, LogRotation logRotation,
             TransactionMetadataCache transactionMetadataCache, TransactionIdStore transactionIdStore,
             IdOrderingQueue explicitIndexTransactionOrdering, DatabaseHealth databaseHealth )
     {
+        this( logFiles, logRotation, transactionMetadataCache, transactionIdStore, explicitIndexTransactionOrdering,
+                databaseHealth, GroupCommitPolicy.NO_DELAY, false, false, TransactionOffsetIndex.NO_INDEX, NO_MONITOR );
+    }
+
+    public BatchingTransactionAppender( LogFiles logFiles, LogRotation logRotation,
+            TransactionMetadataCache transactionMetadataCache, TransactionIdStore transactionIdStore,
+            IdOrderingQueue explicitIndexTransactionOrdering, DatabaseHealth databaseHealth,
+            GroupCommitPolicy groupCommitPolicy, boolean asyncLogForce, boolean compressCommands,
+            TransactionOffsetIndex transactionOffsetIndex, Monitor monitor )
+    {
+        this.groupCommitPolicy = groupCommitPolicy;
+        this.asyncLogForce = asyncLogForce;
+        this.compressCommands = compressCommands;
+        this.serializedTransactionsPool = new SerializedTransactionsPool( Runtime.getRuntime().availableProcessors(),
+                compressCommands, SerializedTransactions.DEFAULT_MAX_CAPACITY );
+        this.monitor = monitor;
         this.logFile = logFiles.getLogFile();
         this.logRotation = logRotation;
         this.transactionIdStore = transactionIdStore;
         this.explicitIndexTransactionOrdering = explicitIndexTransactionOrdering;
         this.databaseHealth = databaseHealth;
         this.transactionMetadataCache = transactionMetadataCache;
+        this.transactionOffsetIndex = transactionOffsetIndex;
     }
 
     @Override
-    public void start()
+    public void start() throws IOException
     {
         this.writer = logFile.getWriter();
-        this.indexCommandDetector = new IndexCommandDetector();
-        this.transactionLogWriter = new TransactionLogWriter( new LogEntryWriter( writer ) );
+        this.logEntryWriter = new LogEntryWriter( writer );
+        this.transactionLogWriter = new TransactionLogWriter(
+                compressCommands ? new CompressingLogEntryWriter( writer ) : logEntryWriter );
+        if ( asyncLogForce )
+        {
+            this.appendedChannel = writer.prepareForFlush();
+        }
+        this.lastAppendedTransactionId = transactionIdStore.getLastCommittedTransactionId();
     }
 
     @Override
@@ -97,17 +158,33 @@ public class BatchingTransactionAppender extends LifecycleAdapter implements Tra
     {
         // Assigned base tx id just to make compiler happy
         long lastTransactionId = TransactionIdStore.BASE_TX_ID;
-        // Synchronized with logFile to get absolute control over concurrent rotations happening
-        synchronized ( logFile )
+        try
         {
-            // Assert that kernel is healthy before making any changes
-            databaseHealth.assertHealthy( IOException.class );
-            try ( SerializeTransactionEvent serialiseEvent = logAppendEvent.beginSerializeTransaction() )
+            // Serialize the transactions before taking the logFile monitor, so that committers don't have to wait
+            // for each other to encode their commands. Batches that were serialized ahead are not serialized again.
+            if ( batch.serializedTransactions() == null )
             {
+                serialize( batch, logAppendEvent );
+            }
+
+            // Synchronized with logFile to get absolute control over concurrent rotations happening
+            synchronized ( logFile )
+            {
+                // Assert that kernel is healthy before making any changes
+                databaseHealth.assertHealthy( IOException.class );
+
                 // Append all transactions in this batch to the log under the same logFile monitor
                 TransactionToApply tx = batch;
+                SerializedTransactions serializedTransactions = null;
+                int index = 0;
                 while ( tx != null )
                 {
+                    if ( tx.serializedTransactions() != null )
+                    {
+                        // Each batch of a chain was serialized on its own, starting with its first transaction
+                        serializedTransactions = tx.serializedTransactions();
+                        index = 0;
+                    }
                     long transactionId = transactionIdStore.nextCommittingTransactionId();
 
                     // If we're in a scenario where we're merely replicating transactions, i.e. transaction
@@ -116,20 +193,40 @@ public class BatchingTransactionAppender extends LifecycleAdapter implements Tra
                     // really recover from and would point to a bug somewhere.
                     matchAgainstExpectedTransactionIdIfAny( transactionId, tx );
 
-                    TransactionCommitment commitment = appendToLog( tx.transactionRepresentation(), transactionId );
+                    TransactionCommitment commitment =
+                            appendToLog( tx.transactionRepresentation(), transactionId, serializedTransactions, index );
                     tx.commitment( commitment, transactionId );
                     tx.logPosition( commitment.logPosition() );
                     tx = tx.next();
+                    index++;
                     lastTransactionId = transactionId;
                 }
+                if ( asyncLogForce )
+                {
+                    handOverToOperatingSystem();
+                }
+                lastAppendedTransactionId = lastTransactionId;
             }
         }
+        finally
+        {
+            releaseSerializedTransactions( batch );
+        }
 
+        // Reading the counter after having published lastAppendedTransactionId means that either a concurrent
+        // forceEveryAppend() sees our transactions and forces them, or we see its increment and force them ourselves.
+        if ( asyncLogForce && forcingEveryAppend.get() == 0 )
+        {
+            // Nobody waits for the log to be forced here, the background forcing takes care of that. So everyone has
+            // to check the need for log rotation.
+            boolean logRotated = logRotation.rotateLogIfNeeded( logAppendEvent );
+            logAppendEvent.setLogRotated( logRotated );
+        }
         // At this point we've appended all transactions in this batch, but we can't mark any of them
         // as committed since they haven't been forced to disk yet. So here we force, or potentially
         // piggy-back on another force, but anyway after this call below we can be sure that all our transactions
         // in this batch exist durably on disk.
-        if ( forceAfterAppend( logAppendEvent ) )
+        else if ( forceAfterAppend( logAppendEvent ) )
         {
             // We got lucky and were the one forcing the log. It's enough if ones of all doing concurrent committers
             // checks the need for log rotation.
@@ -143,6 +240,56 @@ public class BatchingTransactionAppender extends LifecycleAdapter implements Tra
         return lastTransactionId;
     }
 
+    @Override
+    public void serialize( TransactionToApply batch, LogAppendEvent logAppendEvent ) throws IOException
+    {
+        // Transactions that are too large to be serialized up front are written straight to the log when appended.
+        SerializedTransactions serializedTransactions = serializedTransactionsPool.acquire();
+        try ( SerializeTransactionEvent serialiseEvent = logAppendEvent.beginSerializeTransaction() )
+        {
+            for ( TransactionToApply tx = batch; tx != null; tx = tx.next() )
+            {
+                serializedTransactions.serialize( tx.transactionRepresentation() );
+            }
+        }
+        catch ( Throwable failure )
+        {
+            serializedTransactionsPool.release( serializedTransactions );
+            throw failure;
+        }
+        batch.serializedTransactions( serializedTransactions );
+    }
+
+    private void releaseSerializedTransactions( TransactionToApply batch )
+    {
+        for ( TransactionToApply tx = batch; tx != null; tx = tx.next() )
+        {
+            SerializedTransactions serializedTransactions = tx.serializedTransactions();
+            if ( serializedTransactions != null )
+            {
+                tx.serializedTransactions( null );
+                serializedTransactionsPool.release( serializedTransactions );
+            }
+        }
+    }
+
+    /**
+     * Empty the appended transactions from the writer buffer into the log file, without forcing it. This way they are
+     * readable from the log file as soon as they are committed, and survive this process dying, if not the machine.
+     */
+    private void handOverToOperatingSystem() throws IOException
+    {
+        try
+        {
+            appendedChannel = writer.prepareForFlush();
+        }
+        catch ( final Throwable panic )
+        {
+            databaseHealth.panic( panic );
+            throw panic;
+        }
+    }
+
     private void matchAgainstExpectedTransactionIdIfAny( long transactionId, TransactionToApply tx )
     {
         long expectedTransactionId = tx.transactionId();
@@ -192,13 +339,9 @@ public class BatchingTransactionAppender extends LifecycleAdapter implements Tra
      * @return A TransactionCommitment instance with metadata about the committed transaction, such as whether or not
      * this transaction contains any explicit index changes.
      */
-    private TransactionCommitment appendToLog( TransactionRepresentation transaction, long transactionId )
-            throws IOException
+    private TransactionCommitment appendToLog( TransactionRepresentation transaction, long transactionId,
+            SerializedTransactions serializedTransactions, int index ) throws IOException
     {
-        // Reset command writer so that we, after we've written the transaction, can ask it whether or
-        // not any explicit index command was written. If so then there's additional ordering to care about below.
-        indexCommandDetector.reset();
-
         // The outcome of this try block is either of:
         // a) transaction successfully appended, at which point we return a Commitment to be used after force
         // b) transaction failed to be appended, at which point a kernel panic is issued
@@ -208,7 +351,16 @@ public class BatchingTransactionAppender extends LifecycleAdapter implements Tra
         try
         {
             LogPosition logPositionBeforeCommit = writer.getCurrentPosition( positionMarker ).newPosition();
-            transactionLogWriter.append( transaction, transactionId );
+            if ( serializedTransactions.isSerialized( index ) )
+            {
+                writer.put( serializedTransactions.transaction( index ) );
+                logEntryWriter.writeCommitEntry( transactionId, transaction.getTimeCommitted() );
+            }
+            else
+            {
+                // Too large to have been serialized up front, so it's serialized straight into the log
+                transactionLogWriter.append( transaction, transactionId );
+            }
             LogPosition logPositionAfterCommit = writer.getCurrentPosition( positionMarker ).newPosition();
 
             long transactionChecksum =
@@ -216,9 +368,9 @@ public class BatchingTransactionAppender extends LifecycleAdapter implements Tra
             transactionMetadataCache
                     .cacheTransactionMetadata( transactionId, logPositionBeforeCommit, transaction.getMasterId(),
                             transaction.getAuthorId(), transactionChecksum, transaction.getTimeCommitted() );
+            transactionOffsetIndex.transactionAppended( transactionId, logPositionBeforeCommit );
 
-            transaction.accept( indexCommandDetector );
-            boolean hasExplicitIndexChanges = indexCommandDetector.hasWrittenAnyExplicitIndexCommand();
+            boolean hasExplicitIndexChanges = serializedTransactions.hasExplicitIndexChanges( index );
             if ( hasExplicitIndexChanges )
             {
                 // Offer this transaction id to the queue so that the explicit index applier can take part in the ordering
@@ -246,6 +398,7 @@ public class BatchingTransactionAppender extends LifecycleAdapter implements Tra
         // This is okay, however, because unparkAll() spins when it sees a null next pointer.
         ThreadLink threadLink = new ThreadLink( Thread.currentThread() );
         threadLink.next = threadLinkHead.getAndSet( threadLink );
+        committersAwaitingForce.incrementAndGet();
         boolean attemptedForce = false;
 
         try ( LogForceWaitEvent logForceWaitEvent = logForceEvents.beginLogForceWait() )
@@ -292,10 +445,15 @@ public class BatchingTransactionAppender extends LifecycleAdapter implements Tra
 
     private void forceLog( LogForceEvents logForceEvents ) throws IOException
     {
+        awaitGroupCommitBatch();
         ThreadLink links = threadLinkHead.getAndSet( ThreadLink.END );
+        int batchSize;
+        long forceNanos;
         try ( LogForceEvent logForceEvent = logForceEvents.beginLogForce() )
         {
+            long startNanos = System.nanoTime();
             force();
+            forceNanos = System.nanoTime() - startNanos;
         }
         catch ( final Throwable panic )
         {
@@ -304,14 +462,43 @@ public class BatchingTransactionAppender extends LifecycleAdapter implements Tra
         }
         finally
         {
-            unparkAll( links );
+            batchSize = unparkAll( links );
+            committersAwaitingForce.addAndGet( -batchSize );
+        }
+        groupCommitPolicy.forced( batchSize, forceNanos );
+        monitor.logForced( batchSize, forceNanos );
+    }
+
+    /**
+     * Give other committers a chance to join the force we're about to do, if the group commit policy calls for it.
+     */
+    private void awaitGroupCommitBatch()
+    {
+        long delayNanos = groupCommitPolicy.delayNanos();
+        if ( delayNanos > 0 )
+        {
+            long deadline = System.nanoTime() + delayNanos;
+            long remainingNanos;
+            while ( !groupCommitPolicy.isBatchFull( committersAwaitingForce.get() ) &&
+                    (remainingNanos = deadline - System.nanoTime()) > 0 )
+            {
+                LockSupport.parkNanos( this, Math.min( remainingNanos, GROUP_COMMIT_POLL_NANOS ) );
+            }
         }
     }
 
-    private void unparkAll( ThreadLink links )
+    /**
+     * @return the number of links that were unparked.
+     */
+    private int unparkAll( ThreadLink links )
     {
+        int count = 0;
         do
         {
+            if ( links != ThreadLink.END )
+            {
+                count++;
+            }
             links.done = true;
             links.unpark();
             ThreadLink tmp;
@@ -324,6 +511,7 @@ public class BatchingTransactionAppender extends LifecycleAdapter implements Tra
             links = tmp;
         }
         while ( links != ThreadLink.END );
+        return count;
     }
 
     private void waitForLogForce()
@@ -332,6 +520,67 @@ public class BatchingTransactionAppender extends LifecycleAdapter implements Tra
         LockSupport.parkNanos( this, parkTime );
     }
 
+    /**
+     * Force the log if any transactions have been appended to it since it was last forced, and mark them as durable.
+     * This is how the log gets forced when {@link AsyncLogForcer forcing asynchronously}.
+     * <p>
+     * This does not take the logFile monitor, because it is also called by the page cache, right before it writes
+     * out a store page, and a log rotation may be waiting for that very page while holding the logFile monitor.
+     * When the log is not forced asynchronously, the committers force it themselves, and this does nothing.
+     */
+    public void forceAppendedTransactions() throws IOException
+    {
+        long appendedTransactionId = lastAppendedTransactionId;
+        if ( !asyncLogForce || appendedTransactionId <= transactionIdStore.getLastDurableTransactionId() )
+        {
+            return;
+        }
+        try
+        {
+            appendedChannel.flush();
+        }
+        catch ( ClosedChannelException ignored )
+        {
+            // The log has been rotated away from the channel, and rotation forces the channel before closing it.
+        }
+        catch ( final Throwable panic )
+        {
+            databaseHealth.panic( panic );
+            throw panic;
+        }
+        transactionIdStore.transactionDurable( appendedTransactionId );
+    }
+
+    /**
+     * Force the log, and keep forcing it after every append until the returned {@link Resource} is closed, as if it
+     * was not forced asynchronously. This is for forcing data that does not go through the page cache, and thus not
+     * through its write-ahead barrier, such as the schema and label scan indexes of a check point: they must not
+     * durably contain any change whose transaction is not durable in the log.
+     * When the log is not forced asynchronously, every append is already forced, and this does nothing.
+     *
+     * @return a {@link Resource} to close when appended transactions no longer have to be forced right away.
+     * @throws IOException if forcing the transactions that were appended so far failed.
+     */
+    @Override
+    public Resource forceEveryAppend() throws IOException
+    {
+        if ( !asyncLogForce )
+        {
+            return Resource.EMPTY;
+        }
+        forcingEveryAppend.incrementAndGet();
+        try
+        {
+            forceAppendedTransactions();
+        }
+        catch ( Throwable t )
+        {
+            forcingEveryAppend.decrementAndGet();
+            throw t;
+        }
+        return forcingEveryAppend::decrementAndGet;
+    }
+
     private void force() throws IOException
     {
         // Empty buffer into writer. We want to synchronize with appenders somehow so that they
@@ -339,10 +588,12 @@ public class BatchingTransactionAppender extends LifecycleAdapter implements Tra
         // on logFile because it would cause deadlocks. Synchronizing on writer assumes that appenders
         // also synchronize on writer.
         Flushable flushable;
+        long appendedTransactionId;
         synchronized ( logFile )
         {
             databaseHealth.assertHealthy( IOException.class );
             flushable = writer.prepareForFlush();
+            appendedTransactionId = lastAppendedTransactionId;
         }
         // Force the writer outside of the lock.
         // This allows other threads access to the buffer while the writer is being forced.
@@ -357,5 +608,6 @@ public class BatchingTransactionAppender extends LifecycleAdapter implements Tra
             // successful in emptying the buffer *UNDER THE LOCK* we know that the rotating thread included the changes
             // we emptied into the channel, and thus it is already flushed by that thread.
         }
+        transactionIdStore.transactionDurable( appendedTransactionId );
     }
 }
@@ -22,6 +22,7 @@ package org.neo4j.kernel.impl.transaction.log;
 import java.io.Closeable;
 import java.io.Flushable;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 import org.neo4j.storageengine.api.WritableChannel;
 
@@ -60,4 +61,22 @@ public interface FlushableChannel extends WritableChannel, Closeable
 
     @Override
     FlushableChannel put( byte[] value, int length ) throws IOException;
+
+    /**
+     * Writes all the remaining bytes of the given buffer to this channel, moving its position to its limit.
+     * Implementations that write to a file are expected to do so without first copying large buffers into their own
+     * write buffer.
+     *
+     * @param source the bytes to write.
+     * @return this channel, for fluent usage.
+     * @throws IOException if I/O error occurs.
+     */
+    default FlushableChannel put( ByteBuffer source ) throws IOException
+    {
+        while ( source.hasRemaining() )
+        {
+            put( source.get() );
+        }
+        return this;
+    }
 }
@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2002-2020 "Neo4j,"
+ * Neo4j Sweden AB [http://neo4j.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.transaction.log;
+
+/**
+ * Decides how long the thread that is about to force the transaction log should wait for more committers to join the
+ * force, before actually doing it. Every committer that joins the force is one less force to be done, which pays off
+ * when forcing is expensive compared to how often transactions commit, like on network attached storage.
+ * <p>
+ * The delay adapts to the observed force latency: it is a quarter of the average force time, up to the configured
+ * maximum delay. It is only applied when the previous force was shared by more than one committer, so that a lone
+ * committer doesn't pay for waiting for someone who isn't coming. Waiting stops early when the batch is full.
+ * <p>
+ * The policy is only updated by the thread that holds the force lock, and only read by it, so it needs no further
+ * synchronization.
+ */
+public class GroupCommitPolicy
+{
+    public static final GroupCommitPolicy NO_DELAY = new GroupCommitPolicy( 0, 1 );
+
+    private final long maxDelayNanos;
+    private final int maxBatchSize;
+    private long averageForceNanos;
+    private int lastBatchSize;
+
+    /**
+     * @param maxDelayNanos the maximum time to wait for more committers, before forcing the log. Zero disables waiting.
+     * @param maxBatchSize the number of waiting committers at which we stop waiting for more, and force the log.
+     */
+    public GroupCommitPolicy( long maxDelayNanos, int maxBatchSize )
+    {
+        if ( maxDelayNanos < 0 || maxBatchSize < 1 )
+        {
+            throw new IllegalArgumentException( "The maximum delay cannot be negative, and the maximum batch size must be " +
+                    "positive, but got " + maxDelayNanos + "ns and " + maxBatchSize );
+        }
+        this.maxDelayNanos = maxDelayNanos;
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    /**
+     * @return the number of nanoseconds to wait for more committers before forcing the log.
+     */
+    long delayNanos()
+    {
+        if ( maxDelayNanos == 0 || lastBatchSize < 2 )
+        {
+            return 0;
+        }
+        return Math.min( maxDelayNanos, averageForceNanos >> 2 );
+    }
+
+    boolean isBatchFull( int waitingCommitters )
+    {
+        return waitingCommitters >= maxBatchSize;
+    }
+
+    /**
+     * Called after every successful force of the log.
+     *
+     * @param batchSize the number of committers that were waiting for the force.
+     * @param forceNanos the time it took to force the log.
+     */
+    void forced( int batchSize, long forceNanos )
+    {
+        lastBatchSize = batchSize;
+        // An exponentially weighted moving average, with a weight of 1/8 on the most recent force.
+        averageForceNanos = averageForceNanos == 0 ? forceNanos : averageForceNanos + ((forceNanos - averageForceNanos) >> 3);
+    }
+}
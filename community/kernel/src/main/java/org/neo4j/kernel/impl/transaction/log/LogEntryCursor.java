@@ -20,13 +20,17 @@
 package org.neo4j.kernel.impl.transaction.log;
 
 import java.io.IOException;
+import java.util.Iterator;
 
 import org.neo4j.cursor.IOCursor;
 import org.neo4j.kernel.impl.transaction.log.entry.LogEntry;
+import org.neo4j.kernel.impl.transaction.log.entry.LogEntryCommand;
+import org.neo4j.kernel.impl.transaction.log.entry.LogEntryCompressedCommands;
 import org.neo4j.kernel.impl.transaction.log.entry.LogEntryReader;
 
 /**
- * {@link IOCursor} abstraction on top of a {@link LogEntryReader}
+ * {@link IOCursor} abstraction on top of a {@link LogEntryReader}. {@link LogEntryCompressedCommands Compressed commands}
+ * are expanded into the {@link LogEntryCommand command entries} they contain.
  */
 public class LogEntryCursor implements IOCursor<LogEntry>
 {
@@ -34,6 +38,7 @@ public class LogEntryCursor implements IOCursor<LogEntry>
     private final ReadableClosablePositionAwareChannel channel;
     private final LogPositionMarker position = new LogPositionMarker();
     private LogEntry entry;
+    private Iterator<LogEntryCommand> pendingCommands;
 
     public LogEntryCursor( LogEntryReader<ReadableClosablePositionAwareChannel> logEntryReader,
                            ReadableClosablePositionAwareChannel channel )
@@ -51,9 +56,25 @@ public class LogEntryCursor implements IOCursor<LogEntry>
     @Override
     public boolean next() throws IOException
     {
-        entry = logEntryReader.readLogEntry( channel );
+        while ( true )
+        {
+            if ( pendingCommands != null )
+            {
+                if ( pendingCommands.hasNext() )
+                {
+                    entry = pendingCommands.next();
+                    return true;
+                }
+                pendingCommands = null;
+            }
 
-        return entry != null;
+            entry = logEntryReader.readLogEntry( channel );
+            if ( !(entry instanceof LogEntryCompressedCommands) )
+            {
+                return entry != null;
+            }
+            pendingCommands = entry.<LogEntryCompressedCommands>as().getCommands().iterator();
+        }
     }
 
     @Override
@@ -150,6 +150,34 @@ public class PhysicalFlushableChannel implements FlushableChannel
         return this;
     }
 
+    @Override
+    public FlushableChannel put( ByteBuffer source ) throws IOException
+    {
+        if ( source.remaining() <= buffer.remaining() )
+        {
+            buffer.put( source );
+            return this;
+        }
+
+        // The source doesn't fit in the buffer, so we write both the buffer and the source to the channel, in one
+        // gathering write, instead of copying the source into the buffer piece by piece.
+        buffer.flip();
+        ByteBuffer[] sources = {buffer, source};
+        try
+        {
+            while ( source.hasRemaining() )
+            {
+                channel.write( sources );
+            }
+        }
+        catch ( ClosedChannelException e )
+        {
+            handleClosedChannelException( e );
+        }
+        buffer.clear();
+        return this;
+    }
+
     private ByteBuffer bufferWithGuaranteedSpace( int spaceInBytes ) throws IOException
     {
         assert spaceInBytes < buffer.capacity();
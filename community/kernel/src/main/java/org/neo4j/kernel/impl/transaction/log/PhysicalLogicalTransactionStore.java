@@ -103,10 +103,19 @@ public class PhysicalLogicalTransactionStore implements LogicalTransactionStore
             LogVersionLocator headerVisitor = new LogVersionLocator( transactionIdToStartFrom );
             logFiles.accept( headerVisitor );
 
+            // ask the offset index where in that version to start looking, so that we don't have to read it all
+            LogPosition startPosition = headerVisitor.getLogPosition();
+            LogPosition indexedPosition = logFiles.getTransactionOffsetIndex()
+                    .lookup( transactionIdToStartFrom, startPosition.getLogVersion() );
+            if ( indexedPosition != null )
+            {
+                startPosition = indexedPosition;
+            }
+
             // ask LogFile
             TransactionPositionLocator transactionPositionLocator =
                     new TransactionPositionLocator( transactionIdToStartFrom, logEntryReader );
-            logFile.accept( transactionPositionLocator, headerVisitor.getLogPosition() );
+            logFile.accept( transactionPositionLocator, startPosition );
             LogPosition position = transactionPositionLocator.getAndCacheFoundLogPosition( transactionMetadataCache );
             return new PhysicalTransactionCursor<>( logFile.getReader( position ), logEntryReader );
         }
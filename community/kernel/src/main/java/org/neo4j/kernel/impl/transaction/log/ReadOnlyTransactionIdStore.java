@@ -82,6 +82,18 @@ public class ReadOnlyTransactionIdStore implements TransactionIdStore
         return transactionId;
     }
 
+    @Override
+    public void transactionDurable( long transactionId )
+    {
+        throw new UnsupportedOperationException( "Read-only transaction ID store" );
+    }
+
+    @Override
+    public long getLastDurableTransactionId()
+    {
+        return transactionId;
+    }
+
     @Override
     public TransactionId getLastCommittedTransaction()
     {
@@ -0,0 +1,234 @@
+/*
+ * Copyright (c) 2002-2020 "Neo4j,"
+ * Neo4j Sweden AB [http://neo4j.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.transaction.log;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.neo4j.io.ByteUnit;
+import org.neo4j.kernel.impl.transaction.TransactionRepresentation;
+import org.neo4j.kernel.impl.transaction.log.entry.CompressingLogEntryWriter;
+import org.neo4j.kernel.impl.transaction.log.entry.LogEntryWriter;
+import org.neo4j.storageengine.api.WritableChannel;
+
+/**
+ * An off-heap buffer for the log entries of a batch of transactions, which the committing thread serializes before it
+ * takes the log file monitor. Only the ready bytes then have to be written to the log while holding the monitor,
+ * so large transactions no longer keep other committers waiting while their commands are being encoded.
+ * <p>
+ * The buffer holds the start entry and the commands of each transaction. The commit entries are left out, since they
+ * contain the transaction ids, which are only assigned under the monitor. The buffer grows up to a maximum capacity.
+ * Transactions that don't fit are not serialized, and have to be written straight to the log instead, so that the
+ * memory it takes to commit a huge transaction is not doubled. Instances are taken from, and given back to, a
+ * {@link SerializedTransactionsPool}, and will give back any excessive memory they had to grow to when cleared.
+ */
+public class SerializedTransactions implements WritableChannel
+{
+    private static final int INITIAL_CAPACITY = (int) ByteUnit.kibiBytes( 32 );
+    private static final int MAX_RETAINED_CAPACITY = (int) ByteUnit.mebiBytes( 1 );
+    static final int DEFAULT_MAX_CAPACITY = (int) ByteUnit.mebiBytes( 8 );
+    private static final CapacityExceeded CAPACITY_EXCEEDED = new CapacityExceeded();
+
+    private final int maxCapacity;
+    private final LogEntryWriter logEntryWriter;
+    private final IndexCommandDetector indexCommandDetector = new IndexCommandDetector();
+    private ByteBuffer buffer;
+    private int[] transactionEnds = new int[8];
+    private boolean[] explicitIndexChanges = new boolean[8];
+    private boolean[] serialized = new boolean[8];
+    private int transactionCount;
+
+    /**
+     * @param compressCommands whether the commands of large transactions should be written in compressed form.
+     */
+    SerializedTransactions( boolean compressCommands )
+    {
+        this( compressCommands, DEFAULT_MAX_CAPACITY );
+    }
+
+    /**
+     * @param compressCommands whether the commands of large transactions should be written in compressed form.
+     * @param maxCapacity the largest number of bytes the buffer will grow to.
+     */
+    SerializedTransactions( boolean compressCommands, int maxCapacity )
+    {
+        this.maxCapacity = maxCapacity;
+        this.buffer = ByteBuffer.allocateDirect( Math.min( INITIAL_CAPACITY, maxCapacity ) );
+        this.logEntryWriter = compressCommands ? new CompressingLogEntryWriter( this ) : new LogEntryWriter( this );
+    }
+
+    /**
+     * Serializes the start entry and commands of the given transaction, after those of the previously serialized ones.
+     *
+     * @return {@code true} if the transaction was serialized, or {@code false} if it did not fit in what is left of
+     * the maximum capacity. Nothing of such a transaction is kept, and it has to be written to the log by other means.
+     */
+    boolean serialize( TransactionRepresentation transaction ) throws IOException
+    {
+        int start = buffer.position();
+        boolean fits = true;
+        try
+        {
+            logEntryWriter.writeStartEntry( transaction.getMasterId(), transaction.getAuthorId(),
+                    transaction.getTimeStarted(), transaction.getLatestCommittedTxWhenStarted(),
+                    transaction.additionalHeader() );
+            logEntryWriter.serialize( transaction );
+        }
+        catch ( CapacityExceeded e )
+        {
+            buffer.position( start );
+            fits = false;
+        }
+
+        indexCommandDetector.reset();
+        transaction.accept( indexCommandDetector );
+
+        if ( transactionCount == transactionEnds.length )
+        {
+            transactionEnds = Arrays.copyOf( transactionEnds, transactionCount * 2 );
+            explicitIndexChanges = Arrays.copyOf( explicitIndexChanges, transactionCount * 2 );
+            serialized = Arrays.copyOf( serialized, transactionCount * 2 );
+        }
+        transactionEnds[transactionCount] = buffer.position();
+        explicitIndexChanges[transactionCount] = indexCommandDetector.hasWrittenAnyExplicitIndexCommand();
+        serialized[transactionCount] = fits;
+        transactionCount++;
+        return fits;
+    }
+
+    /**
+     * @return whether the transaction with the given index, in the order of serialization, was serialized, or has to
+     * be written to the log by other means.
+     */
+    boolean isSerialized( int index )
+    {
+        return serialized[index];
+    }
+
+    /**
+     * @return a read-only view of the serialized bytes of the transaction with the given index, in the order of
+     * serialization. The view is empty if the transaction was not {@link #isSerialized(int) serialized}.
+     */
+    ByteBuffer transaction( int index )
+    {
+        ByteBuffer bytes = buffer.asReadOnlyBuffer();
+        bytes.limit( transactionEnds[index] );
+        bytes.position( index == 0 ? 0 : transactionEnds[index - 1] );
+        return bytes;
+    }
+
+    boolean hasExplicitIndexChanges( int index )
+    {
+        return explicitIndexChanges[index];
+    }
+
+    void clear()
+    {
+        transactionCount = 0;
+        if ( buffer.capacity() > MAX_RETAINED_CAPACITY )
+        {
+            buffer = ByteBuffer.allocateDirect( Math.min( INITIAL_CAPACITY, maxCapacity ) );
+        }
+        else
+        {
+            buffer.clear();
+        }
+    }
+
+    @Override
+    public WritableChannel put( byte value )
+    {
+        bufferWithSpace( Byte.BYTES ).put( value );
+        return this;
+    }
+
+    @Override
+    public WritableChannel putShort( short value )
+    {
+        bufferWithSpace( Short.BYTES ).putShort( value );
+        return this;
+    }
+
+    @Override
+    public WritableChannel putInt( int value )
+    {
+        bufferWithSpace( Integer.BYTES ).putInt( value );
+        return this;
+    }
+
+    @Override
+    public WritableChannel putLong( long value )
+    {
+        bufferWithSpace( Long.BYTES ).putLong( value );
+        return this;
+    }
+
+    @Override
+    public WritableChannel putFloat( float value )
+    {
+        bufferWithSpace( Float.BYTES ).putFloat( value );
+        return this;
+    }
+
+    @Override
+    public WritableChannel putDouble( double value )
+    {
+        bufferWithSpace( Double.BYTES ).putDouble( value );
+        return this;
+    }
+
+    @Override
+    public WritableChannel put( byte[] value, int length )
+    {
+        bufferWithSpace( length ).put( value, 0, length );
+        return this;
+    }
+
+    private ByteBuffer bufferWithSpace( int spaceInBytes )
+    {
+        if ( buffer.remaining() < spaceInBytes )
+        {
+            long required = (long) buffer.position() + spaceInBytes;
+            if ( required > maxCapacity )
+            {
+                throw CAPACITY_EXCEEDED;
+            }
+            long capacity = Math.min( Math.max( (long) buffer.capacity() * 2, required ), maxCapacity );
+            ByteBuffer grown = ByteBuffer.allocateDirect( (int) capacity );
+            buffer.flip();
+            grown.put( buffer );
+            buffer = grown;
+        }
+        return buffer;
+    }
+
+    /**
+     * Thrown when serializing a transaction would grow the buffer beyond its maximum capacity. It is always caught in
+     * {@link #serialize(TransactionRepresentation)}, so it is a shared instance without a stack trace.
+     */
+    private static final class CapacityExceeded extends RuntimeException
+    {
+        CapacityExceeded()
+        {
+            super( "The maximum capacity of the serialized transactions buffer was exceeded", null, false, false );
+        }
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2002-2020 "Neo4j,"
+ * Neo4j Sweden AB [http://neo4j.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.transaction.log;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded pool of {@link SerializedTransactions}, shared by all threads that append to the same log. A committing
+ * thread takes an instance for the duration of its append, and gives it back afterwards.
+ * <p>
+ * At most a fixed number of instances, and thereby of their off-heap buffers, are kept between appends. Instances
+ * beyond that are only created while more threads than that are appending at the same time, and are left to the
+ * garbage collector when given back to a full pool. Taking and giving back instances is lock-free.
+ */
+class SerializedTransactionsPool
+{
+    private final boolean compressCommands;
+    private final int maxCapacity;
+    private final AtomicReferenceArray<SerializedTransactions> pooled;
+
+    /**
+     * @param size the largest number of instances to keep between appends.
+     * @param compressCommands whether the commands of large transactions should be written in compressed form.
+     * @param maxCapacity the largest number of bytes the buffer of each instance will grow to.
+     */
+    SerializedTransactionsPool( int size, boolean compressCommands, int maxCapacity )
+    {
+        this.compressCommands = compressCommands;
+        this.maxCapacity = maxCapacity;
+        this.pooled = new AtomicReferenceArray<>( size );
+    }
+
+    SerializedTransactions acquire()
+    {
+        for ( int i = 0; i < pooled.length(); i++ )
+        {
+            if ( pooled.get( i ) != null )
+            {
+                SerializedTransactions serializedTransactions = pooled.getAndSet( i, null );
+                if ( serializedTransactions != null )
+                {
+                    return serializedTransactions;
+                }
+            }
+        }
+        return new SerializedTransactions( compressCommands, maxCapacity );
+    }
+
+    void release( SerializedTransactions serializedTransactions )
+    {
+        serializedTransactions.clear();
+        for ( int i = 0; i < pooled.length(); i++ )
+        {
+            if ( pooled.get( i ) == null && pooled.compareAndSet( i, null, serializedTransactions ) )
+            {
+                return;
+            }
+        }
+    }
+}
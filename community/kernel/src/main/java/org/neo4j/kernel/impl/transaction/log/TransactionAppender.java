@@ -21,6 +21,7 @@ package org.neo4j.kernel.impl.transaction.log;
 
 import java.io.IOException;
 
+import org.neo4j.graphdb.Resource;
 import org.neo4j.kernel.impl.api.TransactionToApply;
 import org.neo4j.kernel.impl.transaction.tracing.LogAppendEvent;
 import org.neo4j.kernel.impl.transaction.tracing.LogCheckPointEvent;
@@ -55,6 +56,38 @@ public interface TransactionAppender
      */
     long append( TransactionToApply batch, LogAppendEvent logAppendEvent ) throws IOException;
 
+    /**
+     * Serializes the given batch of transactions on the calling thread, ahead of {@link #append(TransactionToApply,
+     * LogAppendEvent) appending} it. Appending the batch then only has to write the serialized transactions to the
+     * log, even if it is appended from another thread, or {@link TransactionToApply#next(TransactionToApply) chained}
+     * after other batches. A chain of batches must either have been serialized batch by batch, or not at all.
+     * <p>
+     * A failure in here leaves the log untouched. The default implementation does nothing, and leaves it to the
+     * append to serialize the transactions.
+     *
+     * @param batch transactions to serialize.
+     * @param logAppendEvent the trace event for the later append of the batch.
+     * @throws IOException if there was a problem serializing the transactions.
+     */
+    default void serialize( TransactionToApply batch, LogAppendEvent logAppendEvent ) throws IOException
+    {
+    }
+
+    /**
+     * Makes sure that every transaction appended so far, and every transaction appended until the returned
+     * {@link Resource} is closed, is durable in the log by the time its append returns. Callers use this around
+     * forcing anything that has to be preceded by the log, but isn't written through the page cache.
+     * <p>
+     * The default implementation does nothing, for appenders that always force the log before returning.
+     *
+     * @return a {@link Resource} to close when appended transactions no longer have to be forced right away.
+     * @throws IOException if there was a problem forcing the log.
+     */
+    default Resource forceEveryAppend() throws IOException
+    {
+        return Resource.EMPTY;
+    }
+
     /**
      * Appends a check point to a log which marks a starting point for recovery in the event of failure.
      * After this method have returned the check point mark must have been flushed to disk.
@@ -97,6 +97,21 @@ public interface TransactionIdStore
      */
     long getLastCommittedTransactionId();
 
+    /**
+     * Signals that the transaction with the given id, and all transactions before it, have been forced to the
+     * transaction log. Committed transactions are normally durable right away, but that is not the case when the
+     * transaction log is forced asynchronously. Calls to this method may come in out-of-order.
+     *
+     * @param transactionId the highest transaction id whose log entries are now durable.
+     */
+    void transactionDurable( long transactionId );
+
+    /**
+     * @return highest seen {@link #transactionDurable(long) durable transaction id}. Transactions up to and including
+     * this one will survive a crash.
+     */
+    long getLastDurableTransactionId();
+
     /**
      * Returns transaction information about the highest committed transaction, i.e.
      * transaction id as well as checksum.
@@ -173,10 +173,17 @@ public class CheckPointerImpl extends LifecycleAdapter implements CheckPointer
             /*
              * First we flush the store. If we fail now or during the flush, on recovery we'll find the
              * earlier check point and replay from there all the log entries. Everything will be ok.
+             * Not all of the store is written through the page cache, which holds back pages until the log has been
+             * forced, so the log is forced after every append until the flush is done, even if it is otherwise forced
+             * asynchronously. Otherwise an index could end up durably containing changes of transactions that were
+             * never made durable in the log, and recovery can't undo those.
              */
             msgLog.info( prefix + " checkpoint started..." );
             long startTime = currentTimeMillis();
-            storageEngine.flushAndForce( ioLimiter );
+            try ( Resource durableAppends = appender.forceEveryAppend() )
+            {
+                storageEngine.flushAndForce( ioLimiter );
+            }
             /*
              * Check kernel health before going to write the next check point.  In case of a panic this check point
              * will be aborted, which is the safest alternative so that the next recovery will have a chance to
@@ -0,0 +1,222 @@
+/*
+ * Copyright (c) 2002-2020 "Neo4j,"
+ * Neo4j Sweden AB [http://neo4j.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.transaction.log.entry;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.zip.Deflater;
+
+import org.neo4j.io.ByteUnit;
+import org.neo4j.kernel.impl.transaction.TransactionRepresentation;
+import org.neo4j.storageengine.api.WritableChannel;
+
+import static org.neo4j.kernel.impl.transaction.log.entry.LogEntryByteCodes.COMPRESSED_COMMANDS;
+
+/**
+ * A {@link LogEntryWriter} that writes the commands of a transaction as a single {@link LogEntryCompressedCommands}
+ * entry, provided that they are large enough to be worth compressing and actually do compress. Other transactions,
+ * and all other log entries, are written exactly like {@link LogEntryWriter} writes them.
+ * <p>
+ * The compressed entry has the layout {@code [codec:byte][uncompressed length:int][compressed length:int][bytes]},
+ * where the uncompressed bytes are the command entries as they would have been written without compression.
+ * Instances are not thread safe, and hold on to a scratch buffer and a {@link Deflater} between transactions.
+ */
+public class CompressingLogEntryWriter extends LogEntryWriter
+{
+    static final byte CODEC_DEFLATE = 1;
+    static final int MAX_UNCOMPRESSED_LENGTH = Integer.MAX_VALUE - 8;
+    private static final int DEFAULT_THRESHOLD = 512;
+    private static final int HEADER_SIZE = 2 + 1 + 4 + 4;
+    private static final int INITIAL_CAPACITY = (int) ByteUnit.kibiBytes( 8 );
+    private static final int MAX_RETAINED_CAPACITY = (int) ByteUnit.mebiBytes( 1 );
+
+    private final int threshold;
+    private final ScratchChannel commands = new ScratchChannel();
+    private final LogEntryWriter commandWriter = new LogEntryWriter( commands );
+    private final Deflater deflater = new Deflater( Deflater.BEST_SPEED );
+    private byte[] compressed = new byte[0];
+
+    public CompressingLogEntryWriter( WritableChannel channel )
+    {
+        this( channel, DEFAULT_THRESHOLD );
+    }
+
+    /**
+     * @param channel underlying channel
+     * @param threshold the smallest size, in bytes, of the serialized commands of a transaction for them to be
+     * compressed.
+     */
+    public CompressingLogEntryWriter( WritableChannel channel, int threshold )
+    {
+        super( channel );
+        this.threshold = threshold;
+    }
+
+    @Override
+    public void serialize( TransactionRepresentation tx ) throws IOException
+    {
+        commands.clear();
+        commandWriter.serialize( tx );
+        byte[] bytes = commands.array();
+        int length = commands.length();
+
+        int compressedLength = length >= threshold ? compress( bytes, length ) : -1;
+        if ( compressedLength != -1 )
+        {
+            writeLogEntryHeader( LogEntryVersion.COMPRESSED, COMPRESSED_COMMANDS, channel );
+            channel.put( CODEC_DEFLATE ).putInt( length ).putInt( compressedLength )
+                   .put( compressed, compressedLength );
+        }
+        else
+        {
+            channel.put( bytes, length );
+        }
+    }
+
+    /**
+     * @return the compressed length, or -1 if the bytes did not compress to less than their original size, including
+     * the header of the compressed entry.
+     */
+    private int compress( byte[] bytes, int length )
+    {
+        int limit = length - HEADER_SIZE;
+        if ( limit <= 0 )
+        {
+            return -1;
+        }
+        if ( compressed.length < limit ||
+                (compressed.length > MAX_RETAINED_CAPACITY && limit <= MAX_RETAINED_CAPACITY) )
+        {
+            // Grow to fit, but don't hold on to the memory of the largest transaction ever seen either
+            compressed = new byte[limit];
+        }
+        try
+        {
+            deflater.setInput( bytes, 0, length );
+            deflater.finish();
+            int compressedLength = deflater.deflate( compressed, 0, limit );
+            return deflater.finished() ? compressedLength : -1;
+        }
+        finally
+        {
+            deflater.reset();
+        }
+    }
+
+    /**
+     * A growable heap buffer for the uncompressed command entries of a single transaction.
+     */
+    private static class ScratchChannel implements WritableChannel
+    {
+        private ByteBuffer buffer = newBuffer( INITIAL_CAPACITY );
+
+        byte[] array()
+        {
+            return buffer.array();
+        }
+
+        int length()
+        {
+            return buffer.position();
+        }
+
+        void clear()
+        {
+            if ( buffer.capacity() > MAX_RETAINED_CAPACITY )
+            {
+                buffer = newBuffer( INITIAL_CAPACITY );
+            }
+            buffer.clear();
+        }
+
+        @Override
+        public WritableChannel put( byte value )
+        {
+            ensureCapacity( Byte.BYTES ).put( value );
+            return this;
+        }
+
+        @Override
+        public WritableChannel putShort( short value )
+        {
+            ensureCapacity( Short.BYTES ).putShort( value );
+            return this;
+        }
+
+        @Override
+        public WritableChannel putInt( int value )
+        {
+            ensureCapacity( Integer.BYTES ).putInt( value );
+            return this;
+        }
+
+        @Override
+        public WritableChannel putLong( long value )
+        {
+            ensureCapacity( Long.BYTES ).putLong( value );
+            return this;
+        }
+
+        @Override
+        public WritableChannel putFloat( float value )
+        {
+            ensureCapacity( Float.BYTES ).putFloat( value );
+            return this;
+        }
+
+        @Override
+        public WritableChannel putDouble( double value )
+        {
+            ensureCapacity( Double.BYTES ).putDouble( value );
+            return this;
+        }
+
+        @Override
+        public WritableChannel put( byte[] value, int length )
+        {
+            ensureCapacity( length ).put( value, 0, length );
+            return this;
+        }
+
+        private ByteBuffer ensureCapacity( int bytes )
+        {
+            if ( buffer.remaining() < bytes )
+            {
+                long required = (long) buffer.position() + bytes;
+                if ( required > MAX_UNCOMPRESSED_LENGTH )
+                {
+                    throw new IllegalStateException( "Commands of transaction are larger than " +
+                            MAX_UNCOMPRESSED_LENGTH + " bytes" );
+                }
+                int capacity = (int) Math.min( MAX_UNCOMPRESSED_LENGTH, Math.max( required, buffer.capacity() * 2L ) );
+                ByteBuffer grown = newBuffer( capacity );
+                buffer.flip();
+                grown.put( buffer );
+                buffer = grown;
+            }
+            return buffer;
+        }
+
+        private static ByteBuffer newBuffer( int capacity )
+        {
+            return ByteBuffer.wrap( new byte[capacity] );
+        }
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2002-2020 "Neo4j,"
+ * Neo4j Sweden AB [http://neo4j.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.transaction.log.entry;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import org.neo4j.kernel.impl.transaction.log.LogPositionMarker;
+import org.neo4j.kernel.impl.transaction.log.ReadableClosableChannel;
+import org.neo4j.storageengine.api.CommandReaderFactory;
+import org.neo4j.unsafe.impl.batchimport.input.ByteBufferReadableChannel;
+
+/**
+ * The log entries of {@link LogEntryVersion#V3_5}, which are those of {@link LogEntryParsersV2_3}, plus an entry
+ * holding all the commands of a transaction in compressed form.
+ */
+public enum LogEntryParsersV3_5 implements LogEntryParser<LogEntry>
+{
+    TX_START( LogEntryParsersV2_3.TX_START ),
+    COMMAND( LogEntryParsersV2_3.COMMAND ),
+    TX_COMMIT( LogEntryParsersV2_3.TX_COMMIT ),
+    CHECK_POINT( LogEntryParsersV2_3.CHECK_POINT ),
+    COMPRESSED_COMMANDS( null )
+            {
+                @Override
+                public LogEntry parse( LogEntryVersion version, ReadableClosableChannel channel, LogPositionMarker marker,
+                                       CommandReaderFactory commandReader ) throws IOException
+                {
+                    byte codec = channel.get();
+                    int uncompressedLength = channel.getInt();
+                    int compressedLength = channel.getInt();
+                    if ( codec != CompressingLogEntryWriter.CODEC_DEFLATE )
+                    {
+                        throw new IllegalArgumentException( "Unknown compression codec " + codec );
+                    }
+                    if ( uncompressedLength < 0 || compressedLength < 0 ||
+                            uncompressedLength > CompressingLogEntryWriter.MAX_UNCOMPRESSED_LENGTH )
+                    {
+                        throw new IllegalArgumentException( "Unrealistic compressed commands entry of " + compressedLength +
+                                " bytes, compressed from " + uncompressedLength + " bytes" );
+                    }
+                    byte[] compressed = new byte[compressedLength];
+                    channel.get( compressed, compressedLength );
+                    ByteBuffer uncompressed = ByteBuffer.wrap( inflate( compressed, uncompressedLength ) );
+
+                    // The uncompressed bytes are the command entries, exactly as they would have been written to
+                    // the log without compression.
+                    ReadableClosableChannel commandChannel = new ByteBufferReadableChannel( uncompressed );
+                    List<LogEntryCommand> commands = new ArrayList<>();
+                    while ( uncompressed.hasRemaining() )
+                    {
+                        LogEntryVersion commandVersion = LogEntryVersion.byVersion( commandChannel.get() );
+                        byte type = commandChannel.get();
+                        if ( type != LogEntryByteCodes.COMMAND )
+                        {
+                            throw new IllegalArgumentException( "Expected only commands in compressed commands entry, " +
+                                    "but found entry type " + type );
+                        }
+                        LogEntry command = commandVersion.entryParser( type ).parse(
+                                commandVersion, commandChannel, marker, commandReader );
+                        if ( command != null )
+                        {
+                            commands.add( command.as() );
+                        }
+                    }
+                    return new LogEntryCompressedCommands( version, commands );
+                }
+
+                @Override
+                public byte byteCode()
+                {
+                    return LogEntryByteCodes.COMPRESSED_COMMANDS;
+                }
+
+                @Override
+                public boolean skip()
+                {
+                    return false;
+                }
+            };
+
+    private final LogEntryParser<LogEntry> delegate;
+
+    LogEntryParsersV3_5( LogEntryParser<LogEntry> delegate )
+    {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public LogEntry parse( LogEntryVersion version, ReadableClosableChannel channel, LogPositionMarker marker,
+            CommandReaderFactory commandReaderFactory ) throws IOException
+    {
+        return delegate.parse( version, channel, marker, commandReaderFactory );
+    }
+
+    @Override
+    public byte byteCode()
+    {
+        return delegate.byteCode();
+    }
+
+    @Override
+    public boolean skip()
+    {
+        return delegate.skip();
+    }
+
+    private static byte[] inflate( byte[] compressed, int uncompressedLength ) throws IOException
+    {
+        byte[] uncompressed = new byte[uncompressedLength];
+        Inflater inflater = new Inflater();
+        try
+        {
+            inflater.setInput( compressed );
+            int length = inflater.inflate( uncompressed );
+            if ( length != uncompressedLength || !inflater.finished() )
+            {
+                throw new IOException( "Compressed commands entry inflated to " + length + " bytes, but expected " +
+                        uncompressedLength + " bytes" );
+            }
+            return uncompressed;
+        }
+        catch ( DataFormatException e )
+        {
+            throw new IOException( "Corrupt compressed commands entry", e );
+        }
+        finally
+        {
+            inflater.end();
+        }
+    }
+}
@@ -51,7 +51,13 @@ public class LogEntryWriter
 
     protected static void writeLogEntryHeader( byte type, WritableChannel channel ) throws IOException
     {
-        channel.put( CURRENT.byteCode() ).put( type );
+        writeLogEntryHeader( CURRENT, type, channel );
+    }
+
+    protected static void writeLogEntryHeader( LogEntryVersion version, byte type, WritableChannel channel )
+            throws IOException
+    {
+        channel.put( version.byteCode() ).put( type );
     }
 
     public void writeStartEntry( LogEntryStart entry ) throws IOException
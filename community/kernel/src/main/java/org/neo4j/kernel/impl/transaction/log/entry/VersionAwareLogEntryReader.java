@@ -71,6 +71,17 @@ public class VersionAwareLogEntryReader<SOURCE extends ReadableClosablePositionA
 
                 byte versionCode = channel.get();
                 byte typeCode = channel.get();
+                if ( versionCode == 0 && typeCode == 0 && isZeroFilledToEnd( channel ) )
+                {
+                    // No log entry starts with two zero bytes, so this is the zero-filled space after the last entry
+                    // of a preallocated log file. Zero bytes followed by anything else are corruption though, which
+                    // the version check below reports like any other unknown version.
+                    if ( channelSupportsPositioning( channel ) )
+                    {
+                        ((PositionableChannel) channel).setCurrentPosition( positionMarker.getByteOffset() );
+                    }
+                    return null;
+                }
 
                 LogEntryVersion version = null;
                 LogEntryParser<LogEntry> entryReader;
@@ -127,6 +138,24 @@ public class VersionAwareLogEntryReader<SOURCE extends ReadableClosablePositionA
         }
     }
 
+    private static boolean isZeroFilledToEnd( ReadableClosablePositionAwareChannel channel ) throws IOException
+    {
+        try
+        {
+            while ( true )
+            {
+                if ( channel.get() != 0 )
+                {
+                    return false;
+                }
+            }
+        }
+        catch ( ReadPastEndException e )
+        {
+            return true;
+        }
+    }
+
     private boolean channelSupportsPositioning( SOURCE channel )
     {
         return channel instanceof PositionableChannel;
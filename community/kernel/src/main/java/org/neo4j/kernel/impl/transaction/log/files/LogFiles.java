@@ -59,6 +59,23 @@ public interface LogFiles extends Lifecycle
 
     boolean hasAnyEntries( long version );
 
+    /**
+     * Turn the given pruned log file into the spare log file that the next rotation switches to, if preallocation is
+     * enabled and there is no spare log file yet.
+     *
+     * @param logFile the pruned log file.
+     * @return {@code true} if the file was recycled, or {@code false} if the caller should delete it.
+     * @throws IOException if the file could not be recycled.
+     */
+    boolean recycleLogFile( File logFile ) throws IOException;
+
+    /**
+     * Make sure there is a spare log file for the next rotation to switch to, if preallocation is enabled.
+     *
+     * @throws IOException if the spare log file could not be created.
+     */
+    void preallocateSpareLogFile() throws IOException;
+
     void accept( LogVersionVisitor visitor );
 
     void accept( LogHeaderVisitor visitor ) throws IOException;
@@ -66,4 +83,6 @@ public interface LogFiles extends Lifecycle
     LogFile getLogFile();
 
     TransactionLogFileInformation getLogFileInformation();
+
+    TransactionOffsetIndex getTransactionOffsetIndex();
 }
@@ -42,6 +42,8 @@ import org.neo4j.kernel.impl.util.Dependencies;
 import static java.util.Objects.requireNonNull;
 import static org.neo4j.graphdb.factory.GraphDatabaseSettings.database_path;
 import static org.neo4j.graphdb.factory.GraphDatabaseSettings.logical_log_rotation_threshold;
+import static org.neo4j.graphdb.factory.GraphDatabaseSettings.tx_log_offset_index;
+import static org.neo4j.graphdb.factory.GraphDatabaseSettings.tx_log_preallocation;
 
 /**
  * Transactional log files facade class builder.
@@ -237,9 +239,12 @@ public class LogFilesBuilder
 
         // Register listener for rotation threshold
         AtomicLong rotationThreshold = getRotationThresholdAndRegisterForUpdates();
+        boolean preallocation = !readOnly && config != null && config.get( tx_log_preallocation );
+        boolean offsetIndex = config != null && config.get( tx_log_offset_index );
 
         return new TransactionLogFilesContext( rotationThreshold, logEntryReader,
-                lastCommittedIdSupplier, committingTransactionIdSupplier, logFileCreationMonitor, logVersionRepositorySupplier, fileSystem );
+                lastCommittedIdSupplier, committingTransactionIdSupplier, logFileCreationMonitor, logVersionRepositorySupplier, fileSystem,
+                preallocation, offsetIndex );
     }
 
     private AtomicLong getRotationThresholdAndRegisterForUpdates()
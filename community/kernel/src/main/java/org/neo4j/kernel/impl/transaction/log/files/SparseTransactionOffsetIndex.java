@@ -0,0 +1,343 @@
+/*
+ * Copyright (c) 2002-2020 "Neo4j,"
+ * Neo4j Sweden AB [http://neo4j.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.transaction.log.files;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.function.LongPredicate;
+
+import org.neo4j.io.ByteUnit;
+import org.neo4j.io.fs.FileSystemAbstraction;
+import org.neo4j.io.fs.OpenMode;
+import org.neo4j.io.fs.StoreChannel;
+import org.neo4j.kernel.impl.transaction.log.LogPosition;
+
+/**
+ * {@link TransactionOffsetIndex} that indexes the first transaction of every log version, and then a transaction
+ * roughly every {@link #DEFAULT_INDEX_INTERVAL} bytes of log. The index of the log version that is being appended to
+ * is kept in memory, and written to a file next to the log file when the log is rotated or shut down. The file of a
+ * log version is deleted some time after the log file itself has been pruned, and as soon as the log version is
+ * appended to again, or truncated, since the file no longer describes that log version from then on.
+ * <p>
+ * A position found in the index is only returned if it still is the start of the indexed transaction. Otherwise
+ * {@link #lookup(long, long)} returns {@code null}, and the transaction is found by reading the log file from the
+ * start instead.
+ * <p>
+ * The index file consists of a header with the log version and the number of entries, followed by the entries as
+ * pairs of transaction id and byte offset, in transaction id order.
+ */
+class SparseTransactionOffsetIndex implements TransactionOffsetIndex
+{
+    static final long DEFAULT_INDEX_INTERVAL = ByteUnit.kibiBytes( 64 );
+    private static final int HEADER_SIZE = Long.BYTES + Integer.BYTES;
+    private static final int ENTRY_SIZE = Long.BYTES * 2;
+    private static final int INITIAL_CAPACITY = 64;
+    private static final long NO_VERSION = -1;
+
+    private final FileSystemAbstraction fileSystem;
+    private final TransactionLogFilesHelper fileHelper;
+    private final LongPredicate logVersionExists;
+    private final TransactionStartCheck transactionStartCheck;
+    private final long indexInterval;
+
+    private long logVersion = NO_VERSION;
+    private long[] transactionIds = new long[INITIAL_CAPACITY];
+    private long[] offsets = new long[INITIAL_CAPACITY];
+    private int size;
+
+    SparseTransactionOffsetIndex( FileSystemAbstraction fileSystem, TransactionLogFilesHelper fileHelper,
+            LongPredicate logVersionExists, TransactionStartCheck transactionStartCheck, long indexInterval )
+    {
+        this.fileSystem = fileSystem;
+        this.fileHelper = fileHelper;
+        this.logVersionExists = logVersionExists;
+        this.transactionStartCheck = transactionStartCheck;
+        this.indexInterval = indexInterval;
+    }
+
+    @Override
+    public synchronized void open( long logVersion )
+    {
+        // The index file is there if the log version has been appended to before, and was then shut down cleanly.
+        // It is written again when this log version is closed, and must not outlive a crash before then.
+        ByteBuffer entries = readIndexFile( logVersion );
+        reset( logVersion );
+        if ( entries != null )
+        {
+            while ( entries.hasRemaining() )
+            {
+                add( entries.getLong(), entries.getLong() );
+            }
+        }
+    }
+
+    @Override
+    public synchronized void transactionAppended( long transactionId, LogPosition startPosition )
+    {
+        if ( startPosition.getLogVersion() != logVersion )
+        {
+            reset( startPosition.getLogVersion() );
+        }
+        // Transactions are appended in id order, so indexed transactions at or after this one have been truncated away
+        while ( size > 0 && (transactionIds[size - 1] >= transactionId ||
+                offsets[size - 1] >= startPosition.getByteOffset()) )
+        {
+            size--;
+        }
+        if ( size == 0 || (transactionId > transactionIds[size - 1] &&
+                startPosition.getByteOffset() - offsets[size - 1] >= indexInterval) )
+        {
+            add( transactionId, startPosition.getByteOffset() );
+        }
+    }
+
+    @Override
+    public synchronized void close( long logVersion ) throws IOException
+    {
+        if ( logVersion == this.logVersion )
+        {
+            writeIndexFile();
+        }
+        deleteIndexFilesOfPrunedLogVersions();
+    }
+
+    @Override
+    public synchronized void truncated( LogPosition position )
+    {
+        if ( logVersion > position.getLogVersion() )
+        {
+            size = 0;
+        }
+        else if ( logVersion == position.getLogVersion() )
+        {
+            while ( size > 0 && offsets[size - 1] >= position.getByteOffset() )
+            {
+                size--;
+            }
+        }
+        deleteIndexFilesFromVersion( position.getLogVersion() );
+    }
+
+    @Override
+    public LogPosition lookup( long transactionId, long logVersion )
+    {
+        long indexedTransactionId;
+        LogPosition indexedPosition;
+        synchronized ( this )
+        {
+            if ( logVersion == this.logVersion )
+            {
+                int index = floorIndex( transactionId, transactionIds, size );
+                if ( index == -1 )
+                {
+                    return null;
+                }
+                indexedTransactionId = transactionIds[index];
+                indexedPosition = new LogPosition( logVersion, offsets[index] );
+            }
+            else
+            {
+                indexedTransactionId = -1;
+                indexedPosition = null;
+            }
+        }
+
+        if ( indexedPosition == null )
+        {
+            ByteBuffer entries = readIndexFile( logVersion );
+            if ( entries == null )
+            {
+                return null;
+            }
+            int count = entries.remaining() / ENTRY_SIZE;
+            long[] fileTransactionIds = new long[count];
+            long[] fileOffsets = new long[count];
+            for ( int i = 0; i < count; i++ )
+            {
+                fileTransactionIds[i] = entries.getLong();
+                fileOffsets[i] = entries.getLong();
+            }
+            int index = floorIndex( transactionId, fileTransactionIds, count );
+            if ( index == -1 )
+            {
+                return null;
+            }
+            indexedTransactionId = fileTransactionIds[index];
+            indexedPosition = new LogPosition( logVersion, fileOffsets[index] );
+        }
+
+        // A stale index must never send the reader into the middle of an entry, so rather scan the whole log file
+        return transactionStartCheck.isStartOf( indexedTransactionId, indexedPosition ) ? indexedPosition : null;
+    }
+
+    private void reset( long logVersion )
+    {
+        this.logVersion = logVersion;
+        size = 0;
+        fileSystem.deleteFile( fileHelper.getOffsetIndexFileForVersion( logVersion ) );
+    }
+
+    private void add( long transactionId, long offset )
+    {
+        if ( size == transactionIds.length )
+        {
+            transactionIds = Arrays.copyOf( transactionIds, size * 2 );
+            offsets = Arrays.copyOf( offsets, size * 2 );
+        }
+        transactionIds[size] = transactionId;
+        offsets[size] = offset;
+        size++;
+    }
+
+    /**
+     * @return the index of the greatest transaction id that is not greater than the given transaction id, or -1 if
+     * all transaction ids are greater than it.
+     */
+    private static int floorIndex( long transactionId, long[] transactionIds, int size )
+    {
+        int low = 0;
+        int high = size - 1;
+        int found = -1;
+        while ( low <= high )
+        {
+            int middle = (low + high) >>> 1;
+            if ( transactionIds[middle] <= transactionId )
+            {
+                found = middle;
+                low = middle + 1;
+            }
+            else
+            {
+                high = middle - 1;
+            }
+        }
+        return found;
+    }
+
+    private void writeIndexFile() throws IOException
+    {
+        ByteBuffer buffer = ByteBuffer.allocate( HEADER_SIZE + size * ENTRY_SIZE );
+        buffer.putLong( logVersion );
+        buffer.putInt( size );
+        for ( int i = 0; i < size; i++ )
+        {
+            buffer.putLong( transactionIds[i] );
+            buffer.putLong( offsets[i] );
+        }
+        buffer.flip();
+
+        // Write the index to the side and move it into place, so that a crash never leaves a partial index file.
+        File preparing = fileHelper.getPreparingOffsetIndexFileForVersion( logVersion );
+        try ( StoreChannel channel = fileSystem.open( preparing, OpenMode.READ_WRITE ) )
+        {
+            channel.truncate( 0 );
+            channel.writeAll( buffer, 0 );
+            channel.force( false );
+        }
+        fileSystem.renameFile( preparing, fileHelper.getOffsetIndexFileForVersion( logVersion ),
+                StandardCopyOption.REPLACE_EXISTING );
+    }
+
+    /**
+     * @return the entries of the index file of the given log version, or {@code null} if there is no valid index file.
+     */
+    private ByteBuffer readIndexFile( long logVersion )
+    {
+        File indexFile = fileHelper.getOffsetIndexFileForVersion( logVersion );
+        if ( !fileSystem.fileExists( indexFile ) )
+        {
+            return null;
+        }
+        try ( StoreChannel channel = fileSystem.open( indexFile, OpenMode.READ ) )
+        {
+            long fileSize = channel.size();
+            if ( fileSize < HEADER_SIZE || (fileSize - HEADER_SIZE) % ENTRY_SIZE != 0 || fileSize > Integer.MAX_VALUE )
+            {
+                return null;
+            }
+            ByteBuffer buffer = ByteBuffer.allocate( (int) fileSize );
+            channel.readAll( buffer );
+            buffer.flip();
+            if ( buffer.getLong() != logVersion || buffer.getInt() != (fileSize - HEADER_SIZE) / ENTRY_SIZE )
+            {
+                return null;
+            }
+            return buffer;
+        }
+        catch ( IOException e )
+        {
+            // The index is only a hint, so without it the transaction will be found by reading the whole log file.
+            return null;
+        }
+    }
+
+    private void deleteIndexFilesOfPrunedLogVersions()
+    {
+        deleteIndexFiles( version -> !logVersionExists.test( version ) );
+    }
+
+    private void deleteIndexFilesFromVersion( long fromLogVersion )
+    {
+        deleteIndexFiles( version -> version >= fromLogVersion );
+    }
+
+    private void deleteIndexFiles( LongPredicate versionFilter )
+    {
+        File[] indexFiles = fileSystem.listFiles( fileHelper.getParentDirectory(),
+                fileHelper.getOffsetIndexFilenameFilter() );
+        if ( indexFiles == null )
+        {
+            return;
+        }
+        for ( File indexFile : indexFiles )
+        {
+            long version;
+            try
+            {
+                version = fileHelper.getLogVersion( indexFile.getName() );
+            }
+            catch ( NumberFormatException e )
+            {
+                continue;
+            }
+            if ( versionFilter.test( version ) )
+            {
+                fileSystem.deleteFile( indexFile );
+            }
+        }
+    }
+
+    /**
+     * Checks if a position in the transaction log is where a given transaction starts.
+     */
+    @FunctionalInterface
+    interface TransactionStartCheck
+    {
+        /**
+         * @param transactionId the id of the transaction that is expected to start at the given position.
+         * @param position the position in the transaction log to check.
+         * @return {@code true} if the given position is the start entry of the given transaction.
+         */
+        boolean isStartOf( long transactionId, LogPosition position );
+    }
+}
@@ -21,22 +21,28 @@ package org.neo4j.kernel.impl.transaction.log.files;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.neo4j.io.fs.FileSystemAbstraction;
 import org.neo4j.io.fs.OpenMode;
 import org.neo4j.kernel.impl.transaction.log.FlushablePositionAwareChannel;
 import org.neo4j.kernel.impl.transaction.log.LogPosition;
+import org.neo4j.kernel.impl.transaction.log.LogPositionMarker;
 import org.neo4j.kernel.impl.transaction.log.LogVersionBridge;
 import org.neo4j.kernel.impl.transaction.log.LogVersionRepository;
 import org.neo4j.kernel.impl.transaction.log.LogVersionedStoreChannel;
 import org.neo4j.kernel.impl.transaction.log.PhysicalLogVersionedStoreChannel;
 import org.neo4j.kernel.impl.transaction.log.PositionAwarePhysicalFlushableChannel;
 import org.neo4j.kernel.impl.transaction.log.ReadAheadLogChannel;
+import org.neo4j.kernel.impl.transaction.log.ReadableClosablePositionAwareChannel;
 import org.neo4j.kernel.impl.transaction.log.ReadableLogChannel;
 import org.neo4j.kernel.impl.transaction.log.ReaderLogVersionBridge;
+import org.neo4j.kernel.impl.transaction.log.entry.LogEntryReader;
 import org.neo4j.kernel.lifecycle.LifecycleAdapter;
 
+import static org.neo4j.kernel.impl.transaction.log.entry.LogHeader.LOG_HEADER_SIZE;
+
 /**
  * {@link LogFile} backed by one or more files in a {@link FileSystemAbstraction}.
  */
@@ -45,16 +51,19 @@ class TransactionLogFile extends LifecycleAdapter implements LogFile
     private final AtomicLong rotateAtSize;
     private final TransactionLogFiles logFiles;
     private final TransactionLogFilesContext context;
+    private final TransactionOffsetIndex offsetIndex;
     private final LogVersionBridge readerLogVersionBridge;
     private PositionAwarePhysicalFlushableChannel writer;
     private LogVersionRepository logVersionRepository;
 
     private volatile PhysicalLogVersionedStoreChannel channel;
 
-    TransactionLogFile( TransactionLogFiles logFiles, TransactionLogFilesContext context )
+    TransactionLogFile( TransactionLogFiles logFiles, TransactionOffsetIndex offsetIndex,
+            TransactionLogFilesContext context )
     {
         this.rotateAtSize = context.getRotationThreshold();
         this.context = context;
+        this.offsetIndex = offsetIndex;
         this.logFiles = logFiles;
         this.readerLogVersionBridge = new ReaderLogVersionBridge( logFiles );
     }
@@ -77,8 +86,37 @@ class TransactionLogFile extends LifecycleAdapter implements LogFile
         long lastLogVersionUsed = logVersionRepository.getCurrentLogVersion();
         channel = logFiles.createLogChannelForVersion( lastLogVersionUsed, OpenMode.READ_WRITE, context::getLastCommittedTransactionId );
         // Move to the end
-        channel.position( channel.size() );
+        channel.position( findEndOfLog( channel ) );
         writer = new PositionAwarePhysicalFlushableChannel( channel );
+        offsetIndex.open( lastLogVersionUsed );
+    }
+
+    /**
+     * The end of a log file is usually the end of the file, but a preallocated log file is zero-filled after its last
+     * entry, until it is truncated at rotation or shutdown. If we crashed before that, and recovery didn't need to
+     * truncate the log, then we have to read through the entries to find where the zeros begin.
+     */
+    private long findEndOfLog( PhysicalLogVersionedStoreChannel channel ) throws IOException
+    {
+        long size = channel.size();
+        ByteBuffer lastByte = ByteBuffer.allocate( 1 );
+        if ( size <= LOG_HEADER_SIZE || channel.read( lastByte, size - 1 ) != 1 || lastByte.get( 0 ) != 0 )
+        {
+            return size;
+        }
+        @SuppressWarnings( "unchecked" )
+        LogEntryReader<ReadableClosablePositionAwareChannel> entryReader = context.getLogEntryReader();
+        LogPositionMarker endOfLog = new LogPositionMarker();
+        try ( ReadableLogChannel reader = new ReadAheadLogChannel( logFiles.openForVersion( channel.getVersion() ),
+                LogVersionBridge.NO_MORE_CHANNELS ) )
+        {
+            do
+            {
+                reader.getCurrentPosition( endOfLog );
+            }
+            while ( entryReader.readLogEntry( reader ) != null );
+        }
+        return endOfLog.getByteOffset();
     }
 
     // In order to be able to write into a logfile after life.stop during shutdown sequence
@@ -89,6 +127,9 @@ class TransactionLogFile extends LifecycleAdapter implements LogFile
     {
         if ( writer != null )
         {
+            writer.prepareForFlush().flush();
+            truncatePreallocatedSpace( channel );
+            offsetIndex.close( channel.getVersion() );
             writer.close();
         }
         if ( channel != null )
@@ -181,10 +222,26 @@ class TransactionLogFile extends LifecycleAdapter implements LogFile
          */
         PhysicalLogVersionedStoreChannel newLog = logFiles.createLogChannelForVersion( newLogVersion,
                 OpenMode.READ_WRITE, context::committingTransactionId );
+        truncatePreallocatedSpace( currentLog );
+        offsetIndex.close( currentLog.getVersion() );
         currentLog.close();
         return newLog;
     }
 
+    /**
+     * Cut off any zero-filled space that is left after the last entry of a preallocated log file, so that the size of
+     * a log file that is no longer being appended to is the end of its last entry, as it would be without
+     * preallocation.
+     */
+    private static void truncatePreallocatedSpace( LogVersionedStoreChannel log ) throws IOException
+    {
+        long position = log.position();
+        if ( log.size() > position )
+        {
+            log.truncate( position );
+        }
+    }
+
     @Override
     public FlushablePositionAwareChannel getWriter()
     {
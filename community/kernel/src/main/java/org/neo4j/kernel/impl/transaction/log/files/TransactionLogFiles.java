@@ -24,20 +24,30 @@ import java.io.FileNotFoundException;
 import java.io.FilenameFilter;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.file.StandardCopyOption;
 import java.util.function.LongSupplier;
 
+import org.neo4j.io.ByteUnit;
 import org.neo4j.io.fs.FileSystemAbstraction;
 import org.neo4j.io.fs.OpenMode;
 import org.neo4j.io.fs.StoreChannel;
 import org.neo4j.kernel.impl.transaction.log.LogHeaderCache;
 import org.neo4j.kernel.impl.transaction.log.LogPosition;
+import org.neo4j.kernel.impl.transaction.log.LogVersionBridge;
 import org.neo4j.kernel.impl.transaction.log.PhysicalLogVersionedStoreChannel;
+import org.neo4j.kernel.impl.transaction.log.ReadableClosablePositionAwareChannel;
+import org.neo4j.kernel.impl.transaction.log.ReadableLogChannel;
+import org.neo4j.kernel.impl.transaction.log.entry.LogEntry;
+import org.neo4j.kernel.impl.transaction.log.entry.LogEntryCommit;
+import org.neo4j.kernel.impl.transaction.log.entry.LogEntryReader;
 import org.neo4j.kernel.impl.transaction.log.entry.LogHeader;
 import org.neo4j.kernel.lifecycle.LifecycleAdapter;
 
 import static java.lang.Math.max;
 import static java.lang.Math.min;
 import static java.lang.String.format;
+import static org.neo4j.kernel.impl.transaction.log.entry.LogEntryByteCodes.TX_COMMIT;
+import static org.neo4j.kernel.impl.transaction.log.entry.LogEntryByteCodes.TX_START;
 import static org.neo4j.kernel.impl.transaction.log.entry.LogHeader.LOG_HEADER_SIZE;
 import static org.neo4j.kernel.impl.transaction.log.entry.LogHeaderReader.readLogHeader;
 import static org.neo4j.kernel.impl.transaction.log.entry.LogHeaderWriter.writeLogHeader;
@@ -52,6 +62,7 @@ public class TransactionLogFiles extends LifecycleAdapter implements LogFiles
     public static final String DEFAULT_NAME = "neostore.transaction.db";
     public static final FilenameFilter DEFAULT_FILENAME_FILTER = TransactionLogFilesHelper.DEFAULT_FILENAME_FILTER;
     private static final File[] EMPTY_FILES_ARRAY = {};
+    private static final int PREALLOCATION_CHUNK_SIZE = (int) ByteUnit.mebiBytes( 1 );
 
     private final TransactionLogFilesContext logFilesContext;
     private final TransactionLogFileInformation logFileInformation;
@@ -61,6 +72,7 @@ public class TransactionLogFiles extends LifecycleAdapter implements LogFiles
     private final LogFileCreationMonitor monitor;
     private final TransactionLogFilesHelper fileHelper;
     private final TransactionLogFile logFile;
+    private final TransactionOffsetIndex offsetIndex;
     private final File logsDirectory;
 
     TransactionLogFiles( File logsDirectory, String name, TransactionLogFilesContext context )
@@ -72,7 +84,11 @@ public class TransactionLogFiles extends LifecycleAdapter implements LogFiles
         this.monitor = context.getLogFileCreationMonitor();
         this.logHeaderCache = new LogHeaderCache( 1000 );
         this.logFileInformation = new TransactionLogFileInformation( this, logHeaderCache, context );
-        this.logFile = new TransactionLogFile( this, context );
+        this.offsetIndex = context.isOffsetIndex()
+                           ? new SparseTransactionOffsetIndex( fileSystem, fileHelper, this::versionExists,
+                                   this::isStartOfTransaction, SparseTransactionOffsetIndex.DEFAULT_INDEX_INTERVAL )
+                           : TransactionOffsetIndex.NO_INDEX;
+        this.logFile = new TransactionLogFile( this, offsetIndex, context );
     }
 
     @Override
@@ -155,7 +171,82 @@ public class TransactionLogFiles extends LifecycleAdapter implements LogFiles
     @Override
     public boolean hasAnyEntries( long version )
     {
-        return fileSystem.getFileSize( getLogFileForVersion( version ) ) > LOG_HEADER_SIZE;
+        File logFile = getLogFileForVersion( version );
+        if ( fileSystem.getFileSize( logFile ) <= LOG_HEADER_SIZE )
+        {
+            return false;
+        }
+        // A preallocated log file is zero-filled after its last entry, and no entry starts with a zero byte.
+        try ( StoreChannel channel = fileSystem.open( logFile, OpenMode.READ ) )
+        {
+            ByteBuffer buffer = ByteBuffer.allocate( 1 );
+            return channel.read( buffer, LOG_HEADER_SIZE ) == 1 && buffer.get( 0 ) != 0;
+        }
+        catch ( IOException e )
+        {
+            return true;
+        }
+    }
+
+    @Override
+    public boolean recycleLogFile( File logFile ) throws IOException
+    {
+        if ( !logFilesContext.isPreallocation() || fileSystem.fileExists( fileHelper.getSpareLogFile() ) )
+        {
+            return false;
+        }
+        File preparing = fileHelper.getPreparingSpareLogFile();
+        fileSystem.renameFile( logFile, preparing, StandardCopyOption.REPLACE_EXISTING );
+        prepareSpareLogFile( preparing );
+        return true;
+    }
+
+    @Override
+    public void preallocateSpareLogFile() throws IOException
+    {
+        if ( logFilesContext.isPreallocation() && !fileSystem.fileExists( fileHelper.getSpareLogFile() ) )
+        {
+            prepareSpareLogFile( fileHelper.getPreparingSpareLogFile() );
+        }
+    }
+
+    /**
+     * Zero-fill the given file up to the rotation threshold, and then move it into place as the spare log file. The
+     * zero-filling must be complete before the file can be used, since any old log entries in a recycled file would
+     * otherwise be read as if they belonged to the new log version.
+     */
+    private void prepareSpareLogFile( File preparing ) throws IOException
+    {
+        long size = logFilesContext.getRotationThreshold().get();
+        try ( StoreChannel channel = fileSystem.open( preparing, OpenMode.READ_WRITE ) )
+        {
+            ByteBuffer zeros = ByteBuffer.allocate( PREALLOCATION_CHUNK_SIZE );
+            for ( long position = 0; position < size; position += zeros.limit() )
+            {
+                zeros.clear();
+                zeros.limit( (int) min( PREALLOCATION_CHUNK_SIZE, size - position ) );
+                channel.writeAll( zeros, position );
+            }
+            channel.truncate( size );
+            channel.force( false );
+        }
+        fileSystem.renameFile( preparing, fileHelper.getSpareLogFile(), StandardCopyOption.REPLACE_EXISTING );
+    }
+
+    /**
+     * Move the spare log file into place as the given log file, if there is one.
+     *
+     * @return {@code true} if the spare log file is now the given log file.
+     */
+    private boolean useSpareLogFile( File logFile ) throws IOException
+    {
+        File spare = fileHelper.getSpareLogFile();
+        if ( !logFilesContext.isPreallocation() || !fileSystem.fileExists( spare ) )
+        {
+            return false;
+        }
+        fileSystem.renameFile( spare, logFile );
+        return true;
     }
 
     @Override
@@ -246,9 +337,11 @@ public class TransactionLogFiles extends LifecycleAdapter implements LogFiles
             LongSupplier lastTransactionIdSupplier ) throws IOException
     {
         File toOpen = getLogFileForVersion( forVersion );
+        // The spare log file is all zeros, so we must not try to read a header from it.
+        boolean preallocated = !fileSystem.fileExists( toOpen ) && useSpareLogFile( toOpen );
         StoreChannel storeChannel = fileSystem.open( toOpen, mode );
         ByteBuffer headerBuffer = ByteBuffer.allocate( LOG_HEADER_SIZE );
-        LogHeader header = readLogHeader( headerBuffer, storeChannel, false, toOpen );
+        LogHeader header = preallocated ? null : readLogHeader( headerBuffer, storeChannel, false, toOpen );
         if ( header == null )
         {
             // Either the header is not there in full or the file was new. Don't care
@@ -308,6 +401,38 @@ public class TransactionLogFiles extends LifecycleAdapter implements LogFiles
         return logFileInformation;
     }
 
+    @Override
+    public TransactionOffsetIndex getTransactionOffsetIndex()
+    {
+        return offsetIndex;
+    }
+
+    private boolean isStartOfTransaction( long transactionId, LogPosition position )
+    {
+        LogEntryReader<ReadableClosablePositionAwareChannel> logEntryReader = logFilesContext.getLogEntryReader();
+        try ( ReadableLogChannel reader = logFile.getReader( position, LogVersionBridge.NO_MORE_CHANNELS ) )
+        {
+            LogEntry logEntry = logEntryReader.readLogEntry( reader );
+            if ( logEntry == null || logEntry.getType() != TX_START )
+            {
+                return false;
+            }
+            while ( (logEntry = logEntryReader.readLogEntry( reader )) != null )
+            {
+                if ( logEntry.getType() == TX_COMMIT )
+                {
+                    return logEntry.<LogEntryCommit>as().getTxId() == transactionId;
+                }
+            }
+            return false;
+        }
+        catch ( IOException | RuntimeException e )
+        {
+            // Whatever is at the position, it cannot be read as the start of the transaction
+            return false;
+        }
+    }
+
     private StoreChannel openLogFileChannel( File file, OpenMode mode ) throws IOException
     {
         return fileSystem.open( file, mode );
@@ -36,11 +36,14 @@ class TransactionLogFilesContext
     private final Supplier<LogVersionRepository> logVersionRepositorySupplier;
     private final LogFileCreationMonitor logFileCreationMonitor;
     private final FileSystemAbstraction fileSystem;
+    private final boolean preallocation;
+    private final boolean offsetIndex;
 
     TransactionLogFilesContext( AtomicLong rotationThreshold, LogEntryReader logEntryReader,
             LongSupplier lastCommittedTransactionIdSupplier, LongSupplier committingTransactionIdSupplier,
             LogFileCreationMonitor logFileCreationMonitor, Supplier<LogVersionRepository> logVersionRepositorySupplier,
-            FileSystemAbstraction fileSystem )
+            FileSystemAbstraction fileSystem, boolean preallocation,
+            boolean offsetIndex )
     {
         this.rotationThreshold = rotationThreshold;
         this.logEntryReader = logEntryReader;
@@ -49,6 +52,8 @@ class TransactionLogFilesContext
         this.logVersionRepositorySupplier = logVersionRepositorySupplier;
         this.logFileCreationMonitor = logFileCreationMonitor;
         this.fileSystem = fileSystem;
+        this.preallocation = preallocation;
+        this.offsetIndex = offsetIndex;
     }
 
     AtomicLong getRotationThreshold()
@@ -85,4 +90,14 @@ class TransactionLogFilesContext
     {
         return fileSystem;
     }
+
+    boolean isPreallocation()
+    {
+        return preallocation;
+    }
+
+    boolean isOffsetIndex()
+    {
+        return offsetIndex;
+    }
 }
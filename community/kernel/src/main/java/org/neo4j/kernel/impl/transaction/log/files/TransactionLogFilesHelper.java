@@ -30,6 +30,11 @@ class TransactionLogFilesHelper
     private static final String REGEX_DEFAULT_NAME = "neostore\\.transaction\\.db";
     private static final String VERSION_SUFFIX = ".";
     private static final String REGEX_VERSION_SUFFIX = "\\.";
+    // These must not match the log file name filter, which would otherwise take them for log versions.
+    private static final String SPARE_SUFFIX = "-spare";
+    private static final String PREPARING_SPARE_SUFFIX = "-spare.tmp";
+    private static final String OFFSET_INDEX_SUFFIX = "-index" + VERSION_SUFFIX;
+    private static final String PREPARING_OFFSET_INDEX_SUFFIX = ".tmp";
 
     static final FilenameFilter DEFAULT_FILENAME_FILTER = new LogicalLogFilenameFilter( REGEX_DEFAULT_NAME );
 
@@ -47,6 +52,32 @@ class TransactionLogFilesHelper
         return new File( logBaseName.getPath() + VERSION_SUFFIX + version );
     }
 
+    File getSpareLogFile()
+    {
+        return new File( logBaseName.getPath() + SPARE_SUFFIX );
+    }
+
+    File getPreparingSpareLogFile()
+    {
+        return new File( logBaseName.getPath() + PREPARING_SPARE_SUFFIX );
+    }
+
+    File getOffsetIndexFileForVersion( long version )
+    {
+        return new File( logBaseName.getPath() + OFFSET_INDEX_SUFFIX + version );
+    }
+
+    File getPreparingOffsetIndexFileForVersion( long version )
+    {
+        return new File( getOffsetIndexFileForVersion( version ).getPath() + PREPARING_OFFSET_INDEX_SUFFIX );
+    }
+
+    FilenameFilter getOffsetIndexFilenameFilter()
+    {
+        String prefix = logBaseName.getName() + OFFSET_INDEX_SUFFIX;
+        return ( dir, name ) -> name.startsWith( prefix ) && !name.endsWith( PREPARING_OFFSET_INDEX_SUFFIX );
+    }
+
     long getLogVersion( String historyLogFilename )
     {
         int index = historyLogFilename.lastIndexOf( VERSION_SUFFIX );
@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2002-2020 "Neo4j,"
+ * Neo4j Sweden AB [http://neo4j.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.transaction.log.files;
+
+import java.io.IOException;
+
+import org.neo4j.kernel.impl.transaction.log.LogPosition;
+
+/**
+ * A sparse index from transaction id to the position of the transaction in the transaction log, kept for every log
+ * version. It does not locate every transaction by itself, but it gives a position at or before the start of a
+ * transaction, in the same log version, from where the transaction can be found by reading only a short stretch of
+ * the log file.
+ */
+public interface TransactionOffsetIndex
+{
+    TransactionOffsetIndex NO_INDEX = new TransactionOffsetIndex()
+    {
+        @Override
+        public void open( long logVersion )
+        {
+        }
+
+        @Override
+        public void transactionAppended( long transactionId, LogPosition startPosition )
+        {
+        }
+
+        @Override
+        public void close( long logVersion )
+        {
+        }
+
+        @Override
+        public void truncated( LogPosition position )
+        {
+        }
+
+        @Override
+        public LogPosition lookup( long transactionId, long logVersion )
+        {
+            return null;
+        }
+    };
+
+    /**
+     * Start indexing the given log version, which is the log version that transactions are being appended to.
+     *
+     * @param logVersion the log version that transactions are being appended to.
+     * @throws IOException if the index could not be opened.
+     */
+    void open( long logVersion ) throws IOException;
+
+    /**
+     * Called for every transaction that is appended to the transaction log, in transaction id order.
+     *
+     * @param transactionId the id of the appended transaction.
+     * @param startPosition the position of the first entry of the appended transaction.
+     */
+    void transactionAppended( long transactionId, LogPosition startPosition );
+
+    /**
+     * Persist the index of the given log version, because it will no longer be appended to, either because the log
+     * was rotated or because the log is being shut down.
+     *
+     * @param logVersion the log version that will no longer be appended to.
+     * @throws IOException if the index could not be written.
+     */
+    void close( long logVersion ) throws IOException;
+
+    /**
+     * Forget everything indexed at or after the given position, because the transaction log has been truncated to it
+     * and any log versions after it have been deleted.
+     *
+     * @param position the position that the transaction log has been truncated to.
+     */
+    void truncated( LogPosition position );
+
+    /**
+     * Find a position to start looking for the given transaction from, in the given log version.
+     *
+     * @param transactionId the id of the transaction to look for.
+     * @param logVersion the log version that the transaction is in.
+     * @return the start position of the closest indexed transaction that is not after the given transaction, or
+     * {@code null} if there is no such transaction in the index, or if the log no longer has that transaction at the
+     * indexed position.
+     */
+    LogPosition lookup( long transactionId, long logVersion );
+}
@@ -20,6 +20,7 @@
 package org.neo4j.kernel.impl.transaction.log.pruning;
 
 import java.io.File;
+import java.io.IOException;
 import java.time.Clock;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
@@ -69,14 +70,16 @@ public class LogPruningImpl implements LogPruning
         private static final int NO_VERSION = -1;
         private final LogFiles logFiles;
         private final FileSystemAbstraction fs;
+        private final Log msgLog;
         private final long upToVersion;
         private long fromVersion;
         private long toVersion;
 
-        private CountingDeleter( LogFiles logFiles, FileSystemAbstraction fs, long upToVersion )
+        private CountingDeleter( LogFiles logFiles, FileSystemAbstraction fs, Log msgLog, long upToVersion )
         {
             this.logFiles = logFiles;
             this.fs = fs;
+            this.msgLog = msgLog;
             this.upToVersion = upToVersion;
             fromVersion = NO_VERSION;
             toVersion = NO_VERSION;
@@ -88,7 +91,23 @@ public class LogPruningImpl implements LogPruning
             fromVersion = fromVersion == NO_VERSION ? version : Math.min( fromVersion, version );
             toVersion = toVersion == NO_VERSION ? version : Math.max( toVersion, version );
             File logFile = logFiles.getLogFileForVersion( version );
-            fs.deleteFile( logFile );
+            if ( !recycle( logFile ) )
+            {
+                fs.deleteFile( logFile );
+            }
+        }
+
+        private boolean recycle( File logFile )
+        {
+            try
+            {
+                return logFiles.recycleLogFile( logFile );
+            }
+            catch ( IOException e )
+            {
+                msgLog.warn( "Failed to recycle log file " + logFile + ", it will be deleted instead", e );
+                return false;
+            }
         }
 
         public String describeResult()
@@ -120,9 +139,10 @@ public class LogPruningImpl implements LogPruning
         {
             try
             {
-                CountingDeleter deleter = new CountingDeleter( logFiles, fs, upToVersion );
+                CountingDeleter deleter = new CountingDeleter( logFiles, fs, msgLog, upToVersion );
                 pruneStrategy.findLogVersionsToDelete( upToVersion ).forEachOrdered( deleter );
                 msgLog.info( deleter.describeResult() );
+                preallocateSpareLogFile();
             }
             finally
             {
@@ -131,6 +151,19 @@ public class LogPruningImpl implements LogPruning
         }
     }
 
+    private void preallocateSpareLogFile()
+    {
+        // If no pruned log file was recycled, then the next rotation would have to grow a new file by appending.
+        try
+        {
+            logFiles.preallocateSpareLogFile();
+        }
+        catch ( IOException e )
+        {
+            msgLog.warn( "Failed to preallocate the next transaction log file", e );
+        }
+    }
+
     @Override
     public boolean mightHaveLogsToPrune()
     {
@@ -31,6 +31,18 @@ public interface CommitEvent extends AutoCloseable
         {
         }
 
+        @Override
+        public LockAcquisitionEvent beginLockAcquisition()
+        {
+            return LockAcquisitionEvent.NULL;
+        }
+
+        @Override
+        public CreateCommandsEvent beginCreateCommands()
+        {
+            return CreateCommandsEvent.NULL;
+        }
+
         @Override
         public LogAppendEvent beginLogAppend()
         {
@@ -50,6 +62,16 @@ public interface CommitEvent extends AutoCloseable
     @Override
     void close();
 
+    /**
+     * Begin acquiring the locks that the committing transaction has deferred until commit.
+     */
+    LockAcquisitionEvent beginLockAcquisition();
+
+    /**
+     * Begin converting the transaction state of the committing transaction into commands.
+     */
+    CreateCommandsEvent beginCreateCommands();
+
     /**
      * Begin appending commands for the committing transaction, to the transaction log.
      */
@@ -19,9 +19,12 @@
  */
 package org.neo4j.kernel.impl.util.collection;
 
+import org.eclipse.collections.api.map.primitive.MutableLongLongMap;
 import org.eclipse.collections.api.map.primitive.MutableLongObjectMap;
 import org.eclipse.collections.api.set.primitive.MutableLongSet;
 
+import javax.annotation.Nullable;
+
 import org.neo4j.kernel.impl.api.state.TxState;
 import org.neo4j.kernel.impl.util.diffsets.MutableLongDiffSetsImpl;
 import org.neo4j.memory.MemoryTracker;
@@ -35,10 +38,19 @@ public interface CollectionsFactory
 {
     MutableLongSet newLongSet();
 
+    MutableLongLongMap newLongLongMap();
+
     MutableLongDiffSetsImpl newLongDiffSets();
 
     MutableLongObjectMap<Value> newValuesMap();
 
+    /**
+     * @return arena to encode the state of changed entities and index updates into, or {@code null} if this factory
+     * keeps that state in objects
+     */
+    @Nullable
+    LongArena newLongArena();
+
     MemoryTracker getMemoryTracker();
 
     /**
@@ -72,8 +72,12 @@ import static org.neo4j.util.Preconditions.checkArgument;
  */
 class LinearProbeLongLongHashMap extends AbstractLongIterable implements MutableLongLongMap, Resource
 {
+    /**
+     * Most maps in transaction state hold the changed properties of a single entity, so they start out small and
+     * grow on demand.
+     */
     @VisibleForTesting
-    static final int DEFAULT_CAPACITY = 32;
+    static final int DEFAULT_CAPACITY = 8;
     @VisibleForTesting
     static final double REMOVALS_FACTOR =  0.25;
     private static final double LOAD_FACTOR = 0.75;
@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2002-2020 "Neo4j,"
+ * Neo4j Sweden AB [http://neo4j.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.util.collection;
+
+import java.util.Arrays;
+
+import org.neo4j.graphdb.Resource;
+import org.neo4j.io.ByteUnit;
+import org.neo4j.util.VisibleForTesting;
+
+import static java.util.Objects.requireNonNull;
+import static org.neo4j.util.Preconditions.checkArgument;
+import static org.neo4j.util.Preconditions.checkState;
+
+/**
+ * Hands out small arrays of longs that are carved out of larger chunks of memory, for state that would otherwise
+ * need a few objects per entry. An array is referenced by a {@code long}, which stays valid until the array is freed.
+ * Freed arrays are reused by later allocations of the same length.
+ * <ul>
+ * <li>It is <b>not thread-safe</b>
+ * <li>It has to be closed to prevent native memory leakage
+ * </ul>
+ */
+public class LongArena implements Resource
+{
+    /**
+     * Reference that is never handed out for an array.
+     */
+    public static final long NO_ARRAY = -1;
+    public static final int MAX_ARRAY_LENGTH = 128;
+
+    private static final int CHUNK_SIZE = (int) ByteUnit.kibiBytes( 256 );
+
+    private final MemoryAllocator allocator;
+    private final int chunkLength;
+    private final long[] freeArrays = new long[MAX_ARRAY_LENGTH + 1];
+    private Memory[] chunks = new Memory[8];
+    private int chunkCount;
+    private int chunkOffset;
+    private boolean closed;
+
+    public LongArena( MemoryAllocator allocator )
+    {
+        this( CHUNK_SIZE, allocator );
+    }
+
+    @VisibleForTesting
+    LongArena( int chunkSize, MemoryAllocator allocator )
+    {
+        checkArgument( chunkSize >= MAX_ARRAY_LENGTH * Long.BYTES, "Chunk must fit the longest array" );
+        this.allocator = requireNonNull( allocator );
+        this.chunkLength = chunkSize / Long.BYTES;
+        this.chunkOffset = chunkLength;
+        Arrays.fill( freeArrays, NO_ARRAY );
+    }
+
+    /**
+     * @param length number of longs in the array, at most {@link #MAX_ARRAY_LENGTH}
+     * @return reference to an array with undefined contents
+     */
+    public long allocate( int length )
+    {
+        checkState( !closed, "Arena is closed" );
+        checkArgument( length > 0 && length <= MAX_ARRAY_LENGTH, "Unsupported array length %d", length );
+        final long free = freeArrays[length];
+        if ( free != NO_ARRAY )
+        {
+            freeArrays[length] = get( free, 0 );
+            return free;
+        }
+        if ( chunkOffset + length > chunkLength )
+        {
+            addChunk();
+        }
+        final long array = ((long) (chunkCount - 1) << 32) | chunkOffset;
+        chunkOffset += length;
+        return array;
+    }
+
+    /**
+     * @param array reference to an array that is not used anymore
+     * @param length number of longs the array was allocated with
+     */
+    public void free( long array, int length )
+    {
+        set( array, 0, freeArrays[length] );
+        freeArrays[length] = array;
+    }
+
+    public long get( long array, int index )
+    {
+        return chunks[(int) (array >>> 32)].readLong( offset( array, index ) );
+    }
+
+    public void set( long array, int index, long value )
+    {
+        chunks[(int) (array >>> 32)].writeLong( offset( array, index ), value );
+    }
+
+    public void copy( long from, long to, int length )
+    {
+        for ( int i = 0; i < length; i++ )
+        {
+            set( to, i, get( from, i ) );
+        }
+    }
+
+    @Override
+    public void close()
+    {
+        if ( !closed )
+        {
+            for ( int i = 0; i < chunkCount; i++ )
+            {
+                chunks[i].free();
+                chunks[i] = null;
+            }
+            closed = true;
+        }
+    }
+
+    private void addChunk()
+    {
+        if ( chunkCount == chunks.length )
+        {
+            chunks = Arrays.copyOf( chunks, chunkCount * 2 );
+        }
+        chunks[chunkCount++] = allocator.allocate( chunkLength * Long.BYTES, false );
+        chunkOffset = 0;
+    }
+
+    private static long offset( long array, int index )
+    {
+        return ((array & 0xFFFF_FFFFL) + index) * Long.BYTES;
+    }
+}
@@ -47,12 +47,16 @@ import static org.neo4j.util.Preconditions.checkArgument;
  */
 class MutableLinearProbeLongHashSet extends AbstractLinearProbeLongHashSet implements MutableLongSet, Resource
 {
-    static final int DEFAULT_CAPACITY = 32;
+    /**
+     * Most sets in transaction state hold the label or index changes of a single entity, so they start out small and
+     * grow on demand.
+     */
+    static final int DEFAULT_CAPACITY = 8;
     static final int REMOVALS_RATIO = 4;
     private static final double LOAD_FACTOR = 0.75;
 
     private final MemoryAllocator allocator;
-    private final MutableMultimap<Memory, FrozenCopy> frozenCopies = Multimaps.mutable.list.empty();
+    private MutableMultimap<Memory, FrozenCopy> frozenCopies;
 
     private int resizeOccupancyThreshold;
     private int resizeRemovalsThreshold;
@@ -181,17 +185,24 @@ class MutableLinearProbeLongHashSet extends AbstractLinearProbeLongHashSet imple
         ++modCount;
         if ( memory != null )
         {
-            frozenCopies.forEachKeyMultiValues( ( mem, copies ) ->
-            {
-                mem.free();
-                copies.forEach( FrozenCopy::invalidate );
-            } );
-            if ( !frozenCopies.containsKey( memory ) )
+            if ( frozenCopies == null )
             {
                 memory.free();
             }
+            else
+            {
+                frozenCopies.forEachKeyMultiValues( ( mem, copies ) ->
+                {
+                    mem.free();
+                    copies.forEach( FrozenCopy::invalidate );
+                } );
+                if ( !frozenCopies.containsKey( memory ) )
+                {
+                    memory.free();
+                }
+                frozenCopies = null;
+            }
             memory = null;
-            frozenCopies.clear();
         }
     }
 
@@ -247,6 +258,11 @@ class MutableLinearProbeLongHashSet extends AbstractLinearProbeLongHashSet imple
     {
         frozen = true;
         final FrozenCopy frozen = new FrozenCopy();
+        if ( frozenCopies == null )
+        {
+            // most sets are never frozen, so the bookkeeping for frozen copies is only created when needed
+            frozenCopies = Multimaps.mutable.list.empty();
+        }
         frozenCopies.put( memory, frozen );
         return frozen;
     }
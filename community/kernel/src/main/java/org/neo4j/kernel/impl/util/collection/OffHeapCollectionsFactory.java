@@ -19,9 +19,11 @@
  */
 package org.neo4j.kernel.impl.util.collection;
 
+import org.eclipse.collections.api.map.primitive.MutableLongLongMap;
 import org.eclipse.collections.api.map.primitive.MutableLongObjectMap;
 import org.eclipse.collections.api.set.primitive.MutableLongSet;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Collection;
 
@@ -39,6 +41,7 @@ public class OffHeapCollectionsFactory implements CollectionsFactory
 {
     private final MemoryAllocationTracker memoryTracker = new LocalMemoryTracker();
     private final MemoryAllocator allocator;
+    private final SpillingMemoryAllocator spillingAllocator;
 
     private final Collection<Resource> resources = new ArrayList<>();
     private ValuesContainer valuesContainer;
@@ -46,6 +49,20 @@ public class OffHeapCollectionsFactory implements CollectionsFactory
     public OffHeapCollectionsFactory( OffHeapBlockAllocator blockAllocator )
     {
         this.allocator = new OffHeapMemoryAllocator( memoryTracker, blockAllocator );
+        this.spillingAllocator = null;
+    }
+
+    /**
+     * @param blockAllocator allocator of the off-heap memory blocks
+     * @param maxMemory the amount of off-heap memory the collections of a single transaction can use, after which they
+     * spill to a temporary file in the given directory
+     * @param spillDirectory directory for the temporary files that collections spill to
+     */
+    public OffHeapCollectionsFactory( OffHeapBlockAllocator blockAllocator, long maxMemory, File spillDirectory )
+    {
+        this.spillingAllocator = new SpillingMemoryAllocator(
+                new OffHeapMemoryAllocator( memoryTracker, blockAllocator ), memoryTracker, maxMemory, spillDirectory );
+        this.allocator = spillingAllocator;
     }
 
     @Override
@@ -56,6 +73,14 @@ public class OffHeapCollectionsFactory implements CollectionsFactory
         return set;
     }
 
+    @Override
+    public MutableLongLongMap newLongLongMap()
+    {
+        final LinearProbeLongLongHashMap map = new LinearProbeLongLongHashMap( allocator );
+        resources.add( map );
+        return map;
+    }
+
     @Override
     public MutableLongDiffSetsImpl newLongDiffSets()
     {
@@ -74,6 +99,14 @@ public class OffHeapCollectionsFactory implements CollectionsFactory
         return new ValuesMap( refs, valuesContainer );
     }
 
+    @Override
+    public LongArena newLongArena()
+    {
+        final LongArena arena = new LongArena( allocator );
+        resources.add( arena );
+        return arena;
+    }
+
     @Override
     public MemoryTracker getMemoryTracker()
     {
@@ -90,5 +123,9 @@ public class OffHeapCollectionsFactory implements CollectionsFactory
             valuesContainer.close();
             valuesContainer = null;
         }
+        if ( spillingAllocator != null )
+        {
+            spillingAllocator.close();
+        }
     }
 }
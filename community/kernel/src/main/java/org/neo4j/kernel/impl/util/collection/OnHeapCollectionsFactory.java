@@ -19,8 +19,10 @@
  */
 package org.neo4j.kernel.impl.util.collection;
 
+import org.eclipse.collections.api.map.primitive.MutableLongLongMap;
 import org.eclipse.collections.api.map.primitive.MutableLongObjectMap;
 import org.eclipse.collections.api.set.primitive.MutableLongSet;
+import org.eclipse.collections.impl.map.mutable.primitive.LongLongHashMap;
 import org.eclipse.collections.impl.map.mutable.primitive.LongObjectHashMap;
 import org.eclipse.collections.impl.set.mutable.primitive.LongHashSet;
 
@@ -43,6 +45,12 @@ public class OnHeapCollectionsFactory implements CollectionsFactory
         return new LongHashSet();
     }
 
+    @Override
+    public MutableLongLongMap newLongLongMap()
+    {
+        return new LongLongHashMap();
+    }
+
     @Override
     public MutableLongDiffSetsImpl newLongDiffSets()
     {
@@ -55,6 +63,12 @@ public class OnHeapCollectionsFactory implements CollectionsFactory
         return new LongObjectHashMap<>();
     }
 
+    @Override
+    public LongArena newLongArena()
+    {
+        return null;
+    }
+
     @Override
     public MemoryTracker getMemoryTracker()
     {
@@ -0,0 +1,354 @@
+/*
+ * Copyright (c) 2002-2020 "Neo4j,"
+ * Neo4j Sweden AB [http://neo4j.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.util.collection;
+
+import org.eclipse.collections.api.map.primitive.MutableLongObjectMap;
+import org.eclipse.collections.impl.map.mutable.primitive.LongObjectHashMap;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+import org.neo4j.graphdb.Resource;
+import org.neo4j.io.ByteUnit;
+import org.neo4j.memory.MemoryTracker;
+import org.neo4j.unsafe.impl.internal.dragons.UnsafeUtil;
+import org.neo4j.util.VisibleForTesting;
+
+import static java.lang.Math.min;
+import static java.lang.Math.toIntExact;
+import static java.nio.channels.FileChannel.MapMode.READ_WRITE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static java.util.Objects.requireNonNull;
+import static org.neo4j.util.Preconditions.checkState;
+import static org.neo4j.util.Preconditions.requirePositive;
+
+/**
+ * A {@link MemoryAllocator} that hands out off-heap memory until the transaction state has used up its memory
+ * budget, and after that spills new allocations to a temporary file. The file is memory mapped, so the spilled state
+ * lives in the operating system page cache and is written out to disk under memory pressure, instead of taking
+ * off-heap memory from the rest of the database.
+ * <p>
+ * Off-heap memory that is freed becomes available to later allocations again, so only the part of the transaction
+ * state that does not fit in the budget is spilled. Spilled memory that is freed is reused by later spilled
+ * allocations of the same size.
+ * <ul>
+ * <li>It is <b>not thread-safe</b>
+ * <li>It has to be closed to unmap and delete the spill file
+ * </ul>
+ */
+public class SpillingMemoryAllocator implements MemoryAllocator, Resource
+{
+    /**
+     * A single mapping can not be larger than 2 GiB, so larger allocations are mapped in segments of this size.
+     */
+    private static final int SEGMENT_SHIFT = 30;
+    private static final long SEGMENT_MASK = (1L << SEGMENT_SHIFT) - 1;
+    /**
+     * Smaller allocations are carved out of extents of this size, to keep the number of mappings of a spill file low.
+     */
+    private static final int EXTENT_SIZE = (int) ByteUnit.mebiBytes( 8 );
+    private static final byte[] ZEROES = new byte[(int) ByteUnit.kibiBytes( 8 )];
+    /**
+     * Prefix and suffix of the names of spill files, which are created as temporary files in the spill directory.
+     */
+    public static final String SPILL_FILE_PREFIX = "tx-state-";
+    public static final String SPILL_FILE_SUFFIX = ".spill";
+
+    private final MemoryAllocator offHeapAllocator;
+    private final MemoryTracker memoryTracker;
+    private final long maxOffHeapMemory;
+    private final File spillDirectory;
+
+    private SpillFile spillFile;
+
+    /**
+     * @param offHeapAllocator allocator for the off-heap memory, which reports its allocations to the memory tracker
+     * @param memoryTracker tracker of the off-heap memory that is currently used by the transaction state
+     * @param maxOffHeapMemory the amount of off-heap memory the transaction state can use before it starts spilling
+     * @param spillDirectory directory to create the spill file in, it is created if it does not exist
+     */
+    public SpillingMemoryAllocator( MemoryAllocator offHeapAllocator, MemoryTracker memoryTracker,
+            long maxOffHeapMemory, File spillDirectory )
+    {
+        this.offHeapAllocator = requireNonNull( offHeapAllocator );
+        this.memoryTracker = requireNonNull( memoryTracker );
+        this.maxOffHeapMemory = requirePositive( maxOffHeapMemory );
+        this.spillDirectory = requireNonNull( spillDirectory );
+    }
+
+    @Override
+    public Memory allocate( long size, boolean zeroed )
+    {
+        if ( memoryTracker.usedDirectMemory() + size <= maxOffHeapMemory )
+        {
+            return offHeapAllocator.allocate( size, zeroed );
+        }
+        if ( spillFile == null )
+        {
+            spillFile = new SpillFile( spillDirectory );
+        }
+        return new SpilledMemory( spillFile, spillFile.allocate( size, zeroed ), size );
+    }
+
+    /**
+     * @return the size of the spill file, which includes spilled memory that has been freed and is kept for reuse.
+     */
+    public long spilledBytes()
+    {
+        return spillFile == null ? 0 : spillFile.size;
+    }
+
+    @VisibleForTesting
+    File spillFile()
+    {
+        return spillFile == null ? null : spillFile.file;
+    }
+
+    /**
+     * Unmap and delete the spill file. Spilled memory must not be used after this, but it can still be freed.
+     */
+    @Override
+    public void close()
+    {
+        if ( spillFile != null )
+        {
+            try
+            {
+                spillFile.close();
+            }
+            finally
+            {
+                spillFile = null;
+            }
+        }
+    }
+
+    private static void zero( ByteBuffer[] segments )
+    {
+        for ( ByteBuffer segment : segments )
+        {
+            final ByteBuffer buffer = segment.duplicate();
+            while ( buffer.hasRemaining() )
+            {
+                buffer.put( ZEROES, 0, min( ZEROES.length, buffer.remaining() ) );
+            }
+        }
+    }
+
+    private static class SpillFile
+    {
+        private final File file;
+        private final FileChannel channel;
+        private final MutableLongObjectMap<Deque<ByteBuffer[]>> freeSegments = new LongObjectHashMap<>();
+        private final List<ByteBuffer> mappings = new ArrayList<>();
+        private long size;
+        private ByteBuffer extent;
+        private boolean closed;
+
+        SpillFile( File directory )
+        {
+            try
+            {
+                Files.createDirectories( directory.toPath() );
+                file = File.createTempFile( SPILL_FILE_PREFIX, SPILL_FILE_SUFFIX, directory );
+                channel = FileChannel.open( file.toPath(), READ, WRITE );
+            }
+            catch ( IOException e )
+            {
+                throw new UncheckedIOException( "Unable to create a transaction state spill file in " + directory, e );
+            }
+        }
+
+        ByteBuffer[] allocate( long length, boolean zeroed )
+        {
+            final Deque<ByteBuffer[]> free = freeSegments.get( length );
+            if ( free != null && !free.isEmpty() )
+            {
+                final ByteBuffer[] segments = free.pop();
+                if ( zeroed )
+                {
+                    zero( segments );
+                }
+                return segments;
+            }
+
+            // the file is only ever extended, and the space it is extended with reads as zeroes
+            final long alignedLength = (length + Long.BYTES - 1) & -Long.BYTES;
+            if ( alignedLength > EXTENT_SIZE )
+            {
+                final ByteBuffer[] segments = map( size, length );
+                size += alignedLength;
+                return segments;
+            }
+            if ( extent == null || extent.remaining() < alignedLength )
+            {
+                extent = map( size, EXTENT_SIZE )[0];
+                size += EXTENT_SIZE;
+            }
+            final ByteBuffer slice = extent.slice();
+            slice.limit( toIntExact( length ) );
+            extent.position( extent.position() + toIntExact( alignedLength ) );
+            return new ByteBuffer[]{slice.slice().order( ByteOrder.nativeOrder() )};
+        }
+
+        void free( ByteBuffer[] segments, long length )
+        {
+            if ( !closed )
+            {
+                freeSegments.getIfAbsentPut( length, ArrayDeque::new ).push( segments );
+            }
+        }
+
+        void close()
+        {
+            closed = true;
+            freeSegments.clear();
+            extent = null;
+            // the file can not be deleted on Windows while it is mapped, and keeps its disk blocks until it is unmapped,
+            // so unmap it right away instead of when the mapped buffers happen to be garbage collected
+            if ( UnsafeUtil.canUnmap() )
+            {
+                mappings.forEach( UnsafeUtil::unmap );
+            }
+            mappings.clear();
+            try
+            {
+                channel.close();
+                Files.delete( file.toPath() );
+            }
+            catch ( IOException e )
+            {
+                throw new UncheckedIOException( "Unable to delete transaction state spill file " + file, e );
+            }
+        }
+
+        private ByteBuffer[] map( long position, long length )
+        {
+            requirePositive( length );
+            final long segmentLength = length <= Integer.MAX_VALUE ? length : SEGMENT_MASK + 1;
+            final ByteBuffer[] segments = new ByteBuffer[toIntExact( (length + segmentLength - 1) / segmentLength )];
+            try
+            {
+                for ( int i = 0; i < segments.length; i++ )
+                {
+                    final long offset = i * segmentLength;
+                    segments[i] = channel.map( READ_WRITE, position + offset, min( segmentLength, length - offset ) )
+                            .order( ByteOrder.nativeOrder() );
+                    mappings.add( segments[i] );
+                }
+            }
+            catch ( IOException e )
+            {
+                throw new UncheckedIOException( "Unable to spill transaction state to " + file, e );
+            }
+            return segments;
+        }
+    }
+
+    private class SpilledMemory implements Memory
+    {
+        private final SpillFile owner;
+        private final ByteBuffer[] segments;
+        private final long size;
+
+        SpilledMemory( SpillFile owner, ByteBuffer[] segments, long size )
+        {
+            this.owner = owner;
+            this.segments = segments;
+            this.size = size;
+        }
+
+        @Override
+        public long readLong( long offset )
+        {
+            if ( segments.length == 1 )
+            {
+                return segments[0].getLong( (int) offset );
+            }
+            return segments[(int) (offset >>> SEGMENT_SHIFT)].getLong( (int) (offset & SEGMENT_MASK) );
+        }
+
+        @Override
+        public void writeLong( long offset, long value )
+        {
+            if ( segments.length == 1 )
+            {
+                segments[0].putLong( (int) offset, value );
+            }
+            else
+            {
+                segments[(int) (offset >>> SEGMENT_SHIFT)].putLong( (int) (offset & SEGMENT_MASK), value );
+            }
+        }
+
+        @Override
+        public void clear()
+        {
+            zero( segments );
+        }
+
+        @Override
+        public long size()
+        {
+            return size;
+        }
+
+        @Override
+        public void free()
+        {
+            owner.free( segments, size );
+        }
+
+        @Override
+        public Memory copy()
+        {
+            final Memory copy = allocate( size, false );
+            if ( segments.length == 1 )
+            {
+                copy.asByteBuffer().put( asByteBuffer() );
+            }
+            else
+            {
+                for ( long offset = 0; offset < size; offset += Long.BYTES )
+                {
+                    copy.writeLong( offset, readLong( offset ) );
+                }
+            }
+            return copy;
+        }
+
+        @Override
+        public ByteBuffer asByteBuffer()
+        {
+            checkState( segments.length == 1, "Can't create ByteBuffer: memory size exceeds integer limit" );
+            return segments[0].duplicate();
+        }
+    }
+}
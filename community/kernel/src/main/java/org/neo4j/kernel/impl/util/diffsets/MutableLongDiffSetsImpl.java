@@ -69,28 +69,24 @@ public class MutableLongDiffSetsImpl implements MutableLongDiffSets
     @Override
     public void removeAll( LongIterable elements )
     {
-        checkRemovedElements();
         elements.each( this::removeElement );
     }
 
     @Override
     public void addAll( LongIterable elements )
     {
-        checkAddedElements();
         elements.each( this::addElement );
     }
 
     @Override
     public void add( long element )
     {
-        checkAddedElements();
         addElement( element );
     }
 
     @Override
     public boolean remove( long element )
     {
-        checkRemovedElements();
         return removeElement( element );
     }
 
@@ -134,6 +130,9 @@ public class MutableLongDiffSetsImpl implements MutableLongDiffSets
     {
         if ( removed.isEmpty() || !removed.remove( element ) )
         {
+            // the set is only created once an element has to go into it, an add that cancels out a removal
+            // should not allocate anything
+            checkAddedElements();
             added.add( element );
         }
     }
@@ -144,6 +143,7 @@ public class MutableLongDiffSetsImpl implements MutableLongDiffSets
         {
             return true;
         }
+        checkRemovedElements();
         return removed.add( element );
     }
 
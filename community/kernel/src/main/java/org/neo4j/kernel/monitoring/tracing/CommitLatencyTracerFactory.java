@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) 2002-2020 "Neo4j,"
+ * Neo4j Sweden AB [http://neo4j.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.monitoring.tracing;
+
+import org.neo4j.kernel.impl.api.CommitLatencyTracer;
+import org.neo4j.kernel.impl.api.DefaultTransactionTracer;
+import org.neo4j.kernel.impl.transaction.tracing.TransactionTracer;
+import org.neo4j.kernel.monitoring.Monitors;
+import org.neo4j.scheduler.JobScheduler;
+import org.neo4j.time.Clocks;
+
+/**
+ * A TracerFactory that is like the {@link DefaultTracerFactory}, except that it also reports the time spent in every
+ * phase of committing transactions, through the {@link CommitLatencyTracer.Monitor}.
+ */
+public class CommitLatencyTracerFactory extends DefaultTracerFactory
+{
+    @Override
+    public String getImplementationName()
+    {
+        return "commit_latency";
+    }
+
+    @Override
+    public TransactionTracer createTransactionTracer( Monitors monitors, JobScheduler jobScheduler )
+    {
+        DefaultTransactionTracer.Monitor monitor = monitors.newMonitor( DefaultTransactionTracer.Monitor.class );
+        CommitLatencyTracer.Monitor commitMonitor = monitors.newMonitor( CommitLatencyTracer.Monitor.class );
+        return new CommitLatencyTracer( Clocks.nanoClock(), monitor, jobScheduler, commitMonitor );
+    }
+}
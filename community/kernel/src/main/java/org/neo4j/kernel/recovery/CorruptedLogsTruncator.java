@@ -40,7 +40,8 @@ import static java.lang.String.format;
 
 /**
  * Transaction log truncator used during recovery to truncate all the logs after some specified position, that
- * recovery treats as corrupted or non-readable.
+ * recovery treats as corrupted or non-readable. Zero bytes at the end of the last log file are not treated as
+ * corrupted, since that is how a preallocated log file looks past its last entry.
  * Transaction log file specified by provided log position will be truncated to provided length, any
  * subsequent files will be removed.
  * Any removed or modified log content will be stored in separate corruption logs archive for further analysis and as
@@ -78,6 +79,7 @@ public class CorruptedLogsTruncator
         {
             backupCorruptedContent( recoveredTransactionLogVersion, recoveredTransactionOffset );
             truncateLogFiles( recoveredTransactionLogVersion, recoveredTransactionOffset );
+            logFiles.getTransactionOffsetIndex().truncated( positionAfterLastRecoveredTransaction );
         }
     }
 
@@ -163,7 +165,36 @@ public class CorruptedLogsTruncator
     }
 
     private boolean isRecoveredLogCorrupted( long recoveredTransactionLogVersion, long recoveredTransactionOffset )
+            throws IOException
+    {
+        File logFile = logFiles.getLogFileForVersion( recoveredTransactionLogVersion );
+        if ( fs.getFileSize( logFile ) <= recoveredTransactionOffset )
+        {
+            return false;
+        }
+        // A preallocated log file is zero-filled past its last entry. That space is unused, rather than corrupted.
+        return hasNonZeroBytesAfter( logFile, recoveredTransactionOffset );
+    }
+
+    private boolean hasNonZeroBytesAfter( File logFile, long offset ) throws IOException
     {
-        return logFiles.getLogFileForVersion( recoveredTransactionLogVersion ).length() > recoveredTransactionOffset;
+        try ( StoreChannel channel = fs.open( logFile, OpenMode.READ ) )
+        {
+            channel.position( offset );
+            ByteBuffer buffer = ByteBuffer.allocate( (int) ByteUnit.kibiBytes( 64 ) );
+            while ( channel.read( buffer ) >= 0 )
+            {
+                buffer.flip();
+                while ( buffer.hasRemaining() )
+                {
+                    if ( buffer.get() != 0 )
+                    {
+                        return true;
+                    }
+                }
+                buffer.clear();
+            }
+        }
+        return false;
     }
 }
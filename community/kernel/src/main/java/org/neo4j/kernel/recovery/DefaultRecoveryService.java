@@ -38,16 +38,35 @@ import static org.neo4j.kernel.impl.transaction.log.Commitment.NO_COMMITMENT;
 
 public class DefaultRecoveryService implements RecoveryService
 {
+    /**
+     * A batch size for forward recovery that gives a storage engine that recovers in parallel enough transactions
+     * to work on, without keeping too many of them in memory.
+     */
+    public static final int PARALLEL_RECOVERY_BATCH_SIZE = 256;
+
     private final RecoveryStartInformationProvider recoveryStartInformationProvider;
     private final StorageEngine storageEngine;
     private final TransactionIdStore transactionIdStore;
     private final LogicalTransactionStore logicalTransactionStore;
     private final LogVersionRepository logVersionRepository;
+    private final int batchSize;
 
     public DefaultRecoveryService( StorageEngine storageEngine, LogTailScanner logTailScanner,
             TransactionIdStore transactionIdStore, LogicalTransactionStore logicalTransactionStore,
             LogVersionRepository logVersionRepository, RecoveryStartInformationProvider.Monitor monitor )
     {
+        this( storageEngine, logTailScanner, transactionIdStore, logicalTransactionStore, logVersionRepository, monitor, 1 );
+    }
+
+    /**
+     * @param batchSize the number of transactions to hand over to the storage engine together during forward recovery,
+     * which lets a storage engine that recovers in parallel work on more than one transaction at a time.
+     */
+    public DefaultRecoveryService( StorageEngine storageEngine, LogTailScanner logTailScanner,
+            TransactionIdStore transactionIdStore, LogicalTransactionStore logicalTransactionStore,
+            LogVersionRepository logVersionRepository, RecoveryStartInformationProvider.Monitor monitor, int batchSize )
+    {
+        this.batchSize = batchSize;
         this.storageEngine = storageEngine;
         this.transactionIdStore = transactionIdStore;
         this.logicalTransactionStore = logicalTransactionStore;
@@ -75,6 +94,10 @@ public class DefaultRecoveryService implements RecoveryService
     @Override
     public RecoveryApplier getRecoveryApplier( TransactionApplicationMode mode ) throws Exception
     {
+        if ( mode == TransactionApplicationMode.RECOVERY && batchSize > 1 )
+        {
+            return new BatchingRecoveryVisitor( storageEngine, mode, batchSize );
+        }
         return new RecoveryVisitor( storageEngine, mode );
     }
 
@@ -137,4 +160,66 @@ public class DefaultRecoveryService implements RecoveryService
         {   // nothing to close
         }
     }
+
+    /**
+     * Applies recovered transactions in batches. Transactions are only guaranteed to have been applied when the
+     * visitor is closed, which happens before recovery looks at what it recovered, even when reading the log fails.
+     */
+    static class BatchingRecoveryVisitor implements RecoveryApplier
+    {
+        private final StorageEngine storageEngine;
+        private final TransactionApplicationMode mode;
+        private final int batchSize;
+        private TransactionToApply first;
+        private TransactionToApply last;
+        private int size;
+
+        BatchingRecoveryVisitor( StorageEngine storageEngine, TransactionApplicationMode mode, int batchSize )
+        {
+            this.storageEngine = storageEngine;
+            this.mode = mode;
+            this.batchSize = batchSize;
+        }
+
+        @Override
+        public boolean visit( CommittedTransactionRepresentation transaction ) throws Exception
+        {
+            TransactionRepresentation txRepresentation = transaction.getTransactionRepresentation();
+            long txId = transaction.getCommitEntry().getTxId();
+            TransactionToApply tx = new TransactionToApply( txRepresentation, txId );
+            tx.commitment( NO_COMMITMENT, txId );
+            tx.logPosition( transaction.getStartEntry().getStartPosition() );
+            if ( first == null )
+            {
+                first = tx;
+            }
+            else
+            {
+                last.next( tx );
+            }
+            last = tx;
+            if ( ++size == batchSize )
+            {
+                applyBatch();
+            }
+            return false;
+        }
+
+        @Override
+        public void close() throws Exception
+        {
+            applyBatch();
+        }
+
+        private void applyBatch() throws Exception
+        {
+            if ( first != null )
+            {
+                TransactionToApply batch = first;
+                first = last = null;
+                size = 0;
+                storageEngine.apply( batch, mode );
+            }
+        }
+    }
 }
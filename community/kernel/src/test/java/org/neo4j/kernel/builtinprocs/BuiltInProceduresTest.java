@@ -24,6 +24,7 @@ import org.junit.Before;
 import org.junit.Test;
 import org.mockito.stubbing.Answer;
 
+import java.io.File;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -54,6 +55,9 @@ import org.neo4j.internal.kernel.api.procs.ProcedureSignature;
 import org.neo4j.internal.kernel.api.schema.IndexProviderDescriptor;
 import org.neo4j.internal.kernel.api.schema.SchemaDescriptor;
 import org.neo4j.internal.kernel.api.security.SecurityContext;
+import org.neo4j.io.pagecache.PageCache;
+import org.neo4j.io.pagecache.PagedFile;
+import org.neo4j.io.pagecache.monitoring.PagedFileCounters;
 import org.neo4j.kernel.api.KernelTransaction;
 import org.neo4j.kernel.api.ResourceTracker;
 import org.neo4j.kernel.api.Statement;
@@ -71,6 +75,7 @@ import org.neo4j.logging.Log;
 import org.neo4j.storageengine.api.schema.IndexDescriptorFactory;
 import org.neo4j.storageengine.api.schema.PopulationProgress;
 
+import static java.util.Arrays.asList;
 import static java.util.Collections.emptyIterator;
 import static java.util.Collections.singletonList;
 import static org.hamcrest.MatcherAssert.assertThat;
@@ -415,6 +420,11 @@ public class BuiltInProceduresTest
                 record( "dbms.clearQueryCaches",
                         "dbms.clearQueryCaches() :: (value :: STRING?)",
                         "Clears all query caches.", "DBMS" ),
+                record( "dbms.listPageCacheFiles",
+                        "dbms.listPageCacheFiles() :: (file :: STRING?, pageSize :: INTEGER?, pins :: INTEGER?, hits :: INTEGER?, " +
+                        "faults :: INTEGER?, hitRatio :: FLOAT?, bytesRead :: INTEGER?, bytesWritten :: INTEGER?, flushes :: INTEGER?, " +
+                        "evictions :: INTEGER?)",
+                        "List the page cache statistics of all files that are currently mapped by the page cache.", "DBMS" ),
                 record( "db.createIndex",
                         "db.createIndex(index :: STRING?, providerName :: STRING?) :: (index :: STRING?, providerName :: STRING?, status :: STRING?)",
                         "Create a schema index with specified index provider (for example: CALL db.createIndex(\":Person(name)\", \"lucene+native-2.0\")) - " +
@@ -428,6 +438,22 @@ public class BuiltInProceduresTest
         ) );
     }
 
+    @Test
+    public void shouldListPageCacheFiles() throws Throwable
+    {
+        // Given
+        PagedFile nodeStore = pagedFile( "nodestore.db", 8192, 100, 90, 10, 81920, 16384, 2, 3 );
+        PagedFile labelIndex = pagedFile( "labelscanstore.db", 8192, 4, 4, 0, 0, 0, 0, 0 );
+        PageCache pageCache = mock( PageCache.class );
+        when( pageCache.listExistingMappings() ).thenReturn( asList( nodeStore, labelIndex ) );
+        when( resolver.resolveDependency( PageCache.class ) ).thenReturn( pageCache );
+
+        // When / Then
+        assertThat( call( "dbms.listPageCacheFiles" ), contains(
+                record( new File( "labelscanstore.db" ).getAbsolutePath(), 8192L, 4L, 4L, 0L, 1.0d, 0L, 0L, 0L, 0L ),
+                record( new File( "nodestore.db" ).getAbsolutePath(), 8192L, 100L, 90L, 10L, 0.9d, 81920L, 16384L, 2L, 3L ) ) );
+    }
+
     @Test
     public void shouldListSystemComponents() throws Throwable
     {
@@ -546,6 +572,25 @@ public class BuiltInProceduresTest
         return MapUtil.stringMap( "key", providerDescriptor.getKey(), "version", providerDescriptor.getVersion() );
     }
 
+    private static PagedFile pagedFile( String fileName, int pageSize, long pins, long hits, long faults, long bytesRead,
+            long bytesWritten, long flushes, long evictions )
+    {
+        PagedFileCounters counters = mock( PagedFileCounters.class );
+        when( counters.pins() ).thenReturn( pins );
+        when( counters.hits() ).thenReturn( hits );
+        when( counters.faults() ).thenReturn( faults );
+        when( counters.hitRatio() ).thenReturn( hits / (double) (hits + faults) );
+        when( counters.bytesRead() ).thenReturn( bytesRead );
+        when( counters.bytesWritten() ).thenReturn( bytesWritten );
+        when( counters.flushes() ).thenReturn( flushes );
+        when( counters.evictions() ).thenReturn( evictions );
+        PagedFile pagedFile = mock( PagedFile.class );
+        when( pagedFile.file() ).thenReturn( new File( fileName ) );
+        when( pagedFile.pageSize() ).thenReturn( pageSize );
+        when( pagedFile.counters() ).thenReturn( counters );
+        return pagedFile;
+    }
+
     private static Matcher<Object[]> record( Object... fields )
     {
         return equalTo( fields );
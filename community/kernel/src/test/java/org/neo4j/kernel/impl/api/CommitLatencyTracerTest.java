@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2002-2020 "Neo4j,"
+ * Neo4j Sweden AB [http://neo4j.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.api;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import org.neo4j.kernel.impl.api.CommitLatencyTracer.CommitPhase;
+import org.neo4j.kernel.impl.transaction.tracing.CommitEvent;
+import org.neo4j.kernel.impl.transaction.tracing.CreateCommandsEvent;
+import org.neo4j.kernel.impl.transaction.tracing.LockAcquisitionEvent;
+import org.neo4j.kernel.impl.transaction.tracing.LogAppendEvent;
+import org.neo4j.kernel.impl.transaction.tracing.LogForceWaitEvent;
+import org.neo4j.kernel.impl.transaction.tracing.SerializeTransactionEvent;
+import org.neo4j.kernel.impl.transaction.tracing.StoreApplyEvent;
+import org.neo4j.kernel.impl.transaction.tracing.TransactionEvent;
+import org.neo4j.test.OnDemandJobScheduler;
+import org.neo4j.time.Clocks;
+import org.neo4j.time.FakeClock;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.verifyZeroInteractions;
+
+public class CommitLatencyTracerTest
+{
+    private final FakeClock clock = Clocks.fakeClock();
+    private final OnDemandJobScheduler jobScheduler = new OnDemandJobScheduler();
+    private final CommitLatencyTracer.Monitor commitMonitor = mock( CommitLatencyTracer.Monitor.class );
+    private final CommitLatencyTracer tracer = new CommitLatencyTracer( clock,
+            mock( DefaultTransactionTracer.Monitor.class ), jobScheduler, commitMonitor );
+
+    @Test
+    public void shouldReportTheTimeSpentInEveryCommitPhase()
+    {
+        try ( TransactionEvent txEvent = tracer.beginTransaction() )
+        {
+            try ( CommitEvent commitEvent = txEvent.beginCommitEvent() )
+            {
+                try ( LockAcquisitionEvent event = commitEvent.beginLockAcquisition() )
+                {
+                    forward( 1 );
+                }
+                try ( CreateCommandsEvent event = commitEvent.beginCreateCommands() )
+                {
+                    forward( 2 );
+                }
+                try ( LogAppendEvent logAppendEvent = commitEvent.beginLogAppend() )
+                {
+                    try ( SerializeTransactionEvent event = logAppendEvent.beginSerializeTransaction() )
+                    {
+                        forward( 3 );
+                    }
+                    try ( LogForceWaitEvent event = logAppendEvent.beginLogForceWait() )
+                    {
+                        forward( 4 );
+                    }
+                }
+                try ( StoreApplyEvent event = commitEvent.beginStoreApply() )
+                {
+                    forward( 5 );
+                }
+            }
+        }
+
+        verify( commitMonitor ).commitPhaseCompleted( CommitPhase.LOCK_ACQUISITION, micros( 1 ) );
+        verify( commitMonitor ).commitPhaseCompleted( CommitPhase.CREATE_COMMANDS, micros( 2 ) );
+        verify( commitMonitor ).commitPhaseCompleted( CommitPhase.SERIALIZATION, micros( 3 ) );
+        verify( commitMonitor ).commitPhaseCompleted( CommitPhase.LOG_FORCE_WAIT, micros( 4 ) );
+        verify( commitMonitor ).commitPhaseCompleted( CommitPhase.LOG_APPEND, micros( 3 + 4 ) );
+        verify( commitMonitor ).commitPhaseCompleted( CommitPhase.STORE_APPLY, micros( 5 ) );
+        verify( commitMonitor ).commitPhaseCompleted( CommitPhase.COMMIT, micros( 1 + 2 + 3 + 4 + 5 ) );
+        verifyNoMoreInteractions( commitMonitor );
+    }
+
+    @Test
+    public void shouldNotReportCommitsThatDidNotCreateCommands()
+    {
+        try ( TransactionEvent txEvent = tracer.beginTransaction() )
+        {
+            try ( CommitEvent commitEvent = txEvent.beginCommitEvent() )
+            {
+                forward( 1 );
+            }
+        }
+
+        verifyZeroInteractions( commitMonitor );
+    }
+
+    @Test
+    public void shouldReportCommitWhoseLogAppendAndStoreApplyAreTracedByAnotherThread() throws Exception
+    {
+        try ( TransactionEvent txEvent = tracer.beginTransaction() )
+        {
+            try ( CommitEvent commitEvent = txEvent.beginCommitEvent() )
+            {
+                try ( CreateCommandsEvent event = commitEvent.beginCreateCommands() )
+                {
+                    forward( 1 );
+                }
+                Thread pipeline = new Thread( () ->
+                {
+                    try ( LogAppendEvent logAppendEvent = commitEvent.beginLogAppend() )
+                    {
+                        forward( 2 );
+                    }
+                    try ( StoreApplyEvent event = commitEvent.beginStoreApply() )
+                    {
+                        forward( 3 );
+                    }
+                } );
+                pipeline.start();
+                pipeline.join();
+            }
+        }
+
+        verify( commitMonitor ).commitPhaseCompleted( CommitPhase.CREATE_COMMANDS, micros( 1 ) );
+        verify( commitMonitor ).commitPhaseCompleted( CommitPhase.LOG_APPEND, micros( 2 ) );
+        verify( commitMonitor ).commitPhaseCompleted( CommitPhase.STORE_APPLY, micros( 3 ) );
+        verify( commitMonitor ).commitPhaseCompleted( CommitPhase.COMMIT, micros( 1 + 2 + 3 ) );
+        verifyNoMoreInteractions( commitMonitor );
+    }
+
+    @Test
+    public void shouldStillCountLogRotations()
+    {
+        try ( TransactionEvent txEvent = tracer.beginTransaction();
+              CommitEvent commitEvent = txEvent.beginCommitEvent();
+              LogAppendEvent logAppendEvent = commitEvent.beginLogAppend() )
+        {
+            logAppendEvent.beginLogRotate().close();
+        }
+        jobScheduler.runJob();
+
+        assertEquals( 1, tracer.numberOfLogRotationEvents() );
+    }
+
+    private void forward( long micros )
+    {
+        clock.forward( micros, TimeUnit.MICROSECONDS );
+    }
+
+    private static long micros( long micros )
+    {
+        return TimeUnit.MICROSECONDS.toNanos( micros );
+    }
+}
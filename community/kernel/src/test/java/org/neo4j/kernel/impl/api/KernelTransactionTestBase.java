@@ -19,6 +19,7 @@
  */
 package org.neo4j.kernel.impl.api;
 
+import org.eclipse.collections.api.map.primitive.MutableLongLongMap;
 import org.eclipse.collections.api.map.primitive.MutableLongObjectMap;
 import org.eclipse.collections.api.set.primitive.MutableLongSet;
 import org.eclipse.collections.impl.map.mutable.primitive.LongObjectHashMap;
@@ -58,6 +59,7 @@ import org.neo4j.kernel.impl.transaction.tracing.CommitEvent;
 import org.neo4j.kernel.impl.transaction.tracing.TransactionTracer;
 import org.neo4j.kernel.impl.util.Dependencies;
 import org.neo4j.kernel.impl.util.collection.CollectionsFactory;
+import org.neo4j.kernel.impl.util.collection.LongArena;
 import org.neo4j.kernel.impl.util.collection.OnHeapCollectionsFactory;
 import org.neo4j.kernel.impl.util.diffsets.MutableLongDiffSetsImpl;
 import org.neo4j.memory.MemoryTracker;
@@ -195,6 +197,12 @@ public class KernelTransactionTestBase
             return OnHeapCollectionsFactory.INSTANCE.newLongSet();
         }
 
+        @Override
+        public MutableLongLongMap newLongLongMap()
+        {
+            return OnHeapCollectionsFactory.INSTANCE.newLongLongMap();
+        }
+
         @Override
         public MutableLongDiffSetsImpl newLongDiffSets()
         {
@@ -207,6 +215,12 @@ public class KernelTransactionTestBase
             return new LongObjectHashMap<>();
         }
 
+        @Override
+        public LongArena newLongArena()
+        {
+            return null;
+        }
+
         @Override
         public MemoryTracker getMemoryTracker()
         {
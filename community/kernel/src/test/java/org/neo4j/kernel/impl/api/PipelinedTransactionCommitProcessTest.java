@@ -0,0 +1,296 @@
+/*
+ * Copyright (c) 2002-2020 "Neo4j,"
+ * Neo4j Sweden AB [http://neo4j.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.api;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.neo4j.internal.kernel.api.exceptions.TransactionFailureException;
+import org.neo4j.kernel.impl.transaction.TransactionRepresentation;
+import org.neo4j.kernel.impl.transaction.log.TestableTransactionAppender;
+import org.neo4j.kernel.impl.transaction.log.TransactionAppender;
+import org.neo4j.kernel.impl.transaction.log.TransactionIdStore;
+import org.neo4j.kernel.impl.transaction.tracing.CommitEvent;
+import org.neo4j.kernel.impl.transaction.tracing.LogAppendEvent;
+import org.neo4j.kernel.impl.transaction.tracing.StoreApplyEvent;
+import org.neo4j.scheduler.ThreadPoolJobScheduler;
+import org.neo4j.storageengine.api.StorageEngine;
+import org.neo4j.storageengine.api.TransactionApplicationMode;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.neo4j.helpers.Exceptions.contains;
+import static org.neo4j.storageengine.api.TransactionApplicationMode.EXTERNAL;
+import static org.neo4j.storageengine.api.TransactionApplicationMode.INTERNAL;
+
+public class PipelinedTransactionCommitProcessTest
+{
+    private final CommitEvent commitEvent = CommitEvent.NULL;
+    private final TransactionIdStore transactionIdStore = mock( TransactionIdStore.class );
+    private final AtomicLong lastCommittingTransactionId = new AtomicLong( TransactionIdStore.BASE_TX_ID );
+    private final StorageEngine storageEngine = mock( StorageEngine.class );
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final ThreadPoolJobScheduler scheduler = new ThreadPoolJobScheduler();
+    private PipelinedTransactionCommitProcess commitProcess;
+
+    @After
+    public void tearDown() throws Exception
+    {
+        executor.shutdown();
+        if ( commitProcess != null )
+        {
+            commitProcess.stop();
+        }
+        scheduler.close();
+    }
+
+    @Test
+    public void shouldAppendNextGroupWhilePreviousGroupIsBeingApplied() throws Exception
+    {
+        // GIVEN
+        CountDownLatch applying = new CountDownLatch( 1 );
+        CountDownLatch finishApplying = new CountDownLatch( 1 );
+        doAnswer( invocation ->
+        {
+            applying.countDown();
+            finishApplying.await();
+            return null;
+        } ).when( storageEngine ).apply( any( TransactionToApply.class ), any( TransactionApplicationMode.class ) );
+        CountDownLatch appends = new CountDownLatch( 2 );
+        TransactionAppender appender = spy( new TestableTransactionAppender( transactionIdStore() ) );
+        doAnswer( invocation ->
+        {
+            Object transactionId = invocation.callRealMethod();
+            appends.countDown();
+            return transactionId;
+        } ).when( appender ).append( any( TransactionToApply.class ), any( LogAppendEvent.class ) );
+        startCommitProcess( appender );
+        Callable<Long> commit = () -> commitProcess.commit( mockedTransaction(), commitEvent, INTERNAL );
+        Future<Long> first = executor.submit( commit );
+        assertTrue( applying.await( 1, TimeUnit.MINUTES ) );
+
+        // WHEN
+        // The first group is held up in the apply stage, so the second commit must make up a group of its own.
+        Future<Long> second = executor.submit( commit );
+
+        // THEN
+        assertTrue( "The next group was not appended while the previous group was being applied",
+                appends.await( 1, TimeUnit.MINUTES ) );
+        assertFalse( second.isDone() );
+        finishApplying.countDown();
+        long firstTransactionId = first.get();
+        long secondTransactionId = second.get();
+        assertEquals( firstTransactionId + 1, secondTransactionId );
+        verify( transactionIdStore ).transactionClosed( eq( firstTransactionId ), anyLong(), anyLong() );
+        verify( transactionIdStore ).transactionClosed( eq( secondTransactionId ), anyLong(), anyLong() );
+    }
+
+    @Test
+    public void shouldFailWithProperMessageOnAppendException() throws Exception
+    {
+        // GIVEN
+        TransactionAppender appender = mock( TransactionAppender.class );
+        IOException rootCause = new IOException( "Mock exception" );
+        doThrow( new IOException( rootCause ) ).when( appender ).append( any( TransactionToApply.class ),
+                any( LogAppendEvent.class ) );
+        startCommitProcess( appender );
+
+        // WHEN
+        try
+        {
+            commitProcess.commit( mockedTransaction(), commitEvent, INTERNAL );
+            fail( "Should have failed, something is wrong with the mocking in this test" );
+        }
+        catch ( TransactionFailureException e )
+        {
+            assertThat( e.getMessage(), containsString( "Could not append transaction representation to log" ) );
+            assertTrue( contains( e, rootCause.getMessage(), rootCause.getClass() ) );
+        }
+    }
+
+    @Test
+    public void shouldCloseTransactionRegardlessOfWhetherOrNotItAppliedCorrectly() throws Exception
+    {
+        // GIVEN
+        IOException rootCause = new IOException( "Mock exception" );
+        doThrow( new IOException( rootCause ) ).when( storageEngine ).apply(
+                any( TransactionToApply.class ), any( TransactionApplicationMode.class ) );
+        startCommitProcess( new TestableTransactionAppender( transactionIdStore() ) );
+        TransactionToApply transaction = mockedTransaction();
+
+        // WHEN
+        try
+        {
+            commitProcess.commit( transaction, commitEvent, INTERNAL );
+            fail( "Should have failed, something is wrong with the mocking in this test" );
+        }
+        catch ( TransactionFailureException e )
+        {
+            assertThat( e.getMessage(), containsString( "Could not apply the transaction to the store" ) );
+            assertTrue( contains( e, rootCause.getMessage(), rootCause.getClass() ) );
+        }
+
+        // THEN
+        verify( transactionIdStore, times( 1 ) ).transactionClosed( eq( transaction.transactionId() ), anyLong(), anyLong() );
+        assertNull( transaction.next() );
+    }
+
+    @Test
+    public void shouldSerializeTransactionsOnTheCommittingThread() throws Exception
+    {
+        // GIVEN
+        Thread committer = Thread.currentThread();
+        AtomicReference<Thread> serializingThread = new AtomicReference<>();
+        TransactionAppender appender = spy( new TestableTransactionAppender( transactionIdStore() ) );
+        doAnswer( invocation ->
+        {
+            serializingThread.set( Thread.currentThread() );
+            return null;
+        } ).when( appender ).serialize( any( TransactionToApply.class ), any( LogAppendEvent.class ) );
+        startCommitProcess( appender );
+        TransactionToApply transaction = mockedTransaction();
+
+        // WHEN
+        commitProcess.commit( transaction, commitEvent, INTERNAL );
+
+        // THEN
+        assertEquals( committer, serializingThread.get() );
+        verify( appender ).append( eq( transaction ), any( LogAppendEvent.class ) );
+    }
+
+    @Test
+    public void shouldTraceLogAppendAndStoreApplyOfEveryCommitInAGroup() throws Exception
+    {
+        // GIVEN
+        CountDownLatch appending = new CountDownLatch( 1 );
+        CountDownLatch finishAppending = new CountDownLatch( 1 );
+        CountDownLatch serialized = new CountDownLatch( 3 );
+        TransactionAppender appender = spy( new TestableTransactionAppender( transactionIdStore() ) );
+        doAnswer( invocation ->
+        {
+            serialized.countDown();
+            return null;
+        } ).when( appender ).serialize( any( TransactionToApply.class ), any( LogAppendEvent.class ) );
+        doAnswer( invocation ->
+        {
+            appending.countDown();
+            finishAppending.await();
+            return invocation.callRealMethod();
+        } ).when( appender ).append( any( TransactionToApply.class ), any( LogAppendEvent.class ) );
+        startCommitProcess( appender );
+        CommitEvent[] commitEvents = new CommitEvent[3];
+        LogAppendEvent[] logAppendEvents = new LogAppendEvent[3];
+        StoreApplyEvent[] storeApplyEvents = new StoreApplyEvent[3];
+        for ( int i = 0; i < commitEvents.length; i++ )
+        {
+            commitEvents[i] = mock( CommitEvent.class );
+            logAppendEvents[i] = mock( LogAppendEvent.class );
+            storeApplyEvents[i] = mock( StoreApplyEvent.class );
+            when( commitEvents[i].beginLogAppend() ).thenReturn( logAppendEvents[i] );
+            when( commitEvents[i].beginStoreApply() ).thenReturn( storeApplyEvents[i] );
+        }
+
+        // WHEN
+        // The first commit is held up in the append stage, so that the other two are likely to make up a group.
+        Future<Long> first = executor.submit( () -> commitProcess.commit( mockedTransaction(), commitEvents[0], INTERNAL ) );
+        assertTrue( appending.await( 1, TimeUnit.MINUTES ) );
+        Future<Long> second = executor.submit( () -> commitProcess.commit( mockedTransaction(), commitEvents[1], INTERNAL ) );
+        Future<Long> third = executor.submit( () -> commitProcess.commit( mockedTransaction(), commitEvents[2], INTERNAL ) );
+        assertTrue( serialized.await( 1, TimeUnit.MINUTES ) );
+        finishAppending.countDown();
+        first.get();
+        second.get();
+        third.get();
+
+        // THEN
+        for ( int i = 0; i < commitEvents.length; i++ )
+        {
+            verify( commitEvents[i] ).beginLogAppend();
+            verify( logAppendEvents[i] ).close();
+            verify( commitEvents[i] ).beginStoreApply();
+            verify( storeApplyEvents[i] ).close();
+        }
+    }
+
+    @Test
+    public void shouldCommitExternalTransactionsOnTheCallingThread() throws Exception
+    {
+        // GIVEN
+        Thread committer = Thread.currentThread();
+        doAnswer( invocation ->
+        {
+            assertEquals( committer, Thread.currentThread() );
+            return null;
+        } ).when( storageEngine ).apply( any( TransactionToApply.class ), any( TransactionApplicationMode.class ) );
+        startCommitProcess( new TestableTransactionAppender( transactionIdStore() ) );
+
+        // WHEN
+        long transactionId = commitProcess.commit( mockedTransaction(), commitEvent, EXTERNAL );
+
+        // THEN
+        verify( storageEngine ).apply( any( TransactionToApply.class ), eq( EXTERNAL ) );
+        verify( transactionIdStore ).transactionClosed( eq( transactionId ), anyLong(), anyLong() );
+    }
+
+    private TransactionIdStore transactionIdStore()
+    {
+        when( transactionIdStore.nextCommittingTransactionId() ).thenAnswer(
+                invocation -> lastCommittingTransactionId.incrementAndGet() );
+        return transactionIdStore;
+    }
+
+    private void startCommitProcess( TransactionAppender appender )
+    {
+        commitProcess = new PipelinedTransactionCommitProcess( appender, storageEngine, scheduler, 16 );
+        commitProcess.start();
+    }
+
+    private TransactionToApply mockedTransaction()
+    {
+        TransactionRepresentation transaction = mock( TransactionRepresentation.class );
+        when( transaction.additionalHeader() ).thenReturn( new byte[0] );
+        return new TransactionToApply( transaction );
+    }
+}
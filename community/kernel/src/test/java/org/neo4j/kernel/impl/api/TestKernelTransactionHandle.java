@@ -136,6 +136,12 @@ public class TestKernelTransactionHandle implements KernelTransactionHandle
         return Stream.empty();
     }
 
+    @Override
+    public Stream<ActiveLock> waitingLocks()
+    {
+        return Stream.empty();
+    }
+
     @Override
     public TransactionExecutionStatistic transactionStatistic()
     {
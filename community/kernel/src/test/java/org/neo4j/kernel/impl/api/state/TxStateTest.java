@@ -45,7 +45,9 @@ import java.util.NavigableMap;
 import java.util.Set;
 import java.util.TreeMap;
 
+import org.neo4j.collection.PrimitiveLongCollections;
 import org.neo4j.function.Predicates;
+import org.neo4j.helpers.collection.Iterables;
 import org.neo4j.helpers.collection.Iterators;
 import org.neo4j.helpers.collection.Pair;
 import org.neo4j.internal.kernel.api.exceptions.schema.ConstraintValidationException;
@@ -61,11 +63,13 @@ import org.neo4j.kernel.impl.util.collection.CollectionsFactorySupplier;
 import org.neo4j.kernel.impl.util.collection.OffHeapCollectionsFactory;
 import org.neo4j.kernel.impl.util.diffsets.MutableLongDiffSets;
 import org.neo4j.kernel.impl.util.diffsets.MutableLongDiffSetsImpl;
+import org.neo4j.storageengine.api.RelationshipDirection;
 import org.neo4j.storageengine.api.StorageProperty;
 import org.neo4j.storageengine.api.schema.IndexDescriptor;
 import org.neo4j.storageengine.api.schema.IndexDescriptorFactory;
 import org.neo4j.storageengine.api.txstate.DiffSets;
 import org.neo4j.storageengine.api.txstate.LongDiffSets;
+import org.neo4j.storageengine.api.txstate.NodeState;
 import org.neo4j.storageengine.api.txstate.TxStateVisitor;
 import org.neo4j.test.rule.RandomRule;
 import org.neo4j.test.rule.RepeatRule;
@@ -83,6 +87,7 @@ import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
 import static org.junit.runners.Parameterized.Parameter;
 import static org.junit.runners.Parameterized.Parameters;
 import static org.mockito.Mockito.spy;
@@ -334,6 +339,57 @@ public class TxStateTest
         }
     }
 
+    @Test
+    public void shouldComputeIndexUpdatesOfChangedValues()
+    {
+        // GIVEN
+        final ValueTuple a = ValueTuple.of( stringValue( "a" ) );
+        final ValueTuple b = ValueTuple.of( stringValue( "b" ) );
+        for ( long nodeId = 0; nodeId < 10; nodeId++ )
+        {
+            state.indexDoUpdateEntry( indexOn_1_1.schema(), nodeId, null, a );
+        }
+        state.indexDoUpdateEntry( indexOn_1_1.schema(), 20, a, null );
+
+        // WHEN
+        for ( long nodeId = 0; nodeId < 5; nodeId++ )
+        {
+            state.indexDoUpdateEntry( indexOn_1_1.schema(), nodeId, a, b );
+        }
+        state.indexDoUpdateEntry( indexOn_1_1.schema(), 20, null, a );
+        state.indexDoUpdateEntry( indexOn_1_1.schema(), 21, b, null );
+
+        // THEN
+        UnmodifiableMap<ValueTuple,? extends LongDiffSets> diffSets = state.getIndexUpdates( indexOn_1_1.schema() );
+        assertEquals( 2, diffSets.size() );
+        assertEqualDiffSets( addedNodes( 5, 6, 7, 8, 9 ), diffSets.get( a ) );
+        assertEquals( newSetWith( 0, 1, 2, 3, 4 ), diffSets.get( b ).getAdded() );
+        assertEquals( newSetWith( 21 ), diffSets.get( b ).getRemoved() );
+        assertNull( diffSets.get( ValueTuple.of( stringValue( "c" ) ) ) );
+        assertEquals( asSet( a, b ), state.getSortedIndexUpdates( indexOn_1_1.schema() ).keySet() );
+    }
+
+    @Test
+    public void shouldUndoIndexUpdatesOfDeletedNode()
+    {
+        // GIVEN
+        final ValueTuple a = ValueTuple.of( stringValue( "a" ) );
+        final ValueTuple b = ValueTuple.of( stringValue( "b" ) );
+        state.indexDoUpdateEntry( indexOn_1_1.schema(), 1, null, a );
+        state.indexDoUpdateEntry( indexOn_1_1.schema(), 2, null, a );
+        state.indexDoUpdateEntry( indexOn_1_1.schema(), 3, b, a );
+        state.indexDoUpdateEntry( indexOn_2_1.schema(), 3, null, b );
+
+        // WHEN
+        state.nodeDoDelete( 1 );
+        state.nodeDoDelete( 3 );
+
+        // THEN
+        assertEqualDiffSets( addedNodes( 2 ), state.getIndexUpdates( indexOn_1_1.schema() ).get( a ) );
+        assertTrue( state.getIndexUpdates( indexOn_1_1.schema() ).get( b ).isEmpty() );
+        assertTrue( state.getIndexUpdates( indexOn_2_1.schema() ).get( b ).isEmpty() );
+    }
+
     // endregion
 
     //region index rule tests
@@ -869,17 +925,121 @@ public class TxStateTest
     @Test
     public void getOrCreateNodeState_props_useCollectionsFactory()
     {
-        final NodeStateImpl nodeState = state.getOrCreateNodeState( 1 );
+        final MutableNodeState nodeState = state.getOrCreateNodeState( 1 );
 
         nodeState.addProperty( 2, stringValue( "foo" ) );
         nodeState.removeProperty( 3 );
         nodeState.changeProperty( 4, stringValue( "bar" ) );
 
-        verify( collectionsFactory, times( 2 ) ).newValuesMap();
-        verify( collectionsFactory, times( 1 ) ).newLongSet();
+        verify( collectionsFactory ).newLongArena();
+        if ( isOffHeap() )
+        {
+            verify( collectionsFactory ).newLongLongMap();
+            verify( collectionsFactory ).newValuesMap();
+        }
+        else
+        {
+            verify( collectionsFactory, times( 2 ) ).newValuesMap();
+            verify( collectionsFactory, times( 1 ) ).newLongSet();
+        }
         verifyNoMoreInteractions( collectionsFactory );
     }
 
+    @Test
+    public void shouldEncodeChangedEntitiesWithoutCollectionsPerEntityOffHeap()
+    {
+        assumeTrue( isOffHeap() );
+
+        for ( int id = 0; id < 1_000; id++ )
+        {
+            state.nodeDoAddProperty( id, 1, Values.intValue( id ) );
+            state.nodeDoAddLabel( 1, id );
+            state.relationshipDoCreate( id, 1, id, id + 1 );
+            state.relationshipDoReplaceProperty( id, 1, Values.NO_VALUE, Values.intValue( id ) );
+            state.indexDoUpdateEntry( indexOn_1_1.schema(), id, null, ValueTuple.of( Values.intValue( id % 10 ) ) );
+        }
+
+        verify( collectionsFactory ).newLongArena();
+        // block maps of nodes and relationships, and the tuple and node maps of index updates
+        verify( collectionsFactory, times( 4 ) ).newLongLongMap();
+        verify( collectionsFactory, times( 3 ) ).newValuesMap();
+        // added relationships, the nodes of label 1, and the added nodes of each of the 10 index values
+        verify( collectionsFactory, times( 12 ) ).newLongSet();
+        verifyNoMoreInteractions( collectionsFactory );
+    }
+
+    @Test
+    public void shouldKeepAllChangesOfNodeWithManyChanges()
+    {
+        // GIVEN
+        state.nodeDoAddProperty( 0, 0, Values.intValue( 0 ) );
+        final NodeState nodeState = state.getNodeState( 0 );
+
+        // WHEN
+        for ( int key = 1; key < 100; key++ )
+        {
+            state.nodeDoAddProperty( 0, key, Values.intValue( key ) );
+        }
+        for ( int key = 0; key < 100; key += 2 )
+        {
+            state.nodeDoRemoveProperty( 0, key );
+        }
+        for ( int key = 100; key < 110; key++ )
+        {
+            state.nodeDoRemoveProperty( 0, key );
+        }
+        for ( long relId = 0; relId < 60; relId++ )
+        {
+            state.relationshipDoCreate( relId, (int) relId % 3, 0, relId + 1 );
+        }
+        state.relationshipDoDelete( 0, 0, 0, 1 );
+        state.relationshipDoDelete( 100, 0, 0, 101 );
+        state.nodeDoAddLabel( 5, 0 );
+        state.nodeDoRemoveLabel( 6, 0 );
+
+        // THEN
+        for ( NodeState node : asList( nodeState, state.getNodeState( 0 ) ) )
+        {
+            assertEquals( 0, node.getId() );
+            for ( int key = 0; key < 100; key++ )
+            {
+                assertEquals( key % 2 == 0 ? null : Values.intValue( key ), node.propertyValue( key ) );
+            }
+            assertEquals( Values.NO_VALUE, node.propertyValue( 105 ) );
+            assertEquals( 50, Iterators.count( node.addedProperties() ) );
+            assertEquals( 10, node.removedProperties().size() );
+            assertTrue( node.hasPropertyChanges() );
+            assertEquals( 18, node.augmentDegree( RelationshipDirection.OUTGOING, 0, 0 ) );
+            assertEquals( 20, node.augmentDegree( RelationshipDirection.OUTGOING, 0, 1 ) );
+            assertEquals( 59, PrimitiveLongCollections.count( node.getAddedRelationships() ) );
+            assertEquals( newSetWith( 5 ), node.labelDiffSets().getAdded() );
+            assertEquals( newSetWith( 6 ), node.labelDiffSets().getRemoved() );
+        }
+        assertEquals( 62, Iterables.count( state.modifiedNodes() ) );
+    }
+
+    @Test
+    public void shouldForgetChangesOfDeletedEntities()
+    {
+        // GIVEN
+        state.nodeDoCreate( 0 );
+        state.nodeDoAddLabel( 1, 0 );
+        state.nodeDoAddProperty( 0, 1, Values.intValue( 1 ) );
+        state.relationshipDoCreate( 0, 1, 0, 0 );
+        state.relationshipDoReplaceProperty( 0, 1, Values.NO_VALUE, Values.intValue( 1 ) );
+
+        // WHEN
+        state.relationshipDoDelete( 0, 1, 0, 0 );
+        state.nodeDoDelete( 0 );
+
+        // THEN
+        assertFalse( state.getNodeState( 0 ).hasPropertyChanges() );
+        assertNull( state.getNodeState( 0 ).propertyValue( 1 ) );
+        assertFalse( state.getRelationshipState( 0 ).hasPropertyChanges() );
+        assertFalse( state.relationshipVisit( 0, ( id, type, start, end ) -> fail() ) );
+        assertTrue( state.nodesWithLabelChanged( 1 ).isEmpty() );
+    }
+
     @Test
     public void getOrCreateGraphState_useCollectionsFactory()
     {
@@ -917,6 +1077,31 @@ public class TxStateTest
         verifyNoMoreInteractions( collectionsFactory );
     }
 
+    @Test
+    public void shouldKeepStateOfNodesWithFewChangesCompact()
+    {
+        state.nodeDoChangeProperty( 0, 1, Values.intValue( 0 ) );
+        state.nodeDoAddLabel( 1, 0 );
+        final long usedByFirstNode = collectionsFactory.getMemoryTracker().usedDirectMemory();
+
+        final int nodes = 10_000;
+        for ( int nodeId = 1; nodeId < nodes; nodeId++ )
+        {
+            state.nodeDoChangeProperty( nodeId, 1, Values.intValue( nodeId ) );
+            state.nodeDoAddLabel( 1, nodeId );
+            state.nodeDoRemoveLabel( 1, nodeId );
+        }
+
+        final long usedByAllNodes = collectionsFactory.getMemoryTracker().usedDirectMemory();
+        final long usedPerNode = (usedByAllNodes - usedByFirstNode) / (nodes - 1);
+        assertTrue( "Expected at most 256 bytes per node but was " + usedPerNode, usedPerNode <= 256 );
+    }
+
+    private boolean isOffHeap()
+    {
+        return collectionsFactory instanceof OffHeapCollectionsFactory;
+    }
+
     private LongDiffSets addedNodes( long... added )
     {
         return new MutableLongDiffSetsImpl( LongSets.mutable.of( added ), LongSets.mutable.empty(), collectionsFactory );
@@ -23,10 +23,12 @@ import org.junit.Test;
 
 import org.neo4j.graphdb.factory.GraphDatabaseSettings;
 import org.neo4j.kernel.configuration.Config;
+import org.neo4j.kernel.impl.api.PipelinedTransactionCommitProcess;
 import org.neo4j.kernel.impl.api.ReadOnlyTransactionCommitProcess;
 import org.neo4j.kernel.impl.api.TransactionCommitProcess;
 import org.neo4j.kernel.impl.api.TransactionRepresentationCommitProcess;
 import org.neo4j.kernel.impl.transaction.log.TransactionAppender;
+import org.neo4j.scheduler.JobScheduler;
 import org.neo4j.storageengine.api.StorageEngine;
 
 import static org.hamcrest.Matchers.instanceOf;
@@ -38,7 +40,7 @@ public class CommunityCommitProcessFactoryTest
     @Test
     public void createReadOnlyCommitProcess()
     {
-        CommunityCommitProcessFactory factory = new CommunityCommitProcessFactory();
+        CommunityCommitProcessFactory factory = new CommunityCommitProcessFactory( mock( JobScheduler.class ) );
 
         Config config = Config.defaults( GraphDatabaseSettings.read_only, "true" );
 
@@ -51,11 +53,24 @@ public class CommunityCommitProcessFactoryTest
     @Test
     public void createRegularCommitProcess()
     {
-        CommunityCommitProcessFactory factory = new CommunityCommitProcessFactory();
+        CommunityCommitProcessFactory factory = new CommunityCommitProcessFactory( mock( JobScheduler.class ) );
 
         TransactionCommitProcess commitProcess = factory.create( mock( TransactionAppender.class ),
                 mock( StorageEngine.class ), Config.defaults() );
 
         assertThat( commitProcess, instanceOf( TransactionRepresentationCommitProcess.class ) );
     }
+
+    @Test
+    public void createPipelinedCommitProcess()
+    {
+        CommunityCommitProcessFactory factory = new CommunityCommitProcessFactory( mock( JobScheduler.class ) );
+
+        Config config = Config.defaults( GraphDatabaseSettings.pipelined_commit, "true" );
+
+        TransactionCommitProcess commitProcess = factory.create( mock( TransactionAppender.class ),
+                mock( StorageEngine.class ), config );
+
+        assertThat( commitProcess, instanceOf( PipelinedTransactionCommitProcess.class ) );
+    }
 }
@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2002-2020 "Neo4j,"
+ * Neo4j Sweden AB [http://neo4j.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.locking;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.Future;
+
+import org.neo4j.kernel.impl.locking.LockContentionStatistics.ContendedResource;
+import org.neo4j.storageengine.api.lock.LockTracer;
+
+import static java.util.Collections.singletonList;
+import static java.util.stream.Collectors.toList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.neo4j.kernel.impl.locking.ActiveLock.exclusiveLock;
+import static org.neo4j.kernel.impl.locking.ActiveLock.sharedLock;
+import static org.neo4j.kernel.impl.locking.ResourceTypes.NODE;
+import static org.neo4j.kernel.impl.locking.ResourceTypes.RELATIONSHIP;
+
+@Ignore( "Not a test. This is a compatibility suite, run from LockingCompatibilityTestSuite." )
+public class LockContentionCompatibility extends LockingCompatibilityTestSuite.Compatibility
+{
+    public LockContentionCompatibility( LockingCompatibilityTestSuite suite )
+    {
+        super( suite );
+    }
+
+    @Test
+    public void shouldListTheExclusiveLockThatAClientIsWaitingFor() throws Exception
+    {
+        // given
+        clientA.acquireExclusive( LockTracer.NONE, NODE, 17 );
+
+        // when
+        Future<Object> future = acquireExclusive( clientB, LockTracer.NONE, NODE, 17 ).callAndAssertWaiting();
+
+        // then
+        assertEquals( singletonList( exclusiveLock( NODE, 17 ) ), clientB.waitingLocks().collect( toList() ) );
+        assertEquals( 0, clientA.waitingLocks().count() );
+        clientA.releaseExclusive( NODE, 17 );
+        future.get();
+        assertEquals( 0, clientB.waitingLocks().count() );
+    }
+
+    @Test
+    public void shouldListTheSharedLockThatAClientIsWaitingFor() throws Exception
+    {
+        // given
+        clientA.acquireExclusive( LockTracer.NONE, NODE, 17 );
+
+        // when
+        Future<Object> future = acquireShared( clientB, LockTracer.NONE, NODE, 17 ).callAndAssertWaiting();
+
+        // then
+        assertEquals( singletonList( sharedLock( NODE, 17 ) ), clientB.waitingLocks().collect( toList() ) );
+        clientA.releaseExclusive( NODE, 17 );
+        future.get();
+        assertEquals( 0, clientB.waitingLocks().count() );
+    }
+
+    @Test
+    public void shouldRecordWaitsInTheContentionStatistics() throws Exception
+    {
+        // given
+        clientA.acquireExclusive( LockTracer.NONE, NODE, 17 );
+        clientA.acquireShared( LockTracer.NONE, RELATIONSHIP, 3 );
+        Future<Object> future = acquireExclusive( clientB, LockTracer.NONE, NODE, 17 ).callAndAssertWaiting();
+
+        // when
+        clientA.releaseExclusive( NODE, 17 );
+        future.get();
+        future = acquireExclusive( clientC, LockTracer.NONE, RELATIONSHIP, 3 ).callAndAssertWaiting();
+        clientA.releaseShared( RELATIONSHIP, 3 );
+        future.get();
+        future = acquireShared( clientA, LockTracer.NONE, NODE, 17 ).callAndAssertWaiting();
+        clientB.releaseExclusive( NODE, 17 );
+        future.get();
+
+        // then
+        LockContentionStatistics statistics = locks.contentionStatistics();
+        assertEquals( 2, statistics.waits( NODE ) );
+        assertEquals( 1, statistics.waits( RELATIONSHIP ) );
+        assertTrue( statistics.waitTimeNanos( NODE ) > 0 );
+        List<ContendedResource> mostContended = statistics.mostContended( 10 );
+        assertEquals( 2, mostContended.size() );
+        assertEquals( NODE, mostContended.get( 0 ).resourceType() );
+        assertEquals( 17, mostContended.get( 0 ).resourceId() );
+        assertEquals( 2, mostContended.get( 0 ).waits() );
+        assertEquals( RELATIONSHIP, mostContended.get( 1 ).resourceType() );
+        assertEquals( 3, mostContended.get( 1 ).resourceId() );
+        assertEquals( 1, mostContended.get( 1 ).waits() );
+    }
+
+    @Test
+    public void shouldNotRecordLocksThatWereFree()
+    {
+        // when
+        clientA.acquireExclusive( LockTracer.NONE, NODE, 1, 2, 3 );
+        clientB.acquireShared( LockTracer.NONE, NODE, 4, 5 );
+        clientC.acquireShared( LockTracer.NONE, NODE, 4, 5 );
+
+        // then
+        LockContentionStatistics statistics = locks.contentionStatistics();
+        assertEquals( 0, statistics.waits( NODE ) );
+        assertEquals( 0, statistics.mostContended( 10 ).size() );
+        assertEquals( 0, clientA.waitingLocks().count() );
+    }
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright (c) 2002-2020 "Neo4j,"
+ * Neo4j Sweden AB [http://neo4j.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.locking;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.neo4j.kernel.impl.locking.LockContentionStatistics.ContendedResource;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.neo4j.kernel.impl.locking.LockContentionStatistics.WAIT_TIME_BUCKETS;
+import static org.neo4j.kernel.impl.locking.LockContentionStatistics.waitTimeBucketUpperBoundMicros;
+import static org.neo4j.kernel.impl.locking.ResourceTypes.LABEL;
+import static org.neo4j.kernel.impl.locking.ResourceTypes.NODE;
+import static org.neo4j.kernel.impl.locking.ResourceTypes.RELATIONSHIP;
+
+public class LockContentionStatisticsTest
+{
+    @Test
+    public void shouldPutWaitTimesInPowerOfTwoMicrosecondBuckets()
+    {
+        // given
+        LockContentionStatistics statistics = new LockContentionStatistics( 10 );
+
+        // when
+        statistics.waited( NODE, 1, 500 );
+        statistics.waited( NODE, 1, micros( 1 ) );
+        statistics.waited( NODE, 1, micros( 3 ) );
+        statistics.waited( NODE, 1, micros( 1000 ) );
+        statistics.waited( NODE, 1, TimeUnit.DAYS.toNanos( 1 ) );
+
+        // then
+        long[] expected = new long[WAIT_TIME_BUCKETS];
+        expected[0] = 1;
+        expected[1] = 1;
+        expected[2] = 1;
+        expected[10] = 1;
+        expected[WAIT_TIME_BUCKETS - 1] = 1;
+        assertArrayEquals( expected, statistics.waitTimeHistogram( NODE ) );
+        assertEquals( 5, statistics.waits( NODE ) );
+        assertEquals( 500 + micros( 1 ) + micros( 3 ) + micros( 1000 ) + TimeUnit.DAYS.toNanos( 1 ),
+                statistics.waitTimeNanos( NODE ) );
+        assertEquals( 0, statistics.waits( RELATIONSHIP ) );
+        assertArrayEquals( new long[WAIT_TIME_BUCKETS], statistics.waitTimeHistogram( RELATIONSHIP ) );
+    }
+
+    @Test
+    public void shouldEstimatePercentilesFromTheHistogram()
+    {
+        // given
+        LockContentionStatistics statistics = new LockContentionStatistics( 0 );
+        for ( int i = 0; i < 98; i++ )
+        {
+            statistics.waited( NODE, i, micros( 3 ) );
+        }
+        statistics.waited( NODE, 98, micros( 100 ) );
+        statistics.waited( NODE, 99, micros( 5000 ) );
+
+        // then
+        assertEquals( 4, statistics.waitTimePercentileMicros( NODE, 50 ) );
+        assertEquals( 128, statistics.waitTimePercentileMicros( NODE, 99 ) );
+        assertEquals( 8192, statistics.waitTimePercentileMicros( NODE, 100 ) );
+        assertEquals( 0, statistics.waitTimePercentileMicros( LABEL, 99 ) );
+        assertEquals( 1L << (WAIT_TIME_BUCKETS - 2), waitTimeBucketUpperBoundMicros( WAIT_TIME_BUCKETS - 1 ) );
+    }
+
+    @Test
+    public void shouldListTheMostContendedResourcesFirst()
+    {
+        // given
+        LockContentionStatistics statistics = new LockContentionStatistics( 10 );
+
+        // when
+        waited( statistics, NODE, 1, 2 );
+        waited( statistics, NODE, 2, 5 );
+        waited( statistics, RELATIONSHIP, 2, 3 );
+        waited( statistics, LABEL, 7, 1 );
+
+        // then
+        List<ContendedResource> mostContended = statistics.mostContended( 3 );
+        assertEquals( 3, mostContended.size() );
+        assertContended( mostContended.get( 0 ), NODE, 2, 5 );
+        assertContended( mostContended.get( 1 ), RELATIONSHIP, 2, 3 );
+        assertContended( mostContended.get( 2 ), NODE, 1, 2 );
+        assertEquals( micros( 5 ), mostContended.get( 0 ).waitTimeNanos() );
+        assertEquals( 4, statistics.mostContended( 10 ).size() );
+    }
+
+    @Test
+    public void shouldKeepTrackOfTheHeavilyContendedResourcesWhenTrackingFewerResourcesThanAreContended()
+    {
+        // given
+        LockContentionStatistics statistics = new LockContentionStatistics( 4 );
+
+        // when
+        for ( int round = 0; round < 100; round++ )
+        {
+            statistics.waited( NODE, 1, micros( 1 ) );
+            statistics.waited( NODE, 2, micros( 1 ) );
+            statistics.waited( NODE, 1000 + round, micros( 1 ) );
+        }
+
+        // then
+        List<ContendedResource> mostContended = statistics.mostContended( 2 );
+        assertEquals( 2, mostContended.size() );
+        assertEquals( 1, Math.min( mostContended.get( 0 ).resourceId(), mostContended.get( 1 ).resourceId() ) );
+        assertEquals( 2, Math.max( mostContended.get( 0 ).resourceId(), mostContended.get( 1 ).resourceId() ) );
+        assertEquals( 100, mostContended.get( 0 ).waits() );
+        assertEquals( 4, statistics.mostContended( 10 ).size() );
+    }
+
+    @Test
+    public void shouldCountEveryConcurrentWaitForTrackedResources() throws Exception
+    {
+        // given
+        LockContentionStatistics statistics = new LockContentionStatistics( 64 );
+        int threads = 8;
+        int waitsPerThread = 10_000;
+        ExecutorService executor = Executors.newFixedThreadPool( threads );
+
+        // when
+        try
+        {
+            List<Future<?>> futures = new ArrayList<>();
+            for ( int thread = 0; thread < threads; thread++ )
+            {
+                futures.add( executor.submit( () ->
+                {
+                    for ( int i = 0; i < waitsPerThread; i++ )
+                    {
+                        statistics.waited( NODE, i % 4, micros( 1 ) );
+                    }
+                } ) );
+            }
+            for ( Future<?> future : futures )
+            {
+                future.get();
+            }
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+
+        // then
+        List<ContendedResource> mostContended = statistics.mostContended( 10 );
+        assertEquals( 4, mostContended.size() );
+        for ( ContendedResource resource : mostContended )
+        {
+            assertEquals( threads * waitsPerThread / 4, resource.waits() );
+            assertEquals( micros( threads * waitsPerThread / 4 ), resource.waitTimeNanos() );
+        }
+        assertEquals( threads * waitsPerThread, statistics.waits( NODE ) );
+    }
+
+    @Test
+    public void shouldOnlyKeepWaitTimeHistogramsWhenNotTrackingResources()
+    {
+        // given
+        LockContentionStatistics statistics = new LockContentionStatistics( 0 );
+
+        // when
+        statistics.waited( NODE, 1, micros( 1 ) );
+
+        // then
+        assertEquals( 1, statistics.waits( NODE ) );
+        assertEquals( 0, statistics.mostContended( 10 ).size() );
+    }
+
+    private static void waited( LockContentionStatistics statistics, ResourceTypes type, long id, int times )
+    {
+        for ( int i = 0; i < times; i++ )
+        {
+            statistics.waited( type, id, micros( 1 ) );
+        }
+    }
+
+    private static void assertContended( ContendedResource resource, ResourceTypes type, long id, long waits )
+    {
+        assertEquals( type, resource.resourceType() );
+        assertEquals( id, resource.resourceId() );
+        assertEquals( waits, resource.waits() );
+    }
+
+    private static long micros( long micros )
+    {
+        return TimeUnit.MICROSECONDS.toNanos( micros );
+    }
+}
@@ -0,0 +1,206 @@
+/*
+ * Copyright (c) 2002-2020 "Neo4j,"
+ * Neo4j Sweden AB [http://neo4j.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.storageengine.impl.recordstorage;
+
+import org.eclipse.collections.api.set.primitive.MutableLongSet;
+import org.eclipse.collections.impl.set.mutable.primitive.LongHashSet;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.neo4j.kernel.impl.api.TransactionToApply;
+import org.neo4j.kernel.impl.api.state.TxState;
+import org.neo4j.kernel.impl.core.CacheAccessBackDoor;
+import org.neo4j.kernel.impl.locking.LockService;
+import org.neo4j.kernel.impl.locking.NoOpClient;
+import org.neo4j.kernel.impl.locking.ResourceTypes;
+import org.neo4j.kernel.impl.store.NeoStores;
+import org.neo4j.kernel.impl.store.record.RecordLoad;
+import org.neo4j.kernel.impl.store.record.RelationshipRecord;
+import org.neo4j.kernel.impl.transaction.command.CommandHandlerContract;
+import org.neo4j.kernel.impl.transaction.command.NeoStoreBatchTransactionApplier;
+import org.neo4j.kernel.impl.transaction.log.PhysicalTransactionRepresentation;
+import org.neo4j.kernel.impl.transaction.state.IntegrityValidator;
+import org.neo4j.kernel.impl.transaction.state.RecordChangeSet;
+import org.neo4j.storageengine.api.StorageCommand;
+import org.neo4j.storageengine.api.lock.ResourceLocker;
+import org.neo4j.test.rule.NeoStoresRule;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+public class RelationshipChainLockingTest
+{
+    private static final int DENSE_NODE_THRESHOLD = 10;
+
+    @Rule
+    public final NeoStoresRule neoStoresRule = new NeoStoresRule( getClass() );
+
+    private final List<Object[]> acquiredLocks = new ArrayList<>();
+    private final ResourceLocker recordingLocker =
+            ( tracer, resourceType, resourceIds ) -> acquiredLocks.add( new Object[]{resourceType, resourceIds} );
+
+    @Test
+    public void shouldLockNodesAndThenRelationshipsInSortedOrder() throws Exception
+    {
+        NeoStores neoStores = neoStoresRule.builder().build();
+        TransactionRecordState recordState = newTransactionRecordState( neoStores, new NoOpClient() );
+        for ( long node = 0; node < 4; node++ )
+        {
+            recordState.nodeCreate( node );
+        }
+        recordState.relCreate( 0, 0, 3, 2 );
+        recordState.relCreate( 1, 0, 0, 1 );
+        apply( neoStores, recordState );
+
+        TxState txState = new TxState();
+        txState.relationshipDoCreate( 2, 0, 1, 3 );
+        txState.relationshipDoCreate( 3, 0, 2, 0 );
+        lockRelationshipChains( neoStores, txState );
+
+        assertEquals( 2, acquiredLocks.size() );
+        assertEquals( ResourceTypes.NODE, acquiredLocks.get( 0 )[0] );
+        assertArrayEquals( new long[]{0, 1, 2, 3}, (long[]) acquiredLocks.get( 0 )[1] );
+        assertEquals( ResourceTypes.RELATIONSHIP, acquiredLocks.get( 1 )[0] );
+        assertArrayEquals( new long[]{0, 1}, (long[]) acquiredLocks.get( 1 )[1] );
+    }
+
+    @Test
+    public void shouldNotLockAnythingWithoutRelationshipChanges() throws Exception
+    {
+        NeoStores neoStores = neoStoresRule.builder().build();
+        TxState txState = new TxState();
+        txState.nodeDoCreate( 0 );
+
+        lockRelationshipChains( neoStores, txState );
+
+        assertTrue( acquiredLocks.isEmpty() );
+    }
+
+    @Test
+    public void shouldLockEveryRelationshipThatChangingTheRecordsLocks() throws Exception
+    {
+        NeoStores neoStores = neoStoresRule.builder().build();
+        Random random = new Random( 1 );
+        int nodes = 12;
+        long nextRelationshipId = 0;
+
+        // Some sparse nodes, and a couple of nodes just below the dense node threshold, which new relationships
+        // will turn into dense nodes, and a couple of dense nodes.
+        TransactionRecordState recordState = newTransactionRecordState( neoStores, new NoOpClient() );
+        for ( long node = 0; node < nodes; node++ )
+        {
+            recordState.nodeCreate( node );
+        }
+        for ( long node = 0; node < 4; node++ )
+        {
+            int degree = node < 2 ? DENSE_NODE_THRESHOLD - 2 : DENSE_NODE_THRESHOLD * 2;
+            for ( int i = 0; i < degree; i++ )
+            {
+                long otherNode = 4 + random.nextInt( nodes - 4 );
+                recordState.relCreate( nextRelationshipId++, random.nextInt( 3 ), node, otherNode );
+            }
+        }
+        for ( int i = 0; i < 20; i++ )
+        {
+            recordState.relCreate( nextRelationshipId++, random.nextInt( 3 ), 4 + random.nextInt( nodes - 4 ),
+                    4 + random.nextInt( nodes - 4 ) );
+        }
+        apply( neoStores, recordState );
+
+        // A transaction that creates and deletes relationships all over the place.
+        TxState txState = new TxState();
+        MutableLongSet deleted = new LongHashSet();
+        RelationshipRecord relationship = neoStores.getRelationshipStore().newRecord();
+        for ( int i = 0; i < 10; i++ )
+        {
+            long relationshipId = random.nextInt( (int) nextRelationshipId );
+            if ( deleted.add( relationshipId ) )
+            {
+                neoStores.getRelationshipStore().getRecord( relationshipId, relationship, RecordLoad.NORMAL );
+                txState.relationshipDoDelete( relationshipId, relationship.getType(), relationship.getFirstNode(),
+                        relationship.getSecondNode() );
+            }
+        }
+        for ( int i = 0; i < 10; i++ )
+        {
+            txState.relationshipDoCreate( nextRelationshipId++, random.nextInt( 3 ), random.nextInt( nodes ),
+                    random.nextInt( nodes ) );
+        }
+
+        lockRelationshipChains( neoStores, txState );
+        MutableLongSet lockedUpFront = new LongHashSet( (long[]) acquiredLocks.get( 1 )[1] );
+        acquiredLocks.clear();
+
+        TransactionRecordState changes = newTransactionRecordState( neoStores, recordingLocker );
+        deleted.each( changes::relDelete );
+        txState.addedAndRemovedRelationships().getAdded().each( relationshipId ->
+                txState.relationshipVisit( relationshipId, changes::relCreate ) );
+
+        assertTrue( acquiredLocks.size() > 0 );
+        for ( Object[] lock : acquiredLocks )
+        {
+            assertEquals( ResourceTypes.RELATIONSHIP, lock[0] );
+            for ( long relationshipId : (long[]) lock[1] )
+            {
+                // Nobody else can know about the relationships that this transaction creates.
+                boolean createdInThisTx = txState.relationshipIsAddedInThisTx( relationshipId );
+                assertTrue( "Relationship " + relationshipId + " was not locked up front",
+                        createdInThisTx || lockedUpFront.contains( relationshipId ) );
+            }
+        }
+    }
+
+    private TransactionRecordState newTransactionRecordState( NeoStores neoStores, ResourceLocker locks )
+    {
+        PropertyTraverser propertyTraverser = new PropertyTraverser();
+        RelationshipGroupGetter relationshipGroupGetter =
+                new RelationshipGroupGetter( neoStores.getRelationshipGroupStore() );
+        PropertyDeleter propertyDeleter = new PropertyDeleter( propertyTraverser );
+        return new TransactionRecordState( neoStores, mock( IntegrityValidator.class ),
+                new RecordChangeSet( new Loaders( neoStores ) ), 0, locks,
+                new RelationshipCreator( relationshipGroupGetter, DENSE_NODE_THRESHOLD ),
+                new RelationshipDeleter( relationshipGroupGetter, propertyDeleter ),
+                new PropertyCreator( neoStores.getPropertyStore(), propertyTraverser ),
+                propertyDeleter );
+    }
+
+    private static void apply( NeoStores neoStores, TransactionRecordState recordState ) throws Exception
+    {
+        List<StorageCommand> commands = new ArrayList<>();
+        recordState.extractCommands( commands );
+        PhysicalTransactionRepresentation transaction = new PhysicalTransactionRepresentation( commands );
+        transaction.setHeader( new byte[0], 0, 0, 0, 0, 0, 0 );
+        NeoStoreBatchTransactionApplier applier = new NeoStoreBatchTransactionApplier( neoStores,
+                mock( CacheAccessBackDoor.class ), LockService.NO_LOCK_SERVICE );
+        CommandHandlerContract.apply( applier, new TransactionToApply( transaction ) );
+    }
+
+    private void lockRelationshipChains( NeoStores neoStores, TxState txState )
+    {
+        RelationshipChainLocking chainLocking = new RelationshipChainLocking( neoStores, DENSE_NODE_THRESHOLD );
+        chainLocking.lockRelationshipChains( txState, recordingLocker );
+    }
+}
@@ -38,6 +38,7 @@ public class SimpleTransactionIdStore implements TransactionIdStore
     private final OutOfOrderSequence closedTransactionId = new ArrayQueueOutOfOrderSequence( -1, 100, new long[1] );
     private final AtomicReference<TransactionId> committedTransactionId =
             new AtomicReference<>( new TransactionId( BASE_TX_ID, BASE_TX_CHECKSUM, BASE_TX_COMMIT_TIMESTAMP ) );
+    private final AtomicLong durableTransactionId = new AtomicLong();
     private final long previouslyCommittedTxId;
     private final long initialTransactionChecksum;
     private final long previouslyCommittedTxCommitTimestamp;
@@ -87,6 +88,18 @@ public class SimpleTransactionIdStore implements TransactionIdStore
         return committedTransactionId.get().transactionId();
     }
 
+    @Override
+    public void transactionDurable( long transactionId )
+    {
+        durableTransactionId.accumulateAndGet( transactionId, Math::max );
+    }
+
+    @Override
+    public long getLastDurableTransactionId()
+    {
+        return durableTransactionId.get();
+    }
+
     @Override
     public TransactionId getLastCommittedTransaction()
     {
@@ -124,6 +137,7 @@ public class SimpleTransactionIdStore implements TransactionIdStore
     {
         committingTransactionId.set( transactionId );
         committedTransactionId.set( new TransactionId( transactionId, checksum, commitTimestamp ) );
+        durableTransactionId.set( transactionId );
         closedTransactionId.set( transactionId, new long[]{logVersion, byteOffset} );
     }
 
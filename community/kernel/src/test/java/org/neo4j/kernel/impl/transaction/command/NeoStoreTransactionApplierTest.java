@@ -65,6 +65,7 @@ import org.neo4j.kernel.impl.transaction.command.Command.LabelTokenCommand;
 import org.neo4j.kernel.impl.transaction.command.Command.PropertyKeyTokenCommand;
 import org.neo4j.kernel.impl.transaction.command.Command.RelationshipTypeTokenCommand;
 import org.neo4j.kernel.impl.transaction.command.CommandHandlerContract.ApplyFunction;
+import org.neo4j.storageengine.api.CommandVersion;
 import org.neo4j.storageengine.api.schema.IndexDescriptorFactory;
 import org.neo4j.storageengine.api.schema.StoreIndexDescriptor;
 import org.neo4j.util.concurrent.WorkSync;
@@ -158,6 +159,26 @@ public class NeoStoreTransactionApplierTest
         verify( nodeStore, times( 1 ) ).updateRecord( after );
     }
 
+    @Test
+    public void shouldNotApplyNodeCommandToTheStoreWhenEntityRecordsAreAlreadyApplied() throws Exception
+    {
+        // given
+        final BatchTransactionApplier applier = new NeoStoreBatchTransactionApplier( CommandVersion.AFTER, neoStores,
+                cacheAccess, lockService, true );
+        final NodeRecord after = new NodeRecord( 12 );
+        after.setInUse( true );
+        final Command.NodeCommand command = new Command.NodeCommand( new NodeRecord( 12 ), after );
+
+        // when
+        boolean result = apply( applier, command::handle, transactionToApply );
+
+        // then
+        assertFalse( result );
+
+        verify( lockService, never() ).acquireNodeLock( anyLong(), any() );
+        verify( nodeStore, never() ).updateRecord( any() );
+    }
+
     @Test
     public void shouldApplyNodeCommandToTheStoreAndInvalidateTheCache() throws Exception
     {
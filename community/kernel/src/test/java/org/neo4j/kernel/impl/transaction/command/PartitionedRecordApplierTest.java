@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 2002-2020 "Neo4j,"
+ * Neo4j Sweden AB [http://neo4j.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.transaction.command;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import org.neo4j.kernel.impl.api.TransactionToApply;
+import org.neo4j.kernel.impl.store.NeoStores;
+import org.neo4j.kernel.impl.store.NodeStore;
+import org.neo4j.kernel.impl.store.PropertyStore;
+import org.neo4j.kernel.impl.store.RelationshipStore;
+import org.neo4j.kernel.impl.store.record.NeoStoreRecord;
+import org.neo4j.kernel.impl.store.record.NodeRecord;
+import org.neo4j.kernel.impl.store.record.PropertyRecord;
+import org.neo4j.kernel.impl.store.record.RelationshipRecord;
+import org.neo4j.kernel.impl.transaction.log.PhysicalTransactionRepresentation;
+import org.neo4j.storageengine.api.StorageCommand;
+
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class PartitionedRecordApplierTest
+{
+    private final NeoStores neoStores = mock( NeoStores.class );
+    private final NodeStore nodeStore = mock( NodeStore.class );
+    private final RelationshipStore relationshipStore = mock( RelationshipStore.class );
+    private final PropertyStore propertyStore = mock( PropertyStore.class );
+    private final PartitionedRecordApplier applier = new PartitionedRecordApplier( neoStores, Runnable::run, 4 );
+
+    @Before
+    public void setup()
+    {
+        when( neoStores.getNodeStore() ).thenReturn( nodeStore );
+        when( neoStores.getRelationshipStore() ).thenReturn( relationshipStore );
+        when( neoStores.getPropertyStore() ).thenReturn( propertyStore );
+    }
+
+    @Test
+    public void shouldWriteRecordsOfTransactionsTouchingDifferentEntitiesInOneRun() throws Exception
+    {
+        // given
+        Command.NodeCommand node = nodeCommand( 1 );
+        Command.RelationshipCommand relationship = relationshipCommand( 1 );
+        Command.PropertyCommand property = nodePropertyCommand( 5, 2 );
+        TransactionToApply first = batch( transaction( 1, node ), transaction( 2, relationship ), transaction( 3, property ) );
+
+        // when
+        assertNull( applier.apply( first ) );
+
+        // then
+        verify( nodeStore ).updateRecord( node.getAfter() );
+        verify( relationshipStore ).updateRecord( relationship.getAfter() );
+        verify( propertyStore ).updateRecord( property.getAfter() );
+    }
+
+    @Test
+    public void shouldEndRunBeforeTransactionTouchingAnEntityOfThatRun() throws Exception
+    {
+        // given
+        Command.NodeCommand node = nodeCommand( 1 );
+        Command.PropertyCommand property = nodePropertyCommand( 5, 1 );
+        TransactionToApply first = batch( transaction( 1, node ), transaction( 2, property ) );
+
+        // when
+        TransactionToApply endOfRun = (TransactionToApply) applier.apply( first );
+
+        // then
+        assertSame( first.next(), endOfRun );
+        verify( nodeStore ).updateRecord( node.getAfter() );
+        verify( propertyStore, never() ).updateRecord( any() );
+
+        // and when
+        assertNull( applier.apply( endOfRun ) );
+
+        // then
+        verify( propertyStore ).updateRecord( property.getAfter() );
+    }
+
+    @Test
+    public void shouldEndRunBeforeTransactionWritingTheSameRecord() throws Exception
+    {
+        // given
+        Command.NodeCommand first = nodeCommand( 1 );
+        Command.NodeCommand second = nodeCommand( 1 );
+        TransactionToApply batch = batch( transaction( 1, first ), transaction( 2, second ) );
+
+        // when
+        TransactionToApply endOfRun = (TransactionToApply) applier.apply( batch );
+
+        // then
+        assertSame( batch.next(), endOfRun );
+        verify( nodeStore, times( 1 ) ).updateRecord( any() );
+
+        // and when
+        assertNull( applier.apply( endOfRun ) );
+
+        // then
+        verify( nodeStore, times( 2 ) ).updateRecord( any() );
+    }
+
+    @Test
+    public void shouldKeepTransactionsChangingGraphPropertiesInARunOfTheirOwn() throws Exception
+    {
+        // given
+        Command.NeoStoreCommand graphProperties = new Command.NeoStoreCommand( new NeoStoreRecord(), new NeoStoreRecord() );
+        TransactionToApply batch = batch( transaction( 1, nodeCommand( 1 ) ), transaction( 2, graphProperties ),
+                transaction( 3, nodeCommand( 2 ) ) );
+
+        // when
+        TransactionToApply second = (TransactionToApply) applier.apply( batch );
+        TransactionToApply third = (TransactionToApply) applier.apply( second );
+
+        // then
+        assertSame( batch.next(), second );
+        assertSame( second.next(), third );
+        assertNull( applier.apply( third ) );
+    }
+
+    private static Command.NodeCommand nodeCommand( long id )
+    {
+        NodeRecord after = new NodeRecord( id );
+        after.setInUse( true );
+        return new Command.NodeCommand( new NodeRecord( id ), after );
+    }
+
+    private static Command.RelationshipCommand relationshipCommand( long id )
+    {
+        RelationshipRecord after = new RelationshipRecord( id );
+        after.setInUse( true );
+        return new Command.RelationshipCommand( new RelationshipRecord( id ), after );
+    }
+
+    private static Command.PropertyCommand nodePropertyCommand( long id, long nodeId )
+    {
+        PropertyRecord before = new PropertyRecord( id );
+        PropertyRecord after = new PropertyRecord( id );
+        after.setInUse( true );
+        after.setNodeId( nodeId );
+        return new Command.PropertyCommand( before, after );
+    }
+
+    private static TransactionToApply transaction( long txId, StorageCommand... commands )
+    {
+        return new TransactionToApply( new PhysicalTransactionRepresentation( Arrays.asList( commands ) ), txId );
+    }
+
+    private static TransactionToApply batch( TransactionToApply... transactions )
+    {
+        for ( int i = 1; i < transactions.length; i++ )
+        {
+            transactions[i - 1].next( transactions[i] );
+        }
+        return transactions[0];
+    }
+}
@@ -26,9 +26,12 @@ import org.mockito.Mockito;
 
 import java.io.Flushable;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.concurrent.TimeUnit;
 
+import org.neo4j.graphdb.Resource;
 import org.neo4j.kernel.impl.api.TransactionToApply;
 import org.neo4j.kernel.impl.store.record.NodeRecord;
 import org.neo4j.kernel.impl.transaction.CommittedTransactionRepresentation;
@@ -41,6 +44,7 @@ import org.neo4j.kernel.impl.transaction.log.entry.VersionAwareLogEntryReader;
 import org.neo4j.kernel.impl.transaction.log.files.LogFile;
 import org.neo4j.kernel.impl.transaction.log.files.LogFiles;
 import org.neo4j.kernel.impl.transaction.log.files.TransactionLogFiles;
+import org.neo4j.kernel.impl.transaction.log.files.TransactionOffsetIndex;
 import org.neo4j.kernel.impl.transaction.tracing.LogAppendEvent;
 import org.neo4j.kernel.impl.transaction.tracing.LogCheckPointEvent;
 import org.neo4j.kernel.internal.DatabaseHealth;
@@ -54,10 +58,10 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyByte;
-import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.RETURNS_MOCKS;
@@ -150,6 +154,44 @@ public class BatchingTransactionAppenderTest
         assertNull( tx.next() );
     }
 
+    @Test
+    public void shouldAppendChainOfBatchesThatWereSerializedAhead() throws Exception
+    {
+        // GIVEN
+        when( logFile.getWriter() ).thenReturn( channel );
+        TransactionAppender appender = life.add( createTransactionAppender() );
+        when( transactionIdStore.nextCommittingTransactionId() ).thenReturn( 2L, 3L, 4L );
+        TransactionToApply firstBatch = batchOf(
+                transaction( singleCreateNodeCommand( 0 ), new byte[0], 0, 0, 0, 1, 0 ),
+                transaction( singleCreateNodeCommand( 1 ), new byte[0], 0, 0, 0, 1, 0 ) );
+        TransactionToApply secondBatch = batchOf(
+                transaction( singleCreateNodeCommand( 2 ), new byte[0], 0, 0, 0, 1, 0 ) );
+        appender.serialize( firstBatch, logAppendEvent );
+        appender.serialize( secondBatch, logAppendEvent );
+        firstBatch.next().next( secondBatch );
+
+        // WHEN
+        appender.append( firstBatch, logAppendEvent );
+
+        // THEN
+        final LogEntryReader<ReadableLogChannel> logEntryReader = new VersionAwareLogEntryReader<>();
+        try ( PhysicalTransactionCursor<ReadableLogChannel> reader =
+                      new PhysicalTransactionCursor<>( channel, logEntryReader ) )
+        {
+            for ( long txId = 2; txId <= 4; txId++ )
+            {
+                assertTrue( reader.next() );
+                CommittedTransactionRepresentation tx = reader.get();
+                assertEquals( txId, tx.getCommitEntry().getTxId() );
+                assertEquals( singleCreateNodeCommand( txId - 2 ), commandsOf( tx.getTransactionRepresentation() ) );
+            }
+        }
+        for ( TransactionToApply tx = firstBatch; tx != null; tx = tx.next() )
+        {
+            assertNull( tx.serializedTransactions() );
+        }
+    }
+
     @Test
     public void shouldAppendCommittedTransactions() throws Exception
     {
@@ -246,7 +288,7 @@ public class BatchingTransactionAppenderTest
         FlushablePositionAwareChannel channel =
                 spy( new PositionAwarePhysicalFlushableChannel( mock( PhysicalLogVersionedStoreChannel.class ) ) );
         IOException failure = new IOException( failureMessage );
-        when( channel.putInt( anyInt() ) ).thenThrow( failure );
+        doThrow( failure ).when( channel ).put( any( ByteBuffer.class ) );
         when( logFile.getWriter() ).thenReturn( channel );
         when( transactionIdStore.nextCommittingTransactionId() ).thenReturn( txId );
         Mockito.reset( databaseHealth );
@@ -366,7 +408,8 @@ public class BatchingTransactionAppenderTest
         // Given
         BatchingTransactionAppender appender = life.add( createTransactionAppender() );
         when( transactionIdStore.nextCommittingTransactionId() ).thenReturn( 42L );
-        TransactionToApply batch = new TransactionToApply( mock( TransactionRepresentation.class ), 43L );
+        TransactionToApply batch = new TransactionToApply( transaction( singleCreateNodeCommand( 0 ),
+                new byte[0], 0, 0, 0, 1, 0 ), 43L );
 
         // When
         try
@@ -382,6 +425,123 @@ public class BatchingTransactionAppenderTest
 
     }
 
+    @Test
+    public void shouldReportForcesOfTheLogToTheMonitor() throws Exception
+    {
+        // GIVEN
+        when( logFile.getWriter() ).thenReturn( channel );
+        when( transactionIdStore.nextCommittingTransactionId() ).thenReturn( 2L, 3L );
+        BatchingTransactionAppender.Monitor monitor = mock( BatchingTransactionAppender.Monitor.class );
+        TransactionAppender appender = life.add( new BatchingTransactionAppender( logFiles, NO_ROTATION, positionCache,
+                transactionIdStore, BYPASS, databaseHealth, new GroupCommitPolicy( TimeUnit.MILLISECONDS.toNanos( 1 ), 8 ),
+                false, false, TransactionOffsetIndex.NO_INDEX, monitor ) );
+
+        // WHEN
+        appender.append( new TransactionToApply( transaction( singleCreateNodeCommand( 0 ),
+                new byte[0], 0, 0, 0, 1, 0 ) ), logAppendEvent );
+        appender.append( new TransactionToApply( transaction( singleCreateNodeCommand( 1 ),
+                new byte[0], 0, 0, 0, 1, 0 ) ), logAppendEvent );
+
+        // THEN
+        verify( monitor, times( 2 ) ).logForced( eq( 1 ), anyLong() );
+    }
+
+    @Test
+    public void shouldNotForceTheLogOnAppendWhenForcingAsynchronously() throws Exception
+    {
+        // GIVEN
+        FlushablePositionAwareChannel channel = spy( new InMemoryClosableChannel() );
+        Flushable flushable = mock( Flushable.class );
+        doAnswer( invocation ->
+        {
+            invocation.callRealMethod();
+            return flushable;
+        } ).when( channel ).prepareForFlush();
+        when( logFile.getWriter() ).thenReturn( channel );
+        when( transactionIdStore.nextCommittingTransactionId() ).thenReturn( 2L, 3L );
+        BatchingTransactionAppender appender = life.add( new BatchingTransactionAppender( logFiles, NO_ROTATION,
+                positionCache, transactionIdStore, BYPASS, databaseHealth, GroupCommitPolicy.NO_DELAY, true, false,
+                TransactionOffsetIndex.NO_INDEX, mock( BatchingTransactionAppender.Monitor.class ) ) );
+
+        // WHEN
+        appender.append( new TransactionToApply( transaction( singleCreateNodeCommand( 0 ),
+                new byte[0], 0, 0, 0, 1, 0 ) ), logAppendEvent );
+        appender.append( new TransactionToApply( transaction( singleCreateNodeCommand( 1 ),
+                new byte[0], 0, 0, 0, 1, 0 ) ), logAppendEvent );
+
+        // THEN
+        verify( flushable, never() ).flush();
+        verify( transactionIdStore, never() ).transactionDurable( anyLong() );
+
+        // WHEN
+        appender.forceAppendedTransactions();
+
+        // THEN
+        verify( flushable, times( 1 ) ).flush();
+        verify( transactionIdStore, times( 1 ) ).transactionDurable( 3L );
+    }
+
+    @Test
+    public void shouldForceTheLogOnAppendWhileForcingEveryAppend() throws Exception
+    {
+        // GIVEN
+        FlushablePositionAwareChannel channel = spy( new InMemoryClosableChannel() );
+        Flushable flushable = mock( Flushable.class );
+        doAnswer( invocation ->
+        {
+            invocation.callRealMethod();
+            return flushable;
+        } ).when( channel ).prepareForFlush();
+        when( logFile.getWriter() ).thenReturn( channel );
+        when( transactionIdStore.nextCommittingTransactionId() ).thenReturn( 2L, 3L, 4L );
+        when( transactionIdStore.getLastDurableTransactionId() ).thenReturn( 1L );
+        BatchingTransactionAppender appender = life.add( new BatchingTransactionAppender( logFiles, NO_ROTATION,
+                positionCache, transactionIdStore, BYPASS, databaseHealth, GroupCommitPolicy.NO_DELAY, true, false,
+                TransactionOffsetIndex.NO_INDEX, mock( BatchingTransactionAppender.Monitor.class ) ) );
+        appender.append( new TransactionToApply( transaction( singleCreateNodeCommand( 0 ),
+                new byte[0], 0, 0, 0, 1, 0 ) ), logAppendEvent );
+
+        // WHEN
+        try ( Resource forcingEveryAppend = appender.forceEveryAppend() )
+        {
+            // THEN
+            verify( flushable, times( 1 ) ).flush();
+            verify( transactionIdStore, times( 1 ) ).transactionDurable( 2L );
+
+            // WHEN
+            appender.append( new TransactionToApply( transaction( singleCreateNodeCommand( 1 ),
+                    new byte[0], 0, 0, 0, 1, 0 ) ), logAppendEvent );
+
+            // THEN
+            verify( flushable, times( 2 ) ).flush();
+            verify( transactionIdStore, times( 1 ) ).transactionDurable( 3L );
+        }
+
+        // WHEN
+        appender.append( new TransactionToApply( transaction( singleCreateNodeCommand( 2 ),
+                new byte[0], 0, 0, 0, 1, 0 ) ), logAppendEvent );
+
+        // THEN
+        verify( flushable, times( 2 ) ).flush();
+        verify( transactionIdStore, never() ).transactionDurable( 4L );
+    }
+
+    @Test
+    public void shouldMarkTransactionsDurableWhenForcingTheLog() throws Exception
+    {
+        // GIVEN
+        when( logFile.getWriter() ).thenReturn( channel );
+        when( transactionIdStore.nextCommittingTransactionId() ).thenReturn( 7L );
+        TransactionAppender appender = life.add( createTransactionAppender() );
+
+        // WHEN
+        appender.append( new TransactionToApply( transaction( singleCreateNodeCommand( 0 ),
+                new byte[0], 0, 0, 0, 1, 0 ) ), logAppendEvent );
+
+        // THEN
+        verify( transactionIdStore, times( 1 ) ).transactionDurable( 7L );
+    }
+
     private BatchingTransactionAppender createTransactionAppender()
     {
         return new BatchingTransactionAppender( logFiles, NO_ROTATION, positionCache, transactionIdStore, BYPASS, databaseHealth );
@@ -396,6 +556,17 @@ public class BatchingTransactionAppenderTest
         return tx;
     }
 
+    private static Collection<StorageCommand> commandsOf( TransactionRepresentation transaction ) throws IOException
+    {
+        Collection<StorageCommand> commands = new ArrayList<>();
+        transaction.accept( command ->
+        {
+            commands.add( command );
+            return false;
+        } );
+        return commands;
+    }
+
     private Collection<StorageCommand> singleCreateNodeCommand( long id )
     {
         Collection<StorageCommand> commands = new ArrayList<>();
@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2002-2020 "Neo4j,"
+ * Neo4j Sweden AB [http://neo4j.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.transaction.log;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class GroupCommitPolicyTest
+{
+    @Test
+    public void shouldNeverDelayWithoutMaxDelay()
+    {
+        GroupCommitPolicy policy = GroupCommitPolicy.NO_DELAY;
+        policy.forced( 10, 2_000_000 );
+        assertEquals( 0, policy.delayNanos() );
+    }
+
+    @Test
+    public void shouldNotDelayLoneCommitters()
+    {
+        GroupCommitPolicy policy = new GroupCommitPolicy( 1_000_000, 16 );
+        assertEquals( 0, policy.delayNanos() );
+        policy.forced( 1, 2_000_000 );
+        assertEquals( 0, policy.delayNanos() );
+    }
+
+    @Test
+    public void shouldDelayByAFractionOfTheForceLatency()
+    {
+        GroupCommitPolicy policy = new GroupCommitPolicy( 1_000_000, 16 );
+        policy.forced( 4, 2_000_000 );
+        assertEquals( 500_000, policy.delayNanos() );
+    }
+
+    @Test
+    public void shouldNotDelayLongerThanMaxDelay()
+    {
+        GroupCommitPolicy policy = new GroupCommitPolicy( 100_000, 16 );
+        policy.forced( 4, 2_000_000 );
+        assertEquals( 100_000, policy.delayNanos() );
+    }
+
+    @Test
+    public void shouldAdaptToChangingForceLatency()
+    {
+        GroupCommitPolicy policy = new GroupCommitPolicy( 1_000_000, 16 );
+        policy.forced( 4, 2_000_000 );
+        for ( int i = 0; i < 100; i++ )
+        {
+            policy.forced( 4, 40_000 );
+        }
+        assertEquals( 10_000, policy.delayNanos(), 1_000 );
+    }
+
+    @Test
+    public void shouldConsiderBatchFullAtMaxBatchSize()
+    {
+        GroupCommitPolicy policy = new GroupCommitPolicy( 1_000_000, 16 );
+        assertFalse( policy.isBatchFull( 15 ) );
+        assertTrue( policy.isBatchFull( 16 ) );
+    }
+
+    @Test( expected = IllegalArgumentException.class )
+    public void shouldRejectNegativeMaxDelay()
+    {
+        new GroupCommitPolicy( -1, 16 );
+    }
+}
@@ -118,6 +118,42 @@ public class PhysicalFlushableChannelTest
         assertArrayEquals( bytes, writtenBytes );
     }
 
+    @Test
+    public void shouldBeAbleToWriteByteBuffersSmallerAndGreaterThanTheBufferSize() throws IOException
+    {
+        final File firstFile = new File( directory.directory(), "file1" );
+        StoreChannel storeChannel = fileSystemRule.get().open( firstFile, OpenMode.READ_WRITE );
+        PhysicalLogVersionedStoreChannel versionedStoreChannel =
+                new PhysicalLogVersionedStoreChannel( storeChannel, 1, (byte) -1 /* ignored */ );
+        PhysicalFlushableChannel channel = new PhysicalFlushableChannel( versionedStoreChannel );
+
+        int smallLength = 1_000;
+        int largeLength = 1_000_000;
+        byte[] bytes = generateBytes( smallLength + largeLength );
+        ByteBuffer source = ByteBuffer.allocateDirect( bytes.length );
+        source.put( bytes ).flip();
+
+        source.limit( smallLength );
+        channel.put( source );
+        source.limit( smallLength + largeLength );
+        channel.put( source );
+        assertEquals( bytes.length, channel.position() );
+        channel.close();
+
+        byte[] writtenBytes = new byte[bytes.length];
+        try ( InputStream in = new FileInputStream( firstFile ) )
+        {
+            int offset = 0;
+            while ( offset < writtenBytes.length )
+            {
+                offset += in.read( writtenBytes, offset, writtenBytes.length - offset );
+            }
+        }
+
+        assertEquals( 0, source.remaining() );
+        assertArrayEquals( bytes, writtenBytes );
+    }
+
     private byte[] generateBytes( int length )
     {
         Random random = new Random();
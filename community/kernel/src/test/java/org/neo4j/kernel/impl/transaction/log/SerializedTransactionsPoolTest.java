@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2002-2020 "Neo4j,"
+ * Neo4j Sweden AB [http://neo4j.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.transaction.log;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class SerializedTransactionsPoolTest
+{
+    private final SerializedTransactionsPool pool =
+            new SerializedTransactionsPool( 2, false, SerializedTransactions.DEFAULT_MAX_CAPACITY );
+
+    @Test
+    public void shouldReuseReleasedInstances()
+    {
+        SerializedTransactions first = pool.acquire();
+        pool.release( first );
+
+        assertSame( first, pool.acquire() );
+    }
+
+    @Test
+    public void shouldNotHandOutTheSameInstanceTwice()
+    {
+        SerializedTransactions first = pool.acquire();
+        SerializedTransactions second = pool.acquire();
+
+        assertNotSame( first, second );
+    }
+
+    @Test
+    public void shouldOnlyKeepAsManyInstancesAsItsSize()
+    {
+        // given
+        SerializedTransactions first = pool.acquire();
+        SerializedTransactions second = pool.acquire();
+        SerializedTransactions third = pool.acquire();
+
+        // when
+        pool.release( first );
+        pool.release( second );
+        pool.release( third );
+
+        // then
+        SerializedTransactions reacquired1 = pool.acquire();
+        SerializedTransactions reacquired2 = pool.acquire();
+        SerializedTransactions newInstance = pool.acquire();
+        assertSame( first, reacquired1 );
+        assertSame( second, reacquired2 );
+        assertNotSame( third, newInstance );
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2002-2020 "Neo4j,"
+ * Neo4j Sweden AB [http://neo4j.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.transaction.log;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.neo4j.io.ByteUnit;
+import org.neo4j.kernel.impl.store.record.NodeRecord;
+import org.neo4j.kernel.impl.transaction.TransactionRepresentation;
+import org.neo4j.kernel.impl.transaction.command.Command.NodeCommand;
+import org.neo4j.kernel.impl.transaction.log.entry.LogEntry;
+import org.neo4j.kernel.impl.transaction.log.entry.LogEntryByteCodes;
+import org.neo4j.kernel.impl.transaction.log.entry.LogEntryCommand;
+import org.neo4j.kernel.impl.transaction.log.entry.LogEntryReader;
+import org.neo4j.kernel.impl.transaction.log.entry.LogEntryStart;
+import org.neo4j.kernel.impl.transaction.log.entry.VersionAwareLogEntryReader;
+import org.neo4j.storageengine.api.StorageCommand;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class SerializedTransactionsTest
+{
+    private final LogEntryReader<ReadableClosablePositionAwareChannel> logEntryReader = new VersionAwareLogEntryReader<>();
+
+    @Test
+    public void shouldSerializeStartEntryAndCommandsOfEachTransaction() throws IOException
+    {
+        // given
+        SerializedTransactions serializedTransactions = new SerializedTransactions( false );
+        List<StorageCommand> first = createNodeCommands( 0, 2 );
+        List<StorageCommand> second = createNodeCommands( 2, 3 );
+
+        // when
+        assertTrue( serializedTransactions.serialize( transaction( first, 1 ) ) );
+        assertTrue( serializedTransactions.serialize( transaction( second, 2 ) ) );
+
+        // then
+        assertEquals( first, readTransaction( serializedTransactions.transaction( 0 ), 1 ) );
+        assertEquals( second, readTransaction( serializedTransactions.transaction( 1 ), 2 ) );
+    }
+
+    @Test
+    public void shouldGrowToFitTransactionsLargerThanTheInitialCapacity() throws IOException
+    {
+        // given
+        SerializedTransactions serializedTransactions = new SerializedTransactions( false );
+        List<StorageCommand> small = createNodeCommands( 0, 1 );
+        List<StorageCommand> large = createNodeCommands( 1, 5_000 );
+
+        // when
+        assertTrue( serializedTransactions.serialize( transaction( small, 1 ) ) );
+        assertTrue( serializedTransactions.serialize( transaction( large, 2 ) ) );
+
+        // then
+        ByteBuffer largeBytes = serializedTransactions.transaction( 1 );
+        assertTrue( largeBytes.remaining() > ByteUnit.kibiBytes( 32 ) );
+        assertEquals( small, readTransaction( serializedTransactions.transaction( 0 ), 1 ) );
+        assertEquals( large, readTransaction( largeBytes, 2 ) );
+    }
+
+    @Test
+    public void shouldNotSerializeTransactionsThatDoNotFitInTheMaximumCapacity() throws IOException
+    {
+        // given
+        SerializedTransactions serializedTransactions = new SerializedTransactions( false, (int) ByteUnit.kibiBytes( 4 ) );
+        List<StorageCommand> before = createNodeCommands( 0, 1 );
+        List<StorageCommand> oversized = createNodeCommands( 1, 1_000 );
+        List<StorageCommand> after = createNodeCommands( 1_001, 1 );
+
+        // when
+        assertTrue( serializedTransactions.serialize( transaction( before, 1 ) ) );
+        assertFalse( serializedTransactions.serialize( transaction( oversized, 2 ) ) );
+        assertTrue( serializedTransactions.serialize( transaction( after, 3 ) ) );
+
+        // then
+        assertTrue( serializedTransactions.isSerialized( 0 ) );
+        assertFalse( serializedTransactions.isSerialized( 1 ) );
+        assertTrue( serializedTransactions.isSerialized( 2 ) );
+        assertEquals( 0, serializedTransactions.transaction( 1 ).remaining() );
+        assertEquals( before, readTransaction( serializedTransactions.transaction( 0 ), 1 ) );
+        assertEquals( after, readTransaction( serializedTransactions.transaction( 2 ), 3 ) );
+    }
+
+    @Test
+    public void shouldSerializeTransactionsAgainAfterClear() throws IOException
+    {
+        // given
+        SerializedTransactions serializedTransactions = new SerializedTransactions( false );
+        assertTrue( serializedTransactions.serialize( transaction( createNodeCommands( 0, 5_000 ), 1 ) ) );
+
+        // when
+        serializedTransactions.clear();
+        List<StorageCommand> commands = createNodeCommands( 5_000, 2 );
+        assertTrue( serializedTransactions.serialize( transaction( commands, 2 ) ) );
+
+        // then
+        assertEquals( commands, readTransaction( serializedTransactions.transaction( 0 ), 2 ) );
+    }
+
+    private List<StorageCommand> readTransaction( ByteBuffer bytes, long latestCommittedTxWhenStarted )
+            throws IOException
+    {
+        byte[] array = new byte[bytes.remaining()];
+        bytes.get( array );
+        InMemoryClosableChannel channel = new InMemoryClosableChannel( array, true );
+
+        LogEntry start = logEntryReader.readLogEntry( channel );
+        assertEquals( LogEntryByteCodes.TX_START, start.getType() );
+        assertEquals( latestCommittedTxWhenStarted, start.<LogEntryStart>as().getLastCommittedTxWhenTransactionStarted() );
+        List<StorageCommand> commands = new ArrayList<>();
+        LogEntry entry;
+        while ( (entry = logEntryReader.readLogEntry( channel )) != null )
+        {
+            commands.add( entry.<LogEntryCommand>as().getCommand() );
+        }
+        assertNull( logEntryReader.readLogEntry( channel ) );
+        return commands;
+    }
+
+    private static TransactionRepresentation transaction( List<StorageCommand> commands, long latestCommittedTxWhenStarted )
+    {
+        PhysicalTransactionRepresentation transaction = new PhysicalTransactionRepresentation( commands );
+        transaction.setHeader( new byte[0], 0, 0, 0, latestCommittedTxWhenStarted, 0, -1 );
+        return transaction;
+    }
+
+    private static List<StorageCommand> createNodeCommands( long firstId, int count )
+    {
+        List<StorageCommand> commands = new ArrayList<>();
+        for ( long id = firstId; id < firstId + count; id++ )
+        {
+            NodeRecord after = new NodeRecord( id );
+            after.setInUse( true );
+            commands.add( new NodeCommand( new NodeRecord( id ), after ) );
+        }
+        return commands;
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2002-2020 "Neo4j,"
+ * Neo4j Sweden AB [http://neo4j.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.transaction.log.entry;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.neo4j.kernel.impl.store.record.NodeRecord;
+import org.neo4j.kernel.impl.transaction.command.Command.NodeCommand;
+import org.neo4j.kernel.impl.transaction.log.InMemoryClosableChannel;
+import org.neo4j.kernel.impl.transaction.log.LogEntryCursor;
+import org.neo4j.kernel.impl.transaction.log.PhysicalTransactionRepresentation;
+import org.neo4j.kernel.impl.transaction.log.ReadableClosablePositionAwareChannel;
+import org.neo4j.storageengine.api.StorageCommand;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CompressingLogEntryWriterTest
+{
+    private final LogEntryReader<ReadableClosablePositionAwareChannel> logEntryReader = new VersionAwareLogEntryReader<>();
+
+    @Test
+    public void shouldWriteCommandsOfLargeTransactionsCompressed() throws IOException
+    {
+        // given
+        InMemoryClosableChannel channel = new InMemoryClosableChannel( 100_000 );
+        List<StorageCommand> commands = createNodeCommands( 100 );
+
+        // when
+        writeTransaction( new CompressingLogEntryWriter( channel ), commands, 1 );
+
+        // then
+        assertEquals( LogEntryByteCodes.TX_START, logEntryReader.readLogEntry( channel ).getType() );
+        LogEntry compressed = logEntryReader.readLogEntry( channel );
+        assertTrue( compressed instanceof LogEntryCompressedCommands );
+        assertEquals( LogEntryVersion.COMPRESSED, compressed.getVersion() );
+        assertEquals( commands, commandsOf( compressed.<LogEntryCompressedCommands>as().getCommands() ) );
+        assertEquals( LogEntryByteCodes.TX_COMMIT, logEntryReader.readLogEntry( channel ).getType() );
+    }
+
+    @Test
+    public void shouldWriteCommandsOfSmallTransactionsUncompressed() throws IOException
+    {
+        // given
+        InMemoryClosableChannel channel = new InMemoryClosableChannel();
+        List<StorageCommand> commands = createNodeCommands( 1 );
+
+        // when
+        writeTransaction( new CompressingLogEntryWriter( channel ), commands, 1 );
+
+        // then
+        assertEquals( LogEntryByteCodes.TX_START, logEntryReader.readLogEntry( channel ).getType() );
+        LogEntry command = logEntryReader.readLogEntry( channel );
+        assertTrue( command instanceof LogEntryCommand );
+        assertEquals( LogEntryVersion.CURRENT, command.getVersion() );
+        assertEquals( LogEntryByteCodes.TX_COMMIT, logEntryReader.readLogEntry( channel ).getType() );
+    }
+
+    @Test
+    public void shouldExpandCompressedCommandsWhenReadThroughCursor() throws IOException
+    {
+        // given
+        InMemoryClosableChannel channel = new InMemoryClosableChannel( 100_000 );
+        CompressingLogEntryWriter writer = new CompressingLogEntryWriter( channel );
+        List<StorageCommand> largeTransaction = createNodeCommands( 50 );
+        List<StorageCommand> smallTransaction = createNodeCommands( 1 );
+        writeTransaction( writer, largeTransaction, 1 );
+        writeTransaction( writer, smallTransaction, 2 );
+
+        // when
+        List<LogEntry> entries = new ArrayList<>();
+        try ( LogEntryCursor cursor = new LogEntryCursor( logEntryReader, channel ) )
+        {
+            while ( cursor.next() )
+            {
+                entries.add( cursor.get() );
+            }
+        }
+
+        // then
+        assertEquals( 2 + largeTransaction.size() + 2 + smallTransaction.size(), entries.size() );
+        List<StorageCommand> commands = new ArrayList<>();
+        for ( LogEntry entry : entries )
+        {
+            assertFalse( entry instanceof LogEntryCompressedCommands );
+            if ( entry instanceof LogEntryCommand )
+            {
+                commands.add( entry.<LogEntryCommand>as().getCommand() );
+            }
+        }
+        List<StorageCommand> expected = new ArrayList<>( largeTransaction );
+        expected.addAll( smallTransaction );
+        assertEquals( expected, commands );
+    }
+
+    private static void writeTransaction( LogEntryWriter writer, List<StorageCommand> commands, long txId )
+            throws IOException
+    {
+        PhysicalTransactionRepresentation transaction = new PhysicalTransactionRepresentation( commands );
+        transaction.setHeader( new byte[0], 0, 0, 0, txId - 1, 0, -1 );
+        writer.writeStartEntry( 0, 0, 0, txId - 1, new byte[0] );
+        writer.serialize( transaction );
+        writer.writeCommitEntry( txId, 0 );
+    }
+
+    private static List<StorageCommand> commandsOf( List<LogEntryCommand> entries )
+    {
+        List<StorageCommand> commands = new ArrayList<>();
+        for ( LogEntryCommand entry : entries )
+        {
+            commands.add( entry.getCommand() );
+        }
+        return commands;
+    }
+
+    private static List<StorageCommand> createNodeCommands( int count )
+    {
+        List<StorageCommand> commands = new ArrayList<>();
+        for ( int id = 0; id < count; id++ )
+        {
+            NodeRecord after = new NodeRecord( id );
+            after.setInUse( true );
+            commands.add( new NodeCommand( new NodeRecord( id ), after ) );
+        }
+        return commands;
+    }
+}
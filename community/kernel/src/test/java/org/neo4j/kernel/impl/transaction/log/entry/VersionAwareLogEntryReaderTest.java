@@ -29,6 +29,7 @@ import org.neo4j.kernel.impl.transaction.command.Command;
 import org.neo4j.kernel.impl.transaction.command.NeoCommandType;
 import org.neo4j.kernel.impl.transaction.log.InMemoryClosableChannel;
 import org.neo4j.kernel.impl.transaction.log.LogPosition;
+import org.neo4j.kernel.impl.transaction.log.LogPositionMarker;
 import org.neo4j.kernel.impl.transaction.log.ReadableClosablePositionAwareChannel;
 
 import static java.lang.System.currentTimeMillis;
@@ -156,6 +157,44 @@ public class VersionAwareLogEntryReaderTest
         assertNull( logEntry );
     }
 
+    @Test
+    public void shouldReturnNullWhenReachingZeroFilledPreallocatedSpace() throws IOException
+    {
+        // given
+        InMemoryClosableChannel channel = new InMemoryClosableChannel();
+        LogEntryWriter writer = new LogEntryWriter( channel.writer() );
+        writer.writeCommitEntry( 42, currentTimeMillis() );
+        for ( int i = 0; i < 16; i++ )
+        {
+            channel.put( (byte) 0 );
+        }
+
+        // when
+        LogEntryCommit commit = logEntryReader.readLogEntry( channel.reader() ).as();
+        LogPositionMarker endOfCommit = channel.reader().getCurrentPosition( new LogPositionMarker() );
+        LogEntry logEntry = logEntryReader.readLogEntry( channel.reader() );
+
+        // then
+        assertEquals( 42, commit.getTxId() );
+        assertNull( logEntry );
+        assertEquals( endOfCommit.getByteOffset(),
+                channel.reader().getCurrentPosition( new LogPositionMarker() ).getByteOffset() );
+    }
+
+    @Test( expected = UnsupportedLogVersionException.class )
+    public void shouldFailOnZeroBytesThatAreFollowedByMoreEntries() throws IOException
+    {
+        // given
+        InMemoryClosableChannel channel = new InMemoryClosableChannel();
+        LogEntryWriter writer = new LogEntryWriter( channel.writer() );
+        channel.put( (byte) 0 );
+        channel.put( (byte) 0 );
+        writer.writeCommitEntry( 42, currentTimeMillis() );
+
+        // when
+        logEntryReader.readLogEntry( channel.reader() );
+    }
+
     @Test
     public void shouldBeAbleToSkipBadVersionAndTypeBytesInBetweenLogEntries() throws Exception
     {
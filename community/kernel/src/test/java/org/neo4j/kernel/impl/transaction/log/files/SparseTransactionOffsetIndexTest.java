@@ -0,0 +1,244 @@
+/*
+ * Copyright (c) 2002-2020 "Neo4j,"
+ * Neo4j Sweden AB [http://neo4j.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.transaction.log.files;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.neo4j.kernel.impl.transaction.log.LogPosition;
+import org.neo4j.test.rule.TestDirectory;
+import org.neo4j.test.rule.fs.DefaultFileSystemRule;
+import org.neo4j.test.rule.fs.FileSystemRule;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class SparseTransactionOffsetIndexTest
+{
+    @Rule
+    public final FileSystemRule fileSystemRule = new DefaultFileSystemRule();
+    @Rule
+    public final TestDirectory testDirectory = TestDirectory.testDirectory();
+
+    private static final long INDEX_INTERVAL = 100;
+
+    private final Set<Long> existingLogVersions = new HashSet<>();
+    private SparseTransactionOffsetIndex.TransactionStartCheck transactionStartCheck = ( id, position ) -> true;
+
+    @Test
+    public void mustFindClosestIndexedTransactionInCurrentLogVersion()
+    {
+        // given
+        SparseTransactionOffsetIndex index = createIndex();
+        index.open( 0 );
+
+        // when
+        index.transactionAppended( 10, new LogPosition( 0, 16 ) );
+        index.transactionAppended( 11, new LogPosition( 0, 60 ) );
+        index.transactionAppended( 12, new LogPosition( 0, 116 ) );
+        index.transactionAppended( 13, new LogPosition( 0, 200 ) );
+
+        // then
+        assertNull( index.lookup( 9, 0 ) );
+        assertEquals( new LogPosition( 0, 16 ), index.lookup( 10, 0 ) );
+        assertEquals( new LogPosition( 0, 16 ), index.lookup( 11, 0 ) );
+        assertEquals( new LogPosition( 0, 116 ), index.lookup( 12, 0 ) );
+        assertEquals( new LogPosition( 0, 116 ), index.lookup( 13, 0 ) );
+        assertEquals( new LogPosition( 0, 116 ), index.lookup( 100, 0 ) );
+        assertNull( index.lookup( 12, 1 ) );
+    }
+
+    @Test
+    public void mustFindIndexedTransactionsOfRotatedLogVersionFromItsIndexFile() throws IOException
+    {
+        // given
+        existingLogVersions.add( 0L );
+        SparseTransactionOffsetIndex index = createIndex();
+        index.open( 0 );
+        index.transactionAppended( 10, new LogPosition( 0, 16 ) );
+        index.transactionAppended( 11, new LogPosition( 0, 200 ) );
+
+        // when
+        index.close( 0 );
+        index.transactionAppended( 12, new LogPosition( 1, 16 ) );
+
+        // then
+        assertEquals( new LogPosition( 0, 200 ), index.lookup( 11, 0 ) );
+        assertEquals( new LogPosition( 1, 16 ), index.lookup( 12, 1 ) );
+        assertEquals( new LogPosition( 0, 200 ), createIndex().lookup( 11, 0 ) );
+    }
+
+    @Test
+    public void mustContinueIndexOfCurrentLogVersionAfterRestart() throws IOException
+    {
+        // given
+        existingLogVersions.add( 3L );
+        SparseTransactionOffsetIndex index = createIndex();
+        index.open( 3 );
+        index.transactionAppended( 10, new LogPosition( 3, 16 ) );
+        index.close( 3 );
+
+        // when
+        SparseTransactionOffsetIndex restarted = createIndex();
+        restarted.open( 3 );
+        restarted.transactionAppended( 11, new LogPosition( 3, 300 ) );
+
+        // then
+        assertEquals( new LogPosition( 3, 16 ), restarted.lookup( 10, 3 ) );
+        assertEquals( new LogPosition( 3, 300 ), restarted.lookup( 11, 3 ) );
+    }
+
+    @Test
+    public void mustDeleteIndexFilesOfPrunedLogVersions() throws IOException
+    {
+        // given
+        existingLogVersions.add( 0L );
+        existingLogVersions.add( 1L );
+        SparseTransactionOffsetIndex index = createIndex();
+        index.transactionAppended( 10, new LogPosition( 0, 16 ) );
+        index.close( 0 );
+        index.transactionAppended( 11, new LogPosition( 1, 16 ) );
+        index.close( 1 );
+        File firstIndexFile = helper().getOffsetIndexFileForVersion( 0 );
+        assertTrue( fileSystemRule.fileExists( firstIndexFile ) );
+
+        // when
+        existingLogVersions.remove( 0L );
+        existingLogVersions.add( 2L );
+        index.transactionAppended( 12, new LogPosition( 2, 16 ) );
+        index.close( 2 );
+
+        // then
+        assertFalse( fileSystemRule.fileExists( firstIndexFile ) );
+        assertNull( index.lookup( 10, 0 ) );
+        assertEquals( new LogPosition( 1, 16 ), index.lookup( 11, 1 ) );
+    }
+
+    @Test
+    public void mustNotReturnPositionThatNoLongerStartsIndexedTransaction()
+    {
+        // given
+        List<Long> checkedTransactionIds = new ArrayList<>();
+        transactionStartCheck = ( id, position ) ->
+        {
+            checkedTransactionIds.add( id );
+            return position.getByteOffset() != 116;
+        };
+        SparseTransactionOffsetIndex index = createIndex();
+        index.open( 0 );
+        index.transactionAppended( 10, new LogPosition( 0, 16 ) );
+        index.transactionAppended( 12, new LogPosition( 0, 116 ) );
+
+        // when
+        LogPosition validPosition = index.lookup( 11, 0 );
+        LogPosition stalePosition = index.lookup( 13, 0 );
+
+        // then
+        assertEquals( new LogPosition( 0, 16 ), validPosition );
+        assertNull( stalePosition );
+        assertEquals( Arrays.asList( 10L, 12L ), checkedTransactionIds );
+    }
+
+    @Test
+    public void mustDeleteIndexFileOfLogVersionThatIsAppendedToAgain() throws IOException
+    {
+        // given
+        existingLogVersions.add( 0L );
+        existingLogVersions.add( 1L );
+        SparseTransactionOffsetIndex index = createIndex();
+        index.transactionAppended( 10, new LogPosition( 1, 16 ) );
+        index.close( 1 );
+        File indexFile = helper().getOffsetIndexFileForVersion( 1 );
+        assertTrue( fileSystemRule.fileExists( indexFile ) );
+
+        // when
+        SparseTransactionOffsetIndex restarted = createIndex();
+        restarted.open( 0 );
+        restarted.transactionAppended( 20, new LogPosition( 1, 16 ) );
+
+        // then
+        assertFalse( fileSystemRule.fileExists( indexFile ) );
+        assertEquals( new LogPosition( 1, 16 ), restarted.lookup( 20, 1 ) );
+        assertNull( restarted.lookup( 10, 1 ) );
+    }
+
+    @Test
+    public void mustForgetTruncatedPartOfTheLog() throws IOException
+    {
+        // given
+        existingLogVersions.add( 0L );
+        existingLogVersions.add( 1L );
+        SparseTransactionOffsetIndex index = createIndex();
+        index.open( 0 );
+        index.transactionAppended( 10, new LogPosition( 0, 16 ) );
+        index.transactionAppended( 11, new LogPosition( 0, 200 ) );
+        index.close( 0 );
+        index.transactionAppended( 12, new LogPosition( 1, 16 ) );
+        index.close( 1 );
+
+        // when
+        index.truncated( new LogPosition( 0, 200 ) );
+
+        // then
+        assertFalse( fileSystemRule.fileExists( helper().getOffsetIndexFileForVersion( 0 ) ) );
+        assertFalse( fileSystemRule.fileExists( helper().getOffsetIndexFileForVersion( 1 ) ) );
+        assertNull( index.lookup( 11, 0 ) );
+        assertNull( index.lookup( 12, 1 ) );
+    }
+
+    @Test
+    public void mustDropIndexedTransactionsThatAreAppendedAgain()
+    {
+        // given
+        SparseTransactionOffsetIndex index = createIndex();
+        index.open( 0 );
+        index.transactionAppended( 10, new LogPosition( 0, 16 ) );
+        index.transactionAppended( 11, new LogPosition( 0, 200 ) );
+        index.transactionAppended( 12, new LogPosition( 0, 400 ) );
+
+        // when
+        index.transactionAppended( 11, new LogPosition( 0, 150 ) );
+
+        // then
+        assertEquals( new LogPosition( 0, 150 ), index.lookup( 11, 0 ) );
+        assertEquals( new LogPosition( 0, 150 ), index.lookup( 12, 0 ) );
+    }
+
+    private SparseTransactionOffsetIndex createIndex()
+    {
+        return new SparseTransactionOffsetIndex( fileSystemRule.get(), helper(), existingLogVersions::contains,
+                ( id, position ) -> transactionStartCheck.isStartOf( id, position ), INDEX_INTERVAL );
+    }
+
+    private TransactionLogFilesHelper helper()
+    {
+        return new TransactionLogFilesHelper( testDirectory.directory(), TransactionLogFiles.DEFAULT_NAME );
+    }
+}
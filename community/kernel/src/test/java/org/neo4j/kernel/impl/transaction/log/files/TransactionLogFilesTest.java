@@ -24,10 +24,15 @@ import org.junit.Test;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.neo4j.graphdb.factory.GraphDatabaseSettings;
+import org.neo4j.io.ByteUnit;
+import org.neo4j.io.fs.StoreChannel;
 import org.neo4j.io.layout.DatabaseLayout;
+import org.neo4j.kernel.configuration.Config;
 import org.neo4j.kernel.impl.transaction.SimpleLogVersionRepository;
 import org.neo4j.kernel.impl.transaction.SimpleTransactionIdStore;
 import org.neo4j.test.rule.TestDirectory;
@@ -40,6 +45,7 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
+import static org.neo4j.kernel.impl.transaction.log.entry.LogHeader.LOG_HEADER_SIZE;
 
 public class TransactionLogFilesTest
 {
@@ -47,6 +53,8 @@ public class TransactionLogFilesTest
     public final FileSystemRule fileSystemRule = new DefaultFileSystemRule();
     @Rule
     public final TestDirectory testDirectory = TestDirectory.testDirectory();
+    private static final long ROTATION_THRESHOLD = ByteUnit.mebiBytes( 1 );
+
     private final String filename = "filename";
 
     @Test
@@ -186,6 +194,85 @@ public class TransactionLogFilesTest
         assertTrue( logFiles.isLogFile( new File( "filename.17" ) ) );
     }
 
+    @Test
+    public void shouldRotateIntoPreallocatedLogFileAndTruncateItOnShutdown() throws Throwable
+    {
+        // given
+        LogFiles logFiles = createPreallocatingLogFiles();
+        logFiles.init();
+        logFiles.start();
+        logFiles.preallocateSpareLogFile();
+
+        // when
+        LogFile logFile = logFiles.getLogFile();
+        logFile.rotate();
+
+        // then
+        File rotatedTo = logFiles.getLogFileForVersion( 1 );
+        assertEquals( ROTATION_THRESHOLD, fileSystemRule.getFileSize( rotatedTo ) );
+        assertFalse( logFiles.hasAnyEntries( 1 ) );
+
+        // and when
+        logFile.getWriter().putLong( 1 );
+        logFiles.shutdown();
+
+        // then
+        assertEquals( LOG_HEADER_SIZE + Long.BYTES, fileSystemRule.getFileSize( rotatedTo ) );
+    }
+
+    @Test
+    public void shouldRecycleOnePrunedLogFileIntoZeroFilledSpare() throws Throwable
+    {
+        // given
+        LogFiles logFiles = createPreallocatingLogFiles();
+        logFiles.init();
+        logFiles.start();
+        File first = createFileWithJunk( "first" );
+        File second = createFileWithJunk( "second" );
+
+        // when
+        boolean firstRecycled = logFiles.recycleLogFile( first );
+        boolean secondRecycled = logFiles.recycleLogFile( second );
+        logFiles.getLogFile().rotate();
+
+        // then
+        assertTrue( firstRecycled );
+        assertFalse( fileSystemRule.fileExists( first ) );
+        assertFalse( secondRecycled );
+        assertTrue( fileSystemRule.fileExists( second ) );
+        assertEquals( ROTATION_THRESHOLD, fileSystemRule.getFileSize( logFiles.getLogFileForVersion( 1 ) ) );
+        assertFalse( logFiles.hasAnyEntries( 1 ) );
+        logFiles.shutdown();
+    }
+
+    private File createFileWithJunk( String name ) throws IOException
+    {
+        File file = testDirectory.file( name );
+        try ( StoreChannel channel = fileSystemRule.create( file ) )
+        {
+            ByteBuffer junk = ByteBuffer.allocate( 1024 );
+            while ( junk.hasRemaining() )
+            {
+                junk.put( (byte) 0x7F );
+            }
+            junk.flip();
+            channel.writeAll( junk );
+        }
+        return file;
+    }
+
+    private LogFiles createPreallocatingLogFiles() throws IOException
+    {
+        return LogFilesBuilder
+                .builder( testDirectory.databaseLayout(), fileSystemRule )
+                .withLogFileName( filename )
+                .withTransactionIdStore( new SimpleTransactionIdStore() )
+                .withLogVersionRepository( new SimpleLogVersionRepository() )
+                .withConfig( Config.defaults( GraphDatabaseSettings.tx_log_preallocation, "true" ) )
+                .withRotationThreshold( ROTATION_THRESHOLD )
+                .build();
+    }
+
     private LogFiles createLogFiles() throws IOException
     {
         return LogFilesBuilder
@@ -24,6 +24,7 @@ import org.junit.Test;
 import org.mockito.InOrder;
 
 import java.io.File;
+import java.io.IOException;
 import java.time.Clock;
 import java.util.stream.LongStream;
 
@@ -41,6 +42,8 @@ import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 
@@ -79,6 +82,19 @@ public class LogPruningTest
         verifyNoMoreInteractions( fs );
     }
 
+    @Test
+    public void mustNotDeleteLogFilesThatWereRecycled() throws IOException
+    {
+        when( factory.strategyFromConfigValue( eq( fs ), eq( logFiles ), eq( clock ), anyString() ) )
+                .thenReturn( upTo -> LongStream.range( 3, upTo ) );
+        when( logFiles.recycleLogFile( new File( "3" ) ) ).thenReturn( true );
+        LogPruning pruning = new LogPruningImpl( fs, logFiles, logProvider, factory, clock, config );
+        pruning.pruneLogs( 5 );
+        verify( fs, never() ).deleteFile( new File( "3" ) );
+        verify( fs ).deleteFile( new File( "4" ) );
+        verify( logFiles ).preallocateSpareLogFile();
+    }
+
     @Test
     public void mustHaveLogFilesToPruneIfStrategyFindsFiles()
     {
@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2002-2020 "Neo4j,"
+ * Neo4j Sweden AB [http://neo4j.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.util.collection;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import org.neo4j.memory.LocalMemoryTracker;
+import org.neo4j.memory.MemoryAllocationTracker;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.neo4j.kernel.impl.util.collection.LongArena.MAX_ARRAY_LENGTH;
+import static org.neo4j.kernel.impl.util.collection.LongArena.NO_ARRAY;
+
+class LongArenaTest
+{
+    private static final int CHUNK_SIZE = MAX_ARRAY_LENGTH * Long.BYTES;
+
+    private final CachingOffHeapBlockAllocator blockAllocator = new CachingOffHeapBlockAllocator();
+    private final MemoryAllocationTracker memoryTracker = new LocalMemoryTracker();
+    private final LongArena arena =
+            new LongArena( CHUNK_SIZE, new OffHeapMemoryAllocator( memoryTracker, blockAllocator ) );
+
+    @AfterEach
+    void tearDown()
+    {
+        arena.close();
+        assertEquals( 0, memoryTracker.usedDirectMemory(), "Leaking memory" );
+        blockAllocator.release();
+    }
+
+    @Test
+    void keepValuesOfArraysAcrossChunks()
+    {
+        final long[] arrays = new long[100];
+        for ( int i = 0; i < arrays.length; i++ )
+        {
+            arrays[i] = arena.allocate( 5 );
+            assertNotEquals( NO_ARRAY, arrays[i] );
+            for ( int j = 0; j < 5; j++ )
+            {
+                arena.set( arrays[i], j, i * 10 + j );
+            }
+        }
+
+        for ( int i = 0; i < arrays.length; i++ )
+        {
+            for ( int j = 0; j < 5; j++ )
+            {
+                assertEquals( i * 10 + j, arena.get( arrays[i], j ) );
+            }
+        }
+        assertTrue( memoryTracker.usedDirectMemory() >= 4 * CHUNK_SIZE );
+    }
+
+    @Test
+    void reuseFreedArraysOfSameLength()
+    {
+        final long first = arena.allocate( 3 );
+        final long second = arena.allocate( 3 );
+        arena.free( first, 3 );
+        arena.free( second, 3 );
+
+        assertNotEquals( first, arena.allocate( 2 ) );
+        assertEquals( second, arena.allocate( 3 ) );
+        assertEquals( first, arena.allocate( 3 ) );
+    }
+
+    @Test
+    void copyArray()
+    {
+        final long from = arena.allocate( 4 );
+        for ( int i = 0; i < 4; i++ )
+        {
+            arena.set( from, i, -i );
+        }
+        final long to = arena.allocate( 8 );
+
+        arena.copy( from, to, 4 );
+
+        for ( int i = 0; i < 4; i++ )
+        {
+            assertEquals( -i, arena.get( to, i ) );
+        }
+    }
+
+    @Test
+    void rejectUnsupportedLengths()
+    {
+        assertThrows( IllegalArgumentException.class, () -> arena.allocate( 0 ) );
+        assertThrows( IllegalArgumentException.class, () -> arena.allocate( MAX_ARRAY_LENGTH + 1 ) );
+    }
+
+    @Test
+    void allocateAfterClose()
+    {
+        arena.allocate( 1 );
+        arena.close();
+        assertThrows( IllegalStateException.class, () -> arena.allocate( 1 ) );
+    }
+}
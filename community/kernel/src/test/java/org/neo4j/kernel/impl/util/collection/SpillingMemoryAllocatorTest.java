@@ -0,0 +1,227 @@
+/*
+ * Copyright (c) 2002-2020 "Neo4j,"
+ * Neo4j Sweden AB [http://neo4j.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.util.collection;
+
+import org.eclipse.collections.api.set.primitive.LongSet;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.io.File;
+
+import org.neo4j.io.ByteUnit;
+import org.neo4j.kernel.impl.api.state.TxState;
+import org.neo4j.memory.LocalMemoryTracker;
+import org.neo4j.memory.MemoryAllocationTracker;
+import org.neo4j.test.extension.Inject;
+import org.neo4j.test.extension.TestDirectoryExtension;
+import org.neo4j.test.rule.TestDirectory;
+import org.neo4j.values.storable.Values;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@ExtendWith( TestDirectoryExtension.class )
+class SpillingMemoryAllocatorTest
+{
+    private static final long MAX_OFF_HEAP_MEMORY = ByteUnit.kibiBytes( 4 );
+
+    @Inject
+    private TestDirectory directory;
+
+    private final CachingOffHeapBlockAllocator blockAllocator = new CachingOffHeapBlockAllocator();
+    private final MemoryAllocationTracker memoryTracker = new LocalMemoryTracker();
+    private SpillingMemoryAllocator allocator;
+
+    @BeforeEach
+    void setUp()
+    {
+        final OffHeapMemoryAllocator offHeapAllocator = new OffHeapMemoryAllocator( memoryTracker, blockAllocator );
+        allocator = new SpillingMemoryAllocator( offHeapAllocator, memoryTracker, MAX_OFF_HEAP_MEMORY,
+                directory.directory( "spill" ) );
+    }
+
+    @AfterEach
+    void tearDown()
+    {
+        allocator.close();
+        blockAllocator.release();
+        assertEquals( 0, memoryTracker.usedDirectMemory(), "Native memory is leaking" );
+    }
+
+    @Test
+    void allocateOffHeapWithinBudget()
+    {
+        final Memory memory = allocator.allocate( 1024, true );
+
+        assertTrue( memoryTracker.usedDirectMemory() >= 1024 );
+        assertEquals( 0, allocator.spilledBytes() );
+        assertNull( allocator.spillFile() );
+        memory.free();
+    }
+
+    @Test
+    void spillWhenBudgetIsUsedUp()
+    {
+        final Memory offHeap = allocator.allocate( 3072, true );
+        final long usedOffHeap = memoryTracker.usedDirectMemory();
+
+        final Memory spilled = allocator.allocate( 2048, true );
+
+        assertEquals( usedOffHeap, memoryTracker.usedDirectMemory() );
+        assertTrue( allocator.spilledBytes() >= 2048 );
+        assertTrue( allocator.spillFile().exists() );
+        offHeap.free();
+        spilled.free();
+    }
+
+    @Test
+    void readAndWriteSpilledMemory()
+    {
+        final Memory memory = allocator.allocate( MAX_OFF_HEAP_MEMORY * 2, true );
+        for ( long offset = 0; offset < memory.size(); offset += Long.BYTES )
+        {
+            assertEquals( 0, memory.readLong( offset ) );
+            memory.writeLong( offset, offset * 31 );
+        }
+
+        final Memory copy = memory.copy();
+        memory.clear();
+
+        for ( long offset = 0; offset < memory.size(); offset += Long.BYTES )
+        {
+            assertEquals( 0, memory.readLong( offset ) );
+            assertEquals( offset * 31, copy.readLong( offset ) );
+        }
+        memory.free();
+        copy.free();
+    }
+
+    @Test
+    void reuseFreedSpilledMemory()
+    {
+        final Memory memory = allocator.allocate( MAX_OFF_HEAP_MEMORY * 2, true );
+        memory.writeLong( 0, 42 );
+        memory.free();
+        final long spilledBytes = allocator.spilledBytes();
+
+        final Memory reused = allocator.allocate( MAX_OFF_HEAP_MEMORY * 2, true );
+
+        assertEquals( spilledBytes, allocator.spilledBytes() );
+        assertEquals( 0, reused.readLong( 0 ) );
+        reused.free();
+    }
+
+    @Test
+    void spillAllocationLargerThanExtent()
+    {
+        final long size = ByteUnit.mebiBytes( 16 );
+        final Memory memory = allocator.allocate( size, true );
+        memory.writeLong( 0, 1 );
+        memory.writeLong( size - Long.BYTES, 2 );
+
+        assertEquals( 1, memory.readLong( 0 ) );
+        assertEquals( 2, memory.readLong( size - Long.BYTES ) );
+        assertEquals( size, memory.asByteBuffer().capacity() );
+        memory.free();
+    }
+
+    @Test
+    void deleteSpillFileOnClose()
+    {
+        allocator.allocate( MAX_OFF_HEAP_MEMORY * 2, true ).free();
+        final File spillFile = allocator.spillFile();
+        assertTrue( spillFile.exists() );
+
+        allocator.close();
+
+        assertFalse( spillFile.exists() );
+        assertEquals( 0, allocator.spilledBytes() );
+    }
+
+    @Test
+    void unmapAndDeleteSpillFileOnCloseWhileSpilledMemoryIsStillAllocated()
+    {
+        final Memory small = allocator.allocate( MAX_OFF_HEAP_MEMORY * 2, true );
+        final Memory large = allocator.allocate( ByteUnit.mebiBytes( 16 ), true );
+        final File spillFile = allocator.spillFile();
+
+        allocator.close();
+
+        assertFalse( spillFile.exists() );
+        small.free();
+        large.free();
+        assertEquals( 0, allocator.spilledBytes() );
+    }
+
+    @Test
+    void spillLargeSet()
+    {
+        try ( MutableLinearProbeLongHashSet set = new MutableLinearProbeLongHashSet( allocator ) )
+        {
+            for ( long i = 0; i < 10_000; i++ )
+            {
+                assertTrue( set.add( i * 7 ) );
+            }
+            final LongSet frozen = set.freeze();
+            set.remove( 7 );
+
+            assertTrue( allocator.spilledBytes() > 0 );
+            assertEquals( 9_999, set.size() );
+            assertEquals( 10_000, frozen.size() );
+            assertFalse( set.contains( 7 ) );
+            assertTrue( frozen.contains( 7 ) );
+            for ( long i = 2; i < 10_000; i++ )
+            {
+                assertTrue( set.contains( i * 7 ) );
+                assertFalse( set.contains( i * 7 + 1 ) );
+            }
+        }
+    }
+
+    @Test
+    void spillTransactionState()
+    {
+        final OffHeapCollectionsFactory collectionsFactory =
+                new OffHeapCollectionsFactory( blockAllocator, MAX_OFF_HEAP_MEMORY, directory.directory( "tx-state" ) );
+        final TxState txState = new TxState( collectionsFactory );
+        for ( long nodeId = 0; nodeId < 10_000; nodeId++ )
+        {
+            txState.nodeDoCreate( nodeId );
+            txState.nodeDoAddLabel( 1, nodeId );
+            txState.nodeDoAddProperty( nodeId, 1, Values.stringValue( "value" + nodeId ) );
+        }
+
+        for ( long nodeId = 0; nodeId < 10_000; nodeId++ )
+        {
+            assertTrue( txState.nodeIsAddedInThisTx( nodeId ) );
+            assertTrue( txState.nodesWithLabelChanged( 1 ).isAdded( nodeId ) );
+            assertEquals( Values.stringValue( "value" + nodeId ), txState.getNodeState( nodeId ).propertyValue( 1 ) );
+        }
+        assertEquals( 1, directory.directory( "tx-state" ).list().length );
+
+        collectionsFactory.release();
+        assertEquals( 0, collectionsFactory.getMemoryTracker().usedDirectMemory() );
+        assertEquals( 0, directory.directory( "tx-state" ).list().length );
+    }
+}
@@ -176,6 +176,24 @@ public class MutableLongDiffSetsImplTest
         verifyNoMoreInteractions( collectionsFactory );
     }
 
+    @Test
+    public void doNotCreateSetsForChangesThatCancelOut()
+    {
+        final MutableLongSet set = new LongHashSet();
+        final CollectionsFactory collectionsFactory = mock( CollectionsFactory.class );
+        doReturn( set ).when( collectionsFactory ).newLongSet();
+
+        final MutableLongDiffSetsImpl diffSets = new MutableLongDiffSetsImpl( collectionsFactory );
+        diffSets.add( 1L );
+        assertTrue( diffSets.remove( 1L ) );
+        diffSets.add( 1L );
+
+        assertTrue( diffSets.getRemoved().isEmpty() );
+        assertEquals( newSetWith( 1L ), diffSets.getAdded() );
+        verify( collectionsFactory ).newLongSet();
+        verifyNoMoreInteractions( collectionsFactory );
+    }
+
     private static MutableLongDiffSetsImpl createDiffSet()
     {
         return new MutableLongDiffSetsImpl( OnHeapCollectionsFactory.INSTANCE );
@@ -27,11 +27,14 @@ import org.junit.Test;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 
 import org.neo4j.helpers.ArrayUtil;
 import org.neo4j.io.fs.FileUtils;
+import org.neo4j.io.fs.OpenMode;
+import org.neo4j.io.fs.StoreChannel;
 import org.neo4j.kernel.impl.transaction.SimpleLogVersionRepository;
 import org.neo4j.kernel.impl.transaction.SimpleTransactionIdStore;
 import org.neo4j.kernel.impl.transaction.log.FlushablePositionAwareChannel;
@@ -102,6 +105,26 @@ public class CorruptedLogsTruncatorTest
         assertTrue( ArrayUtil.isEmpty( databaseDirectory.listFiles( File::isDirectory ) ) );
     }
 
+    @Test
+    public void doNotPruneZeroFilledTailOfLog() throws IOException
+    {
+        life.start();
+        generateTransactionLogFiles( logFiles );
+
+        long highestLogVersion = logFiles.getHighestLogVersion();
+        File highestLogFile = logFiles.getHighestLogFile();
+        long endOfEntries = highestLogFile.length();
+        try ( StoreChannel channel = fileSystemRule.open( highestLogFile, OpenMode.READ_WRITE ) )
+        {
+            channel.writeAll( ByteBuffer.allocate( 1024 ), endOfEntries );
+        }
+
+        logPruner.truncate( new LogPosition( highestLogVersion, endOfEntries ) );
+
+        assertEquals( endOfEntries + 1024, highestLogFile.length() );
+        assertTrue( ArrayUtil.isEmpty( databaseDirectory.listFiles( File::isDirectory ) ) );
+    }
+
     @Test
     public void pruneAndArchiveLastLog() throws IOException
     {
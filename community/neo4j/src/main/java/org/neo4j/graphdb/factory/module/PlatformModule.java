@@ -60,6 +60,7 @@ import org.neo4j.kernel.impl.util.collection.CapacityLimitingBlockAllocatorDecor
 import org.neo4j.kernel.impl.util.collection.CollectionsFactorySupplier;
 import org.neo4j.kernel.impl.util.collection.OffHeapBlockAllocator;
 import org.neo4j.kernel.impl.util.collection.OffHeapCollectionsFactory;
+import org.neo4j.kernel.impl.util.collection.SpillingMemoryAllocator;
 import org.neo4j.kernel.info.JvmChecker;
 import org.neo4j.kernel.info.JvmMetadataRepository;
 import org.neo4j.kernel.info.SystemDiagnostics;
@@ -199,7 +200,7 @@ public class PlatformModule
 
         versionContextSupplier = createCursorContextSupplier( config );
 
-        collectionsFactorySupplier = createCollectionsFactorySupplier( config, life );
+        collectionsFactorySupplier = createCollectionsFactorySupplier( config, fileSystem, life );
 
         dependencies.satisfyDependency( versionContextSupplier );
         pageCache = dependencies.satisfyDependency( createPageCache( fileSystem, config, logging, tracers, versionContextSupplier, jobScheduler ) );
@@ -347,7 +348,8 @@ public class PlatformModule
         return pageCache;
     }
 
-    private static CollectionsFactorySupplier createCollectionsFactorySupplier( Config config, LifeSupport life )
+    private static CollectionsFactorySupplier createCollectionsFactorySupplier( Config config, FileSystemAbstraction fileSystem,
+            LifeSupport life )
     {
         final GraphDatabaseSettings.TransactionStateMemoryAllocation allocation = config.get( GraphDatabaseSettings.tx_state_memory_allocation );
         switch ( allocation )
@@ -369,6 +371,24 @@ public class PlatformModule
                 sharedBlockAllocator = allocator;
             }
             life.add( onShutdown( sharedBlockAllocator::release ) );
+            final long maxMemoryPerTransaction = config.get( GraphDatabaseSettings.tx_state_max_off_heap_memory_per_transaction );
+            if ( maxMemoryPerTransaction > 0 )
+            {
+                final File spillDirectory = config.get( GraphDatabaseSettings.tx_state_spill_directory );
+                // spill files are deleted when their transaction ends, anything left over is from an unclean shutdown.
+                // the directory is configurable and may be shared, so leave anything but spill files alone
+                final File[] leftoverSpillFiles = fileSystem.listFiles( spillDirectory, ( directory, name ) ->
+                        name.startsWith( SpillingMemoryAllocator.SPILL_FILE_PREFIX ) &&
+                        name.endsWith( SpillingMemoryAllocator.SPILL_FILE_SUFFIX ) );
+                if ( leftoverSpillFiles != null )
+                {
+                    for ( File leftoverSpillFile : leftoverSpillFiles )
+                    {
+                        fileSystem.deleteFile( leftoverSpillFile );
+                    }
+                }
+                return () -> new OffHeapCollectionsFactory( sharedBlockAllocator, maxMemoryPerTransaction, spillDirectory );
+            }
             return () -> new OffHeapCollectionsFactory( sharedBlockAllocator );
         default:
             throw new IllegalArgumentException( "Unknown transaction state memory allocation value: " + allocation );
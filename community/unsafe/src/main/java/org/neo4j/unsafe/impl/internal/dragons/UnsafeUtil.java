@@ -23,8 +23,10 @@ import sun.misc.Unsafe;
 
 import java.lang.invoke.MethodHandle;
 import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
+import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
@@ -69,6 +71,7 @@ public final class UnsafeUtil
 
     private static final Unsafe unsafe;
     private static final MethodHandle sharedStringConstructor;
+    private static final MethodHandle unmapMethod;
     private static final String allowUnalignedMemoryAccessProperty =
             "org.neo4j.unsafe.impl.internal.dragons.UnsafeUtil.allowUnalignedMemoryAccess";
 
@@ -96,6 +99,7 @@ public final class UnsafeUtil
 
         MethodHandles.Lookup lookup = MethodHandles.lookup();
         sharedStringConstructor = getSharedStringConstructorMethodHandle( lookup );
+        unmapMethod = getUnmapMethodHandle( lookup );
 
         Class<?> dbbClass = null;
         Constructor<?> ctor = null;
@@ -239,6 +243,33 @@ public final class UnsafeUtil
         }
     }
 
+    private static MethodHandle getUnmapMethodHandle( MethodHandles.Lookup lookup )
+    {
+        try
+        {
+            // Java 9 and later.
+            MethodHandle invokeCleaner = lookup.findVirtual( Unsafe.class, "invokeCleaner",
+                    MethodType.methodType( void.class, ByteBuffer.class ) );
+            return invokeCleaner.bindTo( unsafe );
+        }
+        catch ( Exception e )
+        {
+            // Fall through to the Java 8 way of unmapping.
+        }
+        try
+        {
+            Method cleaner = Class.forName( "sun.nio.ch.DirectBuffer" ).getMethod( "cleaner" );
+            Method clean = Class.forName( "sun.misc.Cleaner" ).getMethod( "clean" );
+            MethodHandle cleanHandle = MethodHandles.filterReturnValue(
+                    lookup.unreflect( cleaner ), lookup.unreflect( clean ) );
+            return cleanHandle.asType( MethodType.methodType( void.class, ByteBuffer.class ) );
+        }
+        catch ( Exception e )
+        {
+            return null;
+        }
+    }
+
     /**
      * Get the object-relative field offset.
      */
@@ -997,6 +1028,43 @@ public final class UnsafeUtil
         unsafe.putLong( dbb, directByteBufferAddressOffset, addr );
     }
 
+    /**
+     * @return {@code true} if memory mapped buffers can be unmapped with {@link #unmap(ByteBuffer)} on this JVM.
+     */
+    public static boolean canUnmap()
+    {
+        return unmapMethod != null;
+    }
+
+    /**
+     * Unmap the memory of the given buffer, which must have been returned by
+     * {@link java.nio.channels.FileChannel#map(java.nio.channels.FileChannel.MapMode, long, long)}, and not be a slice
+     * or duplicate of such a buffer.
+     * <p>
+     * Mapped memory is otherwise only unmapped when the buffer is garbage collected, and until then the file it maps
+     * keeps its disk blocks, and cannot be deleted on Windows.
+     * <p>
+     * <strong>NOTE:</strong> accessing the buffer, or any slice or duplicate of it, after this is undefined behaviour,
+     * and will most likely crash the JVM.
+     *
+     * @param mappedBuffer the memory mapped buffer to unmap.
+     */
+    public static void unmap( ByteBuffer mappedBuffer )
+    {
+        if ( unmapMethod == null )
+        {
+            throw new UnsupportedOperationException( "Mapped memory cannot be unmapped on this JVM." );
+        }
+        try
+        {
+            unmapMethod.invokeExact( mappedBuffer );
+        }
+        catch ( Throwable throwable )
+        {
+            throw new LinkageError( "Unable to unmap memory mapped buffer.", throwable );
+        }
+    }
+
     /**
      * Read the value of the address field in the (assumed to be) DirectByteBuffer.
      * <p>
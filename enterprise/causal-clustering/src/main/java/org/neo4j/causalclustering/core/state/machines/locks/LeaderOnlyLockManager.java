@@ -30,6 +30,7 @@ import org.neo4j.causalclustering.core.replication.Replicator;
 import org.neo4j.causalclustering.core.state.machines.tx.ReplicatedTransactionStateMachine;
 import org.neo4j.causalclustering.identity.MemberId;
 import org.neo4j.kernel.impl.locking.ActiveLock;
+import org.neo4j.kernel.impl.locking.LockContentionStatistics;
 import org.neo4j.kernel.impl.locking.Locks;
 import org.neo4j.storageengine.api.lock.AcquireLockTimeoutException;
 import org.neo4j.storageengine.api.lock.LockTracer;
@@ -167,6 +168,12 @@ public class LeaderOnlyLockManager implements Locks
         localLocks.accept( visitor );
     }
 
+    @Override
+    public LockContentionStatistics contentionStatistics()
+    {
+        return localLocks.contentionStatistics();
+    }
+
     @Override
     public void close()
     {
@@ -287,6 +294,12 @@ public class LeaderOnlyLockManager implements Locks
             return localClient.activeLocks();
         }
 
+        @Override
+        public Stream<? extends ActiveLock> waitingLocks()
+        {
+            return localClient.waitingLocks();
+        }
+
         @Override
         public long activeLockCount()
         {
@@ -34,6 +34,7 @@ import org.neo4j.io.fs.FileSystemAbstraction;
 import org.neo4j.io.pagecache.IOLimiter;
 import org.neo4j.io.pagecache.PageCache;
 import org.neo4j.io.pagecache.PagedFile;
+import org.neo4j.io.pagecache.WriteAheadBarrier;
 import org.neo4j.io.pagecache.tracing.cursor.context.VersionContextSupplier;
 import org.neo4j.kernel.configuration.Config;
 import org.neo4j.kernel.configuration.Settings;
@@ -95,6 +96,30 @@ public class ExternallyManagedPageCache implements PageCache
         delegate.flushAndForce( limiter );
     }
 
+    @Override
+    public void setBackgroundFlushLimiter( IOLimiter limiter )
+    {
+        delegate.setBackgroundFlushLimiter( limiter );
+    }
+
+    @Override
+    public void setWriteAheadBarrier( WriteAheadBarrier barrier )
+    {
+        delegate.setWriteAheadBarrier( barrier );
+    }
+
+    @Override
+    public long beginDirtyEpoch()
+    {
+        return delegate.beginDirtyEpoch();
+    }
+
+    @Override
+    public void flushAndForceDirtyUpTo( long maxDirtyEpoch, IOLimiter limiter ) throws IOException
+    {
+        delegate.flushAndForceDirtyUpTo( maxDirtyEpoch, limiter );
+    }
+
     @Override
     public int pageSize()
     {
@@ -190,6 +190,12 @@ public class DeferringLockClient implements Locks.Client
         return locks.keySet().stream();
     }
 
+    @Override
+    public Stream<? extends ActiveLock> waitingLocks()
+    {
+        return clientDelegate.waitingLocks();
+    }
+
     @Override
     public long activeLockCount()
     {
@@ -23,6 +23,7 @@ import org.neo4j.kernel.availability.AvailabilityGuard;
 import org.neo4j.kernel.configuration.Config;
 import org.neo4j.kernel.ha.com.RequestContextFactory;
 import org.neo4j.kernel.ha.com.master.Master;
+import org.neo4j.kernel.impl.locking.LockContentionStatistics;
 import org.neo4j.kernel.impl.locking.Locks;
 import org.neo4j.logging.LogProvider;
 
@@ -57,6 +58,12 @@ public class SlaveLockManager implements Locks
         local.accept( visitor );
     }
 
+    @Override
+    public LockContentionStatistics contentionStatistics()
+    {
+        return local.contentionStatistics();
+    }
+
     @Override
     public void close()
     {
@@ -232,6 +232,12 @@ class SlaveLocksClient implements Locks.Client
         return client.activeLocks();
     }
 
+    @Override
+    public Stream<? extends ActiveLock> waitingLocks()
+    {
+        return client.waitingLocks();
+    }
+
     @Override
     public long activeLockCount()
     {
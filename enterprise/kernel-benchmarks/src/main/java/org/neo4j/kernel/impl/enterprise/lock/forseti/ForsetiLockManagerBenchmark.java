@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2018-2020 "Graph Foundation"
+ * Graph Foundation, Inc. [https://graphfoundation.org]
+ *
+ * Copyright (c) 2002-2018 "Neo4j,"
+ * Neo4j Sweden AB [http://neo4j.com]
+ *
+ * This file is part of ONgDB Enterprise Edition. The included source
+ * code can be redistributed and/or modified under the terms of the
+ * GNU AFFERO GENERAL PUBLIC LICENSE Version 3
+ * (http://www.fsf.org/licensing/licenses/agpl-3.0.html) with the
+ * Commons Clause, as found
+ * in the associated LICENSE.txt file.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ */
+package org.neo4j.kernel.impl.enterprise.lock.forseti;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.neo4j.kernel.configuration.Config;
+import org.neo4j.kernel.impl.locking.Locks;
+import org.neo4j.kernel.impl.locking.ResourceTypes;
+import org.neo4j.storageengine.api.lock.LockTracer;
+import org.neo4j.time.Clocks;
+
+/**
+ * Measures acquiring and releasing uncontended Forseti locks through lock clients, the way a transaction does it.
+ * Every thread locks its own range of nodes, so the benchmark shows the cost of the lock map operations and the
+ * allocations on the acquire and release paths, rather than the cost of waiting.
+ */
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+@Threads( Threads.MAX )
+public class ForsetiLockManagerBenchmark
+{
+    @State( Scope.Benchmark )
+    public static class LockManager
+    {
+        @Param( {"ConcurrentHashMap", "ForsetiLockTable"} )
+        String lockMaps;
+
+        ForsetiLockManager locks;
+
+        @Setup( Level.Trial )
+        public void createLockManager()
+        {
+            locks = new ForsetiLockManager( Config.defaults(), Clocks.systemClock(),
+                    lockMaps.equals( "ForsetiLockTable" ), ResourceTypes.values() );
+        }
+
+        @TearDown( Level.Trial )
+        public void closeLockManager()
+        {
+            locks.close();
+        }
+    }
+
+    @State( Scope.Thread )
+    public static class Transaction
+    {
+        private static final long NODES_PER_THREAD = 1 << 20;
+
+        @Param( {"1", "100"} )
+        int locksPerTransaction;
+
+        long firstNode;
+
+        @Setup( Level.Trial )
+        public void pickNodes()
+        {
+            firstNode = ThreadLocalRandom.current().nextLong( 1 << 20 ) * NODES_PER_THREAD;
+        }
+
+        long nextNode()
+        {
+            return firstNode + ThreadLocalRandom.current().nextLong( NODES_PER_THREAD );
+        }
+    }
+
+    @Benchmark
+    public void exclusiveLocks( LockManager lockManager, Transaction tx )
+    {
+        // Lock clients are pooled, and closing a client releases all of its locks, like committing a transaction.
+        try ( Locks.Client client = lockManager.locks.newClient() )
+        {
+            for ( int i = 0; i < tx.locksPerTransaction; i++ )
+            {
+                client.acquireExclusive( LockTracer.NONE, ResourceTypes.NODE, tx.nextNode() );
+            }
+        }
+    }
+
+    @Benchmark
+    public void sharedLocks( LockManager lockManager, Transaction tx )
+    {
+        try ( Locks.Client client = lockManager.locks.newClient() )
+        {
+            for ( int i = 0; i < tx.locksPerTransaction; i++ )
+            {
+                client.acquireShared( LockTracer.NONE, ResourceTypes.NODE, tx.nextNode() );
+            }
+        }
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2018-2020 "Graph Foundation"
+ * Graph Foundation, Inc. [https://graphfoundation.org]
+ *
+ * Copyright (c) 2002-2018 "Neo4j,"
+ * Neo4j Sweden AB [http://neo4j.com]
+ *
+ * This file is part of ONgDB Enterprise Edition. The included source
+ * code can be redistributed and/or modified under the terms of the
+ * GNU AFFERO GENERAL PUBLIC LICENSE Version 3
+ * (http://www.fsf.org/licensing/licenses/agpl-3.0.html) with the
+ * Commons Clause, as found
+ * in the associated LICENSE.txt file.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ */
+package org.neo4j.kernel.impl.enterprise.lock.forseti;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the {@link ForsetiLockTable} with the {@link ConcurrentHashLockMap} that Forseti uses for its global lock
+ * maps by default, using the access patterns of {@link ForsetiClient}: installing a lock with put-if-absent, looking
+ * up the lock that is installed, and removing the lock again on release. Half of the key space is kept locked, so
+ * lookups hit and miss about equally often, and install attempts regularly lose to an existing lock.
+ */
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+@Threads( Threads.MAX )
+public class ForsetiLockTableBenchmark
+{
+    @State( Scope.Benchmark )
+    public static class LockMaps
+    {
+        @Param( {"ConcurrentHashMap", "ForsetiLockTable"} )
+        String implementation;
+
+        @Param( {"1024", "1048576"} )
+        int resources;
+
+        ForsetiLockMap lockMap;
+
+        @Setup( Level.Trial )
+        public void createLockMap()
+        {
+            lockMap = implementation.equals( "ForsetiLockTable" ) ? new ForsetiLockTable() : new ConcurrentHashLockMap();
+            ForsetiLockManager.Lock lock = new ExclusiveLock( null );
+            for ( long resourceId = 0; resourceId < resources; resourceId += 2 )
+            {
+                lockMap.putIfAbsent( resourceId, lock );
+            }
+        }
+    }
+
+    @State( Scope.Thread )
+    public static class Client
+    {
+        final ForsetiLockManager.Lock lock = new ExclusiveLock( null );
+    }
+
+    @Benchmark
+    public ForsetiLockManager.Lock get( LockMaps maps )
+    {
+        return maps.lockMap.get( ThreadLocalRandom.current().nextInt( maps.resources ) );
+    }
+
+    @Benchmark
+    public boolean installAndRemove( LockMaps maps, Client client )
+    {
+        // Only the odd resources are free, and every thread removes the locks it manages to install.
+        long resourceId = ThreadLocalRandom.current().nextInt( maps.resources ) | 1;
+        ForsetiLockMap lockMap = maps.lockMap;
+        if ( lockMap.get( resourceId ) == null && lockMap.putIfAbsent( resourceId, client.lock ) == null )
+        {
+            lockMap.remove( resourceId );
+            return true;
+        }
+        return false;
+    }
+}
@@ -51,6 +51,10 @@ import org.neo4j.kernel.configuration.Config;
 import org.neo4j.kernel.impl.api.KernelTransactions;
 import org.neo4j.kernel.impl.core.EmbeddedProxySPI;
 import org.neo4j.kernel.impl.core.ThreadToStatementContextBridge;
+import org.neo4j.kernel.impl.locking.ActiveLock;
+import org.neo4j.kernel.impl.locking.LockContentionStatistics;
+import org.neo4j.kernel.impl.locking.Locks;
+import org.neo4j.kernel.impl.locking.ResourceTypes;
 import org.neo4j.kernel.impl.proc.Procedures;
 import org.neo4j.kernel.internal.GraphDatabaseAPI;
 import org.neo4j.procedure.Admin;
@@ -366,6 +370,69 @@ public class EnterpriseBuiltInDbmsProcedures
         }
     }
 
+    @Description( "List the locks that transactions visible to the user are waiting for, along with the " +
+            "transactions holding them, as the edges of a wait-for graph between the transactions." )
+    @Procedure( name = "dbms.listLockWaits", mode = DBMS )
+    public Stream<LockWaitResult> listLockWaits()
+    {
+        securityContext.assertCredentialsNotExpired();
+        Map<KernelTransactionHandle,List<ActiveLock>> transactionLocks = getKernelTransactions().activeTransactions()
+                .stream()
+                .filter( transaction -> isAdminOrSelf( transaction.subject().username() ) )
+                .collect( toMap( identity(), transaction -> transaction.activeLocks().collect( toList() ) ) );
+        return transactionLocks.keySet().stream()
+                .flatMap( transaction -> transaction.waitingLocks()
+                        .flatMap( lock -> lockWaits( transaction, lock, transactionLocks ) ) );
+    }
+
+    private static Stream<LockWaitResult> lockWaits( KernelTransactionHandle transaction, ActiveLock lock,
+            Map<KernelTransactionHandle,List<ActiveLock>> transactionLocks )
+    {
+        List<LockWaitResult> waits = new ArrayList<>();
+        transactionLocks.forEach( ( otherTransaction, otherLocks ) ->
+        {
+            if ( !otherTransaction.equals( transaction ) &&
+                    TransactionDependenciesResolver.isBlocked( lock, otherLocks ) )
+            {
+                waits.add( new LockWaitResult( transaction, lock, otherTransaction ) );
+            }
+        } );
+        if ( waits.isEmpty() )
+        {
+            // The lock is held by a transaction that is not visible to the user, or that has just released it.
+            waits.add( new LockWaitResult( transaction, lock, null ) );
+        }
+        return waits.stream();
+    }
+
+    @Admin
+    @Description( "List the resources that transactions have had to wait the most times to lock since the database " +
+            "started, most contended first. The counts of the least contended resources may be over-estimated." )
+    @Procedure( name = "dbms.listContendedLocks", mode = DBMS )
+    public Stream<ContendedLockResult> listContendedLocks( @Name( value = "limit", defaultValue = "10" ) long limit )
+            throws InvalidArgumentsException
+    {
+        securityContext.assertCredentialsNotExpired();
+        if ( limit < 0 )
+        {
+            throw new InvalidArgumentsException( "Negative limits are not supported: " + limit );
+        }
+        LockContentionStatistics statistics = resolver.resolveDependency( Locks.class ).contentionStatistics();
+        return statistics.mostContended( (int) Math.min( limit, Integer.MAX_VALUE ) ).stream()
+                .map( ContendedLockResult::new );
+    }
+
+    @Admin
+    @Description( "List how many times, and for how long, transactions have had to wait for locks on each type of " +
+            "resource since the database started." )
+    @Procedure( name = "dbms.listLockWaitTimes", mode = DBMS )
+    public Stream<LockWaitTimesResult> listLockWaitTimes()
+    {
+        securityContext.assertCredentialsNotExpired();
+        LockContentionStatistics statistics = resolver.resolveDependency( Locks.class ).contentionStatistics();
+        return Arrays.stream( ResourceTypes.values() ).map( type -> new LockWaitTimesResult( type, statistics ) );
+    }
+
     @Description( "Kill all transactions executing the query with the given query id." )
     @Procedure( name = "dbms.killQuery", mode = DBMS )
     public Stream<QueryTerminationResult> killQuery( @Name( "id" ) String idText ) throws InvalidArgumentsException
@@ -0,0 +1,45 @@
+/*
+ * Copyright (c) 2018-2020 "Graph Foundation"
+ * Graph Foundation, Inc. [https://graphfoundation.org]
+ *
+ * Copyright (c) 2002-2018 "Neo4j,"
+ * Neo4j Sweden AB [http://neo4j.com]
+ *
+ * This file is part of ONgDB Enterprise Edition. The included source
+ * code can be redistributed and/or modified under the terms of the
+ * GNU AFFERO GENERAL PUBLIC LICENSE Version 3
+ * (http://www.fsf.org/licensing/licenses/agpl-3.0.html) with the
+ * Commons Clause, as found
+ * in the associated LICENSE.txt file.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ */
+package org.neo4j.kernel.enterprise.builtinprocs;
+
+import org.apache.commons.lang3.StringUtils;
+
+import org.neo4j.kernel.api.KernelTransactionHandle;
+import org.neo4j.kernel.impl.locking.ActiveLock;
+
+public class LockWaitResult
+{
+    public final String transactionId;
+    public final String mode;
+    public final String resourceType;
+    public final long resourceId;
+    public final String blockingTransactionId;
+
+    public LockWaitResult( KernelTransactionHandle transaction, ActiveLock lock,
+            KernelTransactionHandle blockingTransaction )
+    {
+        this.transactionId = transaction.getUserTransactionName();
+        this.mode = lock.mode();
+        this.resourceType = lock.resourceType().name();
+        this.resourceId = lock.resourceId();
+        this.blockingTransactionId =
+                blockingTransaction == null ? StringUtils.EMPTY : blockingTransaction.getUserTransactionName();
+    }
+}
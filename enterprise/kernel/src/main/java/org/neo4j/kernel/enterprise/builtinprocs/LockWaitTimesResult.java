@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2018-2020 "Graph Foundation"
+ * Graph Foundation, Inc. [https://graphfoundation.org]
+ *
+ * Copyright (c) 2002-2018 "Neo4j,"
+ * Neo4j Sweden AB [http://neo4j.com]
+ *
+ * This file is part of ONgDB Enterprise Edition. The included source
+ * code can be redistributed and/or modified under the terms of the
+ * GNU AFFERO GENERAL PUBLIC LICENSE Version 3
+ * (http://www.fsf.org/licensing/licenses/agpl-3.0.html) with the
+ * Commons Clause, as found
+ * in the associated LICENSE.txt file.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ */
+package org.neo4j.kernel.enterprise.builtinprocs;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.neo4j.kernel.impl.locking.LockContentionStatistics;
+import org.neo4j.storageengine.api.lock.ResourceType;
+
+import static org.neo4j.kernel.impl.locking.LockContentionStatistics.WAIT_TIME_BUCKETS;
+import static org.neo4j.kernel.impl.locking.LockContentionStatistics.waitTimeBucketUpperBoundMicros;
+
+public class LockWaitTimesResult
+{
+    public final String resourceType;
+    public final long waits;
+    public final long waitTimeMillis;
+    public final long waitTimeMicros50thPercentile;
+    public final long waitTimeMicros99thPercentile;
+    /** The number of waits per wait time bucket, keyed by the range of wait times in microseconds. */
+    public final Map<String,Object> waitTimeHistogram;
+
+    public LockWaitTimesResult( ResourceType resourceType, LockContentionStatistics statistics )
+    {
+        this.resourceType = resourceType.name();
+        this.waits = statistics.waits( resourceType );
+        this.waitTimeMillis = TimeUnit.NANOSECONDS.toMillis( statistics.waitTimeNanos( resourceType ) );
+        this.waitTimeMicros50thPercentile = statistics.waitTimePercentileMicros( resourceType, 50 );
+        this.waitTimeMicros99thPercentile = statistics.waitTimePercentileMicros( resourceType, 99 );
+        this.waitTimeHistogram = histogram( statistics.waitTimeHistogram( resourceType ) );
+    }
+
+    private static Map<String,Object> histogram( long[] buckets )
+    {
+        Map<String,Object> histogram = new LinkedHashMap<>();
+        for ( int bucket = 0; bucket < WAIT_TIME_BUCKETS; bucket++ )
+        {
+            if ( buckets[bucket] > 0 )
+            {
+                histogram.put( bucketName( bucket ), buckets[bucket] );
+            }
+        }
+        return histogram;
+    }
+
+    private static String bucketName( int bucket )
+    {
+        long bound = waitTimeBucketUpperBoundMicros( bucket );
+        return bucket == WAIT_TIME_BUCKETS - 1 ? ">=" + bound + "us" : "<" + bound + "us";
+    }
+}
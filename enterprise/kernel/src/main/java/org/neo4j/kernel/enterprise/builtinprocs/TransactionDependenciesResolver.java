@@ -140,7 +140,7 @@ public class TransactionDependenciesResolver
         }
     }
 
-    private boolean isBlocked( ActiveLock activeLock, List<ActiveLock> activeLocks )
+    static boolean isBlocked( ActiveLock activeLock, List<ActiveLock> activeLocks )
     {
         return ActiveLock.EXCLUSIVE_MODE.equals( activeLock.mode() ) ?
                haveAnyLocking( activeLocks, activeLock.resourceType(), activeLock.resourceId() ) :
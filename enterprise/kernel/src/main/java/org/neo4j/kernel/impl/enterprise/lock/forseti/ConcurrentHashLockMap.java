@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2018-2020 "Graph Foundation"
+ * Graph Foundation, Inc. [https://graphfoundation.org]
+ *
+ * Copyright (c) 2002-2018 "Neo4j,"
+ * Neo4j Sweden AB [http://neo4j.com]
+ *
+ * This file is part of ONgDB Enterprise Edition. The included source
+ * code can be redistributed and/or modified under the terms of the
+ * GNU AFFERO GENERAL PUBLIC LICENSE Version 3
+ * (http://www.fsf.org/licensing/licenses/agpl-3.0.html) with the
+ * Commons Clause, as found
+ * in the associated LICENSE.txt file.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ */
+package org.neo4j.kernel.impl.enterprise.lock.forseti;
+
+import org.eclipse.collections.api.block.procedure.primitive.LongObjectProcedure;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A {@link ForsetiLockMap} that is a {@code ConcurrentHashMap<Long,Lock>}. Installing a lock boxes its resource id
+ * and allocates a map entry, but this is what Forseti has always used, and it is still the default. See
+ * {@link ForsetiLockTable} for the primitive-keyed alternative.
+ */
+final class ConcurrentHashLockMap implements ForsetiLockMap
+{
+    private final ConcurrentMap<Long,ForsetiLockManager.Lock> map = new ConcurrentHashMap<>( 16, 0.6f, 512 );
+
+    @Override
+    public ForsetiLockManager.Lock get( long resourceId )
+    {
+        return map.get( resourceId );
+    }
+
+    @Override
+    public ForsetiLockManager.Lock putIfAbsent( long resourceId, ForsetiLockManager.Lock lock )
+    {
+        return map.putIfAbsent( resourceId, lock );
+    }
+
+    @Override
+    public ForsetiLockManager.Lock put( long resourceId, ForsetiLockManager.Lock lock )
+    {
+        return map.put( resourceId, lock );
+    }
+
+    @Override
+    public ForsetiLockManager.Lock remove( long resourceId )
+    {
+        return map.remove( resourceId );
+    }
+
+    @Override
+    public void forEach( LongObjectProcedure<ForsetiLockManager.Lock> procedure )
+    {
+        map.forEach( procedure::value );
+    }
+}
@@ -30,7 +30,6 @@ import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
-import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.LockSupport;
 import java.util.function.IntFunction;
@@ -45,6 +44,8 @@ import org.neo4j.kernel.impl.locking.ActiveLock;
 import org.neo4j.kernel.impl.locking.LockAcquisitionTimeoutException;
 import org.neo4j.kernel.impl.locking.LockClientStateHolder;
 import org.neo4j.kernel.impl.locking.LockClientStoppedException;
+import org.neo4j.kernel.impl.locking.LockContentionStatistics;
+import org.neo4j.kernel.impl.locking.LockWaitTracker;
 import org.neo4j.kernel.impl.locking.Locks;
 import org.neo4j.kernel.impl.locking.ResourceTypes;
 import org.neo4j.kernel.impl.util.collection.SimpleBitSet;
@@ -75,7 +76,7 @@ public class ForsetiClient implements Locks.Client
     private final int clientId;
 
     /** resourceType -> lock map. These are the global lock maps, shared across all clients. */
-    private final ConcurrentMap<Long,ForsetiLockManager.Lock>[] lockMaps;
+    private final ForsetiLockMap[] lockMaps;
 
     /** resourceType -> wait strategy */
     private final WaitStrategy<AcquireLockTimeoutException>[] waitStrategies;
@@ -122,11 +123,18 @@ public class ForsetiClient implements Locks.Client
     private final LockClientStateHolder stateHolder = new LockClientStateHolder();
 
     /**
-     * For exclusive locks, we only need a single re-usable one per client. We simply CAS this lock into whatever slots
+     * For exclusive locks, we only need a single re-usable one per client. We simply put this lock into whatever slots
      * we want to hold in the global lock map.
      */
     private final ExclusiveLock myExclusiveLock = new ExclusiveLock( this );
 
+    /**
+     * A shared lock that only this client holds, and that was never installed in a global lock map because another
+     * client got there first. It is kept for the next time we need to install a fresh shared lock, instead of being
+     * thrown away and allocated again.
+     */
+    private SharedLock spareSharedLock;
+
     private volatile boolean hasLocks;
 
     private final ReleaseExclusiveLocksAndClearSharedVisitor releaseExclusiveAndClearSharedVisitor =
@@ -140,10 +148,17 @@ public class ForsetiClient implements Locks.Client
      */
     private volatile ForsetiLockManager.Lock waitingForLock;
 
-    public ForsetiClient( int id, ConcurrentMap<Long,ForsetiLockManager.Lock>[] lockMaps,
+    /**
+     * Tracks the resource we are waiting for, for introspection, and reports the time we waited for it to the
+     * contention statistics once we stop waiting.
+     */
+    private final LockWaitTracker waitTracker;
+
+    public ForsetiClient( int id, ForsetiLockMap[] lockMaps,
                           WaitStrategy<AcquireLockTimeoutException>[] waitStrategies, Pool<ForsetiClient> clientPool,
                           DeadlockResolutionStrategy deadlockResolutionStrategy, IntFunction<ForsetiClient> clientById,
-                          long lockAcquisitionTimeoutMillis, Clock clock )
+                          long lockAcquisitionTimeoutMillis, Clock clock,
+                          LockContentionStatistics contentionStatistics )
     {
         this.clientId = id;
         this.lockMaps = lockMaps;
@@ -155,6 +170,7 @@ public class ForsetiClient implements Locks.Client
         this.exclusiveLockCounts = new MutableLongIntMap[lockMaps.length];
         this.lockAcquisitionTimeoutMillis = lockAcquisitionTimeoutMillis;
         this.clock = clock;
+        this.waitTracker = new LockWaitTracker( contentionStatistics );
 
         for ( int i = 0; i < sharedLockCounts.length; i++ )
         {
@@ -183,7 +199,7 @@ public class ForsetiClient implements Locks.Client
         try
         {
             // Grab the global lock map we will be using
-            ConcurrentMap<Long,ForsetiLockManager.Lock> lockMap = lockMaps[resourceType.typeId()];
+            ForsetiLockMap lockMap = lockMaps[resourceType.typeId()];
 
             // And grab our local lock maps
             MutableLongIntMap heldShareLocks = sharedLockCounts[resourceType.typeId()];
@@ -212,7 +228,6 @@ public class ForsetiClient implements Locks.Client
 
                 // We don't hold the lock, so we need to grab it via the global lock map
                 int tries = 0;
-                SharedLock mySharedLock = null;
                 long waitStartMillis = clock.millis();
 
                 // Retry loop
@@ -227,12 +242,7 @@ public class ForsetiClient implements Locks.Client
                     if ( existingLock == null )
                     {
                         // Try to create a new shared lock
-                        if ( mySharedLock == null )
-                        {
-                            mySharedLock = new SharedLock( this );
-                        }
-
-                        if ( lockMap.putIfAbsent( resourceId, mySharedLock ) == null )
+                        if ( tryInstallSharedLock( lockMap, resourceId ) )
                         {
                             // Success, we now hold the shared lock.
                             break;
@@ -270,6 +280,7 @@ public class ForsetiClient implements Locks.Client
                     // And take note of who we are waiting for. This is used for deadlock detection.
                     waitFor( existingLock, resourceType, resourceId, false, tries++ );
                 }
+                waitTracker.endWait();
 
                 // Make a local note about the fact that we now hold this lock
                 heldShareLocks.put( resourceId, 1 );
@@ -281,6 +292,7 @@ public class ForsetiClient implements Locks.Client
             {
                 waitEvent.close();
             }
+            waitTracker.endWait();
             clearWaitList();
             waitingForLock = null;
             stateHolder.decrementActiveClients();
@@ -297,7 +309,7 @@ public class ForsetiClient implements Locks.Client
 
         try
         {
-            ConcurrentMap<Long,ForsetiLockManager.Lock> lockMap = lockMaps[resourceType.typeId()];
+            ForsetiLockMap lockMap = lockMaps[resourceType.typeId()];
             MutableLongIntMap heldLocks = exclusiveLockCounts[resourceType.typeId()];
 
             for ( long resourceId : resourceIds )
@@ -339,6 +351,7 @@ public class ForsetiClient implements Locks.Client
                     }
                     waitFor( existingLock, resourceType, resourceId, true, tries++ );
                 }
+                waitTracker.endWait();
 
                 heldLocks.put( resourceId, 1 );
             }
@@ -349,6 +362,7 @@ public class ForsetiClient implements Locks.Client
             {
                 waitEvent.close();
             }
+            waitTracker.endWait();
             clearWaitList();
             waitingForLock = null;
             stateHolder.decrementActiveClients();
@@ -363,7 +377,7 @@ public class ForsetiClient implements Locks.Client
 
         try
         {
-            ConcurrentMap<Long,ForsetiLockManager.Lock> lockMap = lockMaps[resourceType.typeId()];
+            ForsetiLockMap lockMap = lockMaps[resourceType.typeId()];
             MutableLongIntMap heldLocks = exclusiveLockCounts[resourceType.typeId()];
 
             int heldCount = heldLocks.getIfAbsent( resourceId, -1 );
@@ -415,7 +429,7 @@ public class ForsetiClient implements Locks.Client
 
         try
         {
-            ConcurrentMap<Long,ForsetiLockManager.Lock> lockMap = lockMaps[resourceType.typeId()];
+            ForsetiLockMap lockMap = lockMaps[resourceType.typeId()];
             MutableLongIntMap heldShareLocks = sharedLockCounts[resourceType.typeId()];
             MutableLongIntMap heldExclusiveLocks = exclusiveLockCounts[resourceType.typeId()];
 
@@ -444,7 +458,7 @@ public class ForsetiClient implements Locks.Client
                 if ( existingLock == null )
                 {
                     // Try to create a new shared lock
-                    if ( lockMap.putIfAbsent( resourceId, new SharedLock( this ) ) == null )
+                    if ( tryInstallSharedLock( lockMap, resourceId ) )
                     {
                         // Success!
                         break;
@@ -551,7 +565,7 @@ public class ForsetiClient implements Locks.Client
         {
             MutableLongIntMap sharedLocks = sharedLockCounts[resourceType.typeId()];
             MutableLongIntMap exclusiveLocks = exclusiveLockCounts[resourceType.typeId()];
-            ConcurrentMap<Long,ForsetiLockManager.Lock> resourceTypeLocks = lockMaps[resourceType.typeId()];
+            ForsetiLockMap resourceTypeLocks = lockMaps[resourceType.typeId()];
             for ( long resourceId : resourceIds )
             {
                 if ( releaseLocalLock( resourceType, resourceId, sharedLocks ) )
@@ -578,7 +592,7 @@ public class ForsetiClient implements Locks.Client
 
         try
         {
-            ConcurrentMap<Long,ForsetiLockManager.Lock> resourceTypeLocks = lockMaps[resourceType.typeId()];
+            ForsetiLockMap resourceTypeLocks = lockMaps[resourceType.typeId()];
             MutableLongIntMap exclusiveLocks = exclusiveLockCounts[resourceType.typeId()];
             MutableLongIntMap sharedLocks = sharedLockCounts[resourceType.typeId()];
             for ( long resourceId : resourceIds )
@@ -608,8 +622,7 @@ public class ForsetiClient implements Locks.Client
                     else
                     {
                         // in case if current lock is exclusive we swap it to new shared lock
-                        SharedLock sharedLock = new SharedLock( this );
-                        resourceTypeLocks.put( resourceId, sharedLock );
+                        resourceTypeLocks.put( resourceId, takeSpareSharedLock() );
                     }
                 }
                 else
@@ -747,6 +760,12 @@ public class ForsetiClient implements Locks.Client
         return locks.stream();
     }
 
+    @Override
+    public Stream<ActiveLock> waitingLocks()
+    {
+        return waitTracker.waitingLocks();
+    }
+
     @Override
     public long activeLockCount()
     {
@@ -826,8 +845,31 @@ public class ForsetiClient implements Locks.Client
         return String.format( "ForsetiClient[%d]", clientId );
     }
 
+    /** Install a new shared lock held by this client, unless there already is a lock for the given resource. */
+    private boolean tryInstallSharedLock( ForsetiLockMap lockMap, long resourceId )
+    {
+        SharedLock sharedLock = takeSpareSharedLock();
+        if ( lockMap.putIfAbsent( resourceId, sharedLock ) == null )
+        {
+            return true;
+        }
+        spareSharedLock = sharedLock;
+        return false;
+    }
+
+    private SharedLock takeSpareSharedLock()
+    {
+        SharedLock sharedLock = spareSharedLock;
+        if ( sharedLock == null )
+        {
+            return new SharedLock( this );
+        }
+        spareSharedLock = null;
+        return sharedLock;
+    }
+
     /** Release a lock from the global pool. */
-    private void releaseGlobalLock( ConcurrentMap<Long,ForsetiLockManager.Lock> lockMap, long resourceId )
+    private void releaseGlobalLock( ForsetiLockMap lockMap, long resourceId )
     {
         ForsetiLockManager.Lock lock = lockMap.get( resourceId );
         if ( lock instanceof ExclusiveLock )
@@ -868,7 +910,7 @@ public class ForsetiClient implements Locks.Client
             LockTracer tracer,
             LockWaitEvent waitEvent,
             ResourceType resourceType,
-            ConcurrentMap<Long,ForsetiLockManager.Lock> lockMap,
+            ForsetiLockMap lockMap,
             long resourceId,
             SharedLock sharedLock,
             long waitStartMillis )
@@ -964,6 +1006,7 @@ public class ForsetiClient implements Locks.Client
     private void waitFor( ForsetiLockManager.Lock lock, ResourceType type, long resourceId, boolean exclusive, int tries )
     {
         waitingForLock = lock;
+        waitTracker.beginWait( exclusive, type, resourceId );
         clearAndCopyWaitList( lock );
         waitStrategies[type.typeId()].apply( tries );
 
@@ -1114,9 +1157,9 @@ public class ForsetiClient implements Locks.Client
      */
     private class ReleaseSharedDontCheckExclusiveVisitor implements LongProcedure
     {
-        private ConcurrentMap<Long,ForsetiLockManager.Lock> lockMap;
+        private ForsetiLockMap lockMap;
 
-        private LongProcedure initialize( ConcurrentMap<Long, ForsetiLockManager.Lock> lockMap )
+        private LongProcedure initialize( ForsetiLockMap lockMap )
         {
             this.lockMap = lockMap;
             return this;
@@ -1136,9 +1179,9 @@ public class ForsetiClient implements Locks.Client
     private class ReleaseExclusiveLocksAndClearSharedVisitor implements LongProcedure
     {
         private MutableLongIntMap sharedLockCounts;
-        private ConcurrentMap<Long,ForsetiLockManager.Lock> lockMap;
+        private ForsetiLockMap lockMap;
 
-        private LongProcedure initialize( MutableLongIntMap sharedLockCounts, ConcurrentMap<Long, ForsetiLockManager.Lock> lockMap )
+        private LongProcedure initialize( MutableLongIntMap sharedLockCounts, ForsetiLockMap lockMap )
         {
             this.sharedLockCounts = sharedLockCounts;
             this.lockMap = lockMap;
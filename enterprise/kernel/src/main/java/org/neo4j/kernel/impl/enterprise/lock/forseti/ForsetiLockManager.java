@@ -20,7 +20,6 @@
 package org.neo4j.kernel.impl.enterprise.lock.forseti;
 
 import java.time.Clock;
-import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
@@ -32,11 +31,13 @@ import org.neo4j.collection.pool.LinkedQueuePool;
 import org.neo4j.collection.pool.Pool;
 import org.neo4j.graphdb.factory.GraphDatabaseSettings;
 import org.neo4j.kernel.configuration.Config;
+import org.neo4j.kernel.impl.locking.LockContentionStatistics;
 import org.neo4j.kernel.impl.locking.Locks;
 import org.neo4j.kernel.impl.util.collection.SimpleBitSet;
 import org.neo4j.storageengine.api.lock.AcquireLockTimeoutException;
 import org.neo4j.storageengine.api.lock.ResourceType;
 import org.neo4j.storageengine.api.lock.WaitStrategy;
+import org.neo4j.util.FeatureToggles;
 
 /**
  * <h1>Forseti, the Nordic god of justice</h1>
@@ -59,7 +60,9 @@ import org.neo4j.storageengine.api.lock.WaitStrategy;
  * To grab a lock, a client must insert itself into the holder list of the lock it wants. The lock may either be a
  * shared lock or an exclusive lock. In the case of a shared lock, the client simply appends itself to the holder list.
  * In the case of an exclusive lock, the client has it's own unique exclusive lock, which it must put into the lock map
- * using a CAS operation.
+ * using a put-if-absent operation. The lock maps are {@link ConcurrentHashLockMap concurrent hash maps}, unless the
+ * {@code stripedLockTable} feature toggle replaces them with {@link ForsetiLockTable primitive-keyed striped tables},
+ * which do not allocate map entries or boxed resource ids when installing and removing locks.
  * <p/>
  * Once the client is in the holder list, it has the lock.
  * <p/>
@@ -185,8 +188,15 @@ public class ForsetiLockManager implements Locks
         boolean shouldAbort( ForsetiClient clientThatsAsking, ForsetiClient clientWereDeadlockedWith );
     }
 
+    /**
+     * Whether to use {@link ForsetiLockTable} rather than {@link ConcurrentHashLockMap} for the lock maps. Off until
+     * benchmarks on many cores show that the table is faster, see the enterprise kernel-benchmarks module.
+     */
+    private static final boolean STRIPED_LOCK_TABLE =
+            FeatureToggles.flag( ForsetiLockManager.class, "stripedLockTable", false );
+
     /** Pointers to lock maps, one array per resource type. */
-    private final ConcurrentMap<Long,ForsetiLockManager.Lock>[] lockMaps;
+    private final ForsetiLockMap[] lockMaps;
 
     /** Reverse lookup resource types by id, used for introspection */
     private final ResourceType[] resourceTypes;
@@ -194,13 +204,21 @@ public class ForsetiLockManager implements Locks
     /** Pool forseti clients. */
     private final Pool<ForsetiClient> clientPool;
 
+    /** How long, and on which resources, the clients have waited for each other. */
+    private final LockContentionStatistics contentionStatistics;
+
     private volatile boolean closed;
 
-    @SuppressWarnings( "unchecked" )
     public ForsetiLockManager( Config config, Clock clock, ResourceType... resourceTypes )
+    {
+        this( config, clock, STRIPED_LOCK_TABLE, resourceTypes );
+    }
+
+    @SuppressWarnings( "unchecked" )
+    ForsetiLockManager( Config config, Clock clock, boolean stripedLockTable, ResourceType... resourceTypes )
     {
         int maxResourceId = findMaxResourceId( resourceTypes );
-        this.lockMaps = new ConcurrentMap[maxResourceId];
+        this.lockMaps = new ForsetiLockMap[maxResourceId];
         this.resourceTypes = new ResourceType[maxResourceId];
 
         /* Wait strategies per resource type */
@@ -208,7 +226,7 @@ public class ForsetiLockManager implements Locks
 
         for ( ResourceType type : resourceTypes )
         {
-            this.lockMaps[type.typeId()] = new ConcurrentHashMap<>( 16, 0.6f, 512 );
+            this.lockMaps[type.typeId()] = stripedLockTable ? new ForsetiLockTable() : new ConcurrentHashLockMap();
             waitStrategies[type.typeId()] = type.waitStrategy();
             this.resourceTypes[type.typeId()] = type;
         }
@@ -217,7 +235,9 @@ public class ForsetiLockManager implements Locks
         // TODO be good enough. In fact, we could add the required fields for such a stack
         // TODO to the ForsetiClient objects themselves, making the stack garbage-free in
         // TODO the (presumably) common case of client re-use.
-        clientPool = new ForsetiClientFlyweightPool( config, clock, lockMaps, waitStrategies );
+        contentionStatistics = new LockContentionStatistics(
+                config.get( GraphDatabaseSettings.lock_contention_tracked_resources ) );
+        clientPool = new ForsetiClientFlyweightPool( config, clock, lockMaps, waitStrategies, contentionStatistics );
     }
 
     /**
@@ -247,15 +267,18 @@ public class ForsetiLockManager implements Locks
             if ( lockMaps[i] != null )
             {
                 ResourceType type = resourceTypes[i];
-                for ( Map.Entry<Long,Lock> entry : lockMaps[i].entrySet() )
-                {
-                    Lock lock = entry.getValue();
-                    out.visit( type, entry.getKey(), lock.describeWaitList(), 0, System.identityHashCode( lock ) );
-                }
+                lockMaps[i].forEach( ( resourceId, lock ) ->
+                        out.visit( type, resourceId, lock.describeWaitList(), 0, System.identityHashCode( lock ) ) );
             }
         }
     }
 
+    @Override
+    public LockContentionStatistics contentionStatistics()
+    {
+        return contentionStatistics;
+    }
+
     private int findMaxResourceId( ResourceType[] resourceTypes )
     {
         int max = 0;
@@ -282,18 +305,21 @@ public class ForsetiLockManager implements Locks
         private final ConcurrentMap<Integer,ForsetiClient> clientsById = new ConcurrentHashMap<>();
         private final Config config;
         private final Clock clock;
-        private final ConcurrentMap<Long,ForsetiLockManager.Lock>[] lockMaps;
+        private final ForsetiLockMap[] lockMaps;
         private final WaitStrategy<AcquireLockTimeoutException>[] waitStrategies;
+        private final LockContentionStatistics contentionStatistics;
         private final DeadlockResolutionStrategy deadlockResolutionStrategy = DeadlockStrategies.DEFAULT;
 
-        ForsetiClientFlyweightPool( Config config, Clock clock, ConcurrentMap<Long,Lock>[] lockMaps,
-                WaitStrategy<AcquireLockTimeoutException>[] waitStrategies )
+        ForsetiClientFlyweightPool( Config config, Clock clock, ForsetiLockMap[] lockMaps,
+                WaitStrategy<AcquireLockTimeoutException>[] waitStrategies,
+                LockContentionStatistics contentionStatistics )
         {
             super( 128, null );
             this.config = config;
             this.clock = clock;
             this.lockMaps = lockMaps;
             this.waitStrategies = waitStrategies;
+            this.contentionStatistics = contentionStatistics;
         }
 
         @Override
@@ -306,7 +332,8 @@ public class ForsetiLockManager implements Locks
             }
             long lockAcquisitionTimeoutMillis = config.get( GraphDatabaseSettings.lock_acquisition_timeout ).toMillis();
             ForsetiClient client = new ForsetiClient( id, lockMaps, waitStrategies, this,
-                    deadlockResolutionStrategy, clientsById::get, lockAcquisitionTimeoutMillis, clock );
+                    deadlockResolutionStrategy, clientsById::get, lockAcquisitionTimeoutMillis, clock,
+                    contentionStatistics );
             clientsById.put( id, client );
             return client;
         }
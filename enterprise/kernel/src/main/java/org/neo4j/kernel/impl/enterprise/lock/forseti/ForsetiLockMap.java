@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2018-2020 "Graph Foundation"
+ * Graph Foundation, Inc. [https://graphfoundation.org]
+ *
+ * Copyright (c) 2002-2018 "Neo4j,"
+ * Neo4j Sweden AB [http://neo4j.com]
+ *
+ * This file is part of ONgDB Enterprise Edition. The included source
+ * code can be redistributed and/or modified under the terms of the
+ * GNU AFFERO GENERAL PUBLIC LICENSE Version 3
+ * (http://www.fsf.org/licensing/licenses/agpl-3.0.html) with the
+ * Commons Clause, as found
+ * in the associated LICENSE.txt file.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ */
+package org.neo4j.kernel.impl.enterprise.lock.forseti;
+
+import org.eclipse.collections.api.block.procedure.primitive.LongObjectProcedure;
+
+/**
+ * The global lock map for one resource type, mapping resource ids to the {@link ForsetiLockManager.Lock} that is
+ * currently installed for them. It is shared by all {@link ForsetiClient clients}, and all of its operations are
+ * atomic.
+ */
+interface ForsetiLockMap
+{
+    /**
+     * @return the lock installed for the given resource, or {@code null} if there is none.
+     */
+    ForsetiLockManager.Lock get( long resourceId );
+
+    /**
+     * Install the given lock for the given resource, unless a lock is already installed for it.
+     *
+     * @return the lock that was already installed, or {@code null} if the given lock was installed.
+     */
+    ForsetiLockManager.Lock putIfAbsent( long resourceId, ForsetiLockManager.Lock lock );
+
+    /**
+     * Install the given lock for the given resource, replacing any lock that is already installed for it.
+     *
+     * @return the lock that was replaced, or {@code null} if no lock was installed for the resource.
+     */
+    ForsetiLockManager.Lock put( long resourceId, ForsetiLockManager.Lock lock );
+
+    /**
+     * Remove the lock installed for the given resource, if any.
+     *
+     * @return the lock that was removed, or {@code null} if no lock was installed for the resource.
+     */
+    ForsetiLockManager.Lock remove( long resourceId );
+
+    /**
+     * Visit every installed lock. The given procedure must not modify this map.
+     */
+    void forEach( LongObjectProcedure<ForsetiLockManager.Lock> procedure );
+}
@@ -0,0 +1,372 @@
+/*
+ * Copyright (c) 2018-2020 "Graph Foundation"
+ * Graph Foundation, Inc. [https://graphfoundation.org]
+ *
+ * Copyright (c) 2002-2018 "Neo4j,"
+ * Neo4j Sweden AB [http://neo4j.com]
+ *
+ * This file is part of ONgDB Enterprise Edition. The included source
+ * code can be redistributed and/or modified under the terms of the
+ * GNU AFFERO GENERAL PUBLIC LICENSE Version 3
+ * (http://www.fsf.org/licensing/licenses/agpl-3.0.html) with the
+ * Commons Clause, as found
+ * in the associated LICENSE.txt file.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ */
+package org.neo4j.kernel.impl.enterprise.lock.forseti;
+
+import org.eclipse.collections.api.block.procedure.primitive.LongObjectProcedure;
+
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * A {@link ForsetiLockMap} that keeps its resource ids in primitive arrays.
+ * <p/>
+ * The table is split into a power-of-two number of stripes, each of which is an open-addressing hash table with
+ * linear probing over a primitive {@code long[]} of keys and a parallel array of locks. This way neither the resource
+ * ids nor the map entries are allocated as objects when locks come and go, which is what a
+ * {@code ConcurrentHashMap<Long,Lock>} does for every lock that is installed.
+ * <p/>
+ * Every stripe is guarded by a {@link StampedLock}. Lookups, which are by far the most common operation, first try an
+ * optimistic read that touches nothing but the lock word of the stripe, and only fall back to taking the read lock if
+ * a concurrent modification of the same stripe invalidated the read. Modifications take the write lock of their
+ * stripe. The stripes grow when they are half full and shrink again once they become sparse, so a transaction that
+ * grabbed a huge number of locks does not leave oversized stripes behind.
+ */
+final class ForsetiLockTable implements ForsetiLockMap
+{
+    private static final int INITIAL_STRIPE_CAPACITY = 8;
+    private static final int MIN_STRIPES = 16;
+    private static final int MAX_STRIPES = 256;
+
+    private final Stripe[] stripes;
+    private final int stripeMask;
+
+    ForsetiLockTable()
+    {
+        this( defaultStripeCount() );
+    }
+
+    ForsetiLockTable( int stripeCount )
+    {
+        if ( Integer.bitCount( stripeCount ) != 1 )
+        {
+            throw new IllegalArgumentException( "The stripe count must be a power of two, but was " + stripeCount );
+        }
+        stripes = new Stripe[stripeCount];
+        for ( int i = 0; i < stripeCount; i++ )
+        {
+            stripes[i] = new Stripe();
+        }
+        stripeMask = stripeCount - 1;
+    }
+
+    private static int defaultStripeCount()
+    {
+        int stripes = Integer.highestOneBit( Runtime.getRuntime().availableProcessors() * 4 - 1 ) << 1;
+        return Math.min( MAX_STRIPES, Math.max( MIN_STRIPES, stripes ) );
+    }
+
+    @Override
+    public ForsetiLockManager.Lock get( long resourceId )
+    {
+        long hash = hash( resourceId );
+        Stripe stripe = stripes[stripeIndex( hash )];
+        long stamp = stripe.tryOptimisticRead();
+        if ( stamp != 0 )
+        {
+            ForsetiLockManager.Lock lock = stripe.table.get( resourceId, hash );
+            if ( stripe.validate( stamp ) )
+            {
+                return lock;
+            }
+        }
+        stamp = stripe.readLock();
+        try
+        {
+            return stripe.table.get( resourceId, hash );
+        }
+        finally
+        {
+            stripe.unlockRead( stamp );
+        }
+    }
+
+    @Override
+    public ForsetiLockManager.Lock putIfAbsent( long resourceId, ForsetiLockManager.Lock lock )
+    {
+        long hash = hash( resourceId );
+        Stripe stripe = stripes[stripeIndex( hash )];
+        long stamp = stripe.writeLock();
+        try
+        {
+            return stripe.put( resourceId, hash, lock, true );
+        }
+        finally
+        {
+            stripe.unlockWrite( stamp );
+        }
+    }
+
+    @Override
+    public ForsetiLockManager.Lock put( long resourceId, ForsetiLockManager.Lock lock )
+    {
+        long hash = hash( resourceId );
+        Stripe stripe = stripes[stripeIndex( hash )];
+        long stamp = stripe.writeLock();
+        try
+        {
+            return stripe.put( resourceId, hash, lock, false );
+        }
+        finally
+        {
+            stripe.unlockWrite( stamp );
+        }
+    }
+
+    @Override
+    public ForsetiLockManager.Lock remove( long resourceId )
+    {
+        long hash = hash( resourceId );
+        Stripe stripe = stripes[stripeIndex( hash )];
+        long stamp = stripe.writeLock();
+        try
+        {
+            return stripe.remove( resourceId, hash );
+        }
+        finally
+        {
+            stripe.unlockWrite( stamp );
+        }
+    }
+
+    /**
+     * @return the number of installed locks. The count is only exact if the table is not concurrently modified.
+     */
+    int size()
+    {
+        int size = 0;
+        for ( Stripe stripe : stripes )
+        {
+            long stamp = stripe.readLock();
+            try
+            {
+                size += stripe.size;
+            }
+            finally
+            {
+                stripe.unlockRead( stamp );
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Each stripe is read locked while it is being visited.
+     */
+    @Override
+    public void forEach( LongObjectProcedure<ForsetiLockManager.Lock> procedure )
+    {
+        for ( Stripe stripe : stripes )
+        {
+            long stamp = stripe.readLock();
+            try
+            {
+                stripe.table.forEach( procedure );
+            }
+            finally
+            {
+                stripe.unlockRead( stamp );
+            }
+        }
+    }
+
+    private int stripeIndex( long hash )
+    {
+        // The slots within a stripe are picked with the low bits of the hash, so use high bits for the stripe.
+        return (int) (hash >>> 40) & stripeMask;
+    }
+
+    /**
+     * The 64-bit finalizer of MurmurHash3, which makes sure that sequential and otherwise regular resource ids get
+     * spread out over both the stripes and the slots within them.
+     */
+    private static long hash( long resourceId )
+    {
+        long hash = resourceId;
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    @SuppressWarnings( "serial" )
+    private static final class Stripe extends StampedLock
+    {
+        /** Replaced as a whole when the stripe is resized, so optimistic readers always see arrays of equal size. */
+        private Table table = new Table( INITIAL_STRIPE_CAPACITY );
+        private int size;
+
+        private ForsetiLockManager.Lock put( long resourceId, long hash, ForsetiLockManager.Lock lock,
+                boolean onlyIfAbsent )
+        {
+            Table table = this.table;
+            int slot = table.slotOf( resourceId, hash );
+            ForsetiLockManager.Lock existing = table.values[slot];
+            if ( existing != null )
+            {
+                if ( !onlyIfAbsent )
+                {
+                    table.values[slot] = lock;
+                }
+                return existing;
+            }
+
+            table.keys[slot] = resourceId;
+            table.values[slot] = lock;
+            size++;
+            if ( size > table.values.length >>> 1 )
+            {
+                resize( table.values.length << 1 );
+            }
+            return null;
+        }
+
+        private ForsetiLockManager.Lock remove( long resourceId, long hash )
+        {
+            Table table = this.table;
+            int slot = table.slotOf( resourceId, hash );
+            ForsetiLockManager.Lock existing = table.values[slot];
+            if ( existing == null )
+            {
+                return null;
+            }
+
+            table.removeSlot( slot );
+            size--;
+            int capacity = table.values.length;
+            if ( capacity > INITIAL_STRIPE_CAPACITY && size < capacity >>> 3 )
+            {
+                resize( capacity >>> 1 );
+            }
+            return existing;
+        }
+
+        private void resize( int capacity )
+        {
+            Table oldTable = table;
+            Table newTable = new Table( capacity );
+            for ( int i = 0; i < oldTable.values.length; i++ )
+            {
+                ForsetiLockManager.Lock lock = oldTable.values[i];
+                if ( lock != null )
+                {
+                    long resourceId = oldTable.keys[i];
+                    int slot = newTable.slotOf( resourceId, hash( resourceId ) );
+                    newTable.keys[slot] = resourceId;
+                    newTable.values[slot] = lock;
+                }
+            }
+            table = newTable;
+        }
+    }
+
+    /**
+     * One generation of the slots of a stripe. A slot is free when its value is {@code null}, so every resource id,
+     * including zero, can be used as a key.
+     */
+    private static final class Table
+    {
+        private final long[] keys;
+        private final ForsetiLockManager.Lock[] values;
+        private final int mask;
+
+        Table( int capacity )
+        {
+            keys = new long[capacity];
+            values = new ForsetiLockManager.Lock[capacity];
+            mask = capacity - 1;
+        }
+
+        /**
+         * Look up a lock without any guarantee that the table is not being concurrently modified. The probe is bounded
+         * by the capacity, so a torn read can return a wrong answer, but never loop forever or fail.
+         */
+        ForsetiLockManager.Lock get( long resourceId, long hash )
+        {
+            int slot = (int) hash & mask;
+            for ( int probes = 0; probes <= mask; probes++ )
+            {
+                ForsetiLockManager.Lock lock = values[slot];
+                if ( lock == null )
+                {
+                    return null;
+                }
+                if ( keys[slot] == resourceId )
+                {
+                    return lock;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return null;
+        }
+
+        /**
+         * @return the slot that holds the given resource id, or the free slot where it should be inserted.
+         */
+        int slotOf( long resourceId, long hash )
+        {
+            int slot = (int) hash & mask;
+            while ( values[slot] != null && keys[slot] != resourceId )
+            {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        /**
+         * Free the given slot, and shift the entries that follow it in the same probe sequence backwards, such that
+         * no entry becomes unreachable.
+         */
+        void removeSlot( int slot )
+        {
+            int gap = slot;
+            int next = slot;
+            while ( true )
+            {
+                next = (next + 1) & mask;
+                if ( values[next] == null )
+                {
+                    break;
+                }
+                int home = (int) hash( keys[next] ) & mask;
+                if ( ((next - home) & mask) >= ((next - gap) & mask) )
+                {
+                    keys[gap] = keys[next];
+                    values[gap] = values[next];
+                    gap = next;
+                }
+            }
+            values[gap] = null;
+            keys[gap] = 0;
+        }
+
+        void forEach( LongObjectProcedure<ForsetiLockManager.Lock> procedure )
+        {
+            for ( int i = 0; i < values.length; i++ )
+            {
+                ForsetiLockManager.Lock lock = values[i];
+                if ( lock != null )
+                {
+                    procedure.value( keys[i], lock );
+                }
+            }
+        }
+    }
+}
@@ -24,6 +24,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.List;
@@ -39,6 +40,7 @@ import java.util.concurrent.TimeUnit;
 import java.util.stream.Stream;
 
 import org.neo4j.graphdb.Resource;
+import org.neo4j.io.IOUtils;
 import org.neo4j.io.fs.FileSystemAbstraction;
 import org.neo4j.io.pagecache.PageCache;
 import org.neo4j.io.pagecache.PageCursor;
@@ -72,6 +74,11 @@ public class PageCacheWarmer implements NeoStoreFileListing.StoreFileProvider
     public static final String SUFFIX_CACHEPROF = ".cacheprof";
 
     private static final int IO_PARALLELISM = Runtime.getRuntime().availableProcessors();
+    /**
+     * The longest run of consecutive pages that is handed to a page loader in one go. Longer runs are split up, so they
+     * can be loaded in parallel.
+     */
+    private static final int MAX_PAGES_PER_LOAD = 1024;
 
     private final FileSystemAbstraction fs;
     private final PageCache pageCache;
@@ -145,20 +152,31 @@ public class PageCacheWarmer implements NeoStoreFileListing.StoreFileProvider
         {
             return OptionalLong.empty();
         }
+        // The files are all fed to their page loaders before we wait for any of them, so the files on high IO
+        // devices are loaded in parallel with each other.
         long pagesLoaded = 0;
         List<PagedFile> files = pageCache.listExistingMappings();
         Profile[] existingProfiles = findExistingProfiles( files );
-        for ( PagedFile file : files )
+        List<PageLoader> loaders = new ArrayList<>( files.size() );
+        try
         {
-            try
+            for ( PagedFile file : files )
             {
-                pagesLoaded += reheat( file, existingProfiles );
-            }
-            catch ( FileIsNotMappedException ignore )
-            {
-                // The database is allowed to map and unmap files while we are trying to heat it up.
+                try
+                {
+                    pagesLoaded += reheat( file, existingProfiles, loaders );
+                }
+                catch ( FileIsNotMappedException ignore )
+                {
+                    // The database is allowed to map and unmap files while we are trying to heat it up.
+                }
             }
         }
+        finally
+        {
+            IOUtils.closeAll( loaders );
+            pageCache.reportEvents();
+        }
         return OptionalLong.of( pagesLoaded );
     }
 
@@ -201,7 +219,7 @@ public class PageCacheWarmer implements NeoStoreFileListing.StoreFileProvider
         return OptionalLong.of( pagesInMemory );
     }
 
-    private long reheat( PagedFile file, Profile[] existingProfiles ) throws IOException
+    private long reheat( PagedFile file, Profile[] existingProfiles, List<PageLoader> loaders ) throws IOException
     {
         Optional<Profile> savedProfile = filterRelevant( existingProfiles, file )
                 .sorted( Comparator.reverseOrder() ) // Try most recent profile first.
@@ -213,12 +231,16 @@ public class PageCacheWarmer implements NeoStoreFileListing.StoreFileProvider
             return 0;
         }
 
-        // The file contents checks out. Let's load it in.
+        // The file contents checks out. Let's load it in, coalescing runs of consecutive pages into single loads, so
+        // they can be read with a few large reads, in file order.
         long pagesLoaded = 0;
-        try ( InputStream input = savedProfile.get().read( fs );
-              PageLoader loader = pageLoaderFactory.getLoader( file ) )
+        PageLoader loader = pageLoaderFactory.getLoader( file );
+        loaders.add( loader );
+        try ( InputStream input = savedProfile.get().read( fs ) )
         {
             long pageId = 0;
+            long runStart = 0;
+            int runLength = 0;
             int b;
             while ( (b = input.read()) != -1 )
             {
@@ -226,20 +248,31 @@ public class PageCacheWarmer implements NeoStoreFileListing.StoreFileProvider
                 {
                     if ( stopped )
                     {
-                        pageCache.reportEvents();
                         return pagesLoaded;
                     }
                     if ( (b & 1) == 1 )
                     {
-                        loader.load( pageId );
+                        if ( runLength == 0 )
+                        {
+                            runStart = pageId;
+                        }
+                        runLength++;
                         pagesLoaded++;
                     }
+                    if ( runLength > 0 && ((b & 1) == 0 || runLength == MAX_PAGES_PER_LOAD) )
+                    {
+                        loader.load( runStart, runLength );
+                        runLength = 0;
+                    }
                     b >>= 1;
                     pageId++;
                 }
             }
+            if ( runLength > 0 )
+            {
+                loader.load( runStart, runLength );
+            }
         }
-        pageCache.reportEvents();
         return pagesLoaded;
     }
 
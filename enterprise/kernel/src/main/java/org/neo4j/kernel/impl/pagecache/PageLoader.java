@@ -24,5 +24,8 @@ import java.io.IOException;
 
 interface PageLoader extends Closeable
 {
-    void load( long pageId ) throws IOException;
+    /**
+     * Load the given range of consecutive pages into the page cache.
+     */
+    void load( long startPageId, int pageCount ) throws IOException;
 }
@@ -43,6 +43,6 @@ class PageLoaderFactory
         {
             return new ParallelPageLoader( file, executor, pageCache );
         }
-        return new SingleCursorPageLoader( file );
+        return new SequentialPageLoader( file );
     }
 }
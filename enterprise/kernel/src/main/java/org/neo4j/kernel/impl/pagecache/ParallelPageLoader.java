@@ -24,11 +24,8 @@ import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.neo4j.io.pagecache.PageCache;
-import org.neo4j.io.pagecache.PageCursor;
 import org.neo4j.io.pagecache.PagedFile;
 
-import static org.neo4j.io.pagecache.PagedFile.PF_SHARED_READ_LOCK;
-
 class ParallelPageLoader implements PageLoader
 {
     private final PagedFile file;
@@ -47,20 +44,17 @@ class ParallelPageLoader implements PageLoader
     }
 
     @Override
-    public void load( long pageId )
+    public void load( long startPageId, int pageCount )
     {
         received.getAndIncrement();
         executor.execute( () ->
         {
             try
             {
-                try ( PageCursor cursor = file.io( pageId, PF_SHARED_READ_LOCK ) )
-                {
-                    cursor.next();
-                }
-                catch ( IOException ignore )
-                {
-                }
+                file.prefetch( startPageId, pageCount );
+            }
+            catch ( IOException ignore )
+            {
             }
             finally
             {
@@ -21,29 +21,29 @@ package org.neo4j.kernel.impl.pagecache;
 
 import java.io.IOException;
 
-import org.neo4j.io.pagecache.PageCursor;
 import org.neo4j.io.pagecache.PagedFile;
 
-import static org.neo4j.io.pagecache.PagedFile.PF_SHARED_READ_LOCK;
-
-class SingleCursorPageLoader implements PageLoader
+/**
+ * Loads the pages in the calling thread, in the order they are given, which is the best we can do for devices that
+ * cannot serve many IO requests concurrently.
+ */
+class SequentialPageLoader implements PageLoader
 {
-    private final PageCursor cursor;
+    private final PagedFile file;
 
-    SingleCursorPageLoader( PagedFile file ) throws IOException
+    SequentialPageLoader( PagedFile file )
     {
-        cursor = file.io( 0, PF_SHARED_READ_LOCK );
+        this.file = file;
     }
 
     @Override
-    public void load( long pageId ) throws IOException
+    public void load( long startPageId, int pageCount ) throws IOException
     {
-        cursor.next( pageId );
+        file.prefetch( startPageId, pageCount );
     }
 
     @Override
     public void close()
     {
-        cursor.close();
     }
 }
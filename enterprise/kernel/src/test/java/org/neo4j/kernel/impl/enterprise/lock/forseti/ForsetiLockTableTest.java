@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2018-2020 "Graph Foundation"
+ * Graph Foundation, Inc. [https://graphfoundation.org]
+ *
+ * Copyright (c) 2002-2018 "Neo4j,"
+ * Neo4j Sweden AB [http://neo4j.com]
+ *
+ * This file is part of ONgDB Enterprise Edition. The included source
+ * code can be redistributed and/or modified under the terms of the
+ * GNU AFFERO GENERAL PUBLIC LICENSE Version 3
+ * (http://www.fsf.org/licensing/licenses/agpl-3.0.html) with the
+ * Commons Clause, as found
+ * in the associated LICENSE.txt file.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ */
+package org.neo4j.kernel.impl.enterprise.lock.forseti;
+
+import org.eclipse.collections.api.map.primitive.MutableLongObjectMap;
+import org.eclipse.collections.impl.map.mutable.primitive.LongObjectHashMap;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+
+public class ForsetiLockTableTest
+{
+    private final ForsetiLockTable table = new ForsetiLockTable( 2 );
+
+    @Test
+    public void shouldInstallLockOnlyIfAbsent()
+    {
+        ForsetiLockManager.Lock first = lock();
+        ForsetiLockManager.Lock second = lock();
+
+        assertNull( table.putIfAbsent( 0, first ) );
+        assertSame( first, table.putIfAbsent( 0, second ) );
+        assertSame( first, table.get( 0 ) );
+        assertEquals( 1, table.size() );
+    }
+
+    @Test
+    public void shouldReplaceInstalledLock()
+    {
+        ForsetiLockManager.Lock first = lock();
+        ForsetiLockManager.Lock second = lock();
+        table.putIfAbsent( -1, first );
+
+        assertSame( first, table.put( -1, second ) );
+        assertSame( second, table.get( -1 ) );
+        assertEquals( 1, table.size() );
+    }
+
+    @Test
+    public void shouldRemoveInstalledLock()
+    {
+        ForsetiLockManager.Lock lock = lock();
+        table.putIfAbsent( Long.MAX_VALUE, lock );
+
+        assertSame( lock, table.remove( Long.MAX_VALUE ) );
+        assertNull( table.get( Long.MAX_VALUE ) );
+        assertNull( table.remove( Long.MAX_VALUE ) );
+        assertEquals( 0, table.size() );
+    }
+
+    @Test
+    public void shouldKeepAllLocksReachableWhileGrowingAndShrinking()
+    {
+        MutableLongObjectMap<ForsetiLockManager.Lock> expected = new LongObjectHashMap<>();
+        Random random = new Random( 42 );
+        for ( int i = 0; i < 100_000; i++ )
+        {
+            // A small key space with a bias towards insertion makes the stripes grow, then churn, and then shrink.
+            long resourceId = random.nextInt( 10_000 );
+            if ( i < 80_000 && random.nextInt( 3 ) != 0 )
+            {
+                ForsetiLockManager.Lock lock = lock();
+                assertSame( expected.get( resourceId ), table.putIfAbsent( resourceId, lock ) );
+                expected.getIfAbsentPut( resourceId, lock );
+            }
+            else
+            {
+                assertSame( expected.remove( resourceId ), table.remove( resourceId ) );
+            }
+        }
+
+        assertEquals( expected.size(), table.size() );
+        MutableLongObjectMap<ForsetiLockManager.Lock> visited = new LongObjectHashMap<>();
+        table.forEach( visited::put );
+        assertEquals( expected, visited );
+        expected.forEachKeyValue( ( resourceId, lock ) -> assertSame( lock, table.get( resourceId ) ) );
+    }
+
+    @Test
+    public void shouldHandOutEveryResourceToOneClientAtATimeUnderConcurrency() throws Exception
+    {
+        int threads = 8;
+        int resources = 64;
+        int[] owners = new int[resources];
+        ExecutorService executor = Executors.newFixedThreadPool( threads );
+        try
+        {
+            List<Future<?>> futures = new ArrayList<>();
+            for ( int t = 0; t < threads; t++ )
+            {
+                int threadId = t + 1;
+                futures.add( executor.submit( () ->
+                {
+                    ForsetiLockManager.Lock myLock = lock();
+                    Random random = new Random( threadId );
+                    for ( int i = 0; i < 100_000; i++ )
+                    {
+                        int resourceId = random.nextInt( resources );
+                        if ( table.putIfAbsent( resourceId, myLock ) == null )
+                        {
+                            // We are the only ones that may own this resource until we remove our lock again.
+                            assertEquals( 0, owners[resourceId] );
+                            owners[resourceId] = threadId;
+                            assertSame( myLock, table.get( resourceId ) );
+                            assertEquals( threadId, owners[resourceId] );
+                            owners[resourceId] = 0;
+                            assertSame( myLock, table.remove( resourceId ) );
+                        }
+                    }
+                } ) );
+            }
+            for ( Future<?> future : futures )
+            {
+                future.get();
+            }
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+        assertEquals( 0, table.size() );
+    }
+
+    private static ForsetiLockManager.Lock lock()
+    {
+        return mock( ForsetiLockManager.Lock.class );
+    }
+}
@@ -81,4 +81,10 @@ public interface PageCache
     {
         return 0;
     }
+
+    @Description( "Statistics of the individual files that are currently mapped by the page cache." )
+    default PagedFileInfo[] getMappedFiles()
+    {
+        return new PagedFileInfo[0];
+    }
 }
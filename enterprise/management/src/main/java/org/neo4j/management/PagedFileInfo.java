@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2018-2020 "Graph Foundation"
+ * Graph Foundation, Inc. [https://graphfoundation.org]
+ *
+ * Copyright (c) 2002-2018 "Neo4j,"
+ * Neo4j Sweden AB [http://neo4j.com]
+ *
+ * This file is part of ONgDB Enterprise Edition. The included source
+ * code can be redistributed and/or modified under the terms of the
+ * GNU AFFERO GENERAL PUBLIC LICENSE Version 3
+ * (http://www.fsf.org/licensing/licenses/agpl-3.0.html) with the
+ * Commons Clause, as found
+ * in the associated LICENSE.txt file.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ */
+package org.neo4j.management;
+
+import java.beans.ConstructorProperties;
+import java.io.Serializable;
+
+public final class PagedFileInfo implements Serializable
+{
+    private static final long serialVersionUID = 4861362087525016293L;
+
+    private String file;
+    private long pageSize;
+    private long pins;
+    private long hits;
+    private long faults;
+    private double hitRatio;
+    private long evictions;
+    private long flushes;
+    private long bytesRead;
+    private long bytesWritten;
+
+    @ConstructorProperties( {"file", "pageSize", "pins", "hits", "faults", "hitRatio", "evictions", "flushes", "bytesRead",
+            "bytesWritten"} )
+    public PagedFileInfo( String file, long pageSize, long pins, long hits, long faults, double hitRatio, long evictions,
+            long flushes, long bytesRead, long bytesWritten )
+    {
+        this.file = file;
+        this.pageSize = pageSize;
+        this.pins = pins;
+        this.hits = hits;
+        this.faults = faults;
+        this.hitRatio = hitRatio;
+        this.evictions = evictions;
+        this.flushes = flushes;
+        this.bytesRead = bytesRead;
+        this.bytesWritten = bytesWritten;
+    }
+
+    public String getFile()
+    {
+        return file;
+    }
+
+    public long getPageSize()
+    {
+        return pageSize;
+    }
+
+    public long getPins()
+    {
+        return pins;
+    }
+
+    public long getHits()
+    {
+        return hits;
+    }
+
+    public long getFaults()
+    {
+        return faults;
+    }
+
+    public double getHitRatio()
+    {
+        return hitRatio;
+    }
+
+    public long getEvictions()
+    {
+        return evictions;
+    }
+
+    public long getFlushes()
+    {
+        return flushes;
+    }
+
+    public long getBytesRead()
+    {
+        return bytesRead;
+    }
+
+    public long getBytesWritten()
+    {
+        return bytesWritten;
+    }
+}
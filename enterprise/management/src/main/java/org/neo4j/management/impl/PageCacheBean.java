@@ -19,13 +19,19 @@
  */
 package org.neo4j.management.impl;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
 import javax.management.NotCompliantMBeanException;
 
+import org.neo4j.io.pagecache.PagedFile;
 import org.neo4j.io.pagecache.monitoring.PageCacheCounters;
+import org.neo4j.io.pagecache.monitoring.PagedFileCounters;
 import org.neo4j.jmx.impl.ManagementBeanProvider;
 import org.neo4j.jmx.impl.ManagementData;
 import org.neo4j.jmx.impl.Neo4jMBean;
 import org.neo4j.management.PageCache;
+import org.neo4j.management.PagedFileInfo;
 
 public final class PageCacheBean extends ManagementBeanProvider
 {
@@ -43,11 +49,13 @@ public final class PageCacheBean extends ManagementBeanProvider
     private static class PageCacheImpl extends Neo4jMBean implements PageCache
     {
         private final PageCacheCounters pageCacheCounters;
+        private final org.neo4j.io.pagecache.PageCache pageCache;
 
         PageCacheImpl( ManagementData management ) throws NotCompliantMBeanException
         {
             super( management );
             this.pageCacheCounters = management.resolveDependency( PageCacheCounters.class );
+            this.pageCache = management.resolveDependency( org.neo4j.io.pagecache.PageCache.class );
         }
 
         @Override
@@ -127,5 +135,28 @@ public final class PageCacheBean extends ManagementBeanProvider
         {
             return pageCacheCounters.usageRatio();
         }
+
+        @Override
+        public PagedFileInfo[] getMappedFiles()
+        {
+            try
+            {
+                List<PagedFile> pagedFiles = pageCache.listExistingMappings();
+                PagedFileInfo[] infos = new PagedFileInfo[pagedFiles.size()];
+                for ( int i = 0; i < infos.length; i++ )
+                {
+                    PagedFile pagedFile = pagedFiles.get( i );
+                    PagedFileCounters counters = pagedFile.counters();
+                    infos[i] = new PagedFileInfo( pagedFile.file().getAbsolutePath(), pagedFile.pageSize(),
+                            counters.pins(), counters.hits(), counters.faults(), counters.hitRatio(),
+                            counters.evictions(), counters.flushes(), counters.bytesRead(), counters.bytesWritten() );
+                }
+                return infos;
+            }
+            catch ( IOException e )
+            {
+                throw new UncheckedIOException( e );
+            }
+        }
     }
 }
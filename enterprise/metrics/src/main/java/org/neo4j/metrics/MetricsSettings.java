@@ -77,6 +77,11 @@ public class MetricsSettings implements LoadableConfig
     public static final Setting<Boolean> neoCountsEnabled = buildSetting(
             "metrics.neo4j.counts.enabled", BOOLEAN ).inherits( neoEnabled ).build();
 
+    @Description( "Enable reporting metrics about lock contention; how often, and for how long, transactions wait " +
+                  "for locks held by other transactions, per resource type." )
+    public static final Setting<Boolean> neoLocksEnabled = buildSetting(
+            "metrics.neo4j.locks.enabled", BOOLEAN ).inherits( neoEnabled ).build();
+
     @Description( "Enable reporting metrics about the network usage." )
     public static final Setting<Boolean> neoNetworkEnabled = buildSetting(
             "metrics.neo4j.network.enabled", BOOLEAN ).inherits( neoEnabled ).build();
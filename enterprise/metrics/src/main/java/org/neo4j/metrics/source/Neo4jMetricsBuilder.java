@@ -30,6 +30,7 @@ import org.neo4j.kernel.ha.cluster.member.ClusterMembers;
 import org.neo4j.kernel.impl.api.LogRotationMonitor;
 import org.neo4j.kernel.impl.factory.Edition;
 import org.neo4j.kernel.impl.factory.OperationalMode;
+import org.neo4j.kernel.impl.locking.Locks;
 import org.neo4j.kernel.impl.spi.KernelContext;
 import org.neo4j.kernel.impl.store.stats.StoreEntityCounters;
 import org.neo4j.kernel.impl.transaction.log.TransactionIdStore;
@@ -50,6 +51,7 @@ import org.neo4j.metrics.source.db.BoltMetrics;
 import org.neo4j.metrics.source.db.CheckPointingMetrics;
 import org.neo4j.metrics.source.db.CypherMetrics;
 import org.neo4j.metrics.source.db.EntityCountMetrics;
+import org.neo4j.metrics.source.db.LockMetrics;
 import org.neo4j.metrics.source.db.LogRotationMetrics;
 import org.neo4j.metrics.source.db.PageCacheMetrics;
 import org.neo4j.metrics.source.db.TransactionMetrics;
@@ -101,8 +103,8 @@ public class Neo4jMetricsBuilder
         boolean result = false;
         if ( config.get( MetricsSettings.neoTxEnabled ) )
         {
-            life.add( new TransactionMetrics( registry, databaseDependencySupplier( TransactionIdStore.class ),
-                    dependencies.transactionCounters() ) );
+            life.add( new TransactionMetrics( registry, dependencies.monitors(),
+                    databaseDependencySupplier( TransactionIdStore.class ), dependencies.transactionCounters() ) );
             result = true;
         }
 
@@ -136,6 +138,12 @@ public class Neo4jMetricsBuilder
             }
         }
 
+        if ( config.get( MetricsSettings.neoLocksEnabled ) )
+        {
+            life.add( new LockMetrics( registry, databaseDependencySupplier( Locks.class ) ) );
+            result = true;
+        }
+
         if ( config.get( MetricsSettings.neoNetworkEnabled ) )
         {
             life.add( new NetworkMetrics( registry, dependencies.monitors() ) );
@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2018-2020 "Graph Foundation"
+ * Graph Foundation, Inc. [https://graphfoundation.org]
+ *
+ * Copyright (c) 2002-2018 "Neo4j,"
+ * Neo4j Sweden AB [http://neo4j.com]
+ *
+ * This file is part of ONgDB Enterprise Edition. The included source
+ * code can be redistributed and/or modified under the terms of the
+ * GNU AFFERO GENERAL PUBLIC LICENSE Version 3
+ * (http://www.fsf.org/licensing/licenses/agpl-3.0.html) with the
+ * Commons Clause, as found
+ * in the associated LICENSE.txt file.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ */
+package org.neo4j.metrics.source.db;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.neo4j.kernel.impl.annotations.Documented;
+import org.neo4j.kernel.impl.locking.LockContentionStatistics;
+import org.neo4j.kernel.impl.locking.Locks;
+import org.neo4j.kernel.impl.locking.ResourceTypes;
+import org.neo4j.kernel.lifecycle.LifecycleAdapter;
+import org.neo4j.storageengine.api.lock.ResourceType;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+@Documented( ".Database lock metrics" )
+public class LockMetrics extends LifecycleAdapter
+{
+    private static final String LOCKS_PREFIX = "neo4j.locks";
+
+    @Documented( "The total number of times transactions have waited for locks held by other transactions, with one " +
+            "metric per resource type, such as node, relationship or label" )
+    public static final String LOCK_WAITS = name( LOCKS_PREFIX, "waits" );
+    @Documented( "The total time transactions have spent waiting for locks held by other transactions, in " +
+            "milliseconds, with one metric per resource type" )
+    public static final String LOCK_WAIT_TIME = name( LOCKS_PREFIX, "wait_time" );
+    @Documented( "The 99th percentile of the time transactions have spent waiting for a lock, in microseconds, " +
+            "rounded up to a power of two, with one metric per resource type" )
+    public static final String LOCK_WAIT_TIME_P99 = name( LOCKS_PREFIX, "wait_time_p99" );
+
+    private final MetricRegistry registry;
+    private final Supplier<Locks> locks;
+
+    public LockMetrics( MetricRegistry registry, Supplier<Locks> locks )
+    {
+        this.registry = registry;
+        this.locks = locks;
+    }
+
+    @Override
+    public void start()
+    {
+        for ( ResourceType type : ResourceTypes.values() )
+        {
+            registry.register( metricName( LOCK_WAITS, type ), (Gauge<Long>) () -> statistics().waits( type ) );
+            registry.register( metricName( LOCK_WAIT_TIME, type ),
+                    (Gauge<Long>) () -> TimeUnit.NANOSECONDS.toMillis( statistics().waitTimeNanos( type ) ) );
+            registry.register( metricName( LOCK_WAIT_TIME_P99, type ),
+                    (Gauge<Long>) () -> statistics().waitTimePercentileMicros( type, 99 ) );
+        }
+    }
+
+    @Override
+    public void stop()
+    {
+        for ( ResourceType type : ResourceTypes.values() )
+        {
+            registry.remove( metricName( LOCK_WAITS, type ) );
+            registry.remove( metricName( LOCK_WAIT_TIME, type ) );
+            registry.remove( metricName( LOCK_WAIT_TIME_P99, type ) );
+        }
+    }
+
+    private LockContentionStatistics statistics()
+    {
+        return locks.get().contentionStatistics();
+    }
+
+    private static String metricName( String metric, ResourceType type )
+    {
+        return name( metric, type.name().toLowerCase( Locale.ROOT ) );
+    }
+}
@@ -20,14 +20,23 @@
 package org.neo4j.metrics.source.db;
 
 import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
 import com.codahale.metrics.MetricRegistry;
 
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
 
 import org.neo4j.kernel.impl.annotations.Documented;
+import org.neo4j.kernel.impl.api.CommitLatencyTracer;
+import org.neo4j.kernel.impl.api.CommitLatencyTracer.CommitPhase;
+import org.neo4j.kernel.impl.transaction.log.BatchingTransactionAppender;
 import org.neo4j.kernel.impl.transaction.log.TransactionIdStore;
 import org.neo4j.kernel.impl.transaction.stats.TransactionCounters;
 import org.neo4j.kernel.lifecycle.LifecycleAdapter;
+import org.neo4j.kernel.monitoring.Monitors;
 
 import static com.codahale.metrics.MetricRegistry.name;
 
@@ -74,14 +83,29 @@ public class TransactionMetrics extends LifecycleAdapter
     @Documented( "The ID of the last closed transaction" )
     public static final String LAST_CLOSED_TX_ID = name( TRANSACTION_PREFIX, "last_closed_tx_id" );
 
+    @Documented( "The distribution of the number of committing transactions made durable by each force of the " +
+            "transaction log" )
+    public static final String LOG_FORCE_BATCH_SIZE = name( TRANSACTION_PREFIX, "log_force_batch_size" );
+    @Documented( "The distribution of the time it takes to force the transaction log, in microseconds" )
+    public static final String LOG_FORCE_LATENCY = name( TRANSACTION_PREFIX, "log_force_latency" );
+    @Documented( "The distribution of the time spent in each phase of committing a transaction, in microseconds, " +
+            "with one metric per phase: commit, lock_acquisition, create_commands, log_append, serialization, " +
+            "log_force_wait, store_apply and index_apply. All phases but index_apply are only reported when the " +
+            "commit_latency tracer is used" )
+    public static final String COMMIT_PHASE_LATENCY = name( TRANSACTION_PREFIX, "commit_phase_latency" );
+
     private final MetricRegistry registry;
+    private final Monitors monitors;
     private final TransactionCounters transactionCounters;
     private final Supplier<TransactionIdStore> transactionIdStore;
+    private final LogForceListener logForceListener = new LogForceListener();
+    private final CommitPhaseListener commitPhaseListener = new CommitPhaseListener();
 
-    public TransactionMetrics( MetricRegistry registry,
+    public TransactionMetrics( MetricRegistry registry, Monitors monitors,
             Supplier<TransactionIdStore> transactionIdStore, TransactionCounters transactionCounters )
     {
         this.registry = registry;
+        this.monitors = monitors;
         this.transactionIdStore = transactionIdStore;
         this.transactionCounters = transactionCounters;
     }
@@ -118,6 +142,18 @@ public class TransactionMetrics extends LifecycleAdapter
                 transactionIdStore.get().getLastCommittedTransactionId() );
         registry.register( LAST_CLOSED_TX_ID, (Gauge<Long>) () ->
                 transactionIdStore.get().getLastClosedTransactionId() );
+
+        logForceListener.batchSizes = registry.histogram( LOG_FORCE_BATCH_SIZE );
+        logForceListener.latencies = registry.histogram( LOG_FORCE_LATENCY );
+        monitors.addMonitorListener( logForceListener );
+
+        Map<CommitPhase,Histogram> phaseLatencies = new EnumMap<>( CommitPhase.class );
+        for ( CommitPhase phase : CommitPhase.values() )
+        {
+            phaseLatencies.put( phase, registry.histogram( commitPhaseLatencyName( phase ) ) );
+        }
+        commitPhaseListener.latencies = phaseLatencies;
+        monitors.addMonitorListener( commitPhaseListener );
     }
 
     @Override
@@ -144,5 +180,44 @@ public class TransactionMetrics extends LifecycleAdapter
 
         registry.remove( LAST_COMMITTED_TX_ID );
         registry.remove( LAST_CLOSED_TX_ID );
+
+        monitors.removeMonitorListener( logForceListener );
+        registry.remove( LOG_FORCE_BATCH_SIZE );
+        registry.remove( LOG_FORCE_LATENCY );
+
+        monitors.removeMonitorListener( commitPhaseListener );
+        for ( CommitPhase phase : CommitPhase.values() )
+        {
+            registry.remove( commitPhaseLatencyName( phase ) );
+        }
+    }
+
+    private static String commitPhaseLatencyName( CommitPhase phase )
+    {
+        return name( COMMIT_PHASE_LATENCY, phase.name().toLowerCase( Locale.ROOT ) );
+    }
+
+    private static class LogForceListener implements BatchingTransactionAppender.Monitor
+    {
+        private volatile Histogram batchSizes;
+        private volatile Histogram latencies;
+
+        @Override
+        public void logForced( int batchSize, long forceNanos )
+        {
+            batchSizes.update( batchSize );
+            latencies.update( TimeUnit.NANOSECONDS.toMicros( forceNanos ) );
+        }
+    }
+
+    private static class CommitPhaseListener implements CommitLatencyTracer.Monitor
+    {
+        private volatile Map<CommitPhase,Histogram> latencies;
+
+        @Override
+        public void commitPhaseCompleted( CommitPhase phase, long elapsedNanos )
+        {
+            latencies.get( phase ).update( TimeUnit.NANOSECONDS.toMicros( elapsedNanos ) );
+        }
     }
 }
@@ -61,6 +61,17 @@ class FakeTransactionIdStore implements TransactionIdStore
         return transactionId;
     }
 
+    @Override
+    public void transactionDurable( long transactionId )
+    {
+    }
+
+    @Override
+    public long getLastDurableTransactionId()
+    {
+        return transactionId;
+    }
+
     @Override
     public TransactionId getLastCommittedTransaction()
     {
@@ -26,6 +26,8 @@ import java.util.concurrent.TimeUnit;
 
 import org.neo4j.kernel.impl.transaction.tracing.CheckPointTracer;
 import org.neo4j.kernel.impl.transaction.tracing.CommitEvent;
+import org.neo4j.kernel.impl.transaction.tracing.CreateCommandsEvent;
+import org.neo4j.kernel.impl.transaction.tracing.LockAcquisitionEvent;
 import org.neo4j.kernel.impl.transaction.tracing.LogAppendEvent;
 import org.neo4j.kernel.impl.transaction.tracing.LogCheckPointEvent;
 import org.neo4j.kernel.impl.transaction.tracing.LogForceEvent;
@@ -148,6 +150,18 @@ public class TimerTransactionTracer implements TransactionTracer, CheckPointTrac
         {
         }
 
+        @Override
+        public LockAcquisitionEvent beginLockAcquisition()
+        {
+            return LockAcquisitionEvent.NULL;
+        }
+
+        @Override
+        public CreateCommandsEvent beginCreateCommands()
+        {
+            return CreateCommandsEvent.NULL;
+        }
+
         @Override
         public LogAppendEvent beginLogAppend()
         {